@@ -122,6 +122,8 @@ public class SqoopOptions implements Cloneable {
   @StoredAsProperty("codegen.auto.compile.dir") private boolean jarDirIsAuto;
   private String hadoopHome; // not serialized to metastore.
   @StoredAsProperty("db.split.column") private String splitByCol;
+  @StoredAsProperty("db.split.strategy") private String splitStrategy;
+  @StoredAsProperty("db.split.dynamic.ranges") private int dynamicSplits;
   @StoredAsProperty("db.where.clause") private String whereClause;
   @StoredAsProperty("db.query") private String sqlQuery;
   @StoredAsProperty("jdbc.driver.class") private String driverClassName;
@@ -152,7 +154,14 @@ public class SqoopOptions implements Cloneable {
   // class to use.
   @StoredAsProperty("codegen.jar.file") private String existingJarFile;
 
+  // if true, use GenericSqoopRecord instead of compiling a class.
+  @StoredAsProperty("codegen.generic.records")
+  private boolean useGenericRecords;
+
   @StoredAsProperty("mapreduce.num.mappers") private int numMappers;
+
+  // Number of tables that import-all-tables imports concurrently.
+  @StoredAsProperty("import.parallel.tables") private int parallelTables;
   @StoredAsProperty("enable.compression") private boolean useCompression;
 
   // In direct mode, open a new stream every X bytes.
@@ -168,6 +177,9 @@ public class SqoopOptions implements Cloneable {
   // Column to use for the WHERE clause in an UPDATE-based export.
   @StoredAsProperty("export.update.col") private String updateKeyCol;
 
+  // If true, exports INSERT one row per statement using JDBC batches.
+  @StoredAsProperty("export.batch") private boolean batchMode;
+
   private DelimiterSet inputDelimiters; // codegen.input.delimiters.
   private DelimiterSet outputDelimiters; // codegen.output.delimiters.
   private boolean areDelimsManuallySet;
@@ -190,6 +202,9 @@ public class SqoopOptions implements Cloneable {
   // if true, create tables/col families.
   @StoredAsProperty("hbase.create.table") private boolean hbaseCreateTable;
 
+  // if true, write HFiles and bulk-load them instead of sending Puts.
+  @StoredAsProperty("hbase.bulk.load") private boolean hbaseBulkLoad;
+
   // col to filter on for incremental imports.
   @StoredAsProperty("incremental.col") private String incrementalTestCol;
   // incremental import mode we're using.
@@ -206,6 +221,9 @@ public class SqoopOptions implements Cloneable {
   // "key" column for the merge operation.
   @StoredAsProperty("merge.key.col") private String mergeKeyCol;
 
+  // If true, the merge datasets are sorted and co-partitioned by the key.
+  @StoredAsProperty("merge.sorted") private boolean sortedMerge;
+
 
   // These next two fields are not serialized to the metastore.
   // If this SqoopOptions is created by reading a saved job, these will
@@ -658,6 +676,7 @@ public class SqoopOptions implements Cloneable {
     this.areDelimsManuallySet = false;
 
     this.numMappers = DEFAULT_NUM_MAPPERS;
+    this.parallelTables = 1;
     this.useCompression = false;
     this.directSplitSize = 0;
 
@@ -828,6 +847,30 @@ public class SqoopOptions implements Cloneable {
   public void setSplitByCol(String splitBy) {
     this.splitByCol = splitBy;
   }
+
+  /**
+   * @return the strategy used to choose the boundaries between splits
+   * of the split-by column, or null for the default.
+   */
+  public String getSplitStrategy() {
+    return splitStrategy;
+  }
+
+  public void setSplitStrategy(String strategy) {
+    this.splitStrategy = strategy;
+  }
+
+  /**
+   * @return the number of split ranges per map task to hand out from a
+   * shared work queue, or 0 if each task reads a single fixed range.
+   */
+  public int getDynamicSplits() {
+    return dynamicSplits;
+  }
+
+  public void setDynamicSplits(int rangesPerTask) {
+    this.dynamicSplits = rangesPerTask;
+  }
   
   public String getWhereClause() {
     return whereClause;
@@ -889,6 +932,18 @@ public class SqoopOptions implements Cloneable {
     this.numMappers = m;
   }
 
+  /**
+   * @return the number of tables import-all-tables should import at
+   * once.
+   */
+  public int getParallelTables() {
+    return this.parallelTables;
+  }
+
+  public void setParallelTables(int n) {
+    this.parallelTables = n;
+  }
+
   /**
    * @return the user-specified absolute class name for the table.
    */
@@ -912,6 +967,19 @@ public class SqoopOptions implements Cloneable {
     this.packageName = name;
   }
 
+  /**
+   * @return true if imports and exports should use a GenericSqoopRecord
+   * described by the table's schema, rather than generating and compiling
+   * a record class.
+   */
+  public boolean useGenericRecords() {
+    return useGenericRecords;
+  }
+
+  public void setUseGenericRecords(boolean useGeneric) {
+    this.useGenericRecords = useGeneric;
+  }
+
   public String getHiveHome() {
     return hiveHome;
   }
@@ -1364,6 +1432,21 @@ public class SqoopOptions implements Cloneable {
     return this.updateKeyCol;
   }
 
+  /**
+   * Set whether exports should insert rows with JDBC batches of
+   * single-row statements, rather than multi-row INSERT statements.
+   */
+  public void setBatchMode(boolean batch) {
+    this.batchMode = batch;
+  }
+
+  /**
+   * @return true if exports should use JDBC batch mode for inserts.
+   */
+  public boolean isBatchMode() {
+    return this.batchMode;
+  }
+
   /**
    * @return an ordered list of column names. The code generator should
    * generate the DBWritable.write(PreparedStatement) method with columns
@@ -1409,6 +1492,21 @@ public class SqoopOptions implements Cloneable {
     return this.hbaseCreateTable;
   }
 
+  /**
+   * Set whether HBase imports should write HFiles and bulk-load them
+   * into the table rather than sending Puts to the region servers.
+   */
+  public void setHBaseBulkLoad(boolean bulkLoad) {
+    this.hbaseBulkLoad = bulkLoad;
+  }
+
+  /**
+   * Returns true if HBase imports should be performed via bulk-load.
+   */
+  public boolean isHBaseBulkLoad() {
+    return this.hbaseBulkLoad;
+  }
+
   /**
    * Sets the HBase target column family.
    */
@@ -1586,5 +1684,21 @@ public class SqoopOptions implements Cloneable {
     return this.mergeKeyCol;
   }
 
+  /**
+   * Set whether the old and new datasets are partitioned and sorted by
+   * the merge key, allowing them to be merged without a reduce phase.
+   */
+  public void setSortedMerge(boolean sorted) {
+    this.sortedMerge = sorted;
+  }
+
+  /**
+   * Return true if the old and new datasets are partitioned and sorted by
+   * the merge key, allowing them to be merged without a reduce phase.
+   */
+  public boolean isSortedMerge() {
+    return this.sortedMerge;
+  }
+
 }
 
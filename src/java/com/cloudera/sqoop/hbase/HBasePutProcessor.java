@@ -20,6 +20,7 @@ package com.cloudera.sqoop.hbase;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -59,6 +60,35 @@ public class HBasePutProcessor implements Closeable, Configurable,
   public static final String TRANSFORMER_CLASS_KEY =
       "sqoop.hbase.insert.put.transformer.class";
 
+  /**
+   * Configuration key specifying the size (in bytes) of the client-side
+   * write buffer used for each connection to the table.
+   */
+  public static final String WRITE_BUFFER_SIZE_KEY =
+      "sqoop.hbase.insert.write.buffer.size";
+
+  /** Default write buffer size; 0 uses the HBase client default. */
+  public static final long DEFAULT_WRITE_BUFFER_SIZE = 8 * 1024 * 1024;
+
+  /**
+   * Configuration key specifying how many Puts to accumulate before
+   * handing them to the HBase client as a single list.
+   */
+  public static final String BATCH_SIZE_KEY =
+      "sqoop.hbase.insert.batch.size";
+
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  /**
+   * Configuration key specifying the number of threads used to write
+   * to HBase. If greater than 1, Puts are grouped by region and written
+   * in parallel by a ParallelPutWriter.
+   */
+  public static final String WRITER_THREADS_KEY =
+      "sqoop.hbase.insert.writer.threads";
+
+  public static final int DEFAULT_WRITER_THREADS = 1;
+
   private Configuration conf;
 
   // An object that can transform a map of fieldName->object
@@ -66,38 +96,69 @@ public class HBasePutProcessor implements Closeable, Configurable,
   private PutTransformer putTransformer;
 
   private String tableName;
+
+  // Exactly one of these is used to write to the table.
   private HTable table;
+  private ParallelPutWriter parallelWriter;
+
+  // Puts that have not yet been handed to the client.
+  private List<Put> pendingPuts;
+  private int batchSize;
 
   public HBasePutProcessor() {
   }
   
   @Override
-  @SuppressWarnings("unchecked")
   public void setConf(Configuration config) {
     this.conf = config;
+    this.putTransformer = getPutTransformer(config);
 
-    // Get the implementation of PutTransformer to use.
-    // By default, we call toString() on every non-null field.
-    Class<? extends PutTransformer> xformerClass =
-        (Class<? extends PutTransformer>)
-        this.conf.getClass(TRANSFORMER_CLASS_KEY, ToStringPutTransformer.class);
-    this.putTransformer = (PutTransformer)
-        ReflectionUtils.newInstance(xformerClass, this.conf);
-    if (null == putTransformer) {
-      throw new RuntimeException("Could not instantiate PutTransformer.");
-    }
+    this.batchSize = Math.max(1, conf.getInt(BATCH_SIZE_KEY,
+        DEFAULT_BATCH_SIZE));
+    this.pendingPuts = new ArrayList<Put>(batchSize);
 
-    this.putTransformer.setColumnFamily(conf.get(COL_FAMILY_KEY, null));
-    this.putTransformer.setRowKeyColumn(conf.get(ROW_KEY_COLUMN_KEY, null));
+    long writeBufferSize = conf.getLong(WRITE_BUFFER_SIZE_KEY,
+        DEFAULT_WRITE_BUFFER_SIZE);
+    int numWriters = conf.getInt(WRITER_THREADS_KEY, DEFAULT_WRITER_THREADS);
 
     this.tableName = conf.get(TABLE_NAME_KEY, null);
     try {
-      this.table = new HTable(conf, this.tableName);
+      if (numWriters > 1) {
+        this.parallelWriter = new ParallelPutWriter(conf, this.tableName,
+            numWriters, writeBufferSize);
+      } else {
+        this.table = new HTable(conf, this.tableName);
+        this.table.setAutoFlush(false);
+        if (writeBufferSize > 0) {
+          this.table.setWriteBufferSize(writeBufferSize);
+        }
+      }
     } catch (IOException ioe) {
       throw new RuntimeException("Could not access HBase table " + tableName,
           ioe);
     }
-    this.table.setAutoFlush(false);
+  }
+
+  /**
+   * Instantiate the PutTransformer named in the configuration and set
+   * its column family and row key column.
+   */
+  @SuppressWarnings("unchecked")
+  public static PutTransformer getPutTransformer(Configuration conf) {
+    // Get the implementation of PutTransformer to use.
+    // By default, we call toString() on every non-null field.
+    Class<? extends PutTransformer> xformerClass =
+        (Class<? extends PutTransformer>)
+        conf.getClass(TRANSFORMER_CLASS_KEY, ToStringPutTransformer.class);
+    PutTransformer putTransformer = (PutTransformer)
+        ReflectionUtils.newInstance(xformerClass, conf);
+    if (null == putTransformer) {
+      throw new RuntimeException("Could not instantiate PutTransformer.");
+    }
+
+    putTransformer.setColumnFamily(conf.get(COL_FAMILY_KEY, null));
+    putTransformer.setRowKeyColumn(conf.get(ROW_KEY_COLUMN_KEY, null));
+    return putTransformer;
   }
 
   @Override
@@ -116,18 +177,44 @@ public class HBasePutProcessor implements Closeable, Configurable,
 
     List<Put> putList = putTransformer.getPutCommand(fields);
     if (null != putList) {
-      for (Put put : putList) {
-        this.table.put(put);
+      pendingPuts.addAll(putList);
+      if (pendingPuts.size() >= batchSize) {
+        writePendingPuts();
       }
     }
   }
 
+  /**
+   * Hand all accumulated Puts to the HBase client.
+   */
+  private void writePendingPuts() throws IOException {
+    if (pendingPuts.isEmpty()) {
+      return;
+    }
+
+    if (null != parallelWriter) {
+      // The writer keeps the list until the batch is written.
+      parallelWriter.write(pendingPuts);
+      pendingPuts = new ArrayList<Put>(batchSize);
+    } else {
+      this.table.put(pendingPuts);
+      pendingPuts.clear();
+    }
+  }
+
   @Override
   /**
    * Closes the HBase table and commits all pending operations.
    */
   public void close() throws IOException {
-    this.table.flushCommits();
-    this.table.close();
+    try {
+      writePendingPuts();
+    } finally {
+      if (null != parallelWriter) {
+        parallelWriter.close();
+      } else {
+        this.table.close();
+      }
+    }
   }
 }
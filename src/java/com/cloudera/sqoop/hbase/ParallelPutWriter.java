@@ -0,0 +1,241 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.hbase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+
+/**
+ * Writes batches of Puts to an HBase table using several writer threads.
+ *
+ * Each thread owns its own HTable (HTable is not thread-safe) and its own
+ * client-side write buffer. The Puts in a batch are grouped by the region
+ * that holds their row, and every region is assigned to a single writer,
+ * so each writer's RPCs only target a subset of the regions.
+ *
+ * A batch is handed to the writers asynchronously; the caller can then
+ * build the next batch while the previous one is being sent. Before the
+ * next batch is dispatched, all writers must have finished the previous
+ * one. Puts may still sit in a writer's buffer after that, so when a
+ * batch touches a region that has not been seen before (e.g., after a
+ * split, when a row may now belong to a different writer), all writer
+ * buffers are flushed first. This keeps Puts to the same row in order.
+ */
+public class ParallelPutWriter implements Closeable {
+
+  public static final Log LOG = LogFactory.getLog(
+      ParallelPutWriter.class.getName());
+
+  // Used to look up region locations; only called from the client thread.
+  private final HTable locator;
+
+  private final HTable [] tables;
+  private final ExecutorService executor;
+
+  // Results for the batch currently being written.
+  private final List<Future<Object>> pending;
+
+  // Names of the regions Puts have been assigned to so far.
+  private final Set<String> knownRegions;
+
+  /**
+   * Open 'numWriters' connections to the named table.
+   * @param conf the configuration to use to connect to HBase.
+   * @param tableName the table to write to.
+   * @param numWriters the number of writer threads to use.
+   * @param writeBufferSize the size of each writer's client-side write
+   * buffer in bytes, or 0 to use the HBase default.
+   */
+  public ParallelPutWriter(Configuration conf, String tableName,
+      int numWriters, long writeBufferSize) throws IOException {
+    if (numWriters < 1) {
+      throw new IllegalArgumentException("Need at least one writer thread; "
+          + "got " + numWriters);
+    }
+
+    this.locator = new HTable(conf, tableName);
+    this.tables = new HTable[numWriters];
+    for (int i = 0; i < numWriters; i++) {
+      HTable table = new HTable(conf, tableName);
+      table.setAutoFlush(false);
+      if (writeBufferSize > 0) {
+        table.setWriteBufferSize(writeBufferSize);
+      }
+      this.tables[i] = table;
+    }
+
+    this.executor = Executors.newFixedThreadPool(numWriters,
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            // Don't keep the task alive if close() is never called.
+            Thread t = new Thread(r, "HBase put writer");
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    this.pending = new ArrayList<Future<Object>>(numWriters);
+    this.knownRegions = new HashSet<String>();
+  }
+
+  /**
+   * @return the index of the writer responsible for the specified region.
+   */
+  private int getWriterIndex(HRegionLocation loc) {
+    // HRegionInfo's hash code is derived from the region name.
+    int hash = loc.getRegionInfo().hashCode();
+    return (hash & Integer.MAX_VALUE) % tables.length;
+  }
+
+  /**
+   * Dispatch a batch of Puts to the writer threads. This waits for the
+   * previous batch to be written, but does not wait for this one. The
+   * caller must not modify the list after calling this method.
+   * @throws IOException if writing the previous batch failed.
+   */
+  @SuppressWarnings("unchecked")
+  public void write(List<Put> puts) throws IOException {
+    waitForPending();
+
+    List<Put> [] groups = new List[tables.length];
+    boolean newRegions = false;
+    for (Put put : puts) {
+      HRegionLocation loc = locator.getRegionLocation(put.getRow());
+      if (knownRegions.add(loc.getRegionInfo().getRegionNameAsString())) {
+        newRegions = true;
+      }
+      int idx = getWriterIndex(loc);
+      if (null == groups[idx]) {
+        groups[idx] = new ArrayList<Put>();
+      }
+      groups[idx].add(put);
+    }
+
+    if (newRegions) {
+      // Rows in a new region may have been written through another
+      // writer, whose buffer could still hold their earlier Puts.
+      flush();
+    }
+
+    for (int i = 0; i < tables.length; i++) {
+      if (null != groups[i]) {
+        pending.add(executor.submit(new PutTask(tables[i], groups[i])));
+      }
+    }
+  }
+
+  /**
+   * Write all outstanding Puts to HBase and wait for them to complete.
+   */
+  public void flush() throws IOException {
+    waitForPending();
+    for (HTable table : tables) {
+      pending.add(executor.submit(new PutTask(table, null)));
+    }
+    waitForPending();
+  }
+
+  /**
+   * Wait for all dispatched work to finish.
+   * @throws IOException if any writer failed.
+   */
+  private void waitForPending() throws IOException {
+    IOException firstError = null;
+    for (Future<Object> future : pending) {
+      try {
+        future.get();
+      } catch (InterruptedException ie) {
+        if (null == firstError) {
+          firstError = new IOException("Interrupted writing to HBase");
+          firstError.initCause(ie);
+        }
+      } catch (ExecutionException ee) {
+        if (null == firstError) {
+          Throwable cause = ee.getCause();
+          if (cause instanceof IOException) {
+            firstError = (IOException) cause;
+          } else {
+            firstError = new IOException("Error writing to HBase: " + cause);
+            firstError.initCause(cause);
+          }
+        }
+      }
+    }
+    pending.clear();
+
+    if (null != firstError) {
+      throw firstError;
+    }
+  }
+
+  /**
+   * Flushes all pending Puts and releases the writer threads.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      executor.shutdown();
+      for (HTable table : tables) {
+        table.close();
+      }
+      locator.close();
+    }
+  }
+
+  /**
+   * Adds a group of Puts to a writer's table, or flushes the table's
+   * write buffer if the group is null.
+   */
+  private static class PutTask implements Callable<Object> {
+    private final HTable table;
+    private final List<Put> puts;
+
+    PutTask(HTable table, List<Put> puts) {
+      this.table = table;
+      this.puts = puts;
+    }
+
+    public Object call() throws IOException {
+      if (null == puts) {
+        table.flushCommits();
+      } else {
+        table.put(puts);
+      }
+      return null;
+    }
+  }
+}
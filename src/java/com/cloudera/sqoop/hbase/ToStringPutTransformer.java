@@ -20,9 +20,9 @@ package com.cloudera.sqoop.hbase;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -42,8 +42,18 @@ public class ToStringPutTransformer extends PutTransformer {
   // Used to cache serialization work done for fields names.
   private Map<String, byte[]> serializedFieldNames;
 
+  // The serialized column family, computed when the family is set.
+  private byte [] colFamilyBytes;
+
   public ToStringPutTransformer() {
-    serializedFieldNames = new TreeMap<String, byte[]>();
+    serializedFieldNames = new HashMap<String, byte[]>();
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void setColumnFamily(String colFamily) {
+    super.setColumnFamily(colFamily);
+    this.colFamilyBytes = null == colFamily ? null : Bytes.toBytes(colFamily);
   }
 
   /**
@@ -69,8 +79,6 @@ public class ToStringPutTransformer extends PutTransformer {
       throws IOException {
 
     String rowKeyCol = getRowKeyColumn();
-    String colFamily = getColumnFamily();
-    byte [] colFamilyBytes = Bytes.toBytes(colFamily);
 
     Object rowKey = fields.get(rowKeyCol);
     if (null == rowKey) {
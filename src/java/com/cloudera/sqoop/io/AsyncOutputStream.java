@@ -0,0 +1,304 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.io;
+
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+
+/**
+ * An output stream that copies data into one of two buffers and writes
+ * full buffers to an underlying stream from a background thread. The
+ * calling thread can fill one buffer while the other is being written.
+ *
+ * The underlying stream is only used by the background thread, except
+ * between a call to sync() and the next write(). An error raised by the
+ * underlying stream is reported by the next call made on this stream.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+  /**
+   * A buffer handed to the background thread, along with the number of
+   * bytes in it to write.
+   */
+  private static class Chunk {
+    private final byte [] buf;
+    private final int len;
+
+    Chunk(byte [] buf, int len) {
+      this.buf = buf;
+      this.len = len;
+    }
+  }
+
+  // Guards the fields below, which are shared with the background thread.
+  private final Object lock = new Object();
+  private final LinkedList<Chunk> pending = new LinkedList<Chunk>();
+  private final LinkedList<byte []> freeBuffers = new LinkedList<byte []>();
+  private int numInFlight; // chunks queued or being written.
+  private OutputStream dest;
+  private IOException error;
+  private boolean stopped;
+
+  // The buffer the caller is currently filling.
+  private byte [] curBuf;
+  private int curLen;
+
+  private final Thread writerThread;
+  private boolean closed;
+
+  /**
+   * Create a new AsyncOutputStream.
+   * @param dest the stream to write to; may be null if it will be
+   *     set with setDestination() before any data is written.
+   * @param bufferSize the size of each of the two buffers.
+   * @param name the name to give the background thread.
+   */
+  public AsyncOutputStream(OutputStream dest, int bufferSize, String name) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Invalid buffer size: "
+          + bufferSize);
+    }
+
+    this.dest = dest;
+    this.curBuf = new byte[bufferSize];
+    this.freeBuffers.add(new byte[bufferSize]);
+
+    this.writerThread = new Thread(name) {
+      @Override
+      public void run() {
+        writeChunks();
+      }
+    };
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Set the stream that subsequent writes go to. Any data already
+   * written to this stream is first sent to the previous destination.
+   */
+  public void setDestination(OutputStream out) throws IOException {
+    sync();
+    synchronized (lock) {
+      this.dest = out;
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    checkOpen();
+    if (curLen == curBuf.length) {
+      handOff();
+    }
+
+    curBuf[curLen++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte [] b, int off, int len) throws IOException {
+    checkOpen();
+    while (len > 0) {
+      if (curLen == curBuf.length) {
+        handOff();
+      }
+
+      int toCopy = Math.min(len, curBuf.length - curLen);
+      System.arraycopy(b, off, curBuf, curLen, toCopy);
+      curLen += toCopy;
+      off += toCopy;
+      len -= toCopy;
+    }
+  }
+
+  /**
+   * Wait until all data written so far has been written to the underlying
+   * stream. Does not flush the underlying stream.
+   */
+  public void sync() throws IOException {
+    checkOpen();
+    if (curLen > 0) {
+      handOff();
+    }
+
+    synchronized (lock) {
+      while (numInFlight > 0) {
+        waitOnLock();
+      }
+
+      checkError();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    sync();
+    synchronized (lock) {
+      if (null != dest) {
+        dest.flush();
+      }
+    }
+  }
+
+  /**
+   * Write out any buffered data, stop the background thread and close
+   * the underlying stream (if any).
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    boolean synced = false;
+    try {
+      sync();
+      synced = true;
+    } finally {
+      closed = true;
+      synchronized (lock) {
+        stopped = true;
+        lock.notifyAll();
+      }
+
+      try {
+        writerThread.join();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+
+      // Only the calling thread uses dest from here on. It is closed even
+      // if the last of the data could not be written.
+      if (null != dest && synced) {
+        dest.close();
+      } else if (null != dest) {
+        try {
+          dest.close();
+        } catch (IOException ioe) {
+          // Already failing; the error from sync() is rethrown.
+        }
+      }
+    }
+  }
+
+  /**
+   * Queue the current buffer for the background thread, and take a free
+   * buffer to fill next. Blocks while both buffers are in use.
+   */
+  private void handOff() throws IOException {
+    synchronized (lock) {
+      while (freeBuffers.isEmpty() && null == error) {
+        waitOnLock();
+      }
+
+      checkError();
+      pending.add(new Chunk(curBuf, curLen));
+      numInFlight++;
+      lock.notifyAll();
+
+      curBuf = freeBuffers.removeFirst();
+      curLen = 0;
+    }
+  }
+
+  /**
+   * Main loop of the background thread. Writes each queued chunk to the
+   * current destination. After an error, chunks are discarded so that
+   * the caller does not block forever.
+   */
+  private void writeChunks() {
+    while (true) {
+      Chunk chunk;
+      OutputStream out;
+      synchronized (lock) {
+        while (pending.isEmpty() && !stopped) {
+          try {
+            lock.wait();
+          } catch (InterruptedException ie) {
+            // Keep going; we only exit when told to stop.
+          }
+        }
+
+        if (pending.isEmpty()) {
+          return; // stopped, and nothing left to write.
+        }
+
+        chunk = pending.removeFirst();
+        out = dest;
+      }
+
+      IOException writeErr = null;
+      try {
+        if (null == out) {
+          throw new IOException("No destination set for buffered data");
+        }
+
+        if (null == error) {
+          out.write(chunk.buf, 0, chunk.len);
+        }
+      } catch (IOException ioe) {
+        writeErr = ioe;
+      } catch (RuntimeException re) {
+        writeErr = new IOException("Error writing buffered data", re);
+      }
+
+      synchronized (lock) {
+        if (null == error && null != writeErr) {
+          error = writeErr;
+        }
+
+        freeBuffers.add(chunk.buf);
+        numInFlight--;
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Wait to be notified by the background thread. Must be called with
+   * the lock held.
+   */
+  private void waitOnLock() throws IOException {
+    try {
+      lock.wait();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted waiting for buffered data to be written");
+    }
+  }
+
+  /**
+   * Rethrow any error from the background thread. Must be called with the
+   * lock held.
+   */
+  private void checkError() throws IOException {
+    if (null != error) {
+      throw new IOException("Error writing buffered data: "
+          + error.getMessage(), error);
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream has been closed.");
+    }
+  }
+}
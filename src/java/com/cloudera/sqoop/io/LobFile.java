@@ -19,18 +19,23 @@
 package com.cloudera.sqoop.io;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.EOFException;
+import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.ArrayList;
@@ -40,16 +45,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.zip.Deflater;
 
 import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.DataInputBuffer;
@@ -83,6 +92,52 @@ public final class LobFile {
   public static final Log LOG = LogFactory.getLog(LobFile.class.getName());
 
   public static final int LATEST_LOB_VERSION = 0;
+
+  /**
+   * If true (the default), Reader.readRecordBuffer() memory-maps LobFiles
+   * stored on the local filesystem rather than reading each record.
+   */
+  public static final String MMAP_ENABLED_KEY = "sqoop.lobfile.mmap.enabled";
+
+  /**
+   * If true (the default), a Writer compresses and writes record data
+   * from background threads, so that the caller can produce the next
+   * block of data while the previous one is being written.
+   */
+  public static final String ASYNC_WRITE_KEY =
+      "sqoop.lobfile.async.write.enabled";
+
+  /** Size of each of the buffers used by the background writer threads. */
+  public static final String ASYNC_BUFFER_SIZE_KEY =
+      "sqoop.lobfile.async.buffer.size";
+  public static final int DEFAULT_ASYNC_BUFFER_SIZE = 256 * 1024;
+
+  /**
+   * If true, and the file has a codec, the codec is chosen separately for
+   * each record: records which are very short, which are already in a
+   * compressed format, or whose first bytes do not compress are stored
+   * uncompressed. The choice is recorded in the index. Files written this
+   * way cannot be read by earlier versions of Sqoop.
+   */
+  public static final String PER_RECORD_CODEC_KEY =
+      "sqoop.lobfile.codec.per.record";
+
+  /**
+   * With per-record codecs, the codec to use for large records instead of
+   * the file's codec (e.g., a faster one).
+   */
+  public static final String LARGE_RECORD_CODEC_KEY =
+      "sqoop.lobfile.codec.large.record";
+
+  /** Records with a claimed length of at least this many bytes are large. */
+  public static final String LARGE_RECORD_SIZE_KEY =
+      "sqoop.lobfile.codec.large.record.size";
+  public static final long DEFAULT_LARGE_RECORD_SIZE = 16 * 1024 * 1024;
+
+  // With per-record codecs, the index entry for each record holds its
+  // length shifted left by this many bits, and the id of its codec.
+  static final int CODEC_ID_BITS = 3;
+  static final int MAX_RECORD_CODECS = 1 << CODEC_ID_BITS;
   static final char [] HEADER_ID_STR = { 'L', 'O', 'B' };
 
   // Value for entryId to write to the beginning of an IndexSegment. 
@@ -249,6 +304,12 @@ public final class LobFile {
     public static final String ENTRY_ENCODING_KEY = "EntryEncoding";
     public static final String COMPRESSION_CODEC_KEY = "CompressionCodec";
     public static final String ENTRIES_PER_SEGMENT_KEY = "EntriesPerSegment";
+    public static final String RECORD_CODECS_KEY = "RecordCodecs";
+
+    // Value of COMPRESSION_CODEC_KEY if each record has its own codec. The
+    // codecs are listed, comma-separated, under RECORD_CODECS_KEY; the
+    // first is always "none".
+    public static final String PER_RECORD_CODEC = "per-record";
 
     // Standard entry encodings.
     public static final String CLOB_ENCODING = "CLOB";
@@ -354,20 +415,25 @@ public final class LobFile {
     // The IndexTableEntry that describes this IndexSegment in the IndexTable.
     private IndexTableEntry tableEntry;
 
-    public IndexSegment(IndexTableEntry tableEntry) {
+    // True if each entry also holds the id of the record's codec.
+    private boolean hasCodecIds;
+
+    public IndexSegment(IndexTableEntry tableEntry, boolean hasCodecIds) {
       this.recordLenBytes = new BytesWritable();
       this.outputBuffer = new DataOutputBuffer(10); // max VLong size.
       this.tableEntry = tableEntry;
+      this.hasCodecIds = hasCodecIds;
     }
 
     /**
      * Read an IndexSegment from an existing file.
      */
-    public IndexSegment(IndexTableEntry tableEntry, DataInput in)
-        throws IOException {
+    public IndexSegment(IndexTableEntry tableEntry, boolean hasCodecIds,
+        DataInput in) throws IOException {
       this.recordLenBytes = new BytesWritable();
       this.outputBuffer = new DataOutputBuffer(10);
       this.tableEntry = tableEntry;
+      this.hasCodecIds = hasCodecIds;
       readFields(in);
     }
 
@@ -380,16 +446,22 @@ public final class LobFile {
     }
 
     /**
-     * Add a recordLength to the recordLenBytes array.
+     * Add a recordLength (and the id of the record's codec, if the segment
+     * holds codec ids) to the recordLenBytes array.
      */
-    public void addRecordLen(long recordLen) throws IOException {
+    public void addRecordLen(long recordLen, int codecId) throws IOException {
+      long entry = recordLen;
+      if (hasCodecIds) {
+        entry = (recordLen << CODEC_ID_BITS) | codecId;
+      }
+
       // Allocate space for the new bytes.
-      int numBytes = WritableUtils.getVIntSize(recordLen);
+      int numBytes = WritableUtils.getVIntSize(entry);
       recordLenBytes.setSize(recordLenBytes.getLength() + numBytes);
 
       // Write the new bytes into a temporary buffer wrapped in a DataOutput.
       outputBuffer.reset();
-      WritableUtils.writeVLong(outputBuffer, recordLen);
+      WritableUtils.writeVLong(outputBuffer, entry);
 
       // Then copy those new bytes into the end of the recordLenBytes array.
       System.arraycopy(outputBuffer.getData(), 0, recordLenBytes.getBytes(),
@@ -452,15 +524,17 @@ public final class LobFile {
     
     private DataInputBuffer dataInputBuf;
 
-    // The following two fields are advanced by the next() method.
+    // The following fields are advanced by the next() method.
     private long curOffset; // offset into the file of the current record.
     private long curLen; // length of the current record in bytes.
+    private int curCodecId; // codec id of the current record.
 
     // Used to allow rewindOnce() to go backwards a single position in the
     // iterator.
     private int prevInputBufPos; // prev offset into dataInputBuf.
     private long prevOffset;
     private long prevLen;
+    private int prevCodecId;
 
     /**
      * Resets the record index iterator.
@@ -499,7 +573,14 @@ public final class LobFile {
         // Then read out the next record length.
         try {
           this.prevLen = this.curLen;
-          this.curLen = WritableUtils.readVLong(dataInputBuf);
+          this.prevCodecId = this.curCodecId;
+          long entry = WritableUtils.readVLong(dataInputBuf);
+          if (hasCodecIds) {
+            this.curLen = entry >>> CODEC_ID_BITS;
+            this.curCodecId = (int) (entry & (MAX_RECORD_CODECS - 1));
+          } else {
+            this.curLen = entry;
+          }
         } catch (IOException ioe) {
           // Shouldn't happen; data in DataInputBuffer is materialized.
           throw new RuntimeException(ioe);
@@ -532,6 +613,7 @@ public final class LobFile {
         // And restore the previously-yielded values.
         this.curLen = this.prevLen;
         this.curOffset = this.prevOffset;
+        this.curCodecId = this.prevCodecId;
       }
     }
 
@@ -544,6 +626,15 @@ public final class LobFile {
       return curLen;
     }
 
+    /**
+     * Returns the id of the codec used by the current record, or 0 if the
+     * segment does not hold codec ids.
+     * You must call next() and it must return true before calling this method.
+     */
+    public int getCurRecordCodecId() {
+      return curCodecId;
+    }
+
     /**
      * Returns the offset of the current record from the beginning of the file.
      * You must call next() and it must return true before calling this method.
@@ -772,6 +863,22 @@ public final class LobFile {
     }
   }
 
+  // Leading bytes of common file formats which are already compressed.
+  private static final byte [][] COMPRESSED_FORMAT_MAGIC = {
+    { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF }, // JPEG
+    { (byte) 0x89, 'P', 'N', 'G' }, // PNG
+    { 'G', 'I', 'F', '8' }, // GIF
+    { 'P', 'K', 3, 4 }, // ZIP, JAR, and office documents
+    { 0x1F, (byte) 0x8B }, // gzip
+    { 'B', 'Z', 'h' }, // bzip2
+    { (byte) 0xFD, '7', 'z', 'X', 'Z', 0 }, // xz
+    { '7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C }, // 7-zip
+    { 'R', 'a', 'r', '!' }, // RAR
+    { 'I', 'D', '3' }, // MP3
+    { 'O', 'g', 'g', 'S' }, // Ogg
+  };
+  private static final byte [] FTYP_MAGIC = { 'f', 't', 'y', 'p' };
+
   /**
    * Concrete writer implementation for LobFile format version 0.
    * Instantiate via LobFile.create().
@@ -808,6 +915,14 @@ public final class LobFile {
     // of how much data we've written so far.
     private CountingOutputStream countingOut;
 
+    // If writing asynchronously, countingOut is layered on top of this
+    // stream, which writes to the file from a background thread.
+    private AsyncOutputStream asyncFileOut;
+
+    // If writing asynchronously with a codec, the user's record data is
+    // handed to this stream, which compresses it from a background thread.
+    private AsyncOutputStream asyncCompressOut;
+
     // State regarding the current record being written.
     private long curEntryId; // entryId of the current LOB being written.
     private long curClaimedLen; // The user claims a length for a record.
@@ -822,6 +937,41 @@ public final class LobFile {
     // really written.
     private CountingOutputStream userCountingOutputStream;
 
+    // The compressing stream for the current record, if any. This is
+    // the same as userOutputStream unless compressing asynchronously.
+    private OutputStream compressorStream;
+
+    // If each record has its own codec, the names of the codecs records
+    // may use, indexed by the codec id stored in the index. The first is
+    // always "none". Null if the whole file uses a single codec.
+    private String [] recordCodecNames;
+    private Compressor [] recordCompressors;
+
+    // Codec ids for large records, and for all other records.
+    private int largeRecordCodecId;
+    private int defaultRecordCodecId;
+    private long largeRecordSize;
+
+    // The codec chooser for the current record, with per-record codecs.
+    private CodecChoosingOutputStream curCodecChooser;
+
+    // Holds the first bytes of each record, with per-record codecs.
+    private byte [] sampleBuf;
+
+    // Used to check whether each sample is compressible.
+    private Deflater sampleDeflater;
+    private byte [] deflateBuf;
+
+    // With per-record codecs, records shorter than this are not compressed.
+    static final int MIN_COMPRESSED_RECORD_LEN = 128;
+
+    // Number of bytes at the start of each record used to choose its codec.
+    static final int CODEC_SAMPLE_LEN = 64 * 1024;
+
+    // A sample must compress to at most this fraction of its size for its
+    // record to be compressed.
+    static final double MAX_SAMPLE_RATIO = 0.9;
+
     /**
      * Creates a LobFile Writer for file format version 0.
      * @param p the path to create.
@@ -848,18 +998,71 @@ public final class LobFile {
           this.compressor = codec.createCompressor();
         }
       }
+
+      if (null != this.codec && conf.getBoolean(PER_RECORD_CODEC_KEY, false)) {
+        initRecordCodecs();
+      }
       
       init();
     }
 
+    /**
+     * Set up the table of codecs that records may use, with "none" first,
+     * then the file's codec, then the codec for large records (if
+     * different).
+     */
+    private void initRecordCodecs() throws IOException {
+      List<String> names = new ArrayList<String>();
+      names.add(CodecMap.NONE);
+      names.add(this.codecName);
+      this.defaultRecordCodecId = 1;
+      this.largeRecordCodecId = 1;
+
+      String largeCodecName = conf.get(LARGE_RECORD_CODEC_KEY);
+      if (null != largeCodecName) {
+        if (!names.contains(largeCodecName)) {
+          names.add(largeCodecName);
+        }
+        this.largeRecordCodecId = names.indexOf(largeCodecName);
+      }
+
+      this.largeRecordSize = conf.getLong(LARGE_RECORD_SIZE_KEY,
+          DEFAULT_LARGE_RECORD_SIZE);
+
+      this.recordCodecNames = names.toArray(new String[names.size()]);
+      this.recordCompressors = new Compressor[names.size()];
+      this.recordCompressors[1] = this.compressor;
+      for (int i = 2; i < names.size(); i++) {
+        CompressionCodec c = CodecMap.getCodec(names.get(i), conf);
+        this.recordCompressors[i] = c.createCompressor();
+      }
+
+      this.sampleBuf = new byte[CODEC_SAMPLE_LEN];
+      this.deflateBuf = new byte[4096];
+      this.sampleDeflater = new Deflater(Deflater.BEST_SPEED);
+    }
+
     /**
      * Open the file and write its header.
      */
     private void init() throws IOException {
       FileSystem fs = this.path.getFileSystem(conf);
       FSDataOutputStream fsOut = fs.create(this.path);
-      this.countingOut = new CountingOutputStream(
-          new BufferedOutputStream(fsOut));
+      if (conf.getBoolean(ASYNC_WRITE_KEY, true)) {
+        int bufferSize = conf.getInt(ASYNC_BUFFER_SIZE_KEY,
+            DEFAULT_ASYNC_BUFFER_SIZE);
+        this.asyncFileOut = new AsyncOutputStream(fsOut, bufferSize,
+            "LobFile writer for " + this.path);
+        this.countingOut = new CountingOutputStream(this.asyncFileOut);
+        if (null != codec) {
+          // (This also runs the per-record codec choice in the background.)
+          this.asyncCompressOut = new AsyncOutputStream(null, bufferSize,
+              "LobFile compressor for " + this.path);
+        }
+      } else {
+        this.countingOut = new CountingOutputStream(
+            new BufferedOutputStream(fsOut));
+      }
       this.out = new DataOutputStream(this.countingOut);
 
       // put any necessary config strings into the header.
@@ -870,7 +1073,19 @@ public final class LobFile {
         m.put(MetaBlock.ENTRY_ENCODING_KEY, MetaBlock.BLOB_ENCODING);
       }
 
-      if (null != codec) {
+      if (null != recordCodecNames) {
+        // Readers which do not support per-record codecs will reject
+        // this as an unknown codec.
+        m.put(MetaBlock.COMPRESSION_CODEC_KEY, MetaBlock.PER_RECORD_CODEC);
+        StringBuilder sb = new StringBuilder();
+        for (String name : recordCodecNames) {
+          if (sb.length() > 0) {
+            sb.append(",");
+          }
+          sb.append(name);
+        }
+        m.put(MetaBlock.RECORD_CODECS_KEY, sb.toString());
+      } else if (null != codec) {
         m.put(MetaBlock.COMPRESSION_CODEC_KEY, this.codecName);
       }
 
@@ -902,7 +1117,11 @@ public final class LobFile {
      */
     public long tell() throws IOException {
       checkForNull(this.out);
-      this.out.flush();
+      if (null == this.asyncFileOut) {
+        this.out.flush();
+      }
+      // Otherwise, countingOut has seen every byte handed to the background
+      // writer, and there is no need to wait for it.
       return this.countingOut.getByteCount();
     }
 
@@ -911,8 +1130,21 @@ public final class LobFile {
      * {@inheritDoc}
      */
     public void close() throws IOException {
-      finishRecord();
-      writeIndex();
+      try {
+        finishRecord();
+        writeIndex();
+      } finally {
+        if (null != this.asyncCompressOut) {
+          this.asyncCompressOut.close();
+          this.asyncCompressOut = null;
+        }
+
+        if (null != this.sampleDeflater) {
+          this.sampleDeflater.end();
+          this.sampleDeflater = null;
+        }
+      }
+
       if (this.out != null) {
         this.out.close();
         this.out = null;
@@ -938,25 +1170,30 @@ public final class LobFile {
 
         // If there is a wrapping stream for compression,
         // close this first.
-        if (null != this.userOutputStream
-            && this.userOutputStream != this.userCountingOutputStream) {
-          this.userOutputStream.close();
+        if (null != this.compressorStream) {
+          finishCompression();
         }
 
         // Now close the "main" stream.
         this.userCountingOutputStream.close();
 
         // Write the true length of the current record to the index.
+        int codecId = 0;
+        if (null != this.curCodecChooser) {
+          codecId = this.curCodecChooser.getCodecId();
+        }
         updateIndex(this.userCountingOutputStream.getByteCount()
             + RecordStartMark.START_MARK_LENGTH
             + WritableUtils.getVIntSize(curEntryId)
-            + WritableUtils.getVIntSize(curClaimedLen));
+            + WritableUtils.getVIntSize(curClaimedLen), codecId);
 
         this.userOutputStream = null;
         this.userCountingOutputStream = null;
+        this.compressorStream = null;
+        this.curCodecChooser = null;
       }
 
-      if (null != this.out) {
+      if (null != this.out && null == this.asyncFileOut) {
         out.flush();
       }
     }
@@ -965,11 +1202,13 @@ public final class LobFile {
      * Write in the current IndexSegment, the true compressed length of the
      * record we just finished writing.
      * @param curRecordLen the true length in bytes of the compressed record.
+     * @param codecId the id of the record's codec, with per-record codecs.
      */
-    private void updateIndex(long curRecordLen) throws IOException {
+    private void updateIndex(long curRecordLen, int codecId)
+        throws IOException {
       LOG.debug("Adding index entry: id=" + curEntryId
-          + "; len=" + curRecordLen);
-      indexSegments.getLast().addRecordLen(curRecordLen);
+          + "; len=" + curRecordLen + "; codec=" + codecId);
+      indexSegments.getLast().addRecordLen(curRecordLen, codecId);
       entriesInSegment++;
       curEntryId++;
     }
@@ -1012,7 +1251,8 @@ public final class LobFile {
         // The current segment is full. Start a new one.
         this.entriesInSegment = 0;
         IndexTableEntry tableEntry = new IndexTableEntry();
-        IndexSegment curSegment = new IndexSegment(tableEntry);
+        IndexSegment curSegment = new IndexSegment(tableEntry,
+            null != recordCodecNames);
         this.indexSegments.add(curSegment);
 
         long filePos = tell();
@@ -1045,16 +1285,198 @@ public final class LobFile {
         // No codec; pass thru the same OutputStream to the user.
         this.userOutputStream = this.userCountingOutputStream;
       } else {
-        // Wrap our CountingOutputStream in a compressing OutputStream to
-        // give to the user.
-        this.compressor.reset();
-        this.userOutputStream = new CompressorStream(
-            this.userCountingOutputStream, compressor);
+        if (null != this.recordCodecNames) {
+          // Choose the codec once we have seen the start of the record.
+          this.curCodecChooser = new CodecChoosingOutputStream(claimedLen);
+          this.compressorStream = this.curCodecChooser;
+        } else {
+          // Wrap our CountingOutputStream in a compressing OutputStream.
+          this.compressor.reset();
+          this.compressorStream = new CompressorStream(
+              this.userCountingOutputStream, compressor);
+        }
+
+        if (null == this.asyncCompressOut) {
+          // Give the compressing stream directly to the user.
+          this.userOutputStream = this.compressorStream;
+        } else {
+          // Let the user fill buffers that are compressed in the
+          // background. Closing the user's stream finishes compression,
+          // so that tell() then accounts for the whole record.
+          this.asyncCompressOut.setDestination(this.compressorStream);
+          this.userOutputStream = new ProxyOutputStream(
+              this.asyncCompressOut) {
+            @Override
+            public void close() throws IOException {
+              finishCompression();
+            }
+          };
+        }
       }
 
       return this.userOutputStream;
     }
 
+    /**
+     * Write out all compressed data for the current record. If compressing
+     * in the background, this first waits for the background thread to
+     * consume all of the user's data.
+     */
+    private void finishCompression() throws IOException {
+      if (null != this.asyncCompressOut) {
+        this.asyncCompressOut.setDestination(null);
+      }
+
+      this.compressorStream.close();
+    }
+
+    /**
+     * @return true if the data appears to be in a format which is already
+     * compressed, based on its leading "magic" bytes.
+     */
+    private boolean isCompressedFormat(byte [] buf, int len) {
+      for (byte [] magic : COMPRESSED_FORMAT_MAGIC) {
+        if (len >= magic.length && startsWith(buf, 0, magic)) {
+          return true;
+        }
+      }
+
+      // MP4 and QuickTime files have an "ftyp" box at offset 4.
+      return len >= 8 && startsWith(buf, 4, FTYP_MAGIC);
+    }
+
+    private boolean startsWith(byte [] buf, int off, byte [] prefix) {
+      for (int i = 0; i < prefix.length; i++) {
+        if (buf[off + i] != prefix[i]) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * @return true if the data compresses well enough to be worth
+     * compressing, using a fast deflate as an estimate for any codec.
+     */
+    private boolean isCompressible(byte [] buf, int len) {
+      long maxCompressedLen = (long) (len * MAX_SAMPLE_RATIO);
+      sampleDeflater.reset();
+      sampleDeflater.setInput(buf, 0, len);
+      sampleDeflater.finish();
+      long compressedLen = 0;
+      while (!sampleDeflater.finished()) {
+        compressedLen += sampleDeflater.deflate(deflateBuf);
+        if (compressedLen > maxCompressedLen) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * Buffers the first bytes of a record, chooses the record's codec based
+     * on them, and then writes the record through that codec.
+     */
+    private class CodecChoosingOutputStream extends OutputStream {
+      private final int preferredCodecId;
+      private final int sampleLimit;
+      private int sampleLen;
+      private int codecId = -1; // not chosen yet.
+      private OutputStream dest;
+      private boolean closed;
+      private final byte [] oneByte = new byte[1];
+
+      CodecChoosingOutputStream(long claimedLen) {
+        if (claimedLen >= largeRecordSize) {
+          this.preferredCodecId = largeRecordCodecId;
+        } else {
+          this.preferredCodecId = defaultRecordCodecId;
+        }
+
+        // If the record is short, choose as soon as it has been written.
+        this.sampleLimit = (int) Math.max(MIN_COMPRESSED_RECORD_LEN,
+            Math.min(claimedLen, CODEC_SAMPLE_LEN));
+      }
+
+      /**
+       * @return the id of the codec chosen for the record. Only valid
+       * after the stream has been closed.
+       */
+      int getCodecId() {
+        return codecId;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        oneByte[0] = (byte) b;
+        write(oneByte, 0, 1);
+      }
+
+      @Override
+      public void write(byte [] b, int off, int len) throws IOException {
+        if (null == dest) {
+          int toCopy = Math.min(len, sampleLimit - sampleLen);
+          System.arraycopy(b, off, sampleBuf, sampleLen, toCopy);
+          sampleLen += toCopy;
+          if (sampleLen < sampleLimit) {
+            return;
+          }
+
+          chooseCodec();
+          off += toCopy;
+          len -= toCopy;
+        }
+
+        if (len > 0) {
+          dest.write(b, off, len);
+        }
+      }
+
+      private void chooseCodec() throws IOException {
+        codecId = preferredCodecId;
+        if (codecId != 0 && (sampleLen < MIN_COMPRESSED_RECORD_LEN
+            || isCompressedFormat(sampleBuf, sampleLen)
+            || !isCompressible(sampleBuf, sampleLen))) {
+          codecId = 0;
+        }
+
+        if (codecId == 0) {
+          dest = userCountingOutputStream;
+        } else {
+          Compressor c = recordCompressors[codecId];
+          c.reset();
+          dest = new CompressorStream(userCountingOutputStream, c);
+        }
+
+        dest.write(sampleBuf, 0, sampleLen);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        if (null != dest) {
+          dest.flush();
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (closed) {
+          return;
+        }
+
+        closed = true;
+        if (null == dest) {
+          chooseCodec();
+        }
+
+        if (codecId != 0) {
+          dest.close(); // Finish the compressed stream.
+        }
+      }
+    }
+
     @Override
     /**
      * {@inheritDoc}
@@ -1156,6 +1578,26 @@ public final class LobFile {
      */
     public abstract java.io.Reader readClobRecord() throws IOException;
 
+    /**
+     * @return the name of the codec the current record is compressed
+     * with, or "none" if it is not compressed.
+     */
+    public abstract String getRecordCodec();
+
+    /**
+     * Read the entire record which begins at byte offset 'offset' (as
+     * returned by getRecordOffset() or Writer.tell()) into a ByteBuffer.
+     * Unlike seek() and next(), this does not move the reader's cursor or
+     * disturb any open record stream, so records can be fetched in any
+     * order. The buffer holds the (decompressed) bytes of the record, and
+     * remains valid after the Reader is closed.
+     * @param offset the offset of the beginning of the record.
+     * @return a buffer positioned at the start of the record's data.
+     * @throws IOException if no record begins at 'offset'.
+     */
+    public abstract ByteBuffer readRecordBuffer(long offset)
+        throws IOException;
+
     /**
      * Closes the reader.
      */
@@ -1203,6 +1645,13 @@ public final class LobFile {
     private CompressionCodec codec;
     private Decompressor decompressor;
 
+    // If each record has its own codec, the codecs indexed by codec id
+    // (null for "none"), and decompressors for them created as needed.
+    private String [] recordCodecNames;
+    private CompressionCodec [] recordCodecs;
+    private Decompressor [] recordDecompressors;
+    private Decompressor [] bufferDecompressors;
+
     // Length of the entire file.
     private long fileLen;
 
@@ -1227,6 +1676,10 @@ public final class LobFile {
     // true length from the index.
     private long indexRecordLen;
 
+    // After we've aligned on a record, this contains the id of its codec
+    // from the index, if each record has its own codec.
+    private int indexRecordCodecId;
+
     // tmp buffer used to consume RecordStartMarks during alignment.
     private byte [] tmpRsmBuf;
 
@@ -1256,6 +1709,20 @@ public final class LobFile {
     // The path being opened.
     private Path path;
 
+    // Record start offsets and lengths decoded from each IndexSegment for
+    // use by readRecordBuffer(); filled in as segments are needed.
+    private long [][] segmentRecordStarts;
+    private long [][] segmentRecordLens;
+    private byte [][] segmentRecordCodecIds;
+
+    // The whole file, if it is local and has been memory-mapped.
+    private ByteBuffer mappedFile;
+    private boolean mapAttempted;
+
+    // Decompressor used by readRecordBuffer(), separate from the one
+    // backing any open record stream.
+    private Decompressor bufferDecompressor;
+
     // Users should use LobFile.open() instead of directly calling this.
     V0Reader(Path path, Configuration conf, LobFileHeader header,
         DataInputStream dis, FSDataInputStream stream, long fileLen)
@@ -1280,7 +1747,27 @@ public final class LobFile {
     private void openCodec() throws IOException {
       String codecName = header.getMetaBlock().getString(
           MetaBlock.COMPRESSION_CODEC_KEY);
-      if (null != codecName) {
+      if (MetaBlock.PER_RECORD_CODEC.equals(codecName)) {
+        String codecList = header.getMetaBlock().getString(
+            MetaBlock.RECORD_CODECS_KEY);
+        if (null == codecList) {
+          throw new IOException("Missing record codec list in " + path);
+        }
+
+        LOG.debug("Decompressing records with codecs: " + codecList);
+        this.recordCodecNames = codecList.split(",");
+        if (this.recordCodecNames.length > MAX_RECORD_CODECS) {
+          throw new IOException("Too many record codecs: " + codecList);
+        }
+
+        int numCodecs = this.recordCodecNames.length;
+        this.recordCodecs = new CompressionCodec[numCodecs];
+        this.recordDecompressors = new Decompressor[numCodecs];
+        this.bufferDecompressors = new Decompressor[numCodecs];
+        for (int i = 0; i < numCodecs; i++) {
+          this.recordCodecs[i] = CodecMap.getCodec(recordCodecNames[i], conf);
+        }
+      } else if (null != codecName) {
         LOG.debug("Decompressing file with codec: " + codecName);
         this.codec = CodecMap.getCodec(codecName, conf);
         if (null != this.codec) {
@@ -1406,7 +1893,8 @@ public final class LobFile {
 
       // Read the IndexSegment proper.
       this.curIndexSegment = new IndexSegment(
-          this.indexTable.get(curIndexSegmentId), this.dataIn);
+          this.indexTable.get(curIndexSegmentId), null != recordCodecs,
+          this.dataIn);
     }
 
     /**
@@ -1620,6 +2108,8 @@ public final class LobFile {
       // Determine where the next record starts.
       this.indexRecordLen = this.curIndexSegment.getCurRecordLen();
       this.curRecordOffset = this.curIndexSegment.getCurRecordStart();
+      this.indexRecordCodecId = this.curIndexSegment.getCurRecordCodecId();
+      checkCodecId(this.indexRecordCodecId);
 
       LOG.debug("Next record starts at position: " + this.curRecordOffset
           + "; indexedLen=" + this.indexRecordLen);
@@ -1670,6 +2160,29 @@ public final class LobFile {
       return this.curEntryId;
     }
 
+    @Override
+    /** {@inheritDoc} */
+    public String getRecordCodec() {
+      if (null != this.recordCodecNames) {
+        return this.recordCodecNames[this.indexRecordCodecId];
+      } else if (null != this.codec) {
+        return header.getMetaBlock().getString(
+            MetaBlock.COMPRESSION_CODEC_KEY);
+      } else {
+        return CodecMap.NONE;
+      }
+    }
+
+    /**
+     * Check that a codec id from the index refers to a known record codec.
+     */
+    private void checkCodecId(int codecId) throws IOException {
+      if (null != recordCodecNames && codecId >= recordCodecNames.length) {
+        throw new IOException("Index refers to unknown codec id "
+            + codecId + " in " + path);
+      }
+    }
+
     @Override
     /** {@inheritDoc} */
     public long getRecordOffset() {
@@ -1702,7 +2215,19 @@ public final class LobFile {
           - WritableUtils.getVIntSize(this.claimedRecordLen);
       LOG.debug("Yielding stream to user with length " + streamLen);
       this.userInputStream = new FixedLengthInputStream(this.dataIn, streamLen);
-      if (this.codec != null) {
+      if (this.recordCodecs != null) {
+        // Decompress with this record's own codec, if it has one.
+        int codecId = this.indexRecordCodecId;
+        if (null != recordCodecs[codecId]) {
+          if (null == recordDecompressors[codecId]) {
+            recordDecompressors[codecId] =
+                recordCodecs[codecId].createDecompressor();
+          }
+          recordDecompressors[codecId].reset();
+          this.userInputStream = new DecompressorStream(
+              this.userInputStream, recordDecompressors[codecId]);
+        }
+      } else if (this.codec != null) {
         // The user needs to decompress the data; wrap the InputStream.
         decompressor.reset();
         this.userInputStream = new DecompressorStream(
@@ -1719,10 +2244,256 @@ public final class LobFile {
       return new InputStreamReader(is);
     }
 
+    @Override
+    /** {@inheritDoc} */
+    public ByteBuffer readRecordBuffer(long offset) throws IOException {
+      checkForNull(this.underlyingInput);
+      int segmentId = findIndexSegment(offset);
+      int recordId = -1;
+      if (segmentId >= 0) {
+        loadRecordLocations(segmentId);
+        recordId = Arrays.binarySearch(segmentRecordStarts[segmentId],
+            offset);
+      }
+
+      if (recordId < 0) {
+        throw new IOException("No record begins at offset " + offset
+            + " in " + path);
+      }
+
+      long recordLen = segmentRecordLens[segmentId][recordId];
+      if (recordLen > Integer.MAX_VALUE) {
+        throw new IOException("Record at offset " + offset
+            + " is too large for a buffer: " + recordLen + " bytes");
+      }
+
+      ByteBuffer buf = readFileRange(offset, (int) recordLen);
+
+      // Check and skip the RecordStartMark and the record header.
+      byte [] rsm = this.header.getStartMark().getBytes();
+      for (int i = 0; i < RecordStartMark.START_MARK_LENGTH; i++) {
+        if (buf.get() != rsm[i]) {
+          throw new IOException("Index contains bogus offset.");
+        }
+      }
+
+      long entryId = readVLong(buf);
+      if (entryId < 0) {
+        throw new IOException("No record begins at offset " + offset
+            + " in " + path);
+      }
+      readVLong(buf); // claimed length.
+
+      ByteBuffer data = buf.slice();
+      CompressionCodec recordCodec = this.codec;
+      Decompressor recordDecompressor;
+      if (null != this.recordCodecs) {
+        int codecId = segmentRecordCodecIds[segmentId][recordId];
+        checkCodecId(codecId);
+        recordCodec = recordCodecs[codecId];
+        if (null != recordCodec && null == bufferDecompressors[codecId]) {
+          bufferDecompressors[codecId] = recordCodec.createDecompressor();
+        }
+        recordDecompressor = bufferDecompressors[codecId];
+      } else {
+        if (null != recordCodec && null == bufferDecompressor) {
+          bufferDecompressor = recordCodec.createDecompressor();
+        }
+        recordDecompressor = bufferDecompressor;
+      }
+
+      if (null == recordCodec) {
+        return data;
+      }
+
+      // Decompress the record into a new buffer.
+      recordDecompressor.reset();
+
+      byte [] compressed = new byte[data.remaining()];
+      data.get(compressed);
+      InputStream in = new DecompressorStream(
+          new ByteArrayInputStream(compressed), recordDecompressor);
+      DataOutputBuffer out = new DataOutputBuffer();
+      byte [] chunk = new byte[4096];
+      while (true) {
+        int len = in.read(chunk);
+        if (-1 == len) {
+          break;
+        }
+        out.write(chunk, 0, len);
+      }
+
+      return ByteBuffer.wrap(out.getData(), 0, out.getLength()).slice();
+    }
+
+    /**
+     * @return the id of the IndexSegment which indexes a record starting
+     * at 'offset', or -1 if the offset is past the last record.
+     */
+    private int findIndexSegment(long offset) {
+      int lo = 0;
+      int hi = indexTable.size() - 1;
+      int found = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (indexTable.get(mid).containsOffset(offset)) {
+          found = mid;
+          hi = mid - 1;
+        } else {
+          lo = mid + 1;
+        }
+      }
+
+      return found;
+    }
+
+    /**
+     * Decode the record locations in an IndexSegment, reading it with
+     * positional reads so that the file pointer is not moved.
+     */
+    private void loadRecordLocations(int segmentId) throws IOException {
+      if (null == segmentRecordStarts) {
+        segmentRecordStarts = new long[indexTable.size()][];
+        segmentRecordLens = new long[indexTable.size()][];
+        segmentRecordCodecIds = new byte[indexTable.size()][];
+      }
+
+      if (null != segmentRecordStarts[segmentId]) {
+        return; // Already loaded.
+      }
+
+      // Read the RecordStartMark, the segment header id, and the length
+      // of the segment body (at most two 9-byte VLongs).
+      IndexTableEntry tableEntry = indexTable.get(segmentId);
+      long segmentOffset = tableEntry.getSegmentOffset();
+      byte [] segmentHeader = new byte[(int) Math.min(
+          RecordStartMark.START_MARK_LENGTH + 18, fileLen - segmentOffset)];
+      underlyingInput.readFully(segmentOffset, segmentHeader);
+      if (!matchesRsm(segmentHeader)) {
+        throw new IOException("Expected record start mark before IndexSegment");
+      }
+
+      DataInputBuffer inBuf = new DataInputBuffer();
+      inBuf.reset(segmentHeader, RecordStartMark.START_MARK_LENGTH,
+          segmentHeader.length - RecordStartMark.START_MARK_LENGTH);
+      long headerId = WritableUtils.readVLong(inBuf);
+      if (SEGMENT_HEADER_ID != headerId) {
+        throw new IOException("Expected segment header id " + SEGMENT_HEADER_ID
+            + "; got " + headerId);
+      }
+
+      long bodyLen = WritableUtils.readVLong(inBuf);
+      if (bodyLen < 0 || bodyLen > Integer.MAX_VALUE) {
+        throw new IOException("Unexpected index segment length: " + bodyLen);
+      }
+
+      byte [] body = new byte[(int) bodyLen];
+      underlyingInput.readFully(segmentOffset + inBuf.getPosition(), body);
+
+      // Each entry in the body is a VLong record length (combined with a
+      // codec id, if each record has its own codec); records are laid
+      // out back-to-back from the first indexed offset.
+      inBuf.reset(body, body.length);
+      long [] starts = new long[body.length];
+      long [] lens = new long[body.length];
+      byte [] codecIds = new byte[body.length];
+      int numRecords = 0;
+      long curOffset = tableEntry.getFirstIndexOffset();
+      while (inBuf.getPosition() < body.length) {
+        long recordLen = WritableUtils.readVLong(inBuf);
+        if (null != recordCodecs) {
+          codecIds[numRecords] = (byte) (recordLen & (MAX_RECORD_CODECS - 1));
+          recordLen = recordLen >>> CODEC_ID_BITS;
+        }
+        starts[numRecords] = curOffset;
+        lens[numRecords] = recordLen;
+        numRecords++;
+        curOffset += recordLen;
+      }
+
+      segmentRecordStarts[segmentId] = Arrays.copyOf(starts, numRecords);
+      segmentRecordLens[segmentId] = Arrays.copyOf(lens, numRecords);
+      segmentRecordCodecIds[segmentId] = Arrays.copyOf(codecIds, numRecords);
+    }
+
+    /**
+     * @return a buffer holding 'len' bytes of the file starting at
+     * 'offset', sliced out of the mapped file if possible, or read with
+     * a positional read otherwise.
+     */
+    private ByteBuffer readFileRange(long offset, int len) throws IOException {
+      if (!mapAttempted) {
+        mapAttempted = true;
+        mappedFile = mapLocalFile();
+      }
+
+      if (null != mappedFile) {
+        ByteBuffer dup = mappedFile.duplicate();
+        dup.position((int) offset);
+        dup.limit((int) offset + len);
+        return dup.slice();
+      }
+
+      byte [] bytes = new byte[len];
+      underlyingInput.readFully(offset, bytes);
+      return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * @return the file memory-mapped in its entirety, or null if it is not
+     * on a local filesystem, is too large, or mapping is disabled.
+     */
+    private ByteBuffer mapLocalFile() throws IOException {
+      if (!conf.getBoolean(MMAP_ENABLED_KEY, true)
+          || fileLen > Integer.MAX_VALUE) {
+        return null;
+      }
+
+      FileSystem fs = path.getFileSystem(conf);
+      File localFile;
+      if (fs instanceof LocalFileSystem) {
+        localFile = ((LocalFileSystem) fs).pathToFile(path);
+      } else if (fs instanceof RawLocalFileSystem) {
+        localFile = ((RawLocalFileSystem) fs).pathToFile(path);
+      } else {
+        return null;
+      }
+
+      LOG.debug("Memory-mapping LobFile " + localFile);
+      RandomAccessFile raf = new RandomAccessFile(localFile, "r");
+      try {
+        // The mapping remains valid after the channel is closed.
+        return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+            fileLen);
+      } finally {
+        raf.close();
+      }
+    }
+
+    /**
+     * Decode a VLong (as written by WritableUtils.writeVLong()) from the
+     * current position of a buffer.
+     */
+    private long readVLong(ByteBuffer buf) {
+      byte firstByte = buf.get();
+      int len = WritableUtils.decodeVIntSize(firstByte);
+      if (len == 1) {
+        return firstByte;
+      }
+
+      long val = 0;
+      for (int i = 0; i < len - 1; i++) {
+        val = (val << 8) | (buf.get() & 0xFF);
+      }
+
+      return WritableUtils.isNegativeVInt(firstByte) ? (val ^ -1L) : val;
+    }
+
     @Override
     /** {@inheritDoc} */
     public void close() throws IOException {
       closeUserStream();
+      this.mappedFile = null;
 
       if (null != dataIn) {
         dataIn.close();
@@ -19,8 +19,14 @@
 package com.cloudera.sqoop.io;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,33 +36,126 @@ import org.apache.hadoop.conf.Configuration;
 
 /**
  * A cache of open LobFile.Reader objects.
- * This maps from filenames to the open Reader, if any.  This uses the
- * Singleton pattern. While nothing prevents multiple LobReaderCache
- * instances, it is most useful to have a single global cache. This cache is
- * internally synchronized; only one thread can insert or retrieve a reader
- * from the cache at a time. 
+ * This maps from filenames to a small pool of idle Readers for that file.
+ * Readers are taken out of the pool by get() and returned with recycle(),
+ * so several threads can each hold a reader for the same file. This uses
+ * the Singleton pattern. While nothing prevents multiple LobReaderCache
+ * instances, it is most useful to have a single global cache.
+ *
+ * The cache is bounded: idle readers are closed when there are more than
+ * sqoop.lob.reader.cache.max of them in total, when a file has more than
+ * sqoop.lob.reader.cache.max.per.path of them, or when they have been idle
+ * for longer than sqoop.lob.reader.cache.idle.millis. The least recently
+ * used readers are closed first. These limits are read once, when the
+ * cache is created; the global cache is created from the Configuration
+ * of its first user, which in a task is the job configuration. Paths are
+ * spread across several independently-locked stripes, so threads reading
+ * different files do not contend with one another.
  */
 public final class LobReaderCache {
 
   public static final Log LOG = LogFactory.getLog(
       LobReaderCache.class.getName());
 
-  private Map<Path, LobFile.Reader> readerMap;
+  /** Maximum number of idle readers held by the cache. */
+  public static final String MAX_READERS_KEY = "sqoop.lob.reader.cache.max";
+  public static final int DEFAULT_MAX_READERS = 64;
+
+  /** Maximum number of idle readers held for a single file. */
+  public static final String MAX_READERS_PER_PATH_KEY =
+      "sqoop.lob.reader.cache.max.per.path";
+  public static final int DEFAULT_MAX_READERS_PER_PATH = 4;
+
+  /** Idle readers are closed after this many milliseconds. */
+  public static final String IDLE_MILLIS_KEY =
+      "sqoop.lob.reader.cache.idle.millis";
+  public static final long DEFAULT_IDLE_MILLIS = 60000;
+
+  private static final int NUM_STRIPES = 16;
+
+  /**
+   * An idle reader, along with the time it was returned to the cache.
+   * The sequence number orders readers by when they were returned.
+   */
+  private static class IdleReader {
+    private final LobFile.Reader reader;
+    private final long idleSince;
+    private final long seq;
 
-  private LobReaderCache() {
-    this.readerMap = new TreeMap<Path, LobFile.Reader>();
+    IdleReader(LobFile.Reader reader, long idleSince, long seq) {
+      this.reader = reader;
+      this.idleSince = idleSince;
+      this.seq = seq;
+    }
+  }
+
+  /**
+   * One independently-locked portion of the cache. Each path's list holds
+   * its most recently returned reader first.
+   */
+  private static class Stripe {
+    private final Map<Path, LinkedList<IdleReader>> readerMap =
+        new HashMap<Path, LinkedList<IdleReader>>();
   }
 
-  private static final LobReaderCache CACHE;
-  static {
-    CACHE = new LobReaderCache();
+  private final Stripe [] stripes;
+
+  // Number of idle readers across all stripes.
+  private final AtomicInteger numIdle = new AtomicInteger();
+
+  // Source of IdleReader sequence numbers.
+  private final AtomicLong nextSeq = new AtomicLong();
+
+  // Time of the last sweep for readers which have been idle too long.
+  private volatile long lastSweep;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  private final int maxReaders;
+  private final int maxReadersPerPath;
+  private final long idleMillis;
+
+  LobReaderCache(Configuration conf) {
+    this.maxReaders = conf.getInt(MAX_READERS_KEY, DEFAULT_MAX_READERS);
+    this.maxReadersPerPath = conf.getInt(MAX_READERS_PER_PATH_KEY,
+        DEFAULT_MAX_READERS_PER_PATH);
+    this.idleMillis = conf.getLong(IDLE_MILLIS_KEY, DEFAULT_IDLE_MILLIS);
+
+    this.stripes = new Stripe[NUM_STRIPES];
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      this.stripes[i] = new Stripe();
+    }
+  }
+
+  private static volatile LobReaderCache cache;
+
+  /**
+   * @return the singleton LobReaderCache instance, creating it with the
+   * limits in 'conf' if it does not exist yet.
+   */
+  public static LobReaderCache getCache(Configuration conf) {
+    LobReaderCache c = cache;
+    if (null == c) {
+      synchronized (LobReaderCache.class) {
+        if (null == cache) {
+          cache = new LobReaderCache(conf);
+        }
+        c = cache;
+      }
+    }
+
+    return c;
   }
 
   /**
-   * @return the singleton LobReaderCache instance.
+   * @return the singleton LobReaderCache instance, creating it with the
+   * default limits if it does not exist yet.
    */
   public static LobReaderCache getCache() {
-    return CACHE;
+    LobReaderCache c = cache;
+    return null != c ? c : getCache(new Configuration());
   }
 
   /**
@@ -78,10 +177,15 @@ public final class LobReaderCache {
     }
     return path.makeQualified(fs);
   }
-  
+
+  private Stripe getStripe(Path path) {
+    return stripes[(path.hashCode() & Integer.MAX_VALUE) % NUM_STRIPES];
+  }
+
   /**
    * Open a LobFile for read access, returning a cached reader if one is
-   * available, or a new reader otherwise.
+   * available, or a new reader otherwise. The caller has exclusive use
+   * of the reader until it is passed to recycle().
    * @param path the path to the LobFile to open
    * @param conf the configuration to use to access the FS.
    * @throws IOException if there's an error opening the file.
@@ -89,58 +193,257 @@ public final class LobReaderCache {
   public LobFile.Reader get(Path path, Configuration conf)
       throws IOException {
 
-    LobFile.Reader reader = null;
     Path canonicalPath = qualify(path, conf);
+    Stripe stripe = getStripe(canonicalPath);
+    List<LobFile.Reader> toClose = new ArrayList<LobFile.Reader>();
+    LobFile.Reader reader = null;
+
     // Look up an entry in the cache.
-    synchronized(this) {
-      reader = readerMap.remove(canonicalPath);
+    synchronized (stripe) {
+      LinkedList<IdleReader> pool = stripe.readerMap.get(canonicalPath);
+      while (null != pool && !pool.isEmpty() && null == reader) {
+        IdleReader idle = pool.removeFirst();
+        numIdle.decrementAndGet();
+        if (!idle.reader.isClosed()) {
+          reader = idle.reader;
+        }
+      }
+
+      if (null != pool && pool.isEmpty()) {
+        stripe.readerMap.remove(canonicalPath);
+      }
     }
 
-    if (null != reader && !reader.isClosed()) {
+    expireIdle(System.currentTimeMillis(), toClose);
+    closeAll(toClose);
+
+    if (null != reader) {
       // Cache hit. return it.
       LOG.debug("Using cached reader for " + canonicalPath);
+      hits.incrementAndGet();
       return reader;
     }
 
     // Cache miss; open the file.
     LOG.debug("No cached reader available for " + canonicalPath);
+    misses.incrementAndGet();
     return LobFile.open(path, conf);
   }
 
   /**
-   * Return a reader back to the cache. If there's already a reader for
-   * this path, then the current reader is closed.
+   * Return a reader back to the cache. If the pool for this path is
+   * full, the reader is closed instead. This may also close readers that
+   * have been idle for too long, or that no longer fit in the cache.
    * @param reader the opened reader. Any record-specific subreaders should be
    * closed.
    * @throws IOException if there's an error accessing the path's filesystem.
    */
   public void recycle(LobFile.Reader reader) throws IOException {
+    if (reader.isClosed()) {
+      return;
+    }
+
     Path canonicalPath = reader.getPath();
+    Stripe stripe = getStripe(canonicalPath);
+    List<LobFile.Reader> toClose = new ArrayList<LobFile.Reader>();
+    long now = System.currentTimeMillis();
+
+    synchronized (stripe) {
+      LinkedList<IdleReader> pool = stripe.readerMap.get(canonicalPath);
+      if (null == pool) {
+        pool = new LinkedList<IdleReader>();
+        stripe.readerMap.put(canonicalPath, pool);
+      }
 
-    // Check if the cache has a reader for this path already. If not, add this.
-    boolean cached = false;
-    synchronized(this) {
-      if (readerMap.get(canonicalPath) == null) {
+      if (containsReader(pool, reader)) {
+        LOG.debug("Reader for " + canonicalPath + " was already recycled");
+        return;
+      } else if (pool.size() >= maxReadersPerPath) {
+        LOG.debug("Reader pool full for path: " + canonicalPath
+            + "; closing.");
+        toClose.add(reader);
+        evictions.incrementAndGet();
+      } else {
         LOG.debug("Caching reader for path: " + canonicalPath);
-        readerMap.put(canonicalPath, reader);
-        cached = true;
+        pool.addFirst(new IdleReader(reader, now,
+            nextSeq.getAndIncrement()));
+        numIdle.incrementAndGet();
       }
     }
 
-    if (!cached) {
-      LOG.debug("Reader already present for path: " + canonicalPath
-          + "; closing.");
-      reader.close();
+    expireIdle(now, toClose);
+    evictOverflow(toClose);
+    closeAll(toClose);
+  }
+
+  private static boolean containsReader(List<IdleReader> pool,
+      LobFile.Reader reader) {
+    for (IdleReader idle : pool) {
+      if (idle.reader == reader) {
+        return true;
+      }
     }
+
+    return false;
   }
 
-  @Override
-  protected synchronized void finalize() throws Throwable {
-    for (LobFile.Reader r : readerMap.values()) {
-      r.close();
+  /**
+   * Remove the readers that have been idle for too long. The whole cache
+   * is swept at most once per idle period (or once a second, if that is
+   * shorter).
+   */
+  private void expireIdle(long now, List<LobFile.Reader> toClose) {
+    long sweepInterval = Math.min(idleMillis, 1000);
+    if (now - lastSweep < sweepInterval) {
+      return;
+    }
+    lastSweep = now;
+
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        Iterator<LinkedList<IdleReader>> pools =
+            stripe.readerMap.values().iterator();
+        while (pools.hasNext()) {
+          LinkedList<IdleReader> pool = pools.next();
+          // The oldest readers are at the end of each pool.
+          while (!pool.isEmpty()
+              && now - pool.getLast().idleSince > idleMillis) {
+            toClose.add(pool.removeLast().reader);
+            numIdle.decrementAndGet();
+            evictions.incrementAndGet();
+          }
+
+          if (pool.isEmpty()) {
+            pools.remove();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Remove the least recently returned readers until the cache is within
+   * its size limit. Stripes are locked one at a time.
+   */
+  private void evictOverflow(List<LobFile.Reader> toClose) {
+    while (numIdle.get() > maxReaders) {
+      // Find the stripe holding the least recently returned reader.
+      Stripe victim = null;
+      long victimSeq = Long.MAX_VALUE;
+      for (Stripe stripe : stripes) {
+        synchronized (stripe) {
+          IdleReader eldest = getEldest(stripe);
+          if (null != eldest && eldest.seq < victimSeq) {
+            victim = stripe;
+            victimSeq = eldest.seq;
+          }
+        }
+      }
+
+      if (null == victim) {
+        return;
+      }
+
+      synchronized (victim) {
+        // The stripe may have changed since we looked at it; evict
+        // whatever is now its eldest reader.
+        Iterator<LinkedList<IdleReader>> pools =
+            victim.readerMap.values().iterator();
+        IdleReader eldest = getEldest(victim);
+        while (null != eldest && pools.hasNext()) {
+          LinkedList<IdleReader> pool = pools.next();
+          if (!pool.isEmpty() && pool.getLast() == eldest) {
+            toClose.add(pool.removeLast().reader);
+            numIdle.decrementAndGet();
+            evictions.incrementAndGet();
+            if (pool.isEmpty()) {
+              pools.remove();
+            }
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the least recently returned reader in a stripe, or null if
+   * it is empty. Must be called with the stripe locked.
+   */
+  private static IdleReader getEldest(Stripe stripe) {
+    IdleReader eldest = null;
+    for (LinkedList<IdleReader> pool : stripe.readerMap.values()) {
+      if (!pool.isEmpty()
+          && (null == eldest || pool.getLast().seq < eldest.seq)) {
+        eldest = pool.getLast();
+      }
+    }
+
+    return eldest;
+  }
+
+  private void closeAll(List<LobFile.Reader> readers) {
+    for (LobFile.Reader r : readers) {
+      try {
+        r.close();
+      } catch (IOException ioe) {
+        LOG.warn("IOException closing evicted LobFile reader: " + ioe);
+      }
+    }
+  }
+
+  /**
+   * Close every idle reader held by the cache.
+   */
+  public void clear() {
+    List<LobFile.Reader> toClose = new ArrayList<LobFile.Reader>();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (LinkedList<IdleReader> pool : stripe.readerMap.values()) {
+          for (IdleReader idle : pool) {
+            toClose.add(idle.reader);
+            numIdle.decrementAndGet();
+          }
+        }
+        stripe.readerMap.clear();
+      }
     }
 
+    closeAll(toClose);
+  }
+
+  /**
+   * @return the number of calls to get() that returned a cached reader.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of calls to get() that opened a new reader.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of idle readers closed to stay within the cache's
+   * limits, including those which could not be added to a full pool.
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * @return the number of idle readers currently held by the cache.
+   */
+  public int getNumIdleReaders() {
+    return numIdle.get();
+  }
+
+  @Override
+  protected void finalize() throws Throwable {
+    clear();
     super.finalize();
   }
 }
-
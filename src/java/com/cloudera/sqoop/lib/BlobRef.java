@@ -23,9 +23,12 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.regex.Matcher;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
 import com.cloudera.sqoop.io.LobFile;
 
@@ -64,6 +67,27 @@ public class BlobRef extends LobRef<byte[], BytesWritable, InputStream> {
     return reader.readBlobRecord();
   }
 
+  /**
+   * Get the BLOB data as a ByteBuffer. For external BLOBs, the record is
+   * read in one piece without seeking the LobFile reader; if the LobFile is
+   * on the local filesystem, the buffer is a slice of the memory-mapped
+   * file. Use getDataStream() for BLOBs which may not fit in memory.
+   * @param conf the Configuration used to access the filesystem
+   * @param basePath the base directory where the table records are
+   * stored.
+   * @return a buffer holding the BLOB data.
+   * @throws IOException if it could not read the BLOB from external storage.
+   */
+  public ByteBuffer getDataBuffer(Configuration conf, Path basePath)
+      throws IOException {
+    if (isExternal()) {
+      return getExternalBuffer(conf, basePath);
+    }
+
+    BytesWritable data = getDataObj();
+    return ByteBuffer.wrap(data.getBytes(), 0, data.getLength());
+  }
+
   @Override
   protected InputStream getInternalSource(BytesWritable data) {
     return new ByteArrayInputStream(data.getBytes());
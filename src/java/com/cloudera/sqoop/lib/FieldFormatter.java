@@ -18,6 +18,8 @@
 
 package com.cloudera.sqoop.lib;
 
+import java.io.IOException;
+
 /**
  * Static helper class that will help format data with quotes and escape chars.
  */
@@ -111,4 +113,142 @@ public final class FieldFormatter {
       return withEscapes;
     }
   }
+
+  /**
+   * Appends the escaped and enclosed form of 'str' to 'out'. The output is
+   * identical to that of escapeAndEnclose(), but it is produced in a single
+   * pass over the input without creating any intermediate Strings.
+   *
+   * A null 'str' is written as the string 'null' (with no escaping or
+   * enclosing), as a null String field has always been rendered.
+   *
+   * @param str - The user's string to escape and enclose
+   * @param delimiters - The DelimiterSet to use identifying the escape and
+   * enclose semantics.
+   * @param out - The destination to append the formatted field to.
+   */
+  public static void appendEscapedAndEnclosed(String str,
+      DelimiterSet delimiters, Appendable out) throws IOException {
+
+    if (null == str) {
+      out.append("null");
+      return;
+    }
+
+    char escape = delimiters.getEscapedBy();
+    char enclose = delimiters.getEnclosedBy();
+    char fields = delimiters.getFieldsTerminatedBy();
+    char lines = delimiters.getLinesTerminatedBy();
+
+    boolean escapingLegal = DelimiterSet.NULL_CHAR != escape;
+    boolean enclosingLegal = DelimiterSet.NULL_CHAR != enclose;
+
+    boolean actuallyDoEnclose = false;
+    if (enclosingLegal) {
+      actuallyDoEnclose = delimiters.isEncloseRequired()
+          || str.indexOf(fields) != -1 || str.indexOf(lines) != -1;
+    }
+
+    if (actuallyDoEnclose) {
+      out.append(enclose);
+    }
+
+    if (!escapingLegal) {
+      out.append(str);
+    } else {
+      // escapeAndEnclose() applies up to three replacement passes in
+      // sequence, each of which inserts the escape char before a target
+      // char: first the escape char itself, then either the encloser or
+      // the field and record delimiters. Apply the same passes to each
+      // char here.
+      char target1 = enclosingLegal ? enclose : fields;
+      char target2 = lines;
+      int numPasses = enclosingLegal ? 2 : 3;
+      int len = str.length();
+      for (int i = 0; i < len; i++) {
+        char c = str.charAt(i);
+        if (c != escape && c != target1 && (numPasses < 3 || c != target2)) {
+          out.append(c);
+        } else {
+          appendEscaped(c, 0, numPasses, escape, target1, target2, out);
+        }
+      }
+    }
+
+    if (actuallyDoEnclose) {
+      out.append(enclose);
+    }
+  }
+
+  /**
+   * Appends 'c' to 'out' after applying escape passes 'pass' through
+   * 'numPasses - 1'. Each pass whose target is 'c' replaces it with the
+   * escape char followed by 'c'; the output of that pass is then fed
+   * through the remaining passes.
+   */
+  private static void appendEscaped(char c, int pass, int numPasses,
+      char escape, char target1, char target2, Appendable out)
+      throws IOException {
+    for (int p = pass; p < numPasses; p++) {
+      char target = (p == 0) ? escape : ((p == 1) ? target1 : target2);
+      if (c == target) {
+        appendEscaped(escape, p + 1, numPasses, escape, target1, target2, out);
+        appendEscaped(c, p + 1, numPasses, escape, target1, target2, out);
+        return;
+      }
+    }
+
+    out.append(c);
+  }
+
+  /**
+   * Appends the escaped and enclosed form of an integral value to 'out',
+   * producing the same output as escapeAndEnclose("" + val, delimiters).
+   * When none of the delimiters are digits or '-', the digits are written
+   * directly without formatting the value as a String.
+   */
+  public static void appendEscapedAndEnclosed(long val,
+      DelimiterSet delimiters, Appendable out) throws IOException {
+
+    char escape = delimiters.getEscapedBy();
+    char enclose = delimiters.getEnclosedBy();
+    if (val == Long.MIN_VALUE || isNumericChar(escape)
+        || isNumericChar(enclose)
+        || isNumericChar(delimiters.getFieldsTerminatedBy())
+        || isNumericChar(delimiters.getLinesTerminatedBy())) {
+      appendEscapedAndEnclosed(Long.toString(val), delimiters, out);
+      return;
+    }
+
+    // No digit needs escaping, and only encloseRequired can cause the
+    // value to be enclosed.
+    boolean actuallyDoEnclose = DelimiterSet.NULL_CHAR != enclose
+        && delimiters.isEncloseRequired();
+    if (actuallyDoEnclose) {
+      out.append(enclose);
+    }
+
+    if (val < 0) {
+      out.append('-');
+      val = -val;
+    }
+
+    long divisor = 1;
+    while (val / divisor >= 10) {
+      divisor *= 10;
+    }
+
+    while (divisor > 0) {
+      out.append((char) ('0' + (val / divisor) % 10));
+      divisor /= 10;
+    }
+
+    if (actuallyDoEnclose) {
+      out.append(enclose);
+    }
+  }
+
+  private static boolean isNumericChar(char c) {
+    return c == '-' || (c >= '0' && c <= '9');
+  }
 }
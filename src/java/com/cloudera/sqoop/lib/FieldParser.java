@@ -0,0 +1,282 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+
+/**
+ * Static helper class that decodes typed field values directly from a
+ * slice of a UTF-8 byte buffer, such as the one filled by
+ * RecordParser.parseFields().
+ *
+ * Each method accepts the buffer along with the start (inclusive) and end
+ * (exclusive) offsets of the field. Common numeric formats are decoded
+ * without creating an intermediate String. Any input that does not match
+ * the fast path is decoded into a String and handed to the same method
+ * the String-based parser uses, so results (and errors) are identical.
+ */
+public final class FieldParser {
+
+  private FieldParser() { }
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  // Decimal digit counts which are guaranteed not to overflow.
+  private static final int MAX_INT_DIGITS = 9;
+  private static final int MAX_LONG_DIGITS = 18;
+
+  // Integers with at most this many digits are exactly representable as
+  // a float/double, as are the corresponding powers of ten. Dividing two
+  // exact values then yields a correctly-rounded result.
+  private static final int MAX_FLOAT_DIGITS = 7;
+  private static final int MAX_DOUBLE_DIGITS = 15;
+
+  private static final float [] FLOAT_POWERS_OF_TEN = {
+    1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f,
+  };
+
+  private static final double [] DOUBLE_POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+  };
+
+  private static final byte [] NULL_BYTES = { 'n', 'u', 'l', 'l' };
+
+  /**
+   * @return true if the field contains the string 'null', which is how
+   * null values are represented in text records.
+   */
+  public static boolean isNull(byte [] buf, int start, int end) {
+    if (end - start != NULL_BYTES.length) {
+      return false;
+    }
+
+    for (int i = 0; i < NULL_BYTES.length; i++) {
+      if (buf[start + i] != NULL_BYTES[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the field decoded into a String.
+   */
+  public static String parseString(byte [] buf, int start, int end) {
+    return new String(buf, start, end - start, UTF8);
+  }
+
+  /**
+   * Parse the field as with Integer.parseInt().
+   */
+  public static int parseInt(byte [] buf, int start, int end) {
+    boolean negative = start < end && buf[start] == '-';
+    int pos = negative ? start + 1 : start;
+    if (pos == end || end - pos > MAX_INT_DIGITS) {
+      return Integer.parseInt(parseString(buf, start, end));
+    }
+
+    int val = 0;
+    for (; pos < end; pos++) {
+      int digit = buf[pos] - '0';
+      if (digit < 0 || digit > 9) {
+        return Integer.parseInt(parseString(buf, start, end));
+      }
+      val = val * 10 + digit;
+    }
+
+    return negative ? -val : val;
+  }
+
+  /**
+   * Parse the field as with Long.parseLong().
+   */
+  public static long parseLong(byte [] buf, int start, int end) {
+    boolean negative = start < end && buf[start] == '-';
+    int pos = negative ? start + 1 : start;
+    if (pos == end || end - pos > MAX_LONG_DIGITS) {
+      return Long.parseLong(parseString(buf, start, end));
+    }
+
+    long val = 0;
+    for (; pos < end; pos++) {
+      int digit = buf[pos] - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.parseLong(parseString(buf, start, end));
+      }
+      val = val * 10 + digit;
+    }
+
+    return negative ? -val : val;
+  }
+
+  /**
+   * Parse the field as with new BigDecimal(String).
+   */
+  public static BigDecimal parseBigDecimal(byte [] buf, int start, int end) {
+    boolean negative = start < end && buf[start] == '-';
+    int pos = negative ? start + 1 : start;
+
+    long unscaled = 0;
+    int numDigits = 0;
+    int scale = 0;
+    boolean seenPoint = false;
+    for (; pos < end; pos++) {
+      byte b = buf[pos];
+      if (b == '.' && !seenPoint) {
+        seenPoint = true;
+        continue;
+      }
+
+      int digit = b - '0';
+      if (digit < 0 || digit > 9 || ++numDigits > MAX_LONG_DIGITS) {
+        return new BigDecimal(parseString(buf, start, end));
+      }
+
+      unscaled = unscaled * 10 + digit;
+      if (seenPoint) {
+        scale++;
+      }
+    }
+
+    if (numDigits == 0) {
+      return new BigDecimal(parseString(buf, start, end));
+    }
+
+    return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+  }
+
+  /**
+   * Parse the field as with Double.parseDouble().
+   */
+  public static double parseDouble(byte [] buf, int start, int end) {
+    boolean negative = start < end && buf[start] == '-';
+    int pos = negative ? start + 1 : start;
+
+    long unscaled = 0;
+    int numDigits = 0;
+    int scale = 0;
+    boolean seenPoint = false;
+    for (; pos < end; pos++) {
+      byte b = buf[pos];
+      if (b == '.' && !seenPoint) {
+        seenPoint = true;
+        continue;
+      }
+
+      int digit = b - '0';
+      if (digit < 0 || digit > 9 || ++numDigits > MAX_DOUBLE_DIGITS) {
+        return Double.parseDouble(parseString(buf, start, end));
+      }
+
+      unscaled = unscaled * 10 + digit;
+      if (seenPoint) {
+        scale++;
+      }
+    }
+
+    if (numDigits == 0 || scale >= DOUBLE_POWERS_OF_TEN.length) {
+      return Double.parseDouble(parseString(buf, start, end));
+    }
+
+    double val = (double) unscaled / DOUBLE_POWERS_OF_TEN[scale];
+    return negative ? -val : val;
+  }
+
+  /**
+   * Parse the field as with Float.parseFloat().
+   */
+  public static float parseFloat(byte [] buf, int start, int end) {
+    boolean negative = start < end && buf[start] == '-';
+    int pos = negative ? start + 1 : start;
+
+    int unscaled = 0;
+    int numDigits = 0;
+    int scale = 0;
+    boolean seenPoint = false;
+    for (; pos < end; pos++) {
+      byte b = buf[pos];
+      if (b == '.' && !seenPoint) {
+        seenPoint = true;
+        continue;
+      }
+
+      int digit = b - '0';
+      if (digit < 0 || digit > 9 || ++numDigits > MAX_FLOAT_DIGITS) {
+        return Float.parseFloat(parseString(buf, start, end));
+      }
+
+      unscaled = unscaled * 10 + digit;
+      if (seenPoint) {
+        scale++;
+      }
+    }
+
+    if (numDigits == 0 || scale >= FLOAT_POWERS_OF_TEN.length) {
+      return Float.parseFloat(parseString(buf, start, end));
+    }
+
+    float val = (float) unscaled / FLOAT_POWERS_OF_TEN[scale];
+    return negative ? -val : val;
+  }
+
+  /**
+   * Parse the field as with BooleanParser.valueOf().
+   */
+  public static boolean parseBoolean(byte [] buf, int start, int end) {
+    int len = end - start;
+    for (int i = start; i < end; i++) {
+      if (buf[i] < 0) {
+        // Non-ASCII input; let the String comparison decide.
+        return BooleanParser.valueOf(parseString(buf, start, end));
+      }
+    }
+
+    if (len == 1) {
+      byte b = buf[start];
+      return b == '1' || b == 't' || b == 'T';
+    }
+
+    return (len == 2 && asciiEqualsIgnoreCase("on", buf, start))
+        || (len == 3 && asciiEqualsIgnoreCase("yes", buf, start))
+        || (len == 4 && asciiEqualsIgnoreCase("true", buf, start));
+  }
+
+  /**
+   * @return true if the ASCII bytes starting at buf[start] match the
+   * lower-case string 'word', ignoring case.
+   */
+  private static boolean asciiEqualsIgnoreCase(String word, byte [] buf,
+      int start) {
+    for (int i = 0; i < word.length(); i++) {
+      int b = buf[start + i];
+      if (b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+
+      if (b != word.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,875 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+
+import com.cloudera.sqoop.orm.ClassWriter;
+
+/**
+ * A SqoopRecord whose fields are described by a schema stored in the
+ * job Configuration, rather than by a class generated by the ClassWriter
+ * and compiled with javac.
+ *
+ * Field values are held in an Object array. Each column is handled by a
+ * FieldType chosen once, when the schema is loaded, which implements the
+ * same conversions as the code the ClassWriter emits for that column's
+ * Java type. Text, JDBC and Writable representations of a record are
+ * identical to those of the equivalent generated class.
+ *
+ * Instances must be created with ReflectionUtils.newInstance() (or have
+ * setConf() called) so that they can load their schema. The schema is
+ * written to the Configuration with configure().
+ */
+public class GenericSqoopRecord extends SqoopRecord implements Configurable {
+
+  /** Configuration key holding the comma-separated field names. */
+  public static final String FIELD_NAMES_KEY =
+      "sqoop.generic.record.field.names";
+
+  /** Configuration key holding the SQL type of each field. */
+  public static final String SQL_TYPES_KEY = "sqoop.generic.record.sql.types";
+
+  /** Configuration key holding the Java type of each field. */
+  public static final String JAVA_TYPES_KEY =
+      "sqoop.generic.record.java.types";
+
+  /**
+   * Configuration key holding the order, as field indices, in which fields
+   * are bound to a PreparedStatement.
+   */
+  public static final String DB_WRITE_ORDER_KEY =
+      "sqoop.generic.record.db.write.order";
+
+  /** Configuration key holding the delimiters used by parse(). */
+  public static final String INPUT_DELIMITERS_KEY =
+      "sqoop.generic.record.input.delimiters";
+
+  /** Configuration key holding the delimiters used by toString(). */
+  public static final String OUTPUT_DELIMITERS_KEY =
+      "sqoop.generic.record.output.delimiters";
+
+  private Configuration conf;
+  private Schema schema;
+  private Object [] values;
+
+  // Used by readFields(ResultSet) and loadLargeObjects().
+  private ResultSet curResultSet;
+
+  private RecordParser parser;
+
+  public GenericSqoopRecord() {
+  }
+
+  /**
+   * @return true if the Java type (as returned by ConnManager.toJavaType())
+   * can be held by a GenericSqoopRecord.
+   */
+  public static boolean isSupportedType(String javaType) {
+    return null != FieldType.forJavaType(javaType);
+  }
+
+  /**
+   * Write the schema of a record to a Configuration.
+   * @param config the Configuration to store the schema in.
+   * @param fieldNames the name of each field, as used by getFieldMap().
+   * @param sqlTypes the SQL type of each field.
+   * @param javaTypes the Java type of each field, as returned by
+   * ConnManager.toJavaType().
+   * @param dbWriteOrder the indices of the fields to bind to a
+   * PreparedStatement, in order.
+   * @param inputDelimiters the delimiters used to parse text records.
+   * @param outputDelimiters the delimiters used to format text records.
+   */
+  public static void configure(Configuration config, String [] fieldNames,
+      int [] sqlTypes, String [] javaTypes, int [] dbWriteOrder,
+      DelimiterSet inputDelimiters, DelimiterSet outputDelimiters) {
+    StringBuilder names = new StringBuilder();
+    StringBuilder sqlTypeList = new StringBuilder();
+    StringBuilder javaTypeList = new StringBuilder();
+    for (int i = 0; i < fieldNames.length; i++) {
+      if (i > 0) {
+        names.append(',');
+        sqlTypeList.append(',');
+        javaTypeList.append(',');
+      }
+      names.append(fieldNames[i]);
+      sqlTypeList.append(sqlTypes[i]);
+      javaTypeList.append(javaTypes[i]);
+    }
+
+    StringBuilder order = new StringBuilder();
+    for (int i = 0; i < dbWriteOrder.length; i++) {
+      if (i > 0) {
+        order.append(',');
+      }
+      order.append(dbWriteOrder[i]);
+    }
+
+    config.set(FIELD_NAMES_KEY, names.toString());
+    config.set(SQL_TYPES_KEY, sqlTypeList.toString());
+    config.set(JAVA_TYPES_KEY, javaTypeList.toString());
+    config.set(DB_WRITE_ORDER_KEY, order.toString());
+    config.set(INPUT_DELIMITERS_KEY, formatDelimiters(inputDelimiters));
+    config.set(OUTPUT_DELIMITERS_KEY, formatDelimiters(outputDelimiters));
+  }
+
+  /**
+   * @return true if a schema has been written to the Configuration.
+   */
+  public static boolean isConfigured(Configuration config) {
+    return null != config.get(FIELD_NAMES_KEY);
+  }
+
+  private static String formatDelimiters(DelimiterSet delims) {
+    return (int) delims.getFieldsTerminatedBy() + ","
+        + (int) delims.getLinesTerminatedBy() + ","
+        + (int) delims.getEnclosedBy() + ","
+        + (int) delims.getEscapedBy() + ","
+        + delims.isEncloseRequired();
+  }
+
+  private static DelimiterSet parseDelimiters(String str) {
+    String [] parts = str.split(",");
+    return new DelimiterSet((char) Integer.parseInt(parts[0]),
+        (char) Integer.parseInt(parts[1]),
+        (char) Integer.parseInt(parts[2]),
+        (char) Integer.parseInt(parts[3]),
+        Boolean.parseBoolean(parts[4]));
+  }
+
+  @Override
+  public void setConf(Configuration config) {
+    this.conf = config;
+    this.schema = new Schema(config);
+    this.values = new Object[schema.names.length];
+  }
+
+  @Override
+  public Configuration getConf() {
+    return this.conf;
+  }
+
+  /**
+   * @return the value of the i'th field.
+   */
+  public Object get(int i) {
+    return values[i];
+  }
+
+  /**
+   * Set the value of the i'th field.
+   */
+  public void set(int i, Object value) {
+    values[i] = value;
+  }
+
+  /**
+   * @return the number of fields in this record.
+   */
+  public int getFieldCount() {
+    return values.length;
+  }
+
+  @Override
+  public void readFields(ResultSet dbResults) throws SQLException {
+    this.curResultSet = dbResults;
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      values[i] = types[i].read(i + 1, dbResults);
+    }
+  }
+
+  @Override
+  public void loadLargeObjects(LargeObjectLoader loader)
+      throws SQLException, IOException, InterruptedException {
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      if (types[i] == FieldType.CLOB) {
+        values[i] = loader.readClobRef(i + 1, curResultSet);
+      } else if (types[i] == FieldType.BLOB) {
+        values[i] = loader.readBlobRef(i + 1, curResultSet);
+      }
+    }
+  }
+
+  @Override
+  public void write(PreparedStatement stmt) throws SQLException {
+    write(stmt, 0);
+  }
+
+  @Override
+  public int write(PreparedStatement stmt, int offset) throws SQLException {
+    int [] order = schema.dbWriteOrder;
+    for (int i = 0; i < order.length; i++) {
+      int field = order[i];
+      schema.types[field].write(values[field], i + 1 + offset,
+          schema.sqlTypes[field], stmt);
+    }
+    return order.length;
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      if (in.readBoolean()) {
+        values[i] = null;
+      } else {
+        values[i] = types[i].readFields(in);
+      }
+    }
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      if (null == values[i]) {
+        out.writeBoolean(true);
+      } else {
+        out.writeBoolean(false);
+        types[i].write(values[i], out);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return toString(schema.outputDelimiters);
+  }
+
+  @Override
+  public String toString(DelimiterSet delimiters) {
+    StringBuilder sb = new StringBuilder();
+    try {
+      appendTo(sb, delimiters);
+    } catch (IOException ioe) {
+      // StringBuilder never throws IOException.
+      throw new RuntimeException(ioe);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public void appendTo(Appendable out) throws IOException {
+    appendTo(out, schema.outputDelimiters);
+  }
+
+  @Override
+  public void appendTo(Appendable out, DelimiterSet delimiters)
+      throws IOException {
+    char fieldDelim = delimiters.getFieldsTerminatedBy();
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      if (i > 0) {
+        out.append(fieldDelim);
+      }
+      types[i].appendTo(values[i], delimiters, out);
+    }
+    out.append(delimiters.getLinesTerminatedBy());
+  }
+
+  private RecordParser getParser() {
+    if (null == parser) {
+      parser = new RecordParser(schema.inputDelimiters);
+    }
+    return parser;
+  }
+
+  @Override
+  public void parse(Text record) throws RecordParser.ParseError {
+    RecordParser p = getParser();
+    int numFields = p.parseFields(record);
+    if (numFields < values.length) {
+      throw new RecordParser.ParseError("Expected " + values.length
+          + " fields but found " + numFields);
+    }
+
+    byte [] buf = p.getFieldBuffer();
+    int [] offsets = p.getFieldOffsets();
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      int start = offsets[2 * i];
+      int end = offsets[2 * i + 1];
+      if (FieldParser.isNull(buf, start, end)) {
+        values[i] = null;
+      } else {
+        values[i] = types[i].parse(buf, start, end);
+      }
+    }
+  }
+
+  @Override
+  public void parse(CharSequence record) throws RecordParser.ParseError {
+    loadFromFields(getParser().parseRecord(record));
+  }
+
+  @Override
+  public void parse(byte [] record) throws RecordParser.ParseError {
+    loadFromFields(getParser().parseRecord(record));
+  }
+
+  @Override
+  public void parse(char [] record) throws RecordParser.ParseError {
+    loadFromFields(getParser().parseRecord(record));
+  }
+
+  @Override
+  public void parse(ByteBuffer record) throws RecordParser.ParseError {
+    loadFromFields(getParser().parseRecord(record));
+  }
+
+  @Override
+  public void parse(CharBuffer record) throws RecordParser.ParseError {
+    loadFromFields(getParser().parseRecord(record));
+  }
+
+  private void loadFromFields(List<String> fields) {
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      String str = fields.get(i);
+      if (str.equals("null")) {
+        values[i] = null;
+      } else {
+        values[i] = types[i].parse(str);
+      }
+    }
+  }
+
+  @Override
+  public Object clone() throws CloneNotSupportedException {
+    GenericSqoopRecord o = (GenericSqoopRecord) super.clone();
+    o.values = new Object[values.length];
+    o.parser = null;
+    copyTo(o);
+    return o;
+  }
+
+  @Override
+  public boolean copyTo(SqoopRecord other)
+      throws CloneNotSupportedException {
+    if (null == other || other.getClass() != getClass()) {
+      return false;
+    }
+
+    GenericSqoopRecord o = (GenericSqoopRecord) other;
+    if (o.schema != schema && !o.schema.equals(schema)) {
+      return false;
+    }
+
+    FieldType [] types = schema.types;
+    for (int i = 0; i < types.length; i++) {
+      o.values[i] = null == values[i] ? null : types[i].copy(values[i]);
+    }
+    return true;
+  }
+
+  @Override
+  public Map<String, Object> getFieldMap() {
+    Map<String, Object> fieldMap = new TreeMap<String, Object>();
+    for (int i = 0; i < values.length; i++) {
+      fieldMap.put(schema.names[i], values[i]);
+    }
+    return fieldMap;
+  }
+
+  @Override
+  public Object getFieldValue(String fieldName) {
+    String [] names = schema.names;
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(fieldName)) {
+        return values[i];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public int getClassFormatVersion() {
+    // Records are laid out exactly as generated classes of this version.
+    return ClassWriter.CLASS_WRITER_VERSION;
+  }
+
+  /**
+   * The field layout of a record, as read from the Configuration.
+   * Immutable, so it is shared by clones.
+   */
+  private static class Schema {
+    private final String [] names;
+    private final int [] sqlTypes;
+    private final FieldType [] types;
+    private final int [] dbWriteOrder;
+    private final DelimiterSet inputDelimiters;
+    private final DelimiterSet outputDelimiters;
+
+    Schema(Configuration config) {
+      String namesStr = config.get(FIELD_NAMES_KEY);
+      if (null == namesStr) {
+        throw new IllegalStateException("No record schema in "
+            + FIELD_NAMES_KEY);
+      }
+
+      this.names = namesStr.length() == 0 ? new String[0]
+          : namesStr.split(",");
+      String [] sqlTypeStrs = config.get(SQL_TYPES_KEY).split(",");
+      String [] javaTypes = config.get(JAVA_TYPES_KEY).split(",");
+      this.sqlTypes = new int[names.length];
+      this.types = new FieldType[names.length];
+      for (int i = 0; i < names.length; i++) {
+        sqlTypes[i] = Integer.parseInt(sqlTypeStrs[i]);
+        types[i] = FieldType.forJavaType(javaTypes[i]);
+        if (null == types[i]) {
+          throw new IllegalStateException("Unsupported Java type "
+              + javaTypes[i] + " for field " + names[i]);
+        }
+      }
+
+      String orderStr = config.get(DB_WRITE_ORDER_KEY, "");
+      String [] orderStrs = orderStr.length() == 0 ? new String[0]
+          : orderStr.split(",");
+      this.dbWriteOrder = new int[orderStrs.length];
+      for (int i = 0; i < orderStrs.length; i++) {
+        dbWriteOrder[i] = Integer.parseInt(orderStrs[i]);
+      }
+
+      this.inputDelimiters = parseDelimiters(config.get(INPUT_DELIMITERS_KEY));
+      this.outputDelimiters =
+          parseDelimiters(config.get(OUTPUT_DELIMITERS_KEY));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Schema)) {
+        return false;
+      }
+
+      Schema s = (Schema) other;
+      return Arrays.equals(names, s.names)
+          && Arrays.equals(sqlTypes, s.sqlTypes)
+          && Arrays.equals(types, s.types)
+          && Arrays.equals(dbWriteOrder, s.dbWriteOrder)
+          && inputDelimiters.equals(s.inputDelimiters)
+          && outputDelimiters.equals(s.outputDelimiters);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(names);
+    }
+  }
+
+  /**
+   * The conversions applied to a field, one constant per Java type that
+   * ConnManager.toJavaType() may return.
+   */
+  private enum FieldType {
+    INTEGER("Integer") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readInteger(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeInteger((Integer) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return Integer.valueOf(in.readInt());
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        out.writeInt((Integer) val);
+      }
+      Object parse(String str) {
+        return Integer.valueOf(str);
+      }
+      Object parse(byte [] buf, int start, int end) {
+        return Integer.valueOf(FieldParser.parseInt(buf, start, end));
+      }
+      void appendTo(Object val, DelimiterSet delims, Appendable out)
+          throws IOException {
+        appendIntegral(val, delims, out);
+      }
+    },
+
+    LONG("Long") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readLong(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeLong((Long) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return Long.valueOf(in.readLong());
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        out.writeLong((Long) val);
+      }
+      Object parse(String str) {
+        return Long.valueOf(str);
+      }
+      Object parse(byte [] buf, int start, int end) {
+        return Long.valueOf(FieldParser.parseLong(buf, start, end));
+      }
+      void appendTo(Object val, DelimiterSet delims, Appendable out)
+          throws IOException {
+        appendIntegral(val, delims, out);
+      }
+    },
+
+    FLOAT("Float") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readFloat(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeFloat((Float) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return Float.valueOf(in.readFloat());
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        out.writeFloat((Float) val);
+      }
+      Object parse(String str) {
+        return Float.valueOf(str);
+      }
+      Object parse(byte [] buf, int start, int end) {
+        return Float.valueOf(FieldParser.parseFloat(buf, start, end));
+      }
+    },
+
+    DOUBLE("Double") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readDouble(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeDouble((Double) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return Double.valueOf(in.readDouble());
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        out.writeDouble((Double) val);
+      }
+      Object parse(String str) {
+        return Double.valueOf(str);
+      }
+      Object parse(byte [] buf, int start, int end) {
+        return Double.valueOf(FieldParser.parseDouble(buf, start, end));
+      }
+    },
+
+    BOOLEAN("Boolean") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readBoolean(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeBoolean((Boolean) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return Boolean.valueOf(in.readBoolean());
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        out.writeBoolean((Boolean) val);
+      }
+      Object parse(String str) {
+        return BooleanParser.valueOf(str);
+      }
+      Object parse(byte [] buf, int start, int end) {
+        return Boolean.valueOf(FieldParser.parseBoolean(buf, start, end));
+      }
+    },
+
+    STRING("String") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readString(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeString((String) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return Text.readString(in);
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        Text.writeString(out, (String) val);
+      }
+      Object parse(String str) {
+        return str;
+      }
+      Object parse(byte [] buf, int start, int end) {
+        return FieldParser.parseString(buf, start, end);
+      }
+      void appendTo(Object val, DelimiterSet delims, Appendable out)
+          throws IOException {
+        // A null String is written bare, as by generated classes.
+        FieldFormatter.appendEscapedAndEnclosed((String) val, delims, out);
+      }
+    },
+
+    DATE("java.sql.Date") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readDate(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeDate((Date) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return new Date(in.readLong());
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        out.writeLong(((Date) val).getTime());
+      }
+      Object parse(String str) {
+        return Date.valueOf(str);
+      }
+      Object copy(Object val) {
+        return ((Date) val).clone();
+      }
+    },
+
+    TIME("java.sql.Time") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readTime(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeTime((Time) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return new Time(in.readLong());
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        out.writeLong(((Time) val).getTime());
+      }
+      Object parse(String str) {
+        return Time.valueOf(str);
+      }
+      Object copy(Object val) {
+        return ((Time) val).clone();
+      }
+    },
+
+    TIMESTAMP("java.sql.Timestamp") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readTimestamp(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeTimestamp((Timestamp) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        Timestamp ts = new Timestamp(in.readLong());
+        ts.setNanos(in.readInt());
+        return ts;
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        Timestamp ts = (Timestamp) val;
+        out.writeLong(ts.getTime());
+        out.writeInt(ts.getNanos());
+      }
+      Object parse(String str) {
+        return Timestamp.valueOf(str);
+      }
+      Object copy(Object val) {
+        return ((Timestamp) val).clone();
+      }
+    },
+
+    DECIMAL("java.math.BigDecimal") {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readBigDecimal(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeBigDecimal((BigDecimal) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return BigDecimalSerializer.readFields(in);
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        BigDecimalSerializer.write((BigDecimal) val, out);
+      }
+      Object parse(String str) {
+        return new BigDecimal(str);
+      }
+      Object parse(byte [] buf, int start, int end) {
+        return FieldParser.parseBigDecimal(buf, start, end);
+      }
+    },
+
+    BYTES(BytesWritable.class.getName()) {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readBytesWritable(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeBytesWritable((BytesWritable) val, idx,
+            sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        BytesWritable bytes = new BytesWritable();
+        bytes.readFields(in);
+        return bytes;
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        ((BytesWritable) val).write(out);
+      }
+      Object parse(String str) {
+        // Generated classes cannot parse binary fields from text either.
+        return null;
+      }
+      Object copy(Object val) {
+        BytesWritable bytes = (BytesWritable) val;
+        return new BytesWritable(
+            Arrays.copyOf(bytes.getBytes(), bytes.getLength()));
+      }
+    },
+
+    CLOB(ClobRef.class.getName()) {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readClobRef(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeClobRef((ClobRef) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return LobSerializer.readClobFields(in);
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        LobSerializer.writeClob((ClobRef) val, out);
+      }
+      Object parse(String str) {
+        return ClobRef.parse(str);
+      }
+      Object copy(Object val) throws CloneNotSupportedException {
+        return ((ClobRef) val).clone();
+      }
+    },
+
+    BLOB(BlobRef.class.getName()) {
+      Object read(int col, ResultSet r) throws SQLException {
+        return JdbcWritableBridge.readBlobRef(col, r);
+      }
+      void write(Object val, int idx, int sqlType, PreparedStatement s)
+          throws SQLException {
+        JdbcWritableBridge.writeBlobRef((BlobRef) val, idx, sqlType, s);
+      }
+      Object readFields(DataInput in) throws IOException {
+        return LobSerializer.readBlobFields(in);
+      }
+      void write(Object val, DataOutput out) throws IOException {
+        LobSerializer.writeBlob((BlobRef) val, out);
+      }
+      Object parse(String str) {
+        return BlobRef.parse(str);
+      }
+      Object copy(Object val) throws CloneNotSupportedException {
+        return ((BlobRef) val).clone();
+      }
+    };
+
+    private final String javaType;
+
+    private FieldType(String type) {
+      this.javaType = type;
+    }
+
+    /**
+     * @return the FieldType for a Java type name, or null if unsupported.
+     */
+    static FieldType forJavaType(String type) {
+      for (FieldType t : values()) {
+        if (t.javaType.equals(type)) {
+          return t;
+        }
+      }
+      return null;
+    }
+
+    /** Read the field from column 'col' of the current row. */
+    abstract Object read(int col, ResultSet r) throws SQLException;
+
+    /** Bind a (possibly null) value to parameter 'idx'. */
+    abstract void write(Object val, int idx, int sqlType,
+        PreparedStatement s) throws SQLException;
+
+    /** Deserialize a non-null value. */
+    abstract Object readFields(DataInput in) throws IOException;
+
+    /** Serialize a non-null value. */
+    abstract void write(Object val, DataOutput out) throws IOException;
+
+    /** Decode a non-null value from its text representation. */
+    abstract Object parse(String str);
+
+    /** Decode a non-null value from a slice of a UTF-8 buffer. */
+    Object parse(byte [] buf, int start, int end) {
+      return parse(FieldParser.parseString(buf, start, end));
+    }
+
+    /** Format a (possibly null) value as a text field. */
+    void appendTo(Object val, DelimiterSet delims, Appendable out)
+        throws IOException {
+      // Like the generated "" + col, a null becomes the string "null",
+      // enclosed if the delimiters require it.
+      FieldFormatter.appendEscapedAndEnclosed("" + val, delims, out);
+    }
+
+    /** @return a copy of a non-null value that may be safely modified. */
+    Object copy(Object val) throws CloneNotSupportedException {
+      // Immutable types are shared.
+      return val;
+    }
+
+    private static void appendIntegral(Object val, DelimiterSet delims,
+        Appendable out) throws IOException {
+      if (null == val) {
+        FieldFormatter.appendEscapedAndEnclosed("null", delims, out);
+      } else {
+        FieldFormatter.appendEscapedAndEnclosed(((Number) val).longValue(),
+            delims, out);
+      }
+    }
+  }
+}
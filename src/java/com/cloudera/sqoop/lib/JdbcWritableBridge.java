@@ -35,8 +35,8 @@ import java.sql.Timestamp;
  */
 public final class JdbcWritableBridge {
 
-  // Currently, cap BLOB/CLOB objects at 16 MB until we can use external
-  // storage.
+  // Limits for BLOB/CLOB objects which are materialized in memory. LOBs
+  // held in external storage are exported as streams and are not limited.
   public static final long MAX_BLOB_LENGTH = 16 * 1024 * 1024;
   public static final long MAX_CLOB_LENGTH = 16 * 1024 * 1024;
 
@@ -267,13 +267,23 @@ public final class JdbcWritableBridge {
 
   public static void writeBlobRef(BlobRef val, int paramIdx,
       int sqlType, PreparedStatement s) throws SQLException {
-    // TODO: support this.
-    throw new RuntimeException("Unsupported: Cannot export BLOB data");
+    if (null == val) {
+      s.setNull(paramIdx, sqlType);
+    } else {
+      // Inline BLOBs are bound from memory; external BLOBs are streamed
+      // from their LobFile.
+      LobExportContext.bindBlobRef(val, paramIdx, s);
+    }
   }
 
   public static void writeClobRef(ClobRef val, int paramIdx,
       int sqlType, PreparedStatement s) throws SQLException {
-    // TODO: support this.
-    throw new RuntimeException("Unsupported: Cannot export CLOB data");
+    if (null == val) {
+      s.setNull(paramIdx, sqlType);
+    } else {
+      // Inline CLOBs are bound as strings; external CLOBs are streamed
+      // from their LobFile.
+      LobExportContext.bindClobRef(val, paramIdx, s);
+    }
   }
 }
@@ -0,0 +1,380 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import com.cloudera.sqoop.io.LobFile;
+import com.cloudera.sqoop.io.LobReaderCache;
+
+/**
+ * Binds BlobRef and ClobRef values into PreparedStatements during an
+ * export. External LOBs are bound as streams read directly from their
+ * LobFile, so they are never materialized in memory.
+ *
+ * External LOB paths are relative to the directory holding the exported
+ * records. An export mapper must call configure() before it writes any
+ * records which may hold external LOBs. This is per-task state, held for
+ * the thread which binds the records (the map thread).
+ *
+ * Each external LOB stream holds a LobFile.Reader until it has been read
+ * to the end or closed. JDBC drivers need not do either, so the streams
+ * bound into a statement should be collected with takeBoundStreams() and
+ * passed to closeStreams() once the statement has executed.
+ */
+public final class LobExportContext {
+
+  public static final Log LOG = LogFactory.getLog(
+      LobExportContext.class.getName());
+
+  private static final ThreadLocal<LobExportContext> CURRENT =
+      new ThreadLocal<LobExportContext>();
+
+  private final Configuration conf;
+  private final Path basePath;
+
+  // External LOB streams bound since the last takeBoundStreams().
+  private final List<Closeable> boundStreams = new ArrayList<Closeable>();
+
+  private LobExportContext(Configuration config, Path base) {
+    this.conf = config;
+    this.basePath = base;
+  }
+
+  /**
+   * Set the Configuration and base path used by the current thread to
+   * open external LOBs. If config is null, the current thread's settings
+   * are removed.
+   * @param config the Configuration used to access the filesystem.
+   * @param base the directory which holds the exported records.
+   */
+  public static void set(Configuration config, Path base) {
+    if (null == config) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(new LobExportContext(config, base));
+    }
+  }
+
+  /**
+   * Configure external LOB access for a map task which reads the records
+   * to export from files. This must be called from the map thread.
+   * @param context the current map task's context.
+   */
+  public static void configure(Mapper.Context context) {
+    InputSplit split = context.getInputSplit();
+    Path file = null;
+    if (split instanceof FileSplit) {
+      file = ((FileSplit) split).getPath();
+    } else if (split instanceof CombineFileSplit
+        && ((CombineFileSplit) split).getNumPaths() > 0) {
+      file = ((CombineFileSplit) split).getPath(0);
+    }
+
+    set(context.getConfiguration(), null == file ? null : file.getParent());
+  }
+
+  /**
+   * @return the external LOB streams bound by the current thread since
+   * the last call to this method. These belong to the statement(s) bound
+   * in that time.
+   */
+  public static List<Closeable> takeBoundStreams() {
+    LobExportContext ctxt = CURRENT.get();
+    if (null == ctxt || ctxt.boundStreams.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<Closeable> streams = new ArrayList<Closeable>(ctxt.boundStreams);
+    ctxt.boundStreams.clear();
+    return streams;
+  }
+
+  /**
+   * Close streams returned by takeBoundStreams(), returning their readers
+   * to the LobReaderCache. Streams already read to the end are unaffected.
+   */
+  public static void closeStreams(List<Closeable> streams) {
+    for (Closeable stream : streams) {
+      try {
+        stream.close();
+      } catch (IOException ioe) {
+        LOG.warn("IOException closing external LOB stream: " + ioe);
+      }
+    }
+  }
+
+  /**
+   * Bind a BLOB value to a statement parameter.
+   */
+  static void bindBlobRef(BlobRef val, int paramIdx, PreparedStatement s)
+      throws SQLException {
+    LobExportContext ctxt = CURRENT.get();
+    try {
+      if (!val.isExternal()) {
+        // Inline data is held in memory; no path is needed to read it.
+        bindBytes(val.getDataBuffer(null, null), paramIdx, s);
+        return;
+      }
+
+      LobFile.Reader reader = openRecord(ctxt, val);
+      long len = reader.getRecordLen();
+      if (len < 0) {
+        // The length was not recorded, and drivers need one to bind a
+        // stream; read the record into memory instead.
+        try {
+          bindBytes(readAll(reader.readBlobRecord()), paramIdx, s);
+        } finally {
+          recycle(reader);
+        }
+        return;
+      }
+
+      InputStream is = new RecyclingInputStream(reader,
+          reader.readBlobRecord());
+      ctxt.boundStreams.add(is);
+      if (len <= Integer.MAX_VALUE) {
+        s.setBinaryStream(paramIdx, is, (int) len);
+      } else {
+        s.setBinaryStream(paramIdx, is, len);
+      }
+    } catch (IOException ioe) {
+      throw new SQLException("Could not read BLOB " + val, ioe);
+    }
+  }
+
+  private static void bindBytes(ByteBuffer buf, int paramIdx,
+      PreparedStatement s) throws SQLException {
+    s.setBinaryStream(paramIdx, new ByteArrayInputStream(buf.array(),
+        buf.arrayOffset() + buf.position(), buf.remaining()),
+        buf.remaining());
+  }
+
+  /**
+   * Bind a CLOB value to a statement parameter.
+   */
+  static void bindClobRef(ClobRef val, int paramIdx, PreparedStatement s)
+      throws SQLException {
+    if (!val.isExternal()) {
+      s.setString(paramIdx, val.getData());
+      return;
+    }
+
+    LobExportContext ctxt = CURRENT.get();
+    try {
+      LobFile.Reader reader = openRecord(ctxt, val);
+      long len = reader.getRecordLen();
+      if (len < 0) {
+        // As for BLOBs, bind a record of unknown length from memory.
+        try {
+          s.setString(paramIdx, readAll(reader.readClobRecord()));
+        } finally {
+          recycle(reader);
+        }
+        return;
+      }
+
+      Reader r = new RecyclingReader(reader, reader.readClobRecord());
+      ctxt.boundStreams.add(r);
+      if (len <= Integer.MAX_VALUE) {
+        s.setCharacterStream(paramIdx, r, (int) len);
+      } else {
+        s.setCharacterStream(paramIdx, r, len);
+      }
+    } catch (IOException ioe) {
+      throw new SQLException("Could not read CLOB " + val, ioe);
+    }
+  }
+
+  private static ByteBuffer readAll(InputStream is) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte [] buf = new byte[4096];
+    int n;
+    while ((n = is.read(buf)) != -1) {
+      out.write(buf, 0, n);
+    }
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  private static String readAll(Reader r) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    char [] buf = new char[4096];
+    int n;
+    while ((n = r.read(buf)) != -1) {
+      sb.append(buf, 0, n);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return a LobFile.Reader for the exclusive use of the stream which
+   * will read the external LOB.
+   */
+  private static LobFile.Reader openRecord(LobExportContext ctxt,
+      LobRef<?, ?, ?> val) throws IOException {
+    if (null == ctxt || null == ctxt.basePath) {
+      throw new IOException(
+          "The location of external LOB files has not been configured");
+    }
+
+    return val.openExternalRecord(ctxt.conf, ctxt.basePath);
+  }
+
+  /**
+   * Return a LobFile.Reader to the cache once the record stream over it
+   * has been fully read or closed. The JDBC driver may consume the stream
+   * after the LobRef it came from has been reused or discarded, so the
+   * stream owns its reader.
+   */
+  private static void recycle(LobFile.Reader reader) throws IOException {
+    LobReaderCache.getCache().recycle(reader);
+  }
+
+  /**
+   * InputStream over a BLOB record which owns its LobFile.Reader.
+   */
+  private static class RecyclingInputStream extends FilterInputStream {
+    private LobFile.Reader reader;
+
+    RecyclingInputStream(LobFile.Reader reader, InputStream in) {
+      super(in);
+      this.reader = reader;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (null == reader) {
+        return -1;
+      }
+
+      int b = super.read();
+      if (-1 == b) {
+        release();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte [] b, int off, int len) throws IOException {
+      if (null == reader) {
+        return -1;
+      }
+
+      int bytesRead = super.read(b, off, len);
+      if (-1 == bytesRead) {
+        release();
+      }
+      return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null != reader) {
+        try {
+          super.close();
+        } finally {
+          release();
+        }
+      }
+    }
+
+    private void release() throws IOException {
+      LobFile.Reader r = reader;
+      reader = null;
+      recycle(r);
+    }
+  }
+
+  /**
+   * Reader over a CLOB record which owns its LobFile.Reader.
+   */
+  private static class RecyclingReader extends FilterReader {
+    private LobFile.Reader reader;
+
+    RecyclingReader(LobFile.Reader reader, Reader in) {
+      super(in);
+      this.reader = reader;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (null == reader) {
+        return -1;
+      }
+
+      int c = super.read();
+      if (-1 == c) {
+        release();
+      }
+      return c;
+    }
+
+    @Override
+    public int read(char [] cbuf, int off, int len) throws IOException {
+      if (null == reader) {
+        return -1;
+      }
+
+      int charsRead = super.read(cbuf, off, len);
+      if (-1 == charsRead) {
+        release();
+      }
+      return charsRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null != reader) {
+        try {
+          super.close();
+        } finally {
+          release();
+        }
+      }
+    }
+
+    private void release() throws IOException {
+      LobFile.Reader r = reader;
+      reader = null;
+      recycle(r);
+    }
+  }
+}
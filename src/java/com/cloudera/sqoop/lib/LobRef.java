@@ -22,6 +22,7 @@ import java.io.Closeable;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -128,6 +129,7 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
     // Discard any open LobReader.
     if (null != this.lobReader) {
       LobReaderCache.getCache().recycle(this.lobReader);
+      this.lobReader = null;
     }
   }
 
@@ -177,21 +179,7 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
       throws IOException {
     if (isExternal()) {
       // Read from external storage.
-      Path pathToRead = LobReaderCache.qualify(
-          new Path(basePath, fileName), conf);
-      LOG.debug("Retreving data stream from external path: " + pathToRead);
-      if (lobReader != null) {
-        // We already have a reader open to a LobFile. Is it the correct file?
-        if (!pathToRead.equals(lobReader.getPath())) {
-          // No. Close this.lobReader and get the correct one.
-          LOG.debug("Releasing previous external reader for "
-              + lobReader.getPath());
-          LobReaderCache.getCache().recycle(lobReader);
-          lobReader = LobReaderCache.getCache().get(pathToRead, conf);
-        }
-      } else {
-        lobReader = LobReaderCache.getCache().get(pathToRead, conf);
-      }
+      openExternalReader(conf, basePath);
 
       // We now have a LobFile.Reader associated with the correct file. Get to
       // the correct offset and return an InputStream/Reader to the user.
@@ -201,8 +189,8 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
       }
 
       if (!lobReader.next()) {
-        throw new IOException("Could not locate record at " + pathToRead
-            + ":" + offset);
+        throw new IOException("Could not locate record at "
+            + lobReader.getPath() + ":" + offset);
       }
 
       return getExternalSource(lobReader);
@@ -212,6 +200,80 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
     }
   }
 
+  /**
+   * Read the entire external record into a ByteBuffer with
+   * LobFile.Reader.readRecordBuffer(). This avoids seeking the reader
+   * and re-parsing the record header, which makes it cheaper for
+   * dereferencing LOBs in random order.
+   * @param conf the Configuration used to access the filesystem
+   * @param basePath the base directory where the table records are
+   * stored.
+   * @return the raw bytes of the record.
+   */
+  protected ByteBuffer getExternalBuffer(Configuration conf, Path basePath)
+      throws IOException {
+    openExternalReader(conf, basePath);
+    return lobReader.readRecordBuffer(offset);
+  }
+
+  /**
+   * Open a LobFile.Reader positioned at the start of this external record.
+   * Unlike getDataStream(), the reader is not held by this LobRef, so it
+   * can remain in use after this LobRef is closed or discarded. The caller
+   * must return it to the LobReaderCache when it is finished with it.
+   * @param conf the Configuration used to access the filesystem
+   * @param basePath the base directory where the table records are
+   * stored.
+   * @return a reader whose current record is this one.
+   */
+  protected LobFile.Reader openExternalRecord(Configuration conf,
+      Path basePath) throws IOException {
+    Path pathToRead = LobReaderCache.qualify(
+        new Path(basePath, fileName), conf);
+    LobFile.Reader reader = LobReaderCache.getCache(conf).get(pathToRead, conf);
+    boolean found = false;
+    try {
+      if (reader.tell() != offset) {
+        reader.seek(offset);
+      }
+
+      found = reader.next();
+    } finally {
+      if (!found) {
+        LobReaderCache.getCache().recycle(reader);
+      }
+    }
+
+    if (!found) {
+      throw new IOException("Could not locate record at "
+          + pathToRead + ":" + offset);
+    }
+
+    return reader;
+  }
+
+  /**
+   * Make sure lobReader is open to the LobFile that holds this record.
+   */
+  private void openExternalReader(Configuration conf, Path basePath)
+      throws IOException {
+    Path pathToRead = LobReaderCache.qualify(
+        new Path(basePath, fileName), conf);
+    LOG.debug("Retreving data stream from external path: " + pathToRead);
+    if (lobReader != null) {
+      // We already have a reader open to a LobFile. Is it the correct file?
+      if (!pathToRead.equals(lobReader.getPath())) {
+        // No. Close this.lobReader and get the correct one.
+        LOG.debug("Releasing previous external reader for "
+            + lobReader.getPath());
+        LobReaderCache.getCache().recycle(lobReader);
+        lobReader = LobReaderCache.getCache(conf).get(pathToRead, conf);
+      }
+    } else {
+      lobReader = LobReaderCache.getCache(conf).get(pathToRead, conf);
+    }
+  }
+
   /**
    * Using the LobFile reader, get an accessor InputStream or Reader to the
    * underlying data.
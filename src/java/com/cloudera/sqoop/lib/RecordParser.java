@@ -25,6 +25,7 @@ import org.apache.hadoop.io.Text;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,6 +52,15 @@ import java.util.List;
  * The fields parsed by RecordParser are backed by an internal buffer
  * which is cleared when the next call to parseRecord() is made. If
  * the buffer is required to be preserved, you must copy it yourself.
+ *
+ * In addition to the List&lt;String&gt; interface, the parser can operate
+ * directly on UTF-8 encoded bytes (e.g., a Text) via parseFields(). In this
+ * mode, no Strings are created; the unescaped bytes of each field are copied
+ * into a reusable buffer and the field boundaries are recorded as offsets
+ * into that buffer. This mode requires that all delimiter characters be
+ * 7-bit ASCII, which can never appear inside a multi-byte UTF-8 sequence.
+ * Other delimiter sets are supported, but fall back to transcoding the
+ * input.
  */
 public final class RecordParser {
 
@@ -86,12 +96,43 @@ public final class RecordParser {
     }
   }
 
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /** Initial size of the field buffer used by parseFields(). */
+  private static final int DEFAULT_FIELD_BUF_LEN = 1024;
+
+  /** Initial number of fields which can be tracked by parseFields(). */
+  private static final int DEFAULT_NUM_FIELDS = 32;
+
   private DelimiterSet delimiters;
   private ArrayList<String> outputs;
 
+  // True if all the delimiters can be matched against single UTF-8 bytes.
+  private boolean byteParseable;
+
+  // Buffer holding the unescaped bytes of all fields parsed by the most
+  // recent call to parseFields().
+  private byte [] fieldBuf;
+
+  // Field i occupies fieldBuf[fieldOffsets[2*i]] up to (but not including)
+  // fieldBuf[fieldOffsets[2*i + 1]].
+  private int [] fieldOffsets;
+  private int numFields;
+
   public RecordParser(final DelimiterSet delimitersIn) {
     this.delimiters = delimitersIn.copy();
     this.outputs = new ArrayList<String>();
+    this.byteParseable = isAscii(delimiters.getFieldsTerminatedBy())
+        && isAscii(delimiters.getLinesTerminatedBy())
+        && isAscii(delimiters.getEnclosedBy())
+        && isAscii(delimiters.getEscapedBy());
+    this.fieldBuf = new byte[DEFAULT_FIELD_BUF_LEN];
+    this.fieldOffsets = new int[2 * DEFAULT_NUM_FIELDS];
+    this.numFields = 0;
+  }
+
+  private static boolean isAscii(char c) {
+    return c < 0x80;
   }
 
   /**
@@ -117,9 +158,19 @@ public final class RecordParser {
       throw new ParseError("null input string");
     }
 
-    // TODO(aaron): The parser should be able to handle UTF-8 strings
-    // as well, to avoid this transcode operation.
-    return parseRecord(input.toString());
+    if (!byteParseable) {
+      return parseRecord(input.toString());
+    }
+
+    // Split the UTF-8 bytes directly; only the fields themselves
+    // are decoded.
+    parseFields(input);
+    outputs.clear();
+    for (int i = 0; i < numFields; i++) {
+      outputs.add(getFieldString(i));
+    }
+
+    return outputs;
   }
 
   /**
@@ -342,6 +393,244 @@ public final class RecordParser {
   }
   // CHECKSTYLE:ON
 
+  /**
+   * Parse the UTF-8 bytes of the input line into fields without
+   * transcoding it into a String. The field contents are available through
+   * getFieldBuffer() and getFieldOffsets() (or the getField*() convenience
+   * methods) until the next call to parseFields().
+   * @return the number of fields in the record.
+   */
+  public int parseFields(Text input) throws ParseError {
+    if (null == input) {
+      throw new ParseError("null input string");
+    }
+
+    return parseFields(input.getBytes(), 0, input.getLength());
+  }
+
+  // CHECKSTYLE:OFF
+  /**
+   * Parse 'len' bytes of UTF-8 encoded data starting at 'start' in the
+   * input array into fields. This follows the same state machine as
+   * parseRecord(CharBuffer); see that method for details.
+   * @return the number of fields in the record.
+   */
+  public int parseFields(byte [] input, int start, int len)
+      throws ParseError {
+    if (null == input) {
+      throw new ParseError("null input string");
+    }
+
+    numFields = 0;
+
+    if (!byteParseable) {
+      // A delimiter may be part of a multi-byte sequence; we can't scan
+      // the bytes for it. Parse this as a String and copy the results.
+      List<String> fields = parseRecord(new String(input, start, len, UTF8));
+      int outPos = 0;
+      for (String field : fields) {
+        byte [] fieldBytes = field.getBytes(UTF8);
+        ensureFieldBufCapacity(outPos + fieldBytes.length);
+        System.arraycopy(fieldBytes, 0, fieldBuf, outPos, fieldBytes.length);
+        addField(outPos, outPos + fieldBytes.length);
+        outPos += fieldBytes.length;
+      }
+
+      return numFields;
+    }
+
+    // Unescaping can only shrink the data, so the whole record fits here.
+    ensureFieldBufCapacity(len);
+    byte [] buf = this.fieldBuf;
+    int outPos = 0;
+    int fieldStart = -1; // Start of the current field; -1 if none is open.
+
+    byte curByte = (byte) DelimiterSet.NULL_CHAR;
+    ParseState state = ParseState.FIELD_START;
+    int end = start + len;
+
+    byte enclosingByte = (byte) delimiters.getEnclosedBy();
+    byte fieldDelim = (byte) delimiters.getFieldsTerminatedBy();
+    byte recordDelim = (byte) delimiters.getLinesTerminatedBy();
+    byte escapeByte = (byte) delimiters.getEscapedBy();
+    boolean enclosingRequired = delimiters.isEncloseRequired();
+
+    for (int pos = start; pos < end; pos++) {
+      curByte = input[pos];
+      switch (state) {
+      case FIELD_START:
+        if (-1 != fieldStart) {
+          // We finished processing a previous field. Record it.
+          addField(fieldStart, outPos);
+        }
+
+        fieldStart = outPos;
+        if (enclosingByte == curByte) {
+          state = ParseState.ENCLOSED_FIELD;
+        } else if (escapeByte == curByte) {
+          state = ParseState.UNENCLOSED_ESCAPE;
+        } else if (fieldDelim == curByte) {
+          // we have a zero-length field. This is a no-op.
+          continue;
+        } else if (recordDelim == curByte) {
+          // we have a zero-length field, that ends processing.
+          pos = end;
+        } else {
+          state = ParseState.UNENCLOSED_FIELD;
+          buf[outPos++] = curByte;
+
+          if (enclosingRequired) {
+            throw new ParseError(
+                "Opening field-encloser expected at byte offset "
+                + (pos - start));
+          }
+        }
+
+        break;
+
+      case ENCLOSED_FIELD:
+        if (escapeByte == curByte) {
+          state = ParseState.ENCLOSED_ESCAPE;
+        } else if (enclosingByte == curByte) {
+          state = ParseState.ENCLOSED_EXPECT_DELIMITER;
+        } else {
+          buf[outPos++] = curByte;
+        }
+
+        break;
+
+      case UNENCLOSED_FIELD:
+        if (escapeByte == curByte) {
+          state = ParseState.UNENCLOSED_ESCAPE;
+        } else if (fieldDelim == curByte) {
+          state = ParseState.FIELD_START;
+        } else if (recordDelim == curByte) {
+          pos = end; // terminate processing immediately.
+        } else {
+          buf[outPos++] = curByte;
+        }
+
+        break;
+
+      case ENCLOSED_ESCAPE:
+        // An escaped multi-byte character only has its lead byte consumed
+        // here; its continuation bytes never match a delimiter.
+        buf[outPos++] = curByte;
+        state = ParseState.ENCLOSED_FIELD;
+        break;
+
+      case ENCLOSED_EXPECT_DELIMITER:
+        if (fieldDelim == curByte) {
+          state = ParseState.FIELD_START;
+        } else if (recordDelim == curByte) {
+          pos = end;
+        } else {
+          throw new ParseError("Expected delimiter at byte offset "
+              + (pos - start));
+        }
+
+        break;
+
+      case UNENCLOSED_ESCAPE:
+        buf[outPos++] = curByte;
+        state = ParseState.UNENCLOSED_FIELD;
+        break;
+
+      default:
+        throw new ParseError("Unexpected parser state: " + state);
+      }
+    }
+
+    if (state == ParseState.FIELD_START && curByte == fieldDelim
+        && -1 != fieldStart) {
+      // The record ended with a field delimiter; this starts one final
+      // (empty) field.
+      addField(fieldStart, outPos);
+      fieldStart = outPos;
+    }
+
+    if (-1 != fieldStart) {
+      addField(fieldStart, outPos);
+    }
+
+    return numFields;
+  }
+  // CHECKSTYLE:ON
+
+  /**
+   * Record a field occupying fieldBuf[start..end).
+   */
+  private void addField(int start, int end) {
+    int idx = 2 * numFields;
+    if (idx + 2 > fieldOffsets.length) {
+      int [] newOffsets = new int[2 * fieldOffsets.length];
+      System.arraycopy(fieldOffsets, 0, newOffsets, 0, idx);
+      fieldOffsets = newOffsets;
+    }
+
+    fieldOffsets[idx] = start;
+    fieldOffsets[idx + 1] = end;
+    numFields++;
+  }
+
+  private void ensureFieldBufCapacity(int len) {
+    if (fieldBuf.length < len) {
+      byte [] newBuf = new byte[Math.max(len, 2 * fieldBuf.length)];
+      System.arraycopy(fieldBuf, 0, newBuf, 0, fieldBuf.length);
+      fieldBuf = newBuf;
+    }
+  }
+
+  /**
+   * @return the number of fields found by the last call to parseFields().
+   */
+  public int getFieldCount() {
+    return numFields;
+  }
+
+  /**
+   * @return the buffer holding the unescaped UTF-8 bytes of the fields
+   * found by the last call to parseFields(). This buffer is reused by
+   * subsequent calls.
+   */
+  public byte [] getFieldBuffer() {
+    return fieldBuf;
+  }
+
+  /**
+   * @return an array of field boundaries for the last call to parseFields().
+   * Field i occupies the bytes from getFieldBuffer()[offsets[2*i]] up to
+   * (but not including) getFieldBuffer()[offsets[2*i+1]]. Only the first
+   * 2*getFieldCount() entries are valid. This array is reused by
+   * subsequent calls.
+   */
+  public int [] getFieldOffsets() {
+    return fieldOffsets;
+  }
+
+  /**
+   * @return the offset into getFieldBuffer() where field 'i' starts.
+   */
+  public int getFieldStart(int i) {
+    return fieldOffsets[2 * i];
+  }
+
+  /**
+   * @return the offset into getFieldBuffer() just past the end of field 'i'.
+   */
+  public int getFieldEnd(int i) {
+    return fieldOffsets[2 * i + 1];
+  }
+
+  /**
+   * @return field 'i' of the last record parsed by parseFields(),
+   * decoded into a String.
+   */
+  public String getFieldString(int i) {
+    int start = fieldOffsets[2 * i];
+    return new String(fieldBuf, start, fieldOffsets[2 * i + 1] - start, UTF8);
+  }
+
   public boolean isEnclosingRequired() { 
     return delimiters.isEncloseRequired();
   }
@@ -57,11 +57,47 @@ public abstract class SqoopRecord implements Cloneable, DBWritable,
 
   public abstract String toString(DelimiterSet delimiters);
 
+  /**
+   * Appends the delimited text representation of this record, as returned
+   * by toString(delimiters), to 'out'. Generated classes override this to
+   * format each field directly into 'out' without building a String.
+   * @param out the destination for the formatted record.
+   * @param delimiters the delimiters to use when formatting the record.
+   */
+  public void appendTo(Appendable out, DelimiterSet delimiters)
+      throws IOException {
+    out.append(toString(delimiters));
+  }
+
+  /**
+   * Appends the delimited text representation of this record, as returned
+   * by toString(), to 'out'.
+   * @param out the destination for the formatted record.
+   */
+  public void appendTo(Appendable out) throws IOException {
+    out.append(toString());
+  }
+
   @Override
   public Object clone() throws CloneNotSupportedException {
     return super.clone();
   }
 
+  /**
+   * Copies the fields of this record into 'other', which should be an
+   * instance of the same class, as if 'other' had been returned by
+   * clone(). This allows callers which must retain a record's values to
+   * reuse existing record objects rather than allocating a new one each
+   * time. Generated classes override this method.
+   * @param other the record to overwrite.
+   * @return true if the fields were copied; false if this class does not
+   * support copying into 'other', in which case clone() must be used.
+   */
+  public boolean copyTo(SqoopRecord other)
+      throws CloneNotSupportedException {
+    return false;
+  }
+
   /**
    * Returns an integer specifying which API format version the
    * generated class conforms to. Used by internal APIs for backwards
@@ -96,5 +132,17 @@ public abstract class SqoopRecord implements Cloneable, DBWritable,
   throw new RuntimeException(
       "Got null field map from record. Regenerate your record class.");
   }
+
+  /**
+   * Return the value of a single field, as it would appear in
+   * getFieldMap(), without building the whole map. Generated classes
+   * override this to return the field directly.
+   * @param fieldName the name of the field, as used by getFieldMap().
+   * @return the field's value, or null if it is null or there is no
+   * such field.
+   */
+  public Object getFieldValue(String fieldName) {
+    return getFieldMap().get(fieldName);
+  }
 }
 
@@ -0,0 +1,193 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.nio.charset.Charset;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * A reusable, growable buffer which encodes the characters appended to it
+ * as UTF-8. This allows a record to be formatted directly into bytes
+ * (e.g., via SqoopRecord.appendTo()) without building a String first.
+ *
+ * Unpaired surrogate characters are encoded as '?', as with
+ * String.getBytes() and Text.set().
+ *
+ * This class is not synchronized.
+ */
+public class Utf8Buffer implements Appendable {
+
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private byte [] buf;
+  private int len;
+
+  // A high surrogate waiting for its matching low surrogate, or 0.
+  private char pendingHighSurrogate;
+
+  public Utf8Buffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public Utf8Buffer(int capacity) {
+    this.buf = new byte[capacity];
+    this.len = 0;
+  }
+
+  /**
+   * Discard the contents of the buffer, retaining its capacity.
+   */
+  public void reset() {
+    this.len = 0;
+    this.pendingHighSurrogate = 0;
+  }
+
+  /**
+   * @return the backing array for this buffer. Only the first
+   * getLength() bytes are valid.
+   */
+  public byte [] getBytes() {
+    flushSurrogate();
+    return buf;
+  }
+
+  /**
+   * @return the number of valid bytes in the buffer.
+   */
+  public int getLength() {
+    flushSurrogate();
+    return len;
+  }
+
+  /**
+   * Set the contents of 'text' to the bytes in this buffer. The Text
+   * reuses its own storage if it is large enough.
+   */
+  public void copyTo(Text text) {
+    flushSurrogate();
+    text.set(buf, 0, len);
+  }
+
+  @Override
+  public Utf8Buffer append(CharSequence csq) {
+    if (null == csq) {
+      return append("null", 0, 4);
+    }
+
+    return append(csq, 0, csq.length());
+  }
+
+  @Override
+  public Utf8Buffer append(CharSequence csq, int start, int end) {
+    if (null == csq) {
+      return append("null", start, end);
+    }
+
+    // Each char occupies at most three bytes; surrogate pairs take four
+    // bytes for two chars.
+    ensureCapacity(len + 3 * (end - start) + 3);
+    for (int i = start; i < end; i++) {
+      char c = csq.charAt(i);
+      if (c < 0x80 && 0 == pendingHighSurrogate) {
+        buf[len++] = (byte) c;
+      } else {
+        encode(c);
+      }
+    }
+
+    return this;
+  }
+
+  @Override
+  public Utf8Buffer append(char c) {
+    ensureCapacity(len + 6);
+    if (c < 0x80 && 0 == pendingHighSurrogate) {
+      buf[len++] = (byte) c;
+    } else {
+      encode(c);
+    }
+
+    return this;
+  }
+
+  /**
+   * Append the UTF-8 encoding of 'c'. The caller must ensure there is
+   * room for at least 6 more bytes.
+   */
+  private void encode(char c) {
+    if (0 != pendingHighSurrogate) {
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(pendingHighSurrogate, c);
+        pendingHighSurrogate = 0;
+        buf[len++] = (byte) (0xF0 | (codePoint >> 18));
+        buf[len++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buf[len++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buf[len++] = (byte) (0x80 | (codePoint & 0x3F));
+        return;
+      }
+
+      // The previous high surrogate was unpaired.
+      pendingHighSurrogate = 0;
+      buf[len++] = '?';
+    }
+
+    if (c < 0x80) {
+      buf[len++] = (byte) c;
+    } else if (c < 0x800) {
+      buf[len++] = (byte) (0xC0 | (c >> 6));
+      buf[len++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      pendingHighSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buf[len++] = '?';
+    } else {
+      buf[len++] = (byte) (0xE0 | (c >> 12));
+      buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buf[len++] = (byte) (0x80 | (c & 0x3F));
+    }
+  }
+
+  /**
+   * Encode any high surrogate still awaiting its pair as '?'.
+   */
+  private void flushSurrogate() {
+    if (0 != pendingHighSurrogate) {
+      ensureCapacity(len + 1);
+      pendingHighSurrogate = 0;
+      buf[len++] = '?';
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (buf.length < capacity) {
+      byte [] newBuf = new byte[Math.max(capacity, 2 * buf.length)];
+      System.arraycopy(buf, 0, newBuf, 0, len);
+      buf = newBuf;
+    }
+  }
+
+  @Override
+  public String toString() {
+    flushSurrogate();
+    return new String(buf, 0, len, UTF8);
+  }
+}
@@ -68,6 +68,15 @@ public abstract class ConnManager {
    */
   public abstract String getPrimaryKey(String tableName);
 
+  /**
+   * Return an estimate of the number of rows in a table, taken from the
+   * database catalog rather than by counting, or -1 if none is available.
+   * The estimate may be stale; it is only used to order work.
+   */
+  public long getTableSizeEstimate(String tableName) {
+    return -1;
+  }
+
   /**
    * Return java type for SQL type.
    * @param sqlType     sql type
@@ -19,14 +19,10 @@
 package com.cloudera.sqoop.manager;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -34,11 +30,14 @@ import org.apache.commons.logging.LogFactory;
 
 import com.cloudera.sqoop.SqoopOptions;
 import com.cloudera.sqoop.io.SplittableBufferedWriter;
+import com.cloudera.sqoop.mapreduce.PostgresqlCopyImportJob;
+import com.cloudera.sqoop.mapreduce.PostgresqlExportJob;
 import com.cloudera.sqoop.util.AsyncSink;
 import com.cloudera.sqoop.util.DirectImportUtils;
 import com.cloudera.sqoop.util.ErrorableAsyncSink;
 import com.cloudera.sqoop.util.ErrorableThread;
 import com.cloudera.sqoop.util.Executor;
+import com.cloudera.sqoop.util.ExportException;
 import com.cloudera.sqoop.util.ImportException;
 import com.cloudera.sqoop.util.JdbcUrl;
 import com.cloudera.sqoop.util.LoggingAsyncSink;
@@ -58,8 +57,6 @@ public class DirectPostgresqlManager extends PostgresqlManager {
     super(opts, true);
   }
 
-  private static final String PSQL_CMD = "psql";
-
   /** Copies data directly into HDFS, adding the user's chosen line terminator
       char to each record.
     */
@@ -144,143 +141,23 @@ public class DirectPostgresqlManager extends PostgresqlManager {
     }
   }
 
-  /**
-   * Takes a list of columns and turns them into a string like
-   * "col1, col2, col3...".
-   */
-  private String getColumnListStr(String [] cols) {
-    if (null == cols) {
-      return null;
-    }
-
-    StringBuilder sb = new StringBuilder();
-    boolean first = true;
-    for (String col : cols) {
-      if (!first) {
-        sb.append(", ");
-      }
-      sb.append(col);
-      first = false;
-    }
-
-    return sb.toString();
-  }
-
   /**
    * @return the Postgresql-specific SQL command to copy the
    * table ("COPY .... TO STDOUT").
    */
   private String getCopyCommand(String tableName) {
-
-    // Format of this command is:
-    //
-    //     COPY table(col, col....) TO STDOUT 
-    // or  COPY ( query ) TO STDOUT
-    //   WITH DELIMITER 'fieldsep'
-    //   CSV
-    //   QUOTE 'quotechar'
-    //   ESCAPE 'escapechar'
-    //   FORCE QUOTE col, col, col....
-
-    StringBuilder sb = new StringBuilder();
-    String [] cols = getColumnNames(tableName);
-
-    sb.append("COPY ");
-    String whereClause = this.options.getWhereClause();
-    if (whereClause != null && whereClause.length() > 0) {
-      // Import from a SELECT QUERY
-      sb.append("(");
-      sb.append("SELECT ");
-      if (null != cols) {
-        sb.append(getColumnListStr(cols));
-      } else {
-        sb.append("*");
-      }
-
-      sb.append(" FROM ");
-      sb.append(tableName);
-      sb.append(" WHERE ");
-      sb.append(whereClause);
-      sb.append(")");
-    } else {
-      // Import just the table.
-      sb.append(tableName);
-      if (null != cols) {
-        // specify columns.
-        sb.append("(");
-        sb.append(getColumnListStr(cols));
-        sb.append(")");
-      }
-    }
-
-    // Translate delimiter characters to '\ooo' octal representation.
-    sb.append(" TO STDOUT WITH DELIMITER E'\\");
-    sb.append(Integer.toString((int) this.options.getOutputFieldDelim(), 8));
-    sb.append("' CSV ");
-    if (this.options.getOutputEnclosedBy() != '\0') {
-      sb.append("QUOTE E'\\");
-      sb.append(Integer.toString((int) this.options.getOutputEnclosedBy(), 8));
-      sb.append("' ");
-    }
-    if (this.options.getOutputEscapedBy() != '\0') {
-      sb.append("ESCAPE E'\\");
-      sb.append(Integer.toString((int) this.options.getOutputEscapedBy(), 8));
-      sb.append("' ");
-    }
-
-    // add the "FORCE QUOTE col, col, col..." clause if quotes are required.
-    if (null != cols && this.options.isOutputEncloseRequired()) {
-      sb.append("FORCE QUOTE ");
-      sb.append(getColumnListStr(cols));
-    }
-
-    sb.append(";");
-
-    String copyCmd = sb.toString();
-    LOG.debug("Copy command is " + copyCmd);
-    return copyCmd;
-  }
-
-  /** Write the COPY command to a temp file.
-    * @return the filename we wrote to.
-    */
-  private String writeCopyCommand(String command) throws IOException {
-    String tmpDir = options.getTempDir();
-    File tempFile = File.createTempFile("tmp-", ".sql", new File(tmpDir));
-    BufferedWriter w = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(tempFile)));
-    w.write(command);
-    w.newLine();
-    w.close();
-    return tempFile.toString();
-  }
-
-  /** Write the user's password to a file that is chmod 0600.
-      @return the filename.
-    */
-  private String writePasswordFile(String password) throws IOException {
-
-    String tmpDir = options.getTempDir();
-    File tempFile = File.createTempFile("pgpass", ".pgpass", new File(tmpDir));
-    LOG.debug("Writing password to tempfile: " + tempFile);
-
-    // Make sure it's only readable by the current user.
-    DirectImportUtils.setFilePermissions(tempFile, "0600");
-
-    // Actually write the password data into the file.
-    BufferedWriter w = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(tempFile)));
-    w.write("*:*:*:*:" + password);
-    w.close();
-    return tempFile.toString();
+    return PostgresqlUtils.getCopyCommand(tableName,
+        getColumnNames(tableName), this.options.getWhereClause(),
+        this.options.getOutputDelimiters());
   }
 
-  // TODO(aaron): Refactor this method to be much shorter.
-  // CHECKSTYLE:OFF
   @Override
   /**
    * Import the table into HDFS by using psql to pull the data out of the db
-   * via COPY FILE TO STDOUT.
+   * via COPY FILE TO STDOUT. Each map task copies a range of the split
+   * column with its own psql process. If the table has no split column, or
+   * the user has asked for the output to be split by size, a single psql
+   * process is run on this machine instead.
    */
   public void importTable(ImportJobContext context)
     throws IOException, ImportException {
@@ -297,6 +174,42 @@ public class DirectPostgresqlManager extends PostgresqlManager {
       LOG.warn("Postgresql direct import; import will proceed as text files.");
     }
 
+    String splitCol = getSplitColumn(options, tableName);
+    if (options.getDirectSplitSize() > 0) {
+      LOG.info("Using a single psql process to split output files by size.");
+      importTableLocally(context);
+      return;
+    } else if (null == splitCol) {
+      LOG.info("No split column for table " + tableName
+          + "; using a single psql process.");
+      importTableLocally(context);
+      return;
+    }
+
+    context.setConnManager(this);
+    PostgresqlCopyImportJob importer = null;
+    try {
+      importer = new PostgresqlCopyImportJob(options, context);
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException("Could not load required classes", cnfe);
+    }
+
+    importer.runImport(tableName, context.getJarFile(), splitCol,
+        options.getConf());
+  }
+
+  // TODO(aaron): Refactor this method to be much shorter.
+  // CHECKSTYLE:OFF
+  /**
+   * Import the table into HDFS by running a single psql process on this
+   * machine, which writes through a SplittableBufferedWriter.
+   */
+  private void importTableLocally(ImportJobContext context)
+    throws IOException, ImportException {
+
+    String tableName = context.getTableName();
+    SqoopOptions options = context.getOptions();
+
     String commandFilename = null;
     String passwordFilename = null;
     Process p = null;
@@ -309,10 +222,8 @@ public class DirectPostgresqlManager extends PostgresqlManager {
       // it in to psql with -f filename.  Then make sure we delete this file
       // in our finally block.
       String copyCmd = getCopyCommand(tableName);
-      commandFilename = writeCopyCommand(copyCmd);
-
-      // Arguments to pass to psql on the command line.
-      ArrayList<String> args = new ArrayList<String>();
+      commandFilename = PostgresqlUtils.writeCommandFile(
+          options.getTempDir(), copyCmd);
 
       // Environment to pass to psql.
       List<String> envp = Executor.getCurEnvpStrings();
@@ -332,40 +243,22 @@ public class DirectPostgresqlManager extends PostgresqlManager {
 
       LOG.info("Performing import of table " + tableName + " from database "
           + databaseName);
-      args.add(PSQL_CMD); // requires that this is on the path.
-      args.add("--tuples-only");
-      args.add("--quiet");
 
       String username = options.getUsername();
       if (username != null) {
-        args.add("--username");
-        args.add(username);
         String password = options.getPassword();
         if (null != password) {
-          passwordFilename = writePasswordFile(password);
+          passwordFilename = PostgresqlUtils.writePasswordFile(
+              options.getTempDir(), password);
           // Need to send PGPASSFILE environment variable specifying
           // location of our postgres file.
           envp.add("PGPASSFILE=" + passwordFilename);
         }
       }
 
-      if (!DirectImportUtils.isLocalhost(hostname)) {
-        args.add("--host");
-        args.add(hostname);
-      }
-
-      if (port != -1) {
-        args.add("--port");
-        args.add(Integer.toString(port));
-      }
-
-      if (null != databaseName && databaseName.length() > 0) {
-        args.add(databaseName);
-      }
-
-      // The COPY command is in a script file.
-      args.add("-f");
-      args.add(commandFilename);
+      // Arguments to pass to psql on the command line.
+      List<String> args = PostgresqlUtils.getPsqlArgs(databaseName,
+          hostname, port, username, commandFilename);
 
       // begin the import in an external process.
       LOG.debug("Starting psql with arguments:");
@@ -466,4 +359,16 @@ public class DirectPostgresqlManager extends PostgresqlManager {
     }
   }
   // CHECKSTYLE:ON
+
+  /**
+   * Export the table from HDFS by using psql to COPY the data
+   * back into the database.
+   */
+  @Override
+  public void exportTable(ExportJobContext context)
+      throws IOException, ExportException {
+    context.setConnManager(this);
+    PostgresqlExportJob exportJob = new PostgresqlExportJob(context);
+    exportJob.runExport();
+  }
 }
@@ -18,6 +18,8 @@
 
 package com.cloudera.sqoop.manager;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.apache.hadoop.mapreduce.InputFormat;
 import com.cloudera.sqoop.mapreduce.db.DataDrivenDBInputFormat;
 import com.cloudera.sqoop.SqoopOptions;
@@ -35,6 +37,7 @@ public class ImportJobContext {
   private Class<? extends InputFormat> inputFormatClass;
   private Path destination;
   private ConnManager manager;
+  private ReentrantLock managerLock;
 
   public ImportJobContext(final String table, final String jar,
       final SqoopOptions opts, final Path destination) {
@@ -96,5 +99,22 @@ public class ImportJobContext {
     return this.manager;
   }
 
+  /**
+   * Set a lock which the caller holds while the ConnManager is in use,
+   * because other imports share the same ConnManager. The import releases
+   * the lock while its MapReduce job runs, and reacquires it afterward.
+   */
+  public void setManagerLock(ReentrantLock lock) {
+    this.managerLock = lock;
+  }
+
+  /**
+   * @return the lock guarding a shared ConnManager, or null if the
+   * ConnManager is not shared.
+   */
+  public ReentrantLock getManagerLock() {
+    return this.managerLock;
+  }
+
 }
 
@@ -98,6 +98,15 @@ public class PostgresqlManager extends GenericJdbcManager {
     return super.getPrimaryKey(tableName.toLowerCase());
   }
 
+  @Override
+  public long getTableSizeEstimate(String tableName) {
+    // reltuples is maintained by VACUUM and ANALYZE. It is a float4, so
+    // cast it rather than relying on the driver to convert it.
+    return readTableSizeEstimate("SELECT CAST(reltuples AS bigint) "
+        + "FROM pg_class WHERE oid = CAST(quote_ident(?) AS regclass)",
+        tableName);
+  }
+
   /**
    * Executes an arbitrary SQL statement. Sets the cursor fetch size
    * to ensure the entire table is not buffered in RAM before reading
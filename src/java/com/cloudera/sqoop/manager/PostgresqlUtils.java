@@ -0,0 +1,347 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.manager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.util.DirectImportUtils;
+
+/**
+ * Helper methods and constants for direct PostgreSQL imports/exports
+ * through psql.
+ */
+public final class PostgresqlUtils {
+
+  private PostgresqlUtils() {
+  }
+
+  public static final Log LOG = LogFactory.getLog(
+      PostgresqlUtils.class.getName());
+
+  public static final String PSQL_CMD = "psql";
+
+  /**
+   * The text of a null field in data loaded with COPY FROM. This is the
+   * string Sqoop writes for null values.
+   */
+  public static final String COPY_NULL_STRING = "null";
+
+  /**
+   * The QUOTE character of a CSV-format COPY FROM whose data is not
+   * enclosed. CSV mode would otherwise treat '"' as a quote, even
+   * though it is ordinary data.
+   */
+  private static final char UNUSED_QUOTE_CHAR = '\001';
+
+  /**
+   * Takes a list of columns and turns them into a string like
+   * "col1, col2, col3...".
+   */
+  public static String getColumnListStr(String [] cols) {
+    if (null == cols) {
+      return null;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    boolean first = true;
+    for (String col : cols) {
+      if (!first) {
+        sb.append(", ");
+      }
+      sb.append(col);
+      first = false;
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Append the octal escape sequence E'\ooo' for the character 'c'.
+   */
+  private static void appendOctalChar(StringBuilder sb, char c) {
+    sb.append("E'\\");
+    sb.append(Integer.toString((int) c, 8));
+    sb.append("'");
+  }
+
+  /**
+   * Append the "WITH DELIMITER ... NULL ... CSV QUOTE ... ESCAPE ..."
+   * options of a COPY command which uses the specified delimiters.
+   * @param nullString the text of a null field, or null for the default.
+   * @param defaultQuote the QUOTE character if the delimiters have no
+   * enclosing character, or NULL_CHAR for the default.
+   */
+  private static void appendCsvOptions(StringBuilder sb,
+      DelimiterSet delimiters, String nullString, char defaultQuote) {
+    // Translate delimiter characters to '\ooo' octal representation.
+    sb.append(" WITH DELIMITER ");
+    appendOctalChar(sb, delimiters.getFieldsTerminatedBy());
+    if (null != nullString) {
+      sb.append(" NULL '");
+      sb.append(nullString);
+      sb.append("'");
+    }
+    sb.append(" CSV ");
+    char quote = delimiters.getEnclosedBy();
+    if (quote == DelimiterSet.NULL_CHAR) {
+      quote = defaultQuote;
+    }
+    if (quote != DelimiterSet.NULL_CHAR) {
+      sb.append("QUOTE ");
+      appendOctalChar(sb, quote);
+      sb.append(" ");
+    }
+    if (delimiters.getEscapedBy() != DelimiterSet.NULL_CHAR) {
+      sb.append("ESCAPE ");
+      appendOctalChar(sb, delimiters.getEscapedBy());
+      sb.append(" ");
+    }
+  }
+
+  /**
+   * @return the Postgresql-specific SQL command to copy the
+   * table ("COPY .... TO STDOUT").
+   * @param tableName the table to copy.
+   * @param cols the columns to copy, or null for all columns.
+   * @param whereClause the condition selecting the rows to copy, or null
+   * to copy the whole table.
+   * @param delimiters the delimiters for the copied text.
+   */
+  public static String getCopyCommand(String tableName, String [] cols,
+      String whereClause, DelimiterSet delimiters) {
+
+    // Format of this command is:
+    //
+    //     COPY table(col, col....) TO STDOUT
+    // or  COPY ( query ) TO STDOUT
+    //   WITH DELIMITER 'fieldsep'
+    //   CSV
+    //   QUOTE 'quotechar'
+    //   ESCAPE 'escapechar'
+    //   FORCE QUOTE col, col, col....
+
+    StringBuilder sb = new StringBuilder();
+
+    sb.append("COPY ");
+    if (whereClause != null && whereClause.length() > 0) {
+      // Import from a SELECT QUERY
+      sb.append("(");
+      sb.append("SELECT ");
+      if (null != cols) {
+        sb.append(getColumnListStr(cols));
+      } else {
+        sb.append("*");
+      }
+
+      sb.append(" FROM ");
+      sb.append(tableName);
+      sb.append(" WHERE ");
+      sb.append(whereClause);
+      sb.append(")");
+    } else {
+      // Import just the table.
+      sb.append(tableName);
+      if (null != cols) {
+        // specify columns.
+        sb.append("(");
+        sb.append(getColumnListStr(cols));
+        sb.append(")");
+      }
+    }
+
+    sb.append(" TO STDOUT");
+    appendCsvOptions(sb, delimiters, null, DelimiterSet.NULL_CHAR);
+
+    // add the "FORCE QUOTE col, col, col..." clause if quotes are required.
+    if (null != cols && delimiters.isEncloseRequired()) {
+      sb.append("FORCE QUOTE ");
+      sb.append(getColumnListStr(cols));
+    }
+
+    sb.append(";");
+
+    String copyCmd = sb.toString();
+    LOG.debug("Copy command is " + copyCmd);
+    return copyCmd;
+  }
+
+  /**
+   * @return the Postgresql-specific SQL command to load newline-terminated
+   * CSV records into the table ("COPY .... FROM STDIN"). Unenclosed fields
+   * reading "null" are loaded as null values. COPY only honors the escape
+   * character inside enclosed fields, so records with an escape character
+   * must enclose every field.
+   * @param tableName the table to load.
+   * @param cols the columns in each record, or null for all columns.
+   * @param delimiters the delimiters of the records.
+   */
+  public static String getCopyFromCommand(String tableName, String [] cols,
+      DelimiterSet delimiters) {
+    StringBuilder sb = new StringBuilder();
+    appendCopyFrom(sb, tableName, cols);
+    appendCsvOptions(sb, delimiters, COPY_NULL_STRING, UNUSED_QUOTE_CHAR);
+    sb.append(";");
+
+    String copyCmd = sb.toString();
+    LOG.debug("Copy command is " + copyCmd);
+    return copyCmd;
+  }
+
+  /**
+   * @return the Postgresql-specific SQL command to load records in
+   * COPY's text format into the table ("COPY .... FROM STDIN"). Fields
+   * are separated by tabs, special characters are escaped with a
+   * backslash, and fields reading "null" are loaded as null values.
+   * @param tableName the table to load.
+   * @param cols the columns in each record, or null for all columns.
+   */
+  public static String getCopyFromTextCommand(String tableName,
+      String [] cols) {
+    StringBuilder sb = new StringBuilder();
+    appendCopyFrom(sb, tableName, cols);
+    sb.append(" WITH NULL '");
+    sb.append(COPY_NULL_STRING);
+    sb.append("';");
+
+    String copyCmd = sb.toString();
+    LOG.debug("Copy command is " + copyCmd);
+    return copyCmd;
+  }
+
+  private static void appendCopyFrom(StringBuilder sb, String tableName,
+      String [] cols) {
+    sb.append("COPY ");
+    sb.append(tableName);
+    if (null != cols) {
+      sb.append("(");
+      sb.append(getColumnListStr(cols));
+      sb.append(")");
+    }
+
+    sb.append(" FROM STDIN");
+  }
+
+  /** Write an SQL command to a temp file in 'tmpDir'.
+    * @return the filename we wrote to.
+    */
+  public static String writeCommandFile(String tmpDir, String command)
+      throws IOException {
+    File tempFile = File.createTempFile("tmp-", ".sql", new File(tmpDir));
+    BufferedWriter w = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(tempFile)));
+    w.write(command);
+    w.newLine();
+    w.close();
+    return tempFile.toString();
+  }
+
+  /** Write the user's password to a file in 'tmpDir' that is chmod 0600.
+      @return the filename.
+    */
+  public static String writePasswordFile(String tmpDir, String password)
+      throws IOException {
+
+    File tempFile = File.createTempFile("pgpass", ".pgpass", new File(tmpDir));
+    LOG.debug("Writing password to tempfile: " + tempFile);
+
+    // Make sure it's only readable by the current user.
+    DirectImportUtils.setFilePermissions(tempFile, "0600");
+
+    // Actually write the password data into the file.
+    BufferedWriter w = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(tempFile)));
+    w.write("*:*:*:*:" + password);
+    w.close();
+    return tempFile.toString();
+  }
+
+  /**
+   * @return the arguments for a psql invocation that runs the commands in
+   * 'commandFilename' against the specified database.
+   * If the host is localhost, it is not passed to psql, so that a UNIX
+   * domain socket rather than a TCP/IP socket is used.
+   * @param port the port to connect to, or -1 for the default.
+   */
+  public static List<String> getPsqlArgs(String databaseName,
+      String hostname, int port, String username, String commandFilename) {
+    List<String> args = getConnectionArgs(databaseName, hostname, port,
+        username);
+
+    // The commands are in a script file.
+    args.add("-f");
+    args.add(commandFilename);
+
+    return args;
+  }
+
+  /**
+   * @return the arguments for a psql invocation that runs the single
+   * command 'command' against the specified database. Unlike commands read
+   * from a script file, a "COPY ... FROM STDIN" command passed this way
+   * reads its data from psql's standard input.
+   * @param port the port to connect to, or -1 for the default.
+   */
+  public static List<String> getPsqlCommandArgs(String databaseName,
+      String hostname, int port, String username, String command) {
+    List<String> args = getConnectionArgs(databaseName, hostname, port,
+        username);
+    args.add("-c");
+    args.add(command);
+    return args;
+  }
+
+  private static List<String> getConnectionArgs(String databaseName,
+      String hostname, int port, String username) {
+    ArrayList<String> args = new ArrayList<String>();
+
+    args.add(PSQL_CMD); // requires that this is on the path.
+    args.add("--tuples-only");
+    args.add("--quiet");
+
+    if (username != null) {
+      args.add("--username");
+      args.add(username);
+    }
+
+    if (!DirectImportUtils.isLocalhost(hostname)) {
+      args.add("--host");
+      args.add(hostname);
+    }
+
+    if (port != -1) {
+      args.add("--port");
+      args.add(Integer.toString(port));
+    }
+
+    if (null != databaseName && databaseName.length() > 0) {
+      args.add(databaseName);
+    }
+
+    return args;
+  }
+}
@@ -25,6 +25,7 @@ import com.cloudera.sqoop.hive.HiveTypes;
 import com.cloudera.sqoop.lib.BlobRef;
 import com.cloudera.sqoop.lib.ClobRef;
 import com.cloudera.sqoop.mapreduce.DataDrivenImportJob;
+import com.cloudera.sqoop.mapreduce.HBaseBulkImportJob;
 import com.cloudera.sqoop.mapreduce.HBaseImportJob;
 import com.cloudera.sqoop.mapreduce.ImportJobBase;
 import com.cloudera.sqoop.mapreduce.JdbcExportJob;
@@ -313,6 +314,88 @@ public abstract class SqlManager extends ConnManager {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * Uses the table statistics row of DatabaseMetaData.getIndexInfo(),
+   * which many drivers fill in from the catalog.
+   */
+  @Override
+  public long getTableSizeEstimate(String tableName) {
+    try {
+      DatabaseMetaData metaData = this.getConnection().getMetaData();
+      ResultSet results = metaData.getIndexInfo(null, null, tableName,
+          false, true);
+      if (null == results) {
+        return -1;
+      }
+
+      try {
+        while (results.next()) {
+          if (results.getShort("TYPE")
+              == DatabaseMetaData.tableIndexStatistic) {
+            return results.getLong("CARDINALITY");
+          }
+        }
+
+        return -1;
+      } finally {
+        results.close();
+        getConnection().commit();
+      }
+    } catch (SQLException sqlException) {
+      LOG.debug("Could not read table statistics for " + tableName + ": "
+          + sqlException.toString());
+      rollbackEstimate();
+      return -1;
+    }
+  }
+
+  /**
+   * Roll back the transaction of a failed table size estimate. Some
+   * databases (e.g., PostgreSQL) reject every later statement in a
+   * transaction after one fails, and the connection is shared with the
+   * rest of the import.
+   */
+  private void rollbackEstimate() {
+    try {
+      getConnection().rollback();
+    } catch (SQLException sqlE) {
+      LOG.warn("Exception rolling back transaction: " + sqlE.toString());
+    }
+  }
+
+  /**
+   * Run a query that returns a table size estimate in the first column of
+   * its first row.
+   * @return the estimate, or -1 if the query fails or returns no value.
+   */
+  protected long readTableSizeEstimate(String query, Object... args) {
+    ResultSet results = null;
+    try {
+      results = execute(query, args);
+      if (!results.next()) {
+        return -1;
+      }
+
+      long estimate = results.getLong(1);
+      return results.wasNull() ? -1 : estimate;
+    } catch (SQLException sqlE) {
+      LOG.debug("Could not read table size estimate: " + sqlE.toString());
+      rollbackEstimate();
+      return -1;
+    } finally {
+      if (null != results) {
+        try {
+          results.close();
+        } catch (SQLException sqlE) {
+          LOG.warn("Exception closing ResultSet: " + sqlE.toString());
+        }
+      }
+
+      release();
+    }
+  }
+
   /**
    * Retrieve the actual connection from the outer ConnManager.
    */
@@ -370,7 +453,10 @@ public abstract class SqlManager extends ConnManager {
     context.setConnManager(this);
 
     ImportJobBase importer;
-    if (opts.getHBaseTable() != null) {
+    if (opts.getHBaseTable() != null && opts.isHBaseBulkLoad()) {
+      // Import to HBase via HFiles.
+      importer = new HBaseBulkImportJob(opts, context);
+    } else if (opts.getHBaseTable() != null) {
       // Import to HBase.
       importer = new HBaseImportJob(opts, context);
     } else {
@@ -398,7 +484,10 @@ public abstract class SqlManager extends ConnManager {
     context.setConnManager(this);
 
     ImportJobBase importer;
-    if (opts.getHBaseTable() != null) {
+    if (opts.getHBaseTable() != null && opts.isHBaseBulkLoad()) {
+      // Import to HBase via HFiles.
+      importer = new HBaseBulkImportJob(opts, context);
+    } else if (opts.getHBaseTable() != null) {
       // Import to HBase.
       importer = new HBaseImportJob(opts, context);
     } else {
@@ -20,10 +20,15 @@ package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputFormat;
@@ -160,6 +165,15 @@ public class DataDrivenImportJob extends ImportJobBase {
       job.getConfiguration().setLong(LargeObjectLoader.MAX_INLINE_LOB_LEN_KEY,
           options.getInlineLobLimit());
 
+      if (null != options.getSplitStrategy()) {
+        job.getConfiguration().set(DataDrivenDBInputFormat.SPLIT_STRATEGY_KEY,
+            options.getSplitStrategy());
+      }
+
+      if (options.getDynamicSplits() > 1) {
+        configureDynamicSplits(job, tableName);
+      }
+
       LOG.debug("Using InputFormat: " + inputFormatClass);
       job.setInputFormatClass(inputFormatClass);
     } finally {
@@ -170,5 +184,47 @@ public class DataDrivenImportJob extends ImportJobBase {
       }
     }
   }
+
+  /**
+   * Set up the work queue that map tasks claim split ranges from.
+   */
+  private void configureDynamicSplits(Job job, String tableName)
+      throws IOException {
+    Configuration conf = job.getConfiguration();
+    conf.setInt(DataDrivenDBInputFormat.DYNAMIC_RANGES_PER_TASK_KEY,
+        options.getDynamicSplits());
+
+    // The queue lives in the user's home directory on the job's
+    // FileSystem, where every task can reach it.
+    String timeId = new SimpleDateFormat("ddHHmmssSSS").format(new Date());
+    String queueName = "_sqoop/splits-" + timeId
+        + (null == tableName ? "query" : tableName);
+    FileSystem fs = FileSystem.get(conf);
+    Path queueDir = fs.makeQualified(new Path(queueName));
+    conf.set(DataDrivenDBInputFormat.DYNAMIC_QUEUE_DIR_KEY,
+        queueDir.toString());
+
+    // A speculative attempt would claim ranges that the attempt which
+    // commits never reads.
+    HadoopShim.get().setJobMapSpeculativeExecution(job, false);
+  }
+
+  @Override
+  protected boolean runJob(Job job) throws ClassNotFoundException,
+      IOException, InterruptedException {
+    String queueDir = job.getConfiguration().get(
+        DataDrivenDBInputFormat.DYNAMIC_QUEUE_DIR_KEY);
+    try {
+      return super.runJob(job);
+    } finally {
+      if (null != queueDir) {
+        Path queuePath = new Path(queueDir);
+        FileSystem fs = queuePath.getFileSystem(job.getConfiguration());
+        if (fs.exists(queuePath) && !fs.delete(queuePath, true)) {
+          LOG.warn("Could not remove split queue " + queueDir);
+        }
+      }
+    }
+  }
 }
 
@@ -65,6 +65,13 @@ public class ExportJobBase extends JobBase {
   public static final String SQOOP_EXPORT_UPDATE_COL_KEY =
       "sqoop.mapreduce.export.update.col";
 
+  /**
+   * If true, insert rows with JDBC batches of single-row INSERT
+   * statements rather than multi-row INSERT statements.
+   */
+  public static final String SQOOP_EXPORT_BATCH_KEY =
+      "sqoop.mapreduce.export.batch";
+
   /** Number of map tasks to use for an export. */
   public static final String EXPORT_MAP_TASKS_KEY =
       "sqoop.mapreduce.export.map.tasks";
@@ -267,9 +274,9 @@ public class ExportJobBase extends JobBase {
     SqoopOptions options = context.getOptions();
     Configuration conf = options.getConf();
     String tableName = context.getTableName();
-    String tableClassName =
-        new TableClassName(options).getClassForTable(tableName);
     String ormJarFile = context.getJarFile();
+    String tableClassName = getRecordClassName(conf, ormJarFile,
+        new TableClassName(options).getClassForTable(tableName));
 
     LOG.info("Beginning export of " + tableName);
     loadJars(conf, ormJarFile, tableClassName);
@@ -278,7 +285,7 @@ public class ExportJobBase extends JobBase {
       Job job = new Job(conf);
 
       // Set the external jar to use for the job.
-      job.getConfiguration().set("mapred.jar", ormJarFile);
+      setJobJar(job, ormJarFile);
 
       configureInputFormat(job, tableName, tableClassName, null);
       configureOutputFormat(job, tableName, tableClassName);
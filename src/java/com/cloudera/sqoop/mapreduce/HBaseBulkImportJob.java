@@ -0,0 +1,149 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.HFileOutputFormat;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import com.cloudera.sqoop.SqoopOptions;
+import com.cloudera.sqoop.hbase.HBasePutProcessor;
+import com.cloudera.sqoop.manager.ImportJobContext;
+import com.cloudera.sqoop.util.ImportException;
+
+/**
+ * Runs an HBase import by writing HFiles and bulk-loading them into the
+ * target table, rather than sending Puts to the region servers.
+ *
+ * The cells produced by the HBaseBulkImportMapper are partitioned by the
+ * region boundaries of the target table and sorted in the reduce phase.
+ * Each reducer writes the HFiles for one region into the import's target
+ * directory. When the job succeeds, the HFiles are moved into the table
+ * and the target directory is removed.
+ */
+public class HBaseBulkImportJob extends HBaseImportJob {
+
+  public static final Log LOG = LogFactory.getLog(
+      HBaseBulkImportJob.class.getName());
+
+  public HBaseBulkImportJob(final SqoopOptions opts,
+      final ImportJobContext importContext) {
+    super(opts, importContext);
+  }
+
+  @Override
+  protected void configureMapper(Job job, String tableName,
+      String tableClassName) throws IOException {
+    job.setMapOutputKeyClass(ImmutableBytesWritable.class);
+    job.setMapOutputValueClass(KeyValue.class);
+    job.setMapperClass(getMapperClass());
+  }
+
+  @Override
+  protected Class<? extends Mapper> getMapperClass() {
+    return HBaseBulkImportMapper.class;
+  }
+
+  @Override
+  protected Class<? extends OutputFormat> getOutputFormatClass()
+      throws ClassNotFoundException {
+    return HFileOutputFormat.class;
+  }
+
+  @Override
+  protected void configureOutputFormat(Job job, String tableName,
+      String tableClassName) throws ClassNotFoundException, IOException {
+    job.setOutputFormatClass(getOutputFormatClass());
+
+    Path hfileDir = getContext().getDestination();
+    if (null == hfileDir) {
+      // Free-form query imports into HBase need not set --target-dir.
+      hfileDir = new Path(options.getHBaseTable() + "_hfiles");
+    }
+    FileOutputFormat.setOutputPath(job, hfileDir);
+    configureHBaseTable(job, tableName);
+  }
+
+  @Override
+  /**
+   * Create the target HBase table if necessary, then configure the
+   * reduce phase to produce one set of HFiles per region of the table.
+   */
+  protected void jobSetup(Job job) throws IOException, ImportException {
+    super.jobSetup(job);
+
+    Configuration conf = job.getConfiguration();
+    conf.setLong(HBaseBulkImportMapper.TIMESTAMP_KEY,
+        System.currentTimeMillis());
+
+    // Sets the partitioner, the sorting reducer and the number of reduce
+    // tasks from the current region boundaries of the table.
+    HTable table = new HTable(conf, conf.get(HBasePutProcessor.TABLE_NAME_KEY));
+    try {
+      HFileOutputFormat.configureIncrementalLoad(job, table);
+    } finally {
+      table.close();
+    }
+  }
+
+  @Override
+  /**
+   * Run the job, then load the resulting HFiles into the target table.
+   */
+  protected boolean runJob(Job job) throws ClassNotFoundException, IOException,
+      InterruptedException {
+    if (!super.runJob(job)) {
+      return false;
+    }
+
+    Configuration conf = job.getConfiguration();
+    String tableName = conf.get(HBasePutProcessor.TABLE_NAME_KEY);
+    Path hfileDir = FileOutputFormat.getOutputPath(job);
+
+    LOG.info("Loading HFiles from " + hfileDir + " into " + tableName);
+    HTable table = new HTable(conf, tableName);
+    try {
+      new LoadIncrementalHFiles(conf).doBulkLoad(hfileDir, table);
+    } finally {
+      table.close();
+    }
+
+    // All HFiles have been moved into HBase; remove what remains.
+    FileSystem fs = hfileDir.getFileSystem(conf);
+    if (!fs.delete(hfileDir, true)) {
+      LOG.warn("Could not remove HFile directory " + hfileDir);
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.LongWritable;
+
+import com.cloudera.sqoop.hbase.HBasePutProcessor;
+import com.cloudera.sqoop.hbase.PutTransformer;
+import com.cloudera.sqoop.lib.SqoopRecord;
+
+/**
+ * Imports records into HBase via HFiles. Each record is converted into
+ * Puts by the configured PutTransformer; the cells of each Put are
+ * emitted keyed by their row so that they can be sorted and partitioned
+ * by region before being written out by HFileOutputFormat.
+ */
+public class HBaseBulkImportMapper
+    extends AutoProgressMapper<LongWritable, SqoopRecord,
+    ImmutableBytesWritable, KeyValue> {
+
+  /**
+   * Configuration key specifying the timestamp to give cells which do
+   * not carry one of their own.
+   */
+  public static final String TIMESTAMP_KEY =
+      "sqoop.hbase.bulkload.timestamp";
+
+  private PutTransformer putTransformer;
+  private byte [] timestampBytes;
+  private ImmutableBytesWritable outkey;
+
+  @Override
+  protected void setup(Context context)
+      throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    this.putTransformer = HBasePutProcessor.getPutTransformer(conf);
+
+    // HFiles are loaded as-is; a cell left at LATEST_TIMESTAMP would
+    // never be superseded by a later write. Use a single timestamp for
+    // the whole job, as a live Put import would get from the servers.
+    long timestamp = conf.getLong(TIMESTAMP_KEY, System.currentTimeMillis());
+    this.timestampBytes = Bytes.toBytes(timestamp);
+    this.outkey = new ImmutableBytesWritable();
+  }
+
+  @Override
+  public void map(LongWritable key, SqoopRecord val, Context context)
+      throws IOException, InterruptedException {
+    List<Put> putList = putTransformer.getPutCommand(val.getFieldMap());
+    if (null == putList) {
+      return;
+    }
+
+    for (Put put : putList) {
+      outkey.set(put.getRow());
+      for (List<KeyValue> familyCells : put.getFamilyMap().values()) {
+        for (KeyValue kv : familyCells) {
+          kv.updateLatestStamp(timestampBytes);
+          context.write(outkey, kv);
+        }
+      }
+    }
+  }
+}
@@ -92,7 +92,16 @@ public class HBaseImportJob extends DataDrivenImportJob {
         HBasePutProcessor.class,
         FieldMapProcessor.class);
 
-    // Set the HBase parameters (table, column family, row key):
+    configureHBaseTable(job, tableName);
+  }
+
+  /**
+   * Set the HBase parameters (table, column family, row key) used to
+   * transform each record into Puts.
+   */
+  protected void configureHBaseTable(Job job, String tableName)
+      throws IOException {
+    Configuration conf = job.getConfiguration();
     conf.set(HBasePutProcessor.TABLE_NAME_KEY, options.getHBaseTable());
     conf.set(HBasePutProcessor.COL_FAMILY_KEY, options.getHBaseColFamily());
 
@@ -19,6 +19,7 @@
 package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -146,15 +147,15 @@ public class ImportJobBase extends JobBase {
       LOG.info("Beginning query import.");
     }
 
-    String tableClassName =
-        new TableClassName(options).getClassForTable(tableName);
+    String tableClassName = getRecordClassName(conf, ormJarFile,
+        new TableClassName(options).getClassForTable(tableName));
     loadJars(conf, ormJarFile, tableClassName);
 
     try {
       Job job = new Job(conf);
 
       // Set the external jar to use for the job.
-      job.getConfiguration().set("mapred.jar", ormJarFile);
+      setJobJar(job, ormJarFile);
 
       configureInputFormat(job, tableName, tableClassName, splitByCol);
       configureOutputFormat(job, tableName, tableClassName);
@@ -163,7 +164,7 @@ public class ImportJobBase extends JobBase {
       cacheJars(job, getContext().getConnManager());
 
       jobSetup(job);
-      boolean success = runJob(job);
+      boolean success = runJobWithoutManagerLock(job);
       if (!success) {
         throw new ImportException("Import job failed!");
       }
@@ -176,6 +177,30 @@ public class ImportJobBase extends JobBase {
     }
   }
 
+  /**
+   * Run the job. If other imports share the ConnManager, they may use it
+   * while this job runs.
+   */
+  private boolean runJobWithoutManagerLock(Job job)
+      throws ClassNotFoundException, IOException, InterruptedException {
+    ReentrantLock managerLock = null;
+    if (null != context && null != context.getManagerLock()
+        && context.getManagerLock().isHeldByCurrentThread()) {
+      managerLock = context.getManagerLock();
+    }
+
+    if (null == managerLock) {
+      return runJob(job);
+    }
+
+    managerLock.unlock();
+    try {
+      return runJob(job);
+    } finally {
+      managerLock.lock();
+    }
+  }
+
   /**
    * Open-ended "setup" routine that is called after the job is configured
    * but just before it is submitted to MapReduce. Subclasses may override
@@ -87,6 +87,9 @@ public class JdbcExportJob extends ExportJobBase {
 
       job.setOutputFormatClass(getOutputFormatClass());
       job.getConfiguration().set(SQOOP_EXPORT_TABLE_CLASS_KEY, tableClassName);
+      if (options.isBatchMode()) {
+        job.getConfiguration().setBoolean(SQOOP_EXPORT_BATCH_KEY, true);
+      }
     } catch (ClassNotFoundException cnfe) {
       throw new IOException("Could not load OutputFormat", cnfe);
     }
@@ -40,6 +40,7 @@ import org.apache.hadoop.util.StringUtils;
 
 import com.cloudera.sqoop.SqoopOptions;
 
+import com.cloudera.sqoop.lib.GenericSqoopRecord;
 import com.cloudera.sqoop.manager.ConnManager;
 import com.cloudera.sqoop.shims.HadoopShim;
 import com.cloudera.sqoop.util.ClassLoaderStack;
@@ -205,11 +206,46 @@ public class JobBase {
     }
   }
 
+  /**
+   * @return the name of the record class the job should use. This is
+   * GenericSqoopRecord if no class was generated because the record schema
+   * was stored in the Configuration, or tableClassName otherwise.
+   */
+  protected String getRecordClassName(Configuration conf, String ormJarFile,
+      String tableClassName) {
+    if (null == ormJarFile && GenericSqoopRecord.isConfigured(conf)) {
+      LOG.debug("Using generic records for " + tableClassName);
+      return GenericSqoopRecord.class.getName();
+    }
+
+    return tableClassName;
+  }
+
+  /**
+   * Set the jar to submit with the job: the jar holding the record class,
+   * or the Sqoop jar itself if no class was generated.
+   */
+  protected void setJobJar(Job job, String ormJarFile) {
+    String jobJar = ormJarFile;
+    if (null == jobJar) {
+      jobJar = Jars.getSqoopJarPath();
+    }
+
+    if (null != jobJar) {
+      job.getConfiguration().set("mapred.jar", jobJar);
+    }
+  }
+
   /**
    * If jars must be loaded into the local environment, do so here.
    */
   protected void loadJars(Configuration conf, String ormJarFile,
       String tableClassName) throws IOException {
+    if (null == ormJarFile) {
+      // The record class is already on the classpath.
+      return;
+    }
+
     boolean isLocal = "local".equals(conf.get("mapreduce.jobtracker.address"))
         || "local".equals(conf.get("mapred.job.tracker"));
     if (isLocal) {
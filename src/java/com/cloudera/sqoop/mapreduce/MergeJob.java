@@ -19,15 +19,21 @@
 package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
 
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
@@ -64,6 +70,99 @@ public class MergeJob extends JobBase {
   }
 
   public boolean runMergeJob() throws IOException {
+    if (options.isSortedMerge()) {
+      Configuration conf = options.getConf();
+      Path targetPath = new Path(options.getTargetDir());
+      FileSystem targetFs = targetPath.getFileSystem(conf);
+      boolean targetExisted = targetFs.exists(targetPath);
+
+      if (canMergeSorted(conf)) {
+        LOG.info("Running map-side merge of sorted datasets.");
+        if (runMergeJob(true)) {
+          return true;
+        }
+
+        if (targetExisted) {
+          // The target was not ours to remove; a shuffle job writing
+          // to the same place would fail too.
+          return false;
+        }
+
+        LOG.warn("Map-side merge failed; retrying with a full shuffle.");
+        targetFs.delete(targetPath, true);
+      }
+    }
+
+    return runMergeJob(false);
+  }
+
+  /**
+   * Determine whether the old and new datasets can be merged with a
+   * map-side merge: both must be in the same file format and hold the
+   * same (non-zero) number of part files. Whether the part files are
+   * actually sorted, and partitioned by the same key ranges, is checked
+   * as they are read.
+   */
+  private boolean canMergeSorted(Configuration conf) throws IOException {
+    Path oldPath = new Path(options.getMergeOldPath());
+    Path newPath = new Path(options.getMergeNewPath());
+
+    FileStatus [] oldFiles = getPartFiles(conf, oldPath);
+    FileStatus [] newFiles = getPartFiles(conf, newPath);
+    if (oldFiles.length == 0 || oldFiles.length != newFiles.length) {
+      LOG.warn("Cannot perform map-side merge: " + oldPath + " has "
+          + oldFiles.length + " part files and " + newPath + " has "
+          + newFiles.length + ".");
+      return false;
+    }
+
+    if (ExportJobBase.isSequenceFiles(conf, oldPath)
+        != ExportJobBase.isSequenceFiles(conf, newPath)) {
+      LOG.warn("Cannot perform map-side merge: " + oldPath + " and "
+          + newPath + " are in different file formats.");
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Return the visible files in a dataset directory, ordered by name.
+   * Part file i of one dataset is merged with part file i of the other
+   * when performing a map-side merge.
+   */
+  public static FileStatus [] getPartFiles(Configuration conf, Path dir)
+      throws IOException {
+    FileSystem fs = dir.getFileSystem(conf);
+    FileStatus [] entries = fs.listStatus(dir);
+    if (null == entries) {
+      return new FileStatus[0];
+    }
+
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    for (FileStatus stat : entries) {
+      String name = stat.getPath().getName();
+      if (!stat.isDir() && !name.startsWith("_") && !name.startsWith(".")) {
+        files.add(stat);
+      }
+    }
+
+    FileStatus [] out = files.toArray(new FileStatus[files.size()]);
+    Arrays.sort(out, new Comparator<FileStatus>() {
+      public int compare(FileStatus a, FileStatus b) {
+        return a.getPath().getName().compareTo(b.getPath().getName());
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Configure and run the merge job.
+   * @param sorted if true, merge sorted part files in the map phase
+   * rather than shuffling all records to reducers.
+   * @return true if the job succeeded.
+   */
+  private boolean runMergeJob(boolean sorted) throws IOException {
     Configuration conf = options.getConf();
     Job job = new Job(conf);
 
@@ -118,12 +217,10 @@ public class MergeJob extends JobBase {
 
       FileOutputFormat.setOutputPath(job, new Path(options.getTargetDir()));
 
-      if (ExportJobBase.isSequenceFiles(jobConf, newPath)) {
-        job.setInputFormatClass(SequenceFileInputFormat.class);
+      boolean seqFiles = ExportJobBase.isSequenceFiles(jobConf, newPath);
+      if (seqFiles) {
         job.setOutputFormatClass(SequenceFileOutputFormat.class);
-        job.setMapperClass(MergeRecordMapper.class);
       } else {
-        job.setMapperClass(MergeTextMapper.class);
         job.setOutputFormatClass((Class<? extends OutputFormat>)
             ShimLoader.getShimClass(
             "com.cloudera.sqoop.mapreduce.RawKeyTextOutputFormat"));
@@ -132,11 +229,31 @@ public class MergeJob extends JobBase {
       jobConf.set("mapred.output.key.class", userClassName);
       job.setOutputValueClass(NullWritable.class);
 
-      job.setReducerClass(MergeReducer.class);
+      if (sorted) {
+        // Each map task merges a pair of sorted part files and emits
+        // the merged records directly; there is no reduce phase.
+        job.setInputFormatClass((Class<? extends InputFormat>)
+            ShimLoader.getShimClass(
+            "com.cloudera.sqoop.mapreduce.MergeSortedInputFormat"));
+        job.setMapperClass(Mapper.class);
+        job.setNumReduceTasks(0);
+      } else {
+        if (seqFiles) {
+          job.setInputFormatClass(SequenceFileInputFormat.class);
+          job.setMapperClass(MergeRecordMapper.class);
+        } else {
+          job.setMapperClass(MergeTextMapper.class);
+        }
 
-      // Set the intermediate data types.
-      job.setMapOutputKeyClass(Text.class);
-      job.setMapOutputValueClass(MergeRecord.class);
+        job.setReducerClass(MergeReducer.class);
+
+        // Set the intermediate data types. Records are shuffled as
+        // themselves; the key carries the merge key and the dataset.
+        job.setMapOutputKeyClass(MergeKey.class);
+        jobConf.set("mapred.mapoutput.value.class", userClassName);
+        job.setSortComparatorClass(MergeKey.Comparator.class);
+        job.setGroupingComparatorClass(MergeKey.GroupingComparator.class);
+      }
 
       // Make sure Sqoop and anything else we need is on the classpath.
       cacheJars(job, null);
@@ -148,5 +265,3 @@ public class MergeJob extends JobBase {
     }
   }
 }
-
-
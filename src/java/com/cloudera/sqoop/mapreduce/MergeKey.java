@@ -0,0 +1,321 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * Key used to join records in the merge job. Holds the value of the merge
+ * key column, encoded so that comparing the encoded bytes orders values
+ * the way their Java types do: integral, floating-point and decimal
+ * values numerically, dates and times chronologically, and strings (or
+ * any other type, by its toString() form) in UTF-8 byte order.
+ *
+ * The key also records whether the record came from the new dataset.
+ * Records from the new dataset sort before old records with the same key
+ * value, so the first record the reducer sees for a key is the one to
+ * keep. Partitioning and grouping use the key value alone.
+ */
+public class MergeKey implements WritableComparable<MergeKey> {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  // The first byte of an encoded value identifies how it was encoded.
+  // All values of a merge key column share the same type.
+  private static final byte INTEGRAL_TYPE = 1;
+  private static final byte FLOATING_TYPE = 2;
+  private static final byte DECIMAL_TYPE = 3;
+  private static final byte BOOLEAN_TYPE = 4;
+  private static final byte DATE_TYPE = 5;
+  private static final byte TIMESTAMP_TYPE = 6;
+  private static final byte STRING_TYPE = 7;
+
+  // Leading byte of an encoded decimal, by sign.
+  private static final byte DECIMAL_NEGATIVE = 0;
+  private static final byte DECIMAL_ZERO = 1;
+  private static final byte DECIMAL_POSITIVE = 2;
+
+  // Follows the digits of a negative decimal; sorts after any digit.
+  private static final byte DECIMAL_NEGATIVE_END = (byte) 0xFF;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private byte [] bytes;
+  private int length;
+  private boolean isNew;
+
+  public MergeKey() {
+    this.bytes = new byte[INITIAL_CAPACITY];
+    this.length = 0;
+  }
+
+  /**
+   * Set this key to the encoded form of 'value'.
+   * @param value the (non-null) value of the merge key column.
+   * @param recordIsNew true if the record is from the new dataset.
+   */
+  public void set(Object value, boolean recordIsNew) {
+    this.length = 0;
+    this.isNew = recordIsNew;
+
+    if (value instanceof Long || value instanceof Integer
+        || value instanceof Short || value instanceof Byte) {
+      appendByte(INTEGRAL_TYPE);
+      appendLong(((Number) value).longValue());
+    } else if (value instanceof Double || value instanceof Float) {
+      appendByte(FLOATING_TYPE);
+      long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+      // Negative doubles order by descending magnitude; flipping all but
+      // the sign bit makes their bits sort as longs in numeric order.
+      appendLong(bits < 0 ? bits ^ Long.MAX_VALUE : bits);
+    } else if (value instanceof BigDecimal) {
+      appendByte(DECIMAL_TYPE);
+      appendDecimal((BigDecimal) value);
+    } else if (value instanceof Boolean) {
+      appendByte(BOOLEAN_TYPE);
+      appendByte((byte) (((Boolean) value).booleanValue() ? 1 : 0));
+    } else if (value instanceof Timestamp) {
+      Timestamp ts = (Timestamp) value;
+      appendByte(TIMESTAMP_TYPE);
+      appendLong(ts.getTime());
+      appendInt(ts.getNanos());
+    } else if (value instanceof Date) {
+      appendByte(DATE_TYPE);
+      appendLong(((Date) value).getTime());
+    } else {
+      appendByte(STRING_TYPE);
+      byte [] utf8 = value.toString().getBytes(UTF8);
+      ensureCapacity(length + utf8.length);
+      System.arraycopy(utf8, 0, bytes, length, utf8.length);
+      length += utf8.length;
+    }
+  }
+
+  /**
+   * Set this key to a copy of 'other'.
+   */
+  public void set(MergeKey other) {
+    ensureCapacity(other.length);
+    System.arraycopy(other.bytes, 0, bytes, 0, other.length);
+    this.length = other.length;
+    this.isNew = other.isNew;
+  }
+
+  /** @return true if this key belongs to a record from the new dataset. */
+  public boolean isNewRecord() {
+    return isNew;
+  }
+
+  /**
+   * Encode a decimal as a sign byte, a decimal exponent, and the digits
+   * of its unscaled value with trailing zeros removed. Values with equal
+   * magnitude and different scales (1.0 and 1.00) encode identically.
+   * For negative values the exponent and digits are inverted, and a
+   * terminator ensures that a prefix sorts after the longer value.
+   */
+  private void appendDecimal(BigDecimal d) {
+    int sign = d.signum();
+    if (sign == 0) {
+      appendByte(DECIMAL_ZERO);
+      return;
+    }
+
+    BigDecimal stripped = d.stripTrailingZeros();
+    String digits = stripped.unscaledValue().abs().toString();
+    // The value is 0.<digits> * 10^exponent.
+    int exponent = digits.length() - stripped.scale();
+
+    if (sign > 0) {
+      appendByte(DECIMAL_POSITIVE);
+      appendInt(exponent);
+    } else {
+      appendByte(DECIMAL_NEGATIVE);
+      appendInt(-exponent);
+    }
+
+    ensureCapacity(length + digits.length() + 1);
+    for (int i = 0; i < digits.length(); i++) {
+      char c = digits.charAt(i);
+      bytes[length++] = (byte) (sign > 0 ? c : '9' - c + '0');
+    }
+
+    if (sign < 0) {
+      bytes[length++] = DECIMAL_NEGATIVE_END;
+    }
+  }
+
+  /** Append a long whose bytes sort as unsigned values in numeric order. */
+  private void appendLong(long val) {
+    long sortable = val ^ Long.MIN_VALUE;
+    ensureCapacity(length + 8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      bytes[length++] = (byte) (sortable >>> shift);
+    }
+  }
+
+  /** Append an int whose bytes sort as unsigned values in numeric order. */
+  private void appendInt(int val) {
+    int sortable = val ^ Integer.MIN_VALUE;
+    ensureCapacity(length + 4);
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      bytes[length++] = (byte) (sortable >>> shift);
+    }
+  }
+
+  private void appendByte(byte b) {
+    ensureCapacity(length + 1);
+    bytes[length++] = b;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (bytes.length < capacity) {
+      bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+    }
+  }
+
+  /**
+   * Compare the key values of this and another key, ignoring which
+   * dataset each came from.
+   */
+  public int compareValueTo(MergeKey other) {
+    return WritableComparator.compareBytes(bytes, 0, length,
+        other.bytes, 0, other.length);
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public int compareTo(MergeKey other) {
+    int cmp = compareValueTo(other);
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    return compareFlags(isNew, other.isNew);
+  }
+
+  /** Order new records before old ones. */
+  private static int compareFlags(boolean new1, boolean new2) {
+    if (new1 == new2) {
+      return 0;
+    }
+
+    return new1 ? -1 : 1;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof MergeKey)) {
+      return false;
+    }
+
+    return compareTo((MergeKey) o) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    // Used by the partitioner; must not depend on the dataset.
+    return WritableComparator.hashBytes(bytes, length);
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void readFields(DataInput in) throws IOException {
+    int len = in.readInt();
+    ensureCapacity(len);
+    in.readFully(bytes, 0, len);
+    this.length = len;
+    this.isNew = in.readBoolean();
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(length);
+    out.write(bytes, 0, length);
+    out.writeBoolean(isNew);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      sb.append(String.format("%02x", bytes[i] & 0xFF));
+    }
+    return sb.append(isNew ? " (new)" : " (old)").toString();
+  }
+
+  /**
+   * Sort comparator that works on serialized keys, ordering by key value
+   * and then placing new records first.
+   */
+  public static class Comparator extends WritableComparator {
+    public Comparator() {
+      super(MergeKey.class);
+    }
+
+    @Override
+    public int compare(byte [] b1, int s1, int l1,
+        byte [] b2, int s2, int l2) {
+      int len1 = readInt(b1, s1);
+      int len2 = readInt(b2, s2);
+      int cmp = compareBytes(b1, s1 + 4, len1, b2, s2 + 4, len2);
+      if (cmp != 0) {
+        return cmp;
+      }
+
+      return compareFlags(b1[s1 + 4 + len1] != 0, b2[s2 + 4 + len2] != 0);
+    }
+  }
+
+  /**
+   * Grouping comparator that works on serialized keys, ordering by key
+   * value alone so that new and old records with the same key reach the
+   * same reduce() call.
+   */
+  public static class GroupingComparator extends WritableComparator {
+    public GroupingComparator() {
+      super(MergeKey.class);
+    }
+
+    @Override
+    public int compare(byte [] b1, int s1, int l1,
+        byte [] b2, int s2, int l2) {
+      return compareBytes(b1, s1 + 4, readInt(b1, s1),
+          b2, s2 + 4, readInt(b2, s2));
+    }
+
+    @Override
+    public int compare(WritableComparable a, WritableComparable b) {
+      return ((MergeKey) a).compareValueTo((MergeKey) b);
+    }
+  }
+
+  static {
+    WritableComparator.define(MergeKey.class, new Comparator());
+  }
+}
@@ -20,14 +20,11 @@ package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
 
-import java.util.Map;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
@@ -36,23 +33,26 @@ import com.cloudera.sqoop.lib.SqoopRecord;
 
 /**
  * Given a set of SqoopRecord instances which are from a "new" dataset
- * or an "old" dataset, extract a key column from the record and tag
- * each record with a bit specifying whether it is a new or old record.
+ * or an "old" dataset, extract a key column from the record and emit
+ * the record under a MergeKey, which also specifies whether it is a new
+ * or old record.
  */
 public class MergeMapperBase<INKEY, INVAL>
-    extends Mapper<INKEY, INVAL, Text, MergeRecord> {
+    extends Mapper<INKEY, INVAL, MergeKey, SqoopRecord> {
  
   public static final Log LOG = LogFactory.getLog(
       MergeMapperBase.class.getName());
 
   private String keyColName; // name of the key column.
   private boolean isNew; // true if this split is from the new dataset. 
+  private MergeKey outKey;
 
   @Override
   protected void setup(Context context)
       throws IOException, InterruptedException {
     Configuration conf = context.getConfiguration();
     keyColName = conf.get(MergeJob.MERGE_KEY_COL_KEY);
+    outKey = new MergeKey();
 
     InputSplit is = context.getInputSplit();
     FileSplit fs = (FileSplit) is;
@@ -73,17 +73,25 @@ public class MergeMapperBase<INKEY, INVAL>
 
   protected void processRecord(SqoopRecord r, Context c)
       throws IOException, InterruptedException {
-    MergeRecord mr = new MergeRecord(r, isNew);
-    Map<String, Object> fieldMap = r.getFieldMap();
-    if (null == fieldMap) {
-      throw new IOException("No field map in record " + r);
-    }
-    Object keyObj = fieldMap.get(keyColName);
+    outKey.set(getMergeKeyValue(r, keyColName), isNew);
+    c.write(outKey, r);
+  }
+
+  /**
+   * Extract the value of the merge key column from a record.
+   * @param r the record to examine.
+   * @param keyColName the name of the key column.
+   * @return the key value.
+   * @throws IOException if the record has no value for the key column.
+   */
+  public static Object getMergeKeyValue(SqoopRecord r, String keyColName)
+      throws IOException {
+    Object keyObj = r.getFieldValue(keyColName);
     if (null == keyObj) {
       throw new IOException("Cannot join values on null key. "
           + "Did you specify a key column that exists?");
-    } else {
-      c.write(new Text(keyObj.toString()), mr);
     }
+
+    return keyObj;
   }
 }
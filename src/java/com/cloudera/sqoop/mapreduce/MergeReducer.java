@@ -19,9 +19,9 @@
 package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
+import java.util.Iterator;
 
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 
 import com.cloudera.sqoop.lib.SqoopRecord;
@@ -29,30 +29,20 @@ import com.cloudera.sqoop.lib.SqoopRecord;
 /**
  * Reducer for merge tool. Given records tagged as 'old' or 'new', emit
  * a new one if possible; otherwise, an old one.
+ *
+ * MergeKey sorts new records ahead of old records with the same key, so
+ * the first record in each group is the one to emit and the rest can be
+ * skipped without being retained.
  */
 public class MergeReducer
-    extends Reducer<Text, MergeRecord, SqoopRecord, NullWritable> {
+    extends Reducer<MergeKey, SqoopRecord, SqoopRecord, NullWritable> {
 
   @Override
-  public void reduce(Text key, Iterable<MergeRecord> vals, Context c)
+  public void reduce(MergeKey key, Iterable<SqoopRecord> vals, Context c)
       throws IOException, InterruptedException {
-    SqoopRecord bestRecord = null;
-    try {
-      for (MergeRecord val : vals) {
-        if (null == bestRecord && !val.isNewRecord()) {
-          // Use an old record if we don't have a new record.
-          bestRecord = (SqoopRecord) val.getSqoopRecord().clone();
-        } else if (val.isNewRecord()) {
-          bestRecord = (SqoopRecord) val.getSqoopRecord().clone();
-        }
-      }
-    } catch (CloneNotSupportedException cnse) {
-      throw new IOException(cnse);
-    }
-
-    if (null != bestRecord) {
-      c.write(bestRecord, NullWritable.get());
+    Iterator<SqoopRecord> it = vals.iterator();
+    if (it.hasNext()) {
+      c.write(it.next(), NullWritable.get());
     }
   }
 }
-
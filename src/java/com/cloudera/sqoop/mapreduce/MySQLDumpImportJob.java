@@ -25,6 +25,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.OutputFormat;
@@ -132,7 +133,7 @@ public class MySQLDumpImportJob extends ImportJobBase {
   protected void configureMapper(Job job, String tableName,
       String tableClassName) throws ClassNotFoundException, IOException {
     job.setMapperClass(getMapperClass());
-    job.setOutputKeyClass(String.class);
+    job.setOutputKeyClass(Text.class);
     job.setOutputValueClass(NullWritable.class);
   }
 
@@ -31,6 +31,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 import com.cloudera.sqoop.lib.DelimiterSet;
 import com.cloudera.sqoop.lib.FieldFormatter;
@@ -47,7 +48,7 @@ import com.cloudera.sqoop.util.PerfCounters;
  * Mapper that opens up a pipe to mysqldump and pulls data directly.
  */
 public class MySQLDumpMapper
-    extends Mapper<String, NullWritable, String, NullWritable> {
+    extends Mapper<String, NullWritable, Text, NullWritable> {
 
   public static final Log LOG = LogFactory.getLog(
       MySQLDumpMapper.class.getName());
@@ -91,47 +92,17 @@ public class MySQLDumpMapper
       }
 
       public void run() {
-        BufferedReader r = null;
+        InputStream r = this.stream;
 
         try {
-          r = new BufferedReader(new InputStreamReader(this.stream));
-
-          // Actually do the read/write transfer loop here.
-          int preambleLen = -1; // set to this for "undefined"
-          while (true) {
-            String inLine = r.readLine();
-            if (null == inLine) {
-              break; // EOF.
-            }
-
-            // this line is of the form "INSERT .. VALUES ( actual value text
-            // );" strip the leading preamble up to the '(' and the trailing
-            // ');'.
-            if (preambleLen == -1) {
-              // we haven't determined how long the preamble is. It's constant
-              // across all lines, so just figure this out once.
-              String recordStartMark = "VALUES (";
-              preambleLen = inLine.indexOf(recordStartMark)
-                  + recordStartMark.length();
-            }
-
-            // chop off the leading and trailing text as we write the
-            // output to HDFS.
-            int len = inLine.length() - 2 - preambleLen;
-            context.write(inLine.substring(preambleLen, inLine.length() - 2),
-                null);
-            context.write("\n", null);
-            counters.addBytes(1 + len);
-          }
+          // Strip the leading preamble up to the '(' and the trailing ');'
+          // from each line as we write the output to HDFS.
+          MySQLDumpTransformer transformer = new MySQLDumpTransformer();
+          transformer.transform(r, new RawKeyOutputStream(context, counters));
         } catch (IOException ioe) {
           LOG.error("IOException reading from mysqldump: " + ioe.toString());
           // flag this error so we get an error status back in the caller.
           setError();
-        } catch (InterruptedException ie) {
-          LOG.error("InterruptedException reading from mysqldump: "
-              + ie.toString());
-          // flag this error so we get an error status back in the caller.
-          setError();
         } finally {
           if (null != r) {
             try {
@@ -149,6 +120,8 @@ public class MySQLDumpMapper
   /**
    * The ReparsingAsyncSink will instantiate a RecordParser to read mysqldump's
    * output, and re-emit the text in the user's specified output format.
+   * If all of the user's delimiters are ASCII characters, the records are
+   * converted at the byte level by a MySQLDumpTransformer.
    */
   static class ReparsingAsyncSink extends ErrorableAsyncSink {
     private final MySQLDumpMapper.Context context;
@@ -202,17 +175,13 @@ public class MySQLDumpMapper
         BufferedReader r = null;
 
         try {
-          r = new BufferedReader(new InputStreamReader(this.stream));
-
           // Configure the output with the user's delimiters.
           char outputFieldDelim = (char) conf.getInt(
               MySQLUtils.OUTPUT_FIELD_DELIM_KEY,
               DelimiterSet.NULL_CHAR);
-          String outputFieldDelimStr = "" + outputFieldDelim;
           char outputRecordDelim = (char) conf.getInt(
               MySQLUtils.OUTPUT_RECORD_DELIM_KEY,
               DelimiterSet.NULL_CHAR);
-          String outputRecordDelimStr = "" + outputRecordDelim;
           char outputEnclose = (char) conf.getInt(
               MySQLUtils.OUTPUT_ENCLOSED_BY_KEY,
               DelimiterSet.NULL_CHAR);
@@ -229,6 +198,19 @@ public class MySQLDumpMapper
              outputEscape,
              outputEncloseRequired);
 
+          if (MySQLDumpTransformer.canTransform(delimiters)) {
+            // Convert the records at the byte level, without decoding them.
+            MySQLDumpTransformer transformer = new MySQLDumpTransformer(
+                delimiters, MySQLDumpTransformer.DEFAULT_BUFFER_SIZE);
+            transformer.transform(this.stream,
+                new RawKeyOutputStream(context, counters));
+            return;
+          }
+
+          r = new BufferedReader(new InputStreamReader(this.stream));
+          Text outkey = new Text();
+          StringBuilder sb = new StringBuilder();
+
           // Actually do the read/write transfer loop here.
           int preambleLen = -1; // set to this for "undefined"
           while (true) {
@@ -265,23 +247,22 @@ public class MySQLDumpMapper
 
             // For all of the output fields, emit them using the delimiters
             // the user chooses.
+            sb.setLength(0);
             boolean first = true;
-            int recordLen = 1; // for the delimiter.
             for (String field : fields) {
               if (!first) {
-                context.write(outputFieldDelimStr, null);
+                sb.append(outputFieldDelim);
               } else {
                 first = false;
               }
 
-              String fieldStr = FieldFormatter.escapeAndEnclose(field,
-                  delimiters);
-              context.write(fieldStr, null);
-              recordLen += fieldStr.length();
+              sb.append(FieldFormatter.escapeAndEnclose(field, delimiters));
             }
 
-            context.write(outputRecordDelimStr, null);
-            counters.addBytes(recordLen);
+            sb.append(outputRecordDelim);
+            outkey.set(sb.toString());
+            context.write(outkey, null);
+            counters.addBytes(outkey.getLength());
           }
         } catch (IOException ioe) {
           LOG.error("IOException reading from mysqldump: " + ioe.toString());
@@ -293,12 +274,14 @@ public class MySQLDumpMapper
           // flag this error so we get an error status back in the caller.
           setError();
         } finally {
-          if (null != r) {
-            try {
+          try {
+            if (null != r) {
               r.close();
-            } catch (IOException ioe) {
-              LOG.info("Error closing FIFO stream: " + ioe.toString());
+            } else {
+              this.stream.close();
             }
+          } catch (IOException ioe) {
+            LOG.info("Error closing FIFO stream: " + ioe.toString());
           }
         }
       }
@@ -0,0 +1,407 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.RecordParser;
+
+/**
+ * Converts the output of 'mysqldump --skip-opt --compact' into delimited
+ * text records without decoding it into Strings.
+ *
+ * Each line of mysqldump's output has the form
+ * "INSERT INTO `table` VALUES (record text);". The transformer reads the
+ * raw bytes in large blocks, locates the "VALUES (" preamble and the ");"
+ * terminator of each line, and writes the record text between them,
+ * followed by a record delimiter. Whole blocks of records are written to
+ * the output stream at once.
+ *
+ * If no output delimiters are given, the record text is kept in mysqldump's
+ * own format and is compacted in place inside the read buffer. Otherwise
+ * each record is parsed with mysqldump's delimiters and its fields are
+ * re-escaped with the output delimiters, as with FieldFormatter. This
+ * requires all of the output delimiters to be ASCII characters (see
+ * canTransform()). Records which cannot be parsed are skipped.
+ *
+ * The output is written in the same encoding as mysqldump produces (UTF-8
+ * by default).
+ *
+ * This class is not synchronized.
+ */
+public class MySQLDumpTransformer {
+
+  public static final Log LOG = LogFactory.getLog(
+      MySQLDumpTransformer.class.getName());
+
+  /** Default size of the buffer for data read from mysqldump. */
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  private static final byte [] RECORD_START_MARK = {
+    'V', 'A', 'L', 'U', 'E', 'S', ' ', '(',
+  };
+
+  private static final byte [] RECORD_END_MARK = { ')', ';' };
+
+  private static final byte NEWLINE = '\n';
+
+  // Escaping may at most double a char once per pass (see appendEscaped()).
+  private static final int MAX_ESCAPE_EXPANSION = 8;
+
+  // Delimiters for the output, or null to copy mysqldump's format.
+  private final DelimiterSet outputDelimiters;
+
+  // Parser for mysqldump's records; used only if delimiters are converted.
+  private final RecordParser parser;
+
+  private final byte fieldDelim;
+  private final byte recordDelim;
+  private final byte escape;
+  private final byte enclose;
+  private final boolean escapingLegal;
+  private final boolean enclosingLegal;
+  private final boolean encloseRequired;
+
+  private byte [] buf;
+
+  // Holds converted records, if the delimiters are converted.
+  private byte [] outBuf;
+  private int outLen;
+
+  // Length of the "INSERT ... VALUES (" preamble, or -1 if not yet known.
+  private int preambleLen;
+
+  private long numRecords;
+  private long numSkipped;
+
+  /**
+   * Create a transformer that keeps mysqldump's delimiters.
+   */
+  public MySQLDumpTransformer() {
+    this(null, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a transformer which converts records to use the specified
+   * output delimiters.
+   * @param outputDelimiters the delimiters for the output text, or null
+   * to keep mysqldump's delimiters.
+   * @param bufferSize the initial size of the read buffer. Lines longer
+   * than this cause the buffer to grow.
+   */
+  public MySQLDumpTransformer(DelimiterSet outputDelimiters,
+      int bufferSize) {
+    if (null != outputDelimiters && !canTransform(outputDelimiters)) {
+      throw new IllegalArgumentException(
+          "Cannot convert mysqldump output to delimiters "
+          + outputDelimiters);
+    }
+
+    this.buf = new byte[Math.max(bufferSize, RECORD_START_MARK.length)];
+    this.preambleLen = -1;
+
+    if (null == outputDelimiters) {
+      this.outputDelimiters = null;
+      this.parser = null;
+      this.fieldDelim = 0;
+      this.recordDelim = 0;
+      this.escape = 0;
+      this.enclose = 0;
+      this.escapingLegal = false;
+      this.enclosingLegal = false;
+      this.encloseRequired = false;
+    } else {
+      this.outputDelimiters = outputDelimiters.copy();
+      this.parser = new RecordParser(DelimiterSet.MYSQL_DELIMITERS);
+      this.outBuf = new byte[this.buf.length];
+      this.fieldDelim = (byte) outputDelimiters.getFieldsTerminatedBy();
+      this.recordDelim = (byte) outputDelimiters.getLinesTerminatedBy();
+      this.escape = (byte) outputDelimiters.getEscapedBy();
+      this.enclose = (byte) outputDelimiters.getEnclosedBy();
+      this.escapingLegal =
+          DelimiterSet.NULL_CHAR != outputDelimiters.getEscapedBy();
+      this.enclosingLegal =
+          DelimiterSet.NULL_CHAR != outputDelimiters.getEnclosedBy();
+      this.encloseRequired = outputDelimiters.isEncloseRequired();
+    }
+  }
+
+  /**
+   * @return true if records can be converted to the specified delimiters
+   * at the byte level. This requires that each delimiter is encoded as a
+   * single byte in UTF-8.
+   */
+  public static boolean canTransform(DelimiterSet delimiters) {
+    return delimiters.getFieldsTerminatedBy() < 0x80
+        && delimiters.getLinesTerminatedBy() < 0x80
+        && delimiters.getEnclosedBy() < 0x80
+        && delimiters.getEscapedBy() < 0x80;
+  }
+
+  /**
+   * @return the number of records written by transform().
+   */
+  public long getRecordCount() {
+    return numRecords;
+  }
+
+  /**
+   * @return the number of records which could not be parsed, and were
+   * skipped.
+   */
+  public long getSkippedCount() {
+    return numSkipped;
+  }
+
+  /**
+   * Read mysqldump output from 'in' until EOF, writing the records to 'out'.
+   * Neither stream is closed.
+   */
+  public void transform(InputStream in, OutputStream out) throws IOException {
+    int limit = 0; // Number of valid bytes in buf.
+    int scanPos = 0; // Bytes before this have been checked for newlines.
+    boolean eof = false;
+
+    while (!eof) {
+      // Fill the buffer, so we write large chunks.
+      while (limit < buf.length) {
+        int len = in.read(buf, limit, buf.length - limit);
+        if (-1 == len) {
+          eof = true;
+          break;
+        }
+
+        limit += len;
+      }
+
+      // Transform each complete line in the buffer.
+      int outPos = 0; // Where the next copied record goes, in copy mode.
+      int lineStart = 0;
+      for (int pos = scanPos; pos < limit; pos++) {
+        if (buf[pos] == NEWLINE) {
+          outPos = transformLine(lineStart, pos, outPos);
+          lineStart = pos + 1;
+        }
+      }
+
+      if (eof && lineStart < limit) {
+        // The final line had no trailing newline.
+        outPos = transformLine(lineStart, limit, outPos);
+        lineStart = limit;
+      }
+
+      if (null == outputDelimiters) {
+        if (outPos > 0) {
+          out.write(buf, 0, outPos);
+        }
+      } else if (outLen > 0) {
+        out.write(outBuf, 0, outLen);
+        outLen = 0;
+      }
+
+      // Move any partial line to the start of the buffer.
+      int remaining = limit - lineStart;
+      if (remaining == buf.length) {
+        // A single line fills the buffer; make room for more.
+        byte [] newBuf = new byte[2 * buf.length];
+        System.arraycopy(buf, 0, newBuf, 0, remaining);
+        buf = newBuf;
+      } else if (remaining > 0) {
+        System.arraycopy(buf, lineStart, buf, 0, remaining);
+      }
+
+      limit = remaining;
+      scanPos = remaining;
+    }
+  }
+
+  /**
+   * Transform the line in buf[start..end), excluding the newline.
+   * In copy mode, the record text is moved down to buf[outPos].
+   * @return the position after the record in buf, in copy mode.
+   */
+  private int transformLine(int start, int end, int outPos)
+      throws IOException {
+    if (start == end) {
+      return outPos; // Ignore blank lines.
+    }
+
+    int recordStart = start + findPreamble(start, end);
+    int recordEnd = end - RECORD_END_MARK.length;
+    if (recordEnd < recordStart
+        || buf[recordEnd] != RECORD_END_MARK[0]
+        || buf[recordEnd + 1] != RECORD_END_MARK[1]) {
+      throw new IOException("Malformed record from mysqldump: "
+          + new String(buf, start, end - start, "UTF-8"));
+    }
+
+    int recordLen = recordEnd - recordStart;
+    numRecords++;
+
+    if (null == outputDelimiters) {
+      // The record text, plus the newline, is no longer than the line that
+      // held it; this never overwrites data that has not been read yet.
+      System.arraycopy(buf, recordStart, buf, outPos, recordLen);
+      outPos += recordLen;
+      buf[outPos++] = NEWLINE;
+      return outPos;
+    }
+
+    int numFields;
+    try {
+      numFields = parser.parseFields(buf, recordStart, recordLen);
+    } catch (RecordParser.ParseError pe) {
+      LOG.warn("ParseError reading from mysqldump: "
+          + pe.toString() + "; record skipped");
+      numRecords--;
+      numSkipped++;
+      return outPos;
+    }
+
+    byte [] fieldBuf = parser.getFieldBuffer();
+    int [] offsets = parser.getFieldOffsets();
+    for (int i = 0; i < numFields; i++) {
+      if (i > 0) {
+        appendByte(fieldDelim);
+      }
+
+      appendField(fieldBuf, offsets[2 * i], offsets[2 * i + 1]);
+    }
+
+    appendByte(recordDelim);
+    return outPos;
+  }
+
+  /**
+   * @return the length of the "INSERT ... VALUES (" preamble on the line
+   * in buf[start..end). mysqldump uses the same preamble on every line, so
+   * its length is checked rather than searched for after the first line.
+   */
+  private int findPreamble(int start, int end) throws IOException {
+    if (preambleLen != -1 && preambleLen <= end - start
+        && matchesStartMark(start + preambleLen - RECORD_START_MARK.length)) {
+      return preambleLen;
+    }
+
+    for (int pos = start; pos + RECORD_START_MARK.length <= end; pos++) {
+      if (matchesStartMark(pos)) {
+        preambleLen = pos + RECORD_START_MARK.length - start;
+        return preambleLen;
+      }
+    }
+
+    throw new IOException("Could not find record in mysqldump output: "
+        + new String(buf, start, end - start, "UTF-8"));
+  }
+
+  private boolean matchesStartMark(int pos) {
+    for (int i = 0; i < RECORD_START_MARK.length; i++) {
+      if (buf[pos + i] != RECORD_START_MARK[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private void ensureOutCapacity(int extra) {
+    if (outLen + extra > outBuf.length) {
+      byte [] newBuf = new byte[Math.max(outLen + extra, 2 * outBuf.length)];
+      System.arraycopy(outBuf, 0, newBuf, 0, outLen);
+      outBuf = newBuf;
+    }
+  }
+
+  private void appendByte(byte b) {
+    ensureOutCapacity(1);
+    outBuf[outLen++] = b;
+  }
+
+  private static boolean contains(byte [] src, int start, int end, byte b) {
+    for (int i = start; i < end; i++) {
+      if (src[i] == b) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Append the field in src[start..end) to the output, escaped and enclosed
+   * exactly as FieldFormatter.escapeAndEnclose() does for the output
+   * delimiters. All of the delimiters are single bytes, which never occur
+   * inside a multi-byte UTF-8 sequence.
+   */
+  private void appendField(byte [] src, int start, int end) {
+    int len = end - start;
+    boolean doEnclose = enclosingLegal && (encloseRequired
+        || contains(src, start, end, fieldDelim)
+        || contains(src, start, end, recordDelim));
+
+    ensureOutCapacity(MAX_ESCAPE_EXPANSION * len + 2);
+    if (doEnclose) {
+      outBuf[outLen++] = enclose;
+    }
+
+    if (!escapingLegal) {
+      System.arraycopy(src, start, outBuf, outLen, len);
+      outLen += len;
+    } else {
+      byte target1 = enclosingLegal ? enclose : fieldDelim;
+      byte target2 = recordDelim;
+      int numPasses = enclosingLegal ? 2 : 3;
+      for (int i = start; i < end; i++) {
+        byte b = src[i];
+        if (b != escape && b != target1 && (numPasses < 3 || b != target2)) {
+          outBuf[outLen++] = b;
+        } else {
+          appendEscaped(b, 0, numPasses, target1, target2);
+        }
+      }
+    }
+
+    if (doEnclose) {
+      outBuf[outLen++] = enclose;
+    }
+  }
+
+  /**
+   * Appends 'b' after applying escape passes 'pass' through
+   * 'numPasses - 1', as in FieldFormatter.appendEscapedAndEnclosed().
+   */
+  private void appendEscaped(byte b, int pass, int numPasses, byte target1,
+      byte target2) {
+    for (int p = pass; p < numPasses; p++) {
+      byte target = (p == 0) ? escape : ((p == 1) ? target1 : target2);
+      if (b == target) {
+        appendEscaped(escape, p + 1, numPasses, target1, target2);
+        appendEscaped(b, p + 1, numPasses, target1, target2);
+        return;
+      }
+    }
+
+    outBuf[outLen++] = b;
+  }
+}
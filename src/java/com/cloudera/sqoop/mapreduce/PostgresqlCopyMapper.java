@@ -0,0 +1,362 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.manager.MySQLUtils;
+import com.cloudera.sqoop.manager.PostgresqlUtils;
+import com.cloudera.sqoop.mapreduce.db.DBConfiguration;
+import com.cloudera.sqoop.shims.HadoopShim;
+import com.cloudera.sqoop.util.AsyncSink;
+import com.cloudera.sqoop.util.ErrorableAsyncSink;
+import com.cloudera.sqoop.util.ErrorableThread;
+import com.cloudera.sqoop.util.Executor;
+import com.cloudera.sqoop.util.JdbcUrl;
+import com.cloudera.sqoop.util.LoggingAsyncSink;
+import com.cloudera.sqoop.util.PerfCounters;
+
+/**
+ * Mapper that runs psql to COPY the rows of its split directly into HDFS.
+ */
+public class PostgresqlCopyMapper
+    extends Mapper<String, NullWritable, Text, NullWritable> {
+
+  public static final Log LOG = LogFactory.getLog(
+      PostgresqlCopyMapper.class.getName());
+
+  /** Size of the blocks in which psql's output is copied to HDFS. */
+  static final int BUFFER_SIZE = 256 * 1024;
+
+  private Configuration conf;
+
+  /**
+   * Copies the output of psql directly into HDFS, replacing the newline at
+   * the end of each record with the user's record delimiter.
+   */
+  static class CopyingAsyncSink extends ErrorableAsyncSink {
+    private final PostgresqlCopyMapper.Context context;
+    private final char recordDelim;
+    private final PerfCounters counters;
+
+    CopyingAsyncSink(final PostgresqlCopyMapper.Context context,
+        final char recordDelim, final PerfCounters ctrs) {
+      this.context = context;
+      this.recordDelim = recordDelim;
+      this.counters = ctrs;
+    }
+
+    public void processStream(InputStream is) {
+      child = new CopyingStreamThread(is, context, recordDelim, counters);
+      child.start();
+    }
+
+    private static class CopyingStreamThread extends ErrorableThread {
+      public static final Log LOG = LogFactory.getLog(
+          CopyingStreamThread.class.getName());
+
+      private final PostgresqlCopyMapper.Context context;
+      private final InputStream stream;
+      private final char recordDelim;
+      private final PerfCounters counters;
+
+      CopyingStreamThread(final InputStream is,
+          final PostgresqlCopyMapper.Context c, final char recordDelim,
+          final PerfCounters ctrs) {
+        this.context = c;
+        this.stream = is;
+        this.recordDelim = recordDelim;
+        this.counters = ctrs;
+      }
+
+      public void run() {
+        try {
+          copyRecords(stream, new RawKeyOutputStream(context, counters),
+              recordDelim);
+        } catch (IOException ioe) {
+          LOG.error("IOException reading from psql: " + ioe.toString());
+          // flag this error so we get an error status back in the caller.
+          setError();
+        } finally {
+          try {
+            stream.close();
+          } catch (IOException ioe) {
+            LOG.info("Error closing FIFO stream: " + ioe.toString());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Read from 'in' until the buffer is full or EOF is reached.
+   * @return the number of bytes read.
+   */
+  private static int fill(InputStream in, byte [] buf) throws IOException {
+    int len = 0;
+    while (len < buf.length) {
+      int n = in.read(buf, len, buf.length - len);
+      if (-1 == n) {
+        break;
+      }
+      len += n;
+    }
+
+    return len;
+  }
+
+  /**
+   * Copy newline-terminated records from 'in' to 'out' in large blocks,
+   * terminating each with 'recordDelim' instead.
+   */
+  static void copyRecords(InputStream in, OutputStream out, char recordDelim)
+      throws IOException {
+    byte [] delimBytes = Character.toString(recordDelim).getBytes("UTF-8");
+    byte [] buf = new byte[BUFFER_SIZE];
+    OutputStream dest = out;
+    if (delimBytes.length > 1) {
+      // Records are written individually; coalesce them.
+      dest = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    while (true) {
+      int len = fill(in, buf);
+      if (len == 0) {
+        break;
+      }
+
+      if (recordDelim == '\n') {
+        dest.write(buf, 0, len);
+      } else if (delimBytes.length == 1) {
+        // Replace the delimiters in place.
+        for (int i = 0; i < len; i++) {
+          if (buf[i] == '\n') {
+            buf[i] = delimBytes[0];
+          }
+        }
+        dest.write(buf, 0, len);
+      } else {
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+          if (buf[i] == '\n') {
+            dest.write(buf, start, i - start);
+            dest.write(delimBytes);
+            start = i + 1;
+          }
+        }
+        dest.write(buf, start, len - start);
+      }
+    }
+
+    dest.flush();
+  }
+
+  /**
+   * @return the COPY command which selects the rows of the split with the
+   * specified conditions.
+   */
+  static String getCopyCommand(Configuration conf, String splitConditions) {
+    DBConfiguration dbConf = new DBConfiguration(conf);
+
+    String whereClause = dbConf.getInputConditions();
+    if (null == whereClause || whereClause.length() == 0) {
+      whereClause = splitConditions;
+    } else {
+      whereClause = "(" + whereClause + ") AND (" + splitConditions + ")";
+    }
+
+    DelimiterSet delimiters = new DelimiterSet(
+        (char) conf.getInt(MySQLUtils.OUTPUT_FIELD_DELIM_KEY,
+            DelimiterSet.NULL_CHAR),
+        (char) conf.getInt(MySQLUtils.OUTPUT_RECORD_DELIM_KEY,
+            DelimiterSet.NULL_CHAR),
+        (char) conf.getInt(MySQLUtils.OUTPUT_ENCLOSED_BY_KEY,
+            DelimiterSet.NULL_CHAR),
+        (char) conf.getInt(MySQLUtils.OUTPUT_ESCAPED_BY_KEY,
+            DelimiterSet.NULL_CHAR),
+        conf.getBoolean(MySQLUtils.OUTPUT_ENCLOSE_REQUIRED_KEY, false));
+
+    return PostgresqlUtils.getCopyCommand(dbConf.getInputTableName(),
+        dbConf.getInputFieldNames(), whereClause, delimiters);
+  }
+
+  // CHECKSTYLE:OFF
+  /**
+   * Import the rows of this split into HDFS by running psql to copy them
+   * out of the database via COPY (SELECT ...) TO STDOUT.
+   */
+  public void map(String splitConditions, NullWritable val, Context context)
+      throws IOException, InterruptedException {
+
+    LOG.info("Beginning psql fast path import");
+
+    String connectString = conf.get(DBConfiguration.URL_PROPERTY);
+    String databaseName = JdbcUrl.getDatabaseName(connectString);
+    String hostname = JdbcUrl.getHostName(connectString);
+    int port = JdbcUrl.getPort(connectString);
+
+    if (null == databaseName) {
+      throw new IOException("Could not determine database name");
+    }
+
+    LOG.info("Performing import of split " + splitConditions
+        + " from database " + databaseName);
+
+    String tmpDir = conf.get(HadoopShim.get().getJobLocalDirProperty(),
+        "/tmp/");
+    String commandFilename = null;
+    String passwordFilename = null;
+    Process p = null;
+    AsyncSink sink = null;
+    AsyncSink errSink = null;
+    PerfCounters counters = new PerfCounters();
+    try {
+      // Pass the COPY command to psql in a script file, which we delete in
+      // our finally block.
+      commandFilename = PostgresqlUtils.writeCommandFile(tmpDir,
+          getCopyCommand(conf, splitConditions));
+
+      // Environment to pass to psql.
+      List<String> envp = Executor.getCurEnvpStrings();
+
+      String username = conf.get(DBConfiguration.USERNAME_PROPERTY);
+      String password = conf.get(DBConfiguration.PASSWORD_PROPERTY);
+      if (null != username && null != password) {
+        passwordFilename = PostgresqlUtils.writePasswordFile(tmpDir,
+            password);
+        // Need to send PGPASSFILE environment variable specifying
+        // location of our postgres file.
+        envp.add("PGPASSFILE=" + passwordFilename);
+      }
+
+      List<String> args = PostgresqlUtils.getPsqlArgs(databaseName,
+          hostname, port, username, commandFilename);
+
+      // begin the import in an external process.
+      LOG.debug("Starting psql with arguments:");
+      for (String arg : args) {
+        LOG.debug("  " + arg);
+      }
+
+      p = Runtime.getRuntime().exec(args.toArray(new String[0]),
+          envp.toArray(new String[0]));
+
+      // Start an async thread to read and upload the whole stream.
+      char recordDelim = (char) conf.getInt(
+          MySQLUtils.OUTPUT_RECORD_DELIM_KEY, '\n');
+      sink = new CopyingAsyncSink(context, recordDelim, counters);
+      counters.startClock();
+      sink.processStream(p.getInputStream());
+
+      // Start an async thread to send stderr to log4j.
+      errSink = new LoggingAsyncSink(LOG);
+      errSink.processStream(p.getErrorStream());
+    } finally {
+
+      // block until the process is done.
+      int result = 0;
+      if (null != p) {
+        while (true) {
+          try {
+            result = p.waitFor();
+          } catch (InterruptedException ie) {
+            // interrupted; loop around.
+            continue;
+          }
+
+          break;
+        }
+      }
+
+      // Remove the password and command files.
+      if (null != passwordFilename) {
+        if (!new File(passwordFilename).delete()) {
+          LOG.error("Could not remove postgresql password file "
+              + passwordFilename);
+          LOG.error("You should remove this file to protect your credentials.");
+        }
+      }
+
+      if (null != commandFilename) {
+        if (!new File(commandFilename).delete()) {
+          LOG.info("Could not remove temp file: " + commandFilename);
+        }
+      }
+
+      // block until the stream sink is done too.
+      int streamResult = 0;
+      if (null != sink) {
+        while (true) {
+          try {
+            streamResult = sink.join();
+          } catch (InterruptedException ie) {
+            // interrupted; loop around.
+            continue;
+          }
+
+          break;
+        }
+      }
+
+      // Try to wait for stderr to finish, but regard any errors as advisory.
+      if (null != errSink) {
+        try {
+          if (0 != errSink.join()) {
+            LOG.info("Encountered exception reading stderr stream");
+          }
+        } catch (InterruptedException ie) {
+          LOG.info("Thread interrupted waiting for stderr to complete: "
+              + ie.toString());
+        }
+      }
+
+      LOG.info("Transfer loop complete.");
+
+      if (0 != result) {
+        throw new IOException("psql terminated with status "
+            + Integer.toString(result));
+      }
+
+      if (0 != streamResult) {
+        throw new IOException("Encountered exception in stream sink");
+      }
+
+      counters.stopClock();
+      LOG.info("Transferred " + counters.toString());
+    }
+  }
+  // CHECKSTYLE:ON
+
+  @Override
+  protected void setup(Context context) {
+    this.conf = context.getConfiguration();
+  }
+}
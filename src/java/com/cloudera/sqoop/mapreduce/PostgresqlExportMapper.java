@@ -0,0 +1,281 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.mapreduce.db.DBConfiguration;
+import com.cloudera.sqoop.manager.MySQLUtils;
+import com.cloudera.sqoop.manager.PostgresqlUtils;
+import com.cloudera.sqoop.shims.HadoopShim;
+import com.cloudera.sqoop.util.AsyncSink;
+import com.cloudera.sqoop.util.Executor;
+import com.cloudera.sqoop.util.JdbcUrl;
+import com.cloudera.sqoop.util.LoggingAsyncSink;
+import com.cloudera.sqoop.util.NullAsyncSink;
+
+/**
+ * Mapper that starts a 'psql' process running "COPY ... FROM STDIN" and
+ * uses that to export rows from HDFS to a PostgreSQL database at high
+ * speed.
+ *
+ * map() methods are actually provided by subclasses that read from
+ * SequenceFiles (containing existing SqoopRecords) or text files
+ * (containing delimited lines) and deliver these results to the
+ * standard input of psql.
+ */
+public class PostgresqlExportMapper<KEYIN, VALIN>
+    extends Mapper<KEYIN, VALIN, NullWritable, NullWritable> {
+
+  public static final Log LOG = LogFactory.getLog(
+      PostgresqlExportMapper.class.getName());
+
+  /** Configuration key that specifies the number of bytes before which it
+   * commits the current export transaction and opens a new one.
+   * Default is 32 MB; setting this to 0 will use no checkpoints.
+   */
+  public static final String POSTGRESQL_CHECKPOINT_BYTES_KEY =
+      "sqoop.postgresql.export.checkpoint.bytes";
+
+  public static final long DEFAULT_CHECKPOINT_BYTES = 32 * 1024 * 1024;
+
+  /** Each record is terminated by a newline for COPY. */
+  protected static final byte RECORD_TERMINATOR = '\n';
+
+  // Configured value for POSTGRESQL_CHECKPOINT_BYTES_KEY.
+  protected long checkpointDistInBytes;
+
+  protected Configuration conf;
+
+  /**
+   * The delimiters of the records passed to COPY. These are the user's
+   * delimiters, except that records are always terminated by a newline.
+   */
+  protected DelimiterSet copyDelimiters;
+
+  /** The process object representing the active COPY in psql. */
+  protected Process psqlProcess;
+
+  /** The stream to write to stdin for psql. */
+  protected OutputStream copyStream;
+
+  // Handlers for stdout and stderr from psql.
+  protected AsyncSink outSink;
+  protected AsyncSink errSink;
+
+  /** File object where we wrote the user's password to pass to psql. */
+  protected File passwordFile;
+
+  /**
+   * Tally of bytes written to the current psql instance.
+   * We commit an interim tx and open a new psql after this
+   * gets too big. */
+  private long bytesWritten;
+
+  /**
+   * Start psql running a COPY which reads the records from its stdin.
+   */
+  private void initCopyProcess() throws IOException {
+    String connectString = conf.get(DBConfiguration.URL_PROPERTY);
+    String databaseName = JdbcUrl.getDatabaseName(connectString);
+    String hostname = JdbcUrl.getHostName(connectString);
+    int port = JdbcUrl.getPort(connectString);
+
+    if (null == databaseName) {
+      throw new IOException("Could not determine database name");
+    }
+
+    String copyCmd = getCopyCommand(new DBConfiguration(conf));
+
+    // Environment to pass to psql. Our input text is UTF-8 encoded.
+    List<String> envp = Executor.getCurEnvpStrings();
+    envp.add("PGCLIENTENCODING=UTF8");
+
+    String username = conf.get(DBConfiguration.USERNAME_PROPERTY);
+    String password = conf.get(DBConfiguration.PASSWORD_PROPERTY);
+    if (null != username && null != password) {
+      String tmpDir = conf.get(HadoopShim.get().getJobLocalDirProperty(),
+          "/tmp/");
+      passwordFile = new File(PostgresqlUtils.writePasswordFile(tmpDir,
+          password));
+      // Need to send PGPASSFILE environment variable specifying
+      // location of our postgres file.
+      envp.add("PGPASSFILE=" + passwordFile);
+    }
+
+    List<String> args = PostgresqlUtils.getPsqlCommandArgs(databaseName,
+        hostname, port, username, copyCmd);
+
+    // Begin the export in an external process.
+    LOG.debug("Starting psql with arguments:");
+    for (String arg : args) {
+      LOG.debug("  " + arg);
+    }
+
+    // Actually start psql.
+    psqlProcess = Runtime.getRuntime().exec(args.toArray(new String[0]),
+        envp.toArray(new String[0]));
+
+    // Log everything it writes to stderr.
+    // Ignore anything on stdout.
+    this.outSink = new NullAsyncSink();
+    this.outSink.processStream(psqlProcess.getInputStream());
+
+    this.errSink = new LoggingAsyncSink(LOG);
+    this.errSink.processStream(psqlProcess.getErrorStream());
+
+    this.copyStream = new BufferedOutputStream(
+        psqlProcess.getOutputStream());
+
+    // At this point, psql is running the COPY and reading its stdin.
+    // The mapper just needs to populate it with data.
+
+    this.bytesWritten = 0;
+  }
+
+  /**
+   * @return the "COPY ... FROM STDIN" command which loads the records
+   * written with writeRecord(). By default, these are CSV records with
+   * the delimiters in copyDelimiters.
+   */
+  protected String getCopyCommand(DBConfiguration dbConf) {
+    return PostgresqlUtils.getCopyFromCommand(dbConf.getInputTableName(),
+        dbConf.getInputFieldNames(), copyDelimiters);
+  }
+
+  @Override
+  public void run(Context context) throws IOException, InterruptedException {
+    this.conf = context.getConfiguration();
+    setup(context);
+    initCopyProcess();
+    try {
+      while (context.nextKeyValue()) {
+        map(context.getCurrentKey(), context.getCurrentValue(), context);
+      }
+      cleanup(context);
+    } finally {
+      // Shut down the psql process.
+      closeExportHandles();
+    }
+  }
+
+  private void closeExportHandles() throws IOException, InterruptedException {
+    int ret = 0;
+    if (null != this.copyStream) {
+      // Close psql's stdin first; this ends the COPY.
+      LOG.debug("Closing copy stream");
+      this.copyStream.close();
+      this.copyStream = null;
+    }
+
+    if (null != this.psqlProcess) {
+      // We started psql; wait for it to finish.
+      LOG.info("Waiting for psql to complete");
+      ret = this.psqlProcess.waitFor();
+      LOG.info("psql closed connection");
+      this.psqlProcess = null;
+    }
+
+    if (null != this.passwordFile && this.passwordFile.exists()) {
+      if (!this.passwordFile.delete()) {
+        LOG.error("Could not remove postgresql password file "
+            + passwordFile);
+        LOG.error("You should remove this file to protect your credentials.");
+      }
+
+      this.passwordFile = null;
+    }
+
+    // Finish processing any output from psql.
+    // This is informational only, so we don't care about return codes.
+    if (null != outSink) {
+      LOG.debug("Waiting for any additional stdout from psql");
+      outSink.join();
+      outSink = null;
+    }
+
+    if (null != errSink) {
+      LOG.debug("Waiting for any additional stderr from psql");
+      errSink.join();
+      errSink = null;
+    }
+
+    if (0 != ret) {
+      // Don't mark the task as successful if psql returns an error.
+      throw new IOException("psql terminated with error code " + ret);
+    }
+  }
+
+  @Override
+  protected void setup(Context context) {
+    this.conf = context.getConfiguration();
+
+    this.copyDelimiters = new DelimiterSet(
+        (char) conf.getInt(MySQLUtils.OUTPUT_FIELD_DELIM_KEY, (int) ','),
+        (char) RECORD_TERMINATOR,
+        (char) conf.getInt(MySQLUtils.OUTPUT_ENCLOSED_BY_KEY, 0),
+        (char) conf.getInt(MySQLUtils.OUTPUT_ESCAPED_BY_KEY, 0),
+        conf.getBoolean(MySQLUtils.OUTPUT_ENCLOSE_REQUIRED_KEY, false));
+
+    this.checkpointDistInBytes = conf.getLong(
+        POSTGRESQL_CHECKPOINT_BYTES_KEY, DEFAULT_CHECKPOINT_BYTES);
+    if (this.checkpointDistInBytes < 0) {
+      LOG.warn("Invalid value for " + POSTGRESQL_CHECKPOINT_BYTES_KEY);
+      this.checkpointDistInBytes = DEFAULT_CHECKPOINT_BYTES;
+    }
+  }
+
+  /**
+   * Writes a delimited text record to psql, followed by a newline.
+   * @param record the UTF-8 encoded text of the record, without its
+   * record delimiter.
+   * @param len the number of bytes of 'record' to write.
+   */
+  protected void writeRecord(byte [] record, int len)
+      throws IOException, InterruptedException {
+
+    // We've already set up the COPY to accept the same field delimiters,
+    // so we don't need to convert those. COPY only accepts newlines
+    // between records, though.
+    this.copyStream.write(record, 0, len);
+    this.copyStream.write(RECORD_TERMINATOR);
+    this.bytesWritten += len + 1;
+
+    // If bytesWritten is too big, then we should start a new tx by closing
+    // psql and opening a new instance of the process.
+    if (this.checkpointDistInBytes != 0
+        && this.bytesWritten > this.checkpointDistInBytes) {
+      LOG.info("Checkpointing current export.");
+      closeExportHandles();
+      initCopyProcess();
+      this.bytesWritten = 0;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.LongWritable;
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.lib.Utf8Buffer;
+import com.cloudera.sqoop.manager.PostgresqlUtils;
+import com.cloudera.sqoop.mapreduce.db.DBConfiguration;
+
+/**
+ * psql-based exporter which accepts SqoopRecords (e.g., from
+ * SequenceFiles) to emit to the database.
+ *
+ * Records are passed to COPY in its text format rather than as CSV.
+ * Each field is escaped with a backslash, so quote characters need no
+ * special treatment, and null values are written as an unenclosed
+ * "null", which COPY is told to load as null.
+ */
+public class PostgresqlRecordExportMapper
+    extends PostgresqlExportMapper<LongWritable, SqoopRecord> {
+
+  /** Delimiters of COPY's text format. */
+  static final DelimiterSet COPY_TEXT_DELIMITERS = new DelimiterSet(
+      '\t', (char) RECORD_TERMINATOR, DelimiterSet.NULL_CHAR, '\\', false);
+
+  private Utf8Buffer recordBuf = new Utf8Buffer();
+
+  @Override
+  protected String getCopyCommand(DBConfiguration dbConf) {
+    return PostgresqlUtils.getCopyFromTextCommand(
+        dbConf.getInputTableName(), dbConf.getInputFieldNames());
+  }
+
+  /**
+   * Format a record as a line of COPY text-format data, including its
+   * terminating newline.
+   * @param record the record to format.
+   * @param buf the buffer to hold the line; it is reset first.
+   */
+  static void formatRecord(SqoopRecord record, Utf8Buffer buf)
+      throws IOException {
+    buf.reset();
+    record.appendTo(buf, COPY_TEXT_DELIMITERS);
+
+    // Delimiters are escaped already, but COPY also rejects carriage
+    // returns which are not escaped. These are rare, so the record is
+    // only formatted again when it contains one.
+    byte [] bytes = buf.getBytes();
+    int len = buf.getLength();
+    for (int i = 0; i < len; i++) {
+      if (bytes[i] == '\r') {
+        String line = buf.toString().replace("\r", "\\\r");
+        buf.reset();
+        buf.append(line);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Export the table to PostgreSQL by using psql to COPY the data into
+   * the database.
+   *
+   * Expects one SqoopRecord as the value. Ignores the key.
+   */
+  @Override
+  public void map(LongWritable key, SqoopRecord val, Context context)
+      throws IOException, InterruptedException {
+
+    // writeRecord() adds the terminating newline itself.
+    formatRecord(val, recordBuf);
+    writeRecord(recordBuf.getBytes(), recordBuf.getLength() - 1);
+
+    // We don't emit anything to the OutputCollector because we wrote
+    // straight to postgresql. Send a progress indicator to prevent a timeout.
+    context.progress();
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.RecordParser;
+import com.cloudera.sqoop.manager.PostgresqlUtils;
+import com.cloudera.sqoop.mapreduce.db.DBConfiguration;
+
+/**
+ * psql-based exporter which accepts lines of text from files
+ * in HDFS to emit to the database.
+ *
+ * In CSV mode, COPY only honors the escape character inside quoted
+ * fields. If the records have an escape character and fields may be
+ * unenclosed, each record is parsed and passed to COPY in its text
+ * format instead, as PostgresqlRecordExportMapper does.
+ */
+public class PostgresqlTextExportMapper
+    extends PostgresqlExportMapper<LongWritable, Text> {
+
+  // Parses records to convert them to COPY's text format; null if the
+  // records are passed to a CSV-format COPY unchanged.
+  private RecordParser parser;
+  private DataOutputBuffer copyBuf;
+
+  @Override
+  protected void setup(Context context) {
+    super.setup(context);
+
+    if (copyDelimiters.getEscapedBy() != DelimiterSet.NULL_CHAR
+        && !copyDelimiters.isEncloseRequired()) {
+      this.parser = new RecordParser(copyDelimiters);
+      this.copyBuf = new DataOutputBuffer();
+    }
+  }
+
+  @Override
+  protected String getCopyCommand(DBConfiguration dbConf) {
+    if (null == parser) {
+      return super.getCopyCommand(dbConf);
+    }
+
+    return PostgresqlUtils.getCopyFromTextCommand(
+        dbConf.getInputTableName(), dbConf.getInputFieldNames());
+  }
+
+  /**
+   * Convert a delimited record into a line of COPY text-format data,
+   * without its terminating newline.
+   * @param parser a parser for the delimiters of the record.
+   * @param line the record to convert.
+   * @param out the buffer to hold the line; it is reset first.
+   */
+  static void formatRecord(RecordParser parser, Text line,
+      DataOutputBuffer out) throws IOException {
+    int numFields;
+    try {
+      numFields = parser.parseFields(line);
+    } catch (RecordParser.ParseError pe) {
+      throw new IOException("Could not parse record: " + line, pe);
+    }
+
+    out.reset();
+    byte [] fields = parser.getFieldBuffer();
+    for (int i = 0; i < numFields; i++) {
+      if (i > 0) {
+        out.write('\t');
+      }
+
+      // A backslash followed by any other character is that character.
+      for (int pos = parser.getFieldStart(i); pos < parser.getFieldEnd(i);
+          pos++) {
+        byte b = fields[pos];
+        if (b == '\\' || b == '\t' || b == '\n' || b == '\r') {
+          out.write('\\');
+        }
+        out.write(b);
+      }
+    }
+  }
+
+  /**
+   * Export the table to PostgreSQL by using psql to COPY the data into
+   * the database.
+   *
+   * Expects one delimited text record as the 'val'; ignores the key.
+   * Unless the record must be converted to COPY's text format, its bytes
+   * are passed to psql without decoding them.
+   */
+  @Override
+  public void map(LongWritable key, Text val, Context context)
+      throws IOException, InterruptedException {
+
+    if (null == parser) {
+      writeRecord(val.getBytes(), val.getLength());
+    } else {
+      formatRecord(parser, val, copyBuf);
+      writeRecord(copyBuf.getData(), copyBuf.getLength());
+    }
+
+    // We don't emit anything to the OutputCollector because we wrote
+    // straight to postgresql. Send a progress indicator to prevent a timeout.
+    context.progress();
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import com.cloudera.sqoop.util.PerfCounters;
+
+/**
+ * OutputStream which emits each block of bytes written to it as a single
+ * Text output key, for RawKeyTextOutputFormat to write verbatim. This lets
+ * a direct-mode mapper copy the output of a database tool into HDFS in
+ * large chunks.
+ */
+public class RawKeyOutputStream extends OutputStream {
+  private final TaskInputOutputContext<?, ?, Text, NullWritable> context;
+  private final PerfCounters counters;
+  private final Text chunk;
+
+  public RawKeyOutputStream(
+      final TaskInputOutputContext<?, ?, Text, NullWritable> context,
+      final PerfCounters ctrs) {
+    this.context = context;
+    this.counters = ctrs;
+    this.chunk = new Text();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void write(byte [] b, int off, int len) throws IOException {
+    chunk.set(b, off, len);
+    try {
+      context.write(chunk, null);
+    } catch (InterruptedException ie) {
+      throw new InterruptedIOException(ie.toString());
+    }
+
+    counters.addBytes(len);
+  }
+}
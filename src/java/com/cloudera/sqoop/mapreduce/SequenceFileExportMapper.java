@@ -24,6 +24,7 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.Mapper.Context;
 
+import com.cloudera.sqoop.lib.LobExportContext;
 import com.cloudera.sqoop.lib.SqoopRecord;
 
 /**
@@ -37,6 +38,14 @@ public class SequenceFileExportMapper
   public SequenceFileExportMapper() {
   }
 
+  protected void setup(Context context)
+      throws IOException, InterruptedException {
+    super.setup(context);
+
+    // External LOBs are stored relative to the exported files.
+    LobExportContext.configure(context);
+  }
+
   public void map(LongWritable key, SqoopRecord val, Context context)
       throws IOException, InterruptedException {
     context.write(val, NullWritable.get());
@@ -27,6 +27,7 @@ import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper.Context;
 import org.apache.hadoop.util.ReflectionUtils;
 
+import com.cloudera.sqoop.lib.LobExportContext;
 import com.cloudera.sqoop.lib.RecordParser;
 import com.cloudera.sqoop.lib.SqoopRecord;
 
@@ -70,6 +71,9 @@ public class TextExportMapper
       throw new IOException("Could not instantiate object of type "
           + recordClassName);
     }
+
+    // External LOBs are stored relative to the exported files.
+    LobExportContext.configure(context);
   }
 
 
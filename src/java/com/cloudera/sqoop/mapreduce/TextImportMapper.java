@@ -28,6 +28,7 @@ import org.apache.hadoop.mapreduce.Mapper.Context;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import com.cloudera.sqoop.lib.LargeObjectLoader;
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.lib.Utf8Buffer;
 
 /**
  * Imports records by transforming them to strings for a plain-text flat file.
@@ -36,10 +37,12 @@ public class TextImportMapper
     extends AutoProgressMapper<LongWritable, SqoopRecord, Text, NullWritable> {
 
   private Text outkey;
+  private Utf8Buffer outbuf;
   private LargeObjectLoader lobLoader;
 
   public TextImportMapper() {
     outkey = new Text();
+    outbuf = new Utf8Buffer();
   }
 
   @Override
@@ -60,7 +63,10 @@ public class TextImportMapper
       throw new IOException(sqlE);
     }
 
-    outkey.set(val.toString());
+    // Format the record directly into UTF-8 bytes.
+    outbuf.reset();
+    val.appendTo(outbuf);
+    outbuf.copyTo(outkey);
     context.write(outkey, NullWritable.get());
   }
 
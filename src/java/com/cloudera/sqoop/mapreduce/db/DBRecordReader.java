@@ -142,6 +142,24 @@ public class DBRecordReader<T extends DBWritable> extends
     return query.toString();
   }
 
+  /**
+   * Close the current query, so that the next call to nextKeyValue()
+   * runs the query returned by getSelectQuery() again.
+   */
+  protected void resetQuery() throws SQLException {
+    try {
+      if (null != results) {
+        results.close();
+      }
+      if (null != statement) {
+        statement.close();
+      }
+    } finally {
+      results = null;
+      statement = null;
+    }
+  }
+
   @Override
   /** {@inheritDoc} */
   public void close() throws IOException {
@@ -256,6 +274,10 @@ public class DBRecordReader<T extends DBWritable> extends
     return split;
   }
 
+  protected Configuration getConf() {
+    return conf;
+  }
+
   protected String [] getFieldNames() {
     return fieldNames;
   }
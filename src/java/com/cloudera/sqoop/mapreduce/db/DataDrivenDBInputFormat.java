@@ -32,6 +32,7 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -63,6 +64,36 @@ public class DataDrivenDBInputFormat<T extends DBWritable>
    */
   public static final String SUBSTITUTE_TOKEN = "$CONDITIONS";
 
+  /**
+   * How to choose the boundaries between splits. By default
+   * (SPLIT_STRATEGY_RANGE), the range between the minimum and maximum
+   * values is divided into equal-width intervals.
+   */
+  public static final String SPLIT_STRATEGY_KEY = "sqoop.db.split.strategy";
+
+  /** Split the column's value range into equal-width intervals. */
+  public static final String SPLIT_STRATEGY_RANGE = "range";
+
+  /**
+   * Count the rows across the column's value range, and choose intervals
+   * holding equal numbers of rows. Only used for integral columns of
+   * table-based imports; others use equal-width intervals.
+   */
+  public static final String SPLIT_STRATEGY_HISTOGRAM = "histogram";
+
+  /**
+   * If greater than one, the split column is divided into this many ranges
+   * per map task. The ranges are put in a work queue in DYNAMIC_QUEUE_DIR_KEY
+   * and each task keeps claiming ranges until the queue is empty, so that
+   * faster tasks read more of the table.
+   */
+  public static final String DYNAMIC_RANGES_PER_TASK_KEY =
+      "sqoop.db.split.dynamic.ranges.per.task";
+
+  /** Directory holding the work queue used for dynamic splits. */
+  public static final String DYNAMIC_QUEUE_DIR_KEY =
+      "sqoop.db.split.dynamic.queue.dir";
+
   /**
    * A InputSplit that spans a set of rows.
    */
@@ -121,6 +152,71 @@ public class DataDrivenDBInputFormat<T extends DBWritable>
     }
   }
 
+  /**
+   * An InputSplit that does not name a range itself, but tells the task
+   * which work queue to claim ranges from with a DynamicSplitQueue.
+   */
+  public static class DynamicDBInputSplit extends DataDrivenDBInputSplit {
+
+    private String queueDir;
+    private int taskIndex;
+    private int numTasks;
+    private int numRanges;
+
+    /**
+     * Default Constructor.
+     */
+    public DynamicDBInputSplit() {
+    }
+
+    /**
+     * Convenience Constructor.
+     * @param queueDir the directory holding the work queue.
+     * @param taskIndex the index of the task that reads this split.
+     * @param numTasks the number of tasks sharing the queue.
+     * @param numRanges the number of ranges in the queue.
+     */
+    public DynamicDBInputSplit(final String queueDir, final int taskIndex,
+        final int numTasks, final int numRanges) {
+      // The bound clauses are never used to read data; the reader takes
+      // them from each range claimed from the queue.
+      super("1=1", "1=1");
+      this.queueDir = queueDir;
+      this.taskIndex = taskIndex;
+      this.numTasks = numTasks;
+      this.numRanges = numRanges;
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void readFields(DataInput input) throws IOException {
+      super.readFields(input);
+      this.queueDir = Text.readString(input);
+      this.taskIndex = input.readInt();
+      this.numTasks = input.readInt();
+      this.numRanges = input.readInt();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void write(DataOutput output) throws IOException {
+      super.write(output);
+      Text.writeString(output, this.queueDir);
+      output.writeInt(this.taskIndex);
+      output.writeInt(this.numTasks);
+      output.writeInt(this.numRanges);
+    }
+
+    /**
+     * @return a DynamicSplitQueue that claims ranges on behalf of the
+     * task reading this split.
+     */
+    public DynamicSplitQueue getQueue(Configuration conf) throws IOException {
+      return new DynamicSplitQueue(conf, new Path(queueDir), taskIndex,
+          numTasks, numRanges);
+    }
+  }
+
   /**
    * @return the DBSplitter implementation to use to divide the table/query
    * into InputSplits.
@@ -163,6 +259,44 @@ public class DataDrivenDBInputFormat<T extends DBWritable>
     }
   }
 
+  /**
+   * @return a HistogramSplitter which falls back to 'splitter', if the
+   * histogram strategy can be used for a column of the given type;
+   * otherwise, 'splitter' itself.
+   */
+  protected DBSplitter getHistogramSplitter(int sqlDataType, int scale,
+      Connection connection, DBSplitter splitter) {
+    String tableName = getDBConf().getInputTableName();
+    if (null == tableName || null != getDBConf().getInputBoundingQuery()) {
+      LOG.info("Histogram splits require a table import; "
+          + "using equal-width splits.");
+      return splitter;
+    }
+
+    switch (sqlDataType) {
+    case Types.INTEGER:
+    case Types.TINYINT:
+    case Types.SMALLINT:
+    case Types.BIGINT:
+      break;
+
+    case Types.NUMERIC:
+    case Types.DECIMAL:
+      if (scale == 0) {
+        break;
+      }
+      // Fractional values; fall through.
+
+    default:
+      LOG.info("Histogram splits require an integer split column; "
+          + "using equal-width splits.");
+      return splitter;
+    }
+
+    return new HistogramSplitter(connection, tableName,
+        getDBConf().getInputConditions(), splitter);
+  }
+
   @Override
   /** {@inheritDoc} */
   public List<InputSplit> getSplits(JobContext job) throws IOException {
@@ -195,8 +329,28 @@ public class DataDrivenDBInputFormat<T extends DBWritable>
         throw new IOException("Unknown SQL data type: " + sqlDataType);
       }
 
-      return splitter.split(job.getConfiguration(), results,
-          getDBConf().getInputOrderBy());
+      String strategy = job.getConfiguration().get(SPLIT_STRATEGY_KEY,
+          SPLIT_STRATEGY_RANGE);
+      if (SPLIT_STRATEGY_HISTOGRAM.equals(strategy)) {
+        splitter = getHistogramSplitter(sqlDataType,
+            results.getMetaData().getScale(1), connection, splitter);
+      }
+
+      int rangesPerTask = job.getConfiguration().getInt(
+          DYNAMIC_RANGES_PER_TASK_KEY, 0);
+      if (rangesPerTask <= 1) {
+        return splitter.split(job.getConfiguration(), results,
+            getDBConf().getInputOrderBy());
+      }
+
+      // Over-partition the column, and hand the ranges out dynamically.
+      Job rangeJob = new Job(new Configuration(job.getConfiguration()));
+      HadoopShim.get().setJobNumMaps(rangeJob,
+          targetNumTasks * rangesPerTask);
+      List<InputSplit> ranges = splitter.split(rangeJob.getConfiguration(),
+          results, getDBConf().getInputOrderBy());
+      return getDynamicSplits(job.getConfiguration(), ranges,
+          targetNumTasks);
     } catch (SQLException e) {
       throw new IOException(e.getMessage());
     } finally {
@@ -227,6 +381,42 @@ public class DataDrivenDBInputFormat<T extends DBWritable>
     }
   }
 
+  /**
+   * Write a set of ranges into a work queue, and return the splits for
+   * the tasks which will share it.
+   */
+  protected List<InputSplit> getDynamicSplits(Configuration conf,
+      List<InputSplit> ranges, int targetNumTasks) throws IOException {
+    if (ranges.size() <= targetNumTasks) {
+      // Nothing to balance; every task gets a single range.
+      return ranges;
+    }
+
+    String queueDir = conf.get(DYNAMIC_QUEUE_DIR_KEY);
+    if (null == queueDir) {
+      throw new IOException("Dynamic splits require "
+          + DYNAMIC_QUEUE_DIR_KEY + " to be set");
+    }
+
+    List<DataDrivenDBInputSplit> queued =
+        new ArrayList<DataDrivenDBInputSplit>();
+    for (InputSplit range : ranges) {
+      queued.add((DataDrivenDBInputSplit) range);
+    }
+
+    DynamicSplitQueue.create(conf, new Path(queueDir), queued);
+    LOG.info("Queued " + queued.size() + " split ranges for "
+        + targetNumTasks + " tasks in " + queueDir);
+
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    for (int i = 0; i < targetNumTasks; i++) {
+      splits.add(new DynamicDBInputSplit(queueDir, i, targetNumTasks,
+          queued.size()));
+    }
+
+    return splits;
+  }
+
   /**
    * @return a query which returns the minimum and maximum values for
    * the order-by column.
@@ -41,6 +41,17 @@ public class DataDrivenDBRecordReader<T extends DBWritable>
 
   private String dbProductName; // database manufacturer string.
 
+  // Work queue to claim ranges from, if reading a DynamicDBInputSplit.
+  private DynamicSplitQueue rangeQueue;
+
+  // The range currently being read.
+  private DataDrivenDBInputFormat.DataDrivenDBInputSplit currentRange;
+
+  // Set once the work queue has been drained.
+  private boolean queueDone;
+
+  private int numRangesRead;
+
   // CHECKSTYLE:OFF
   // TODO(aaron): Refactor constructor to use fewer arguments.
   /**
@@ -53,6 +64,10 @@ public class DataDrivenDBRecordReader<T extends DBWritable>
       String dbProduct) throws SQLException {
     super(split, inputClass, conf, conn, dbConfig, cond, fields, table);
     this.dbProductName = dbProduct;
+    if (!(split instanceof DataDrivenDBInputFormat.DynamicDBInputSplit)) {
+      this.currentRange = (DataDrivenDBInputFormat.DataDrivenDBInputSplit)
+          split;
+    }
   }
   // CHECKSTYLE:ON
 
@@ -62,12 +77,71 @@ public class DataDrivenDBRecordReader<T extends DBWritable>
     return isDone() ? 1.0f : 0.0f;
   }
 
+  @Override
+  /** {@inheritDoc} */
+  protected boolean isDone() {
+    if (getSplit() instanceof DataDrivenDBInputFormat.DynamicDBInputSplit) {
+      return queueDone;
+    }
+
+    return super.isDone();
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public boolean nextKeyValue() throws IOException {
+    if (!(getSplit() instanceof DataDrivenDBInputFormat.DynamicDBInputSplit)) {
+      return super.nextKeyValue();
+    }
+
+    // Read ranges from the work queue one after another, running a new
+    // query each time the previous range is exhausted.
+    while (!queueDone) {
+      if (null == currentRange) {
+        if (null == rangeQueue) {
+          rangeQueue = ((DataDrivenDBInputFormat.DynamicDBInputSplit)
+              getSplit()).getQueue(getConf());
+        }
+
+        currentRange = rangeQueue.next();
+        if (null == currentRange) {
+          LOG.info("Split queue drained after reading " + numRangesRead
+              + " ranges");
+          queueDone = true;
+          break;
+        }
+
+        numRangesRead++;
+      }
+
+      if (super.nextKeyValue()) {
+        return true;
+      }
+
+      try {
+        resetQuery();
+      } catch (SQLException sqlE) {
+        throw new IOException("SQLException closing range query", sqlE);
+      }
+      currentRange = null;
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the range of the split column being read.
+   */
+  protected DataDrivenDBInputFormat.DataDrivenDBInputSplit getCurrentRange() {
+    return currentRange;
+  }
+
   /** Returns the query for selecting the records,
    * subclasses can override this for custom behaviour.*/
   protected String getSelectQuery() {
     StringBuilder query = new StringBuilder();
     DataDrivenDBInputFormat.DataDrivenDBInputSplit dataSplit =
-        (DataDrivenDBInputFormat.DataDrivenDBInputSplit) getSplit();
+        getCurrentRange();
     DBConfiguration dbConf = getDBConf();
     String [] fieldNames = getFieldNames();
     String tableName = getTableName();
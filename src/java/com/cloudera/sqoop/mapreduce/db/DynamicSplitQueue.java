@@ -0,0 +1,226 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce.db;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+
+/**
+ * A work queue of split ranges shared by the map tasks of a data-driven
+ * import, kept as a directory in the job's FileSystem.
+ *
+ * Each range is stored in its own file under 'pending/'. A task claims a
+ * range by renaming its file into 'claimed/' with a name that records the
+ * task index; since rename is atomic, each range is claimed exactly once.
+ * Range i is "owned" by task (i % numTasks). A task first works through
+ * the ranges it owns, then steals whatever is left in 'pending/', starting
+ * with the ranges other tasks would reach last.
+ *
+ * If a task attempt fails, the next attempt of the same task reads back
+ * every range its earlier attempts claimed, since their output was thrown
+ * away. This requires that map tasks are not run speculatively.
+ */
+public class DynamicSplitQueue {
+
+  public static final Log LOG = LogFactory.getLog(
+      DynamicSplitQueue.class.getName());
+
+  private static final String PENDING_DIR = "pending";
+  private static final String CLAIMED_DIR = "claimed";
+  private static final String RANGE_PREFIX = "range-";
+
+  private final FileSystem fs;
+  private final Path pendingDir;
+  private final Path claimedDir;
+  private final int taskIndex;
+  private final int numTasks;
+  private final int numRanges;
+
+  // Index of the next owned range this task should try to claim.
+  private int nextOwned;
+
+  // Ranges claimed by earlier attempts of this task, still to be re-read.
+  private List<Path> reclaimed;
+
+  public DynamicSplitQueue(Configuration conf, Path queueDir, int taskIndex,
+      int numTasks, int numRanges) throws IOException {
+    this.fs = queueDir.getFileSystem(conf);
+    this.pendingDir = new Path(queueDir, PENDING_DIR);
+    this.claimedDir = new Path(queueDir, CLAIMED_DIR);
+    this.taskIndex = taskIndex;
+    this.numTasks = numTasks;
+    this.numRanges = numRanges;
+    this.nextOwned = taskIndex;
+  }
+
+  /**
+   * Write a set of ranges into a new queue directory.
+   * @param conf the job configuration.
+   * @param queueDir the directory to create; it must not already exist.
+   * @param ranges the ranges to distribute among the tasks.
+   */
+  public static void create(Configuration conf, Path queueDir,
+      List<DataDrivenDBInputFormat.DataDrivenDBInputSplit> ranges)
+      throws IOException {
+    FileSystem fs = queueDir.getFileSystem(conf);
+    if (fs.exists(queueDir)) {
+      throw new IOException("Split queue directory " + queueDir
+          + " already exists");
+    }
+
+    Path pendingDir = new Path(queueDir, PENDING_DIR);
+    if (!fs.mkdirs(pendingDir)
+        || !fs.mkdirs(new Path(queueDir, CLAIMED_DIR))) {
+      throw new IOException("Could not create split queue in " + queueDir);
+    }
+
+    for (int i = 0; i < ranges.size(); i++) {
+      FSDataOutputStream out = fs.create(new Path(pendingDir,
+          getRangeName(i)), false);
+      try {
+        ranges.get(i).write(out);
+      } finally {
+        out.close();
+      }
+    }
+
+    LOG.debug("Wrote " + ranges.size() + " split ranges to " + queueDir);
+  }
+
+  /**
+   * Claim the next range for this task.
+   * @return the range to read, or null if the queue has been drained.
+   */
+  public DataDrivenDBInputFormat.DataDrivenDBInputSplit next()
+      throws IOException {
+    if (null == reclaimed) {
+      reclaimed = listReclaimed();
+    }
+
+    if (!reclaimed.isEmpty()) {
+      Path range = reclaimed.remove(0);
+      LOG.info("Re-reading range " + range.getName()
+          + " claimed by an earlier attempt");
+      return readRange(range);
+    }
+
+    while (nextOwned < numRanges) {
+      int rangeIdx = nextOwned;
+      nextOwned += numTasks;
+      Path claimed = claim(getRangeName(rangeIdx));
+      if (null != claimed) {
+        return readRange(claimed);
+      }
+    }
+
+    // Our own ranges are done; steal from the other tasks.
+    while (true) {
+      FileStatus [] pending = fs.listStatus(pendingDir);
+      if (null == pending || pending.length == 0) {
+        return null;
+      }
+
+      List<Integer> candidates = new ArrayList<Integer>();
+      for (FileStatus stat : pending) {
+        String name = stat.getPath().getName();
+        if (name.startsWith(RANGE_PREFIX)) {
+          candidates.add(Integer.valueOf(
+              name.substring(RANGE_PREFIX.length())));
+        }
+      }
+
+      // The highest indices are the ones their owners would get to last.
+      Collections.sort(candidates, Collections.reverseOrder());
+      for (int rangeIdx : candidates) {
+        Path claimed = claim(getRangeName(rangeIdx));
+        if (null != claimed) {
+          LOG.info("Took over range " + rangeIdx + " from task "
+              + (rangeIdx % numTasks));
+          return readRange(claimed);
+        }
+      }
+    }
+  }
+
+  /**
+   * Try to move a range from the pending directory into our claimed set.
+   * @return the new path of the range, or null if another task got it.
+   */
+  private Path claim(String rangeName) throws IOException {
+    Path src = new Path(pendingDir, rangeName);
+    Path dst = new Path(claimedDir, getClaimPrefix() + rangeName);
+    if (fs.rename(src, dst)) {
+      return dst;
+    }
+
+    return null;
+  }
+
+  private List<Path> listReclaimed() throws IOException {
+    final String prefix = getClaimPrefix();
+    FileStatus [] stats = fs.listStatus(claimedDir, new PathFilter() {
+      public boolean accept(Path p) {
+        return p.getName().startsWith(prefix);
+      }
+    });
+
+    List<Path> out = new ArrayList<Path>();
+    if (null != stats) {
+      for (FileStatus stat : stats) {
+        out.add(stat.getPath());
+      }
+    }
+
+    return out;
+  }
+
+  private DataDrivenDBInputFormat.DataDrivenDBInputSplit readRange(Path p)
+      throws IOException {
+    DataDrivenDBInputFormat.DataDrivenDBInputSplit range =
+        new DataDrivenDBInputFormat.DataDrivenDBInputSplit();
+    FSDataInputStream in = fs.open(p);
+    try {
+      range.readFields(in);
+    } finally {
+      in.close();
+    }
+
+    return range;
+  }
+
+  private String getClaimPrefix() {
+    return "task-" + taskIndex + "-";
+  }
+
+  private static String getRangeName(int rangeIdx) {
+    return RANGE_PREFIX + rangeIdx;
+  }
+}
@@ -0,0 +1,304 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce.db;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import com.cloudera.sqoop.shims.HadoopShim;
+
+/**
+ * Implement DBSplitter over integral values, producing splits which hold
+ * roughly equal numbers of rows rather than equal-width value ranges.
+ *
+ * The range between the minimum and maximum values is divided into many
+ * narrow buckets, and the rows in each bucket are counted with a single
+ * GROUP BY query. Buckets holding more than a split's share of the rows
+ * are counted again at a finer width. Split boundaries are then placed
+ * at bucket boundaries so that each split receives about the same number
+ * of rows. Empty ranges in the column's value space therefore do not
+ * produce empty splits, and densely-populated ranges are divided among
+ * several splits.
+ *
+ * If the bounding values do not fit in a long, the splits are generated
+ * by a fallback splitter instead.
+ */
+public class HistogramSplitter implements DBSplitter {
+
+  private static final Log LOG = LogFactory.getLog(
+      HistogramSplitter.class.getName());
+
+  /** Number of histogram buckets to count for each requested split. */
+  public static final String BUCKETS_PER_SPLIT_KEY =
+      "sqoop.db.split.histogram.buckets.per.split";
+
+  public static final int DEFAULT_BUCKETS_PER_SPLIT = 16;
+
+  // Number of times overfull buckets are counted again at a finer width.
+  // Each pass divides their width by numSplits * bucketsPerSplit.
+  private static final int MAX_REFINE_PASSES = 4;
+
+  private final Connection connection;
+  private final String tableName;
+  private final String conditions;
+  private final DBSplitter fallback;
+
+  /**
+   * A range of values [lo, hi] holding 'count' rows.
+   */
+  static class Bucket {
+    private final long lo;
+    private final long hi;
+    private final long count;
+
+    Bucket(long lo, long hi, long count) {
+      this.lo = lo;
+      this.hi = hi;
+      this.count = count;
+    }
+
+    long getLo() {
+      return lo;
+    }
+
+    long getHi() {
+      return hi;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
+
+  /**
+   * @param conn the connection to run histogram queries against.
+   * @param table the table to import.
+   * @param conds the WHERE clause conditions for the import, or null.
+   * @param fallback the splitter to use if the values are not integral.
+   */
+  public HistogramSplitter(Connection conn, String table, String conds,
+      DBSplitter fallback) {
+    this.connection = conn;
+    this.tableName = table;
+    this.conditions = conds;
+    this.fallback = fallback;
+  }
+
+  public List<InputSplit> split(Configuration conf, ResultSet results,
+      String colName) throws SQLException {
+
+    BigDecimal minVal = results.getBigDecimal(1);
+    BigDecimal maxVal = results.getBigDecimal(2);
+
+    int numSplits = HadoopShim.get().getConfNumMaps(conf);
+    if (numSplits < 1) {
+      numSplits = 1;
+    }
+
+    if (minVal == null && maxVal == null) {
+      // Range is null to null. Return a null split accordingly.
+      List<InputSplit> splits = new ArrayList<InputSplit>();
+      splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+          colName + " IS NULL", colName + " IS NULL"));
+      return splits;
+    }
+
+    if (!isLong(minVal) || !isLong(maxVal)
+        || maxVal.longValue() - minVal.longValue() < 0) {
+      LOG.info("Bounding values of " + colName + " are not integers in the "
+          + "range of a long; not using a histogram to split.");
+      return fallback.split(conf, results, colName);
+    }
+
+    long lo = minVal.longValue();
+    long hi = maxVal.longValue();
+    int bucketsPerSplit = conf.getInt(BUCKETS_PER_SPLIT_KEY,
+        DEFAULT_BUCKETS_PER_SPLIT);
+
+    int numBuckets = numSplits * Math.max(1, bucketsPerSplit);
+    List<Bucket> buckets = countRows(colName, lo, hi, numBuckets);
+    for (int pass = 0; pass < MAX_REFINE_PASSES; pass++) {
+      List<Bucket> refined = refine(colName, buckets, numSplits,
+          numBuckets);
+      if (null == refined) {
+        break;
+      }
+      buckets = refined;
+    }
+
+    List<Long> splitPoints = getSplitPoints(buckets, numSplits, lo);
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    for (int i = 0; i < splitPoints.size(); i++) {
+      String lowClause = colName + " >= " + splitPoints.get(i);
+      String highClause;
+      if (i == splitPoints.size() - 1) {
+        // This is the last one; use a closed interval.
+        highClause = colName + " <= " + hi;
+      } else {
+        highClause = colName + " < " + splitPoints.get(i + 1);
+      }
+      splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+          lowClause, highClause));
+    }
+
+    if (minVal == null || maxVal == null) {
+      // At least one extrema is null; add a null split.
+      splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+          colName + " IS NULL", colName + " IS NULL"));
+    }
+
+    return splits;
+  }
+
+  /**
+   * @return true if 'val' is an integer which fits in a long.
+   */
+  private static boolean isLong(BigDecimal val) {
+    if (null == val) {
+      return true; // Handled by the null split.
+    }
+
+    try {
+      val.longValueExact();
+      return true;
+    } catch (ArithmeticException ae) {
+      return false;
+    }
+  }
+
+  /**
+   * Count the rows with values in [lo, hi], in numBuckets equal-width
+   * buckets.
+   * @return the non-empty buckets, in order of their values.
+   */
+  protected List<Bucket> countRows(String colName, long lo, long hi,
+      int numBuckets) throws SQLException {
+
+    long width = (hi - lo) / numBuckets + 1;
+    String bucketExpr = "FLOOR((" + colName + " - (" + lo + ")) / "
+        + width + ")";
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("SELECT ").append(bucketExpr).append(", COUNT(*) FROM ");
+    sb.append(tableName);
+    sb.append(" WHERE ").append(colName).append(" >= ").append(lo);
+    sb.append(" AND ").append(colName).append(" <= ").append(hi);
+    if (null != conditions) {
+      sb.append(" AND ( ").append(conditions).append(" )");
+    }
+    sb.append(" GROUP BY ").append(bucketExpr);
+    sb.append(" ORDER BY ").append(bucketExpr);
+    String query = sb.toString();
+    LOG.debug("Histogram query: " + query);
+
+    List<Bucket> buckets = new ArrayList<Bucket>();
+    Statement stmt = connection.createStatement();
+    try {
+      ResultSet rs = stmt.executeQuery(query);
+      try {
+        while (rs.next()) {
+          long idx = rs.getLong(1);
+          long count = rs.getLong(2);
+          long bucketLo = lo + idx * width;
+          long bucketHi = Math.min(hi, bucketLo + width - 1);
+          buckets.add(new Bucket(bucketLo, bucketHi, count));
+        }
+      } finally {
+        rs.close();
+      }
+    } finally {
+      stmt.close();
+    }
+
+    return buckets;
+  }
+
+  /**
+   * Count the rows in each bucket holding more than a split's share of the
+   * rows again, at a finer width.
+   * @return the new list of buckets, or null if no bucket needed refining.
+   */
+  private List<Bucket> refine(String colName, List<Bucket> buckets,
+      int numSplits, int numBuckets) throws SQLException {
+    long target = getTotal(buckets) / numSplits;
+    boolean refined = false;
+    List<Bucket> out = new ArrayList<Bucket>();
+    for (Bucket b : buckets) {
+      if (b.getCount() > target && b.getHi() > b.getLo()) {
+        out.addAll(countRows(colName, b.getLo(), b.getHi(), numBuckets));
+        refined = true;
+      } else {
+        out.add(b);
+      }
+    }
+
+    return refined ? out : null;
+  }
+
+  private static long getTotal(List<Bucket> buckets) {
+    long total = 0;
+    for (Bucket b : buckets) {
+      total += b.getCount();
+    }
+    return total;
+  }
+
+  /**
+   * Choose the lower bounds of at most numSplits splits, so that the rows
+   * counted in 'buckets' are divided as evenly as bucket boundaries allow.
+   * @param buckets the non-empty buckets, in order.
+   * @param numSplits the number of splits requested.
+   * @param minVal the minimum value of the column; this is always the
+   * lower bound of the first split.
+   * @return the lower bound of each split, in increasing order.
+   */
+  static List<Long> getSplitPoints(List<Bucket> buckets, int numSplits,
+      long minVal) {
+    List<Long> points = new ArrayList<Long>();
+    points.add(minVal);
+
+    long total = getTotal(buckets);
+    long cumulative = 0;
+    int nextSplit = 1;
+    for (int i = 0; i < buckets.size() - 1; i++) {
+      cumulative += buckets.get(i).getCount();
+      // Start a new split once this one holds its share of the rows.
+      if (nextSplit < numSplits
+          && cumulative * numSplits >= total * nextSplit) {
+        points.add(buckets.get(i + 1).getLo());
+        while (nextSplit < numSplits
+            && cumulative * numSplits >= total * nextSplit) {
+          nextSplit++;
+        }
+      }
+    }
+
+    return points;
+  }
+}
@@ -18,6 +18,7 @@
 
 package com.cloudera.sqoop.orm;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.BytesWritable;
 import com.cloudera.sqoop.SqoopOptions;
 import com.cloudera.sqoop.manager.ConnManager;
@@ -26,6 +27,8 @@ import com.cloudera.sqoop.lib.BigDecimalSerializer;
 import com.cloudera.sqoop.lib.BooleanParser;
 import com.cloudera.sqoop.lib.DelimiterSet;
 import com.cloudera.sqoop.lib.FieldFormatter;
+import com.cloudera.sqoop.lib.FieldParser;
+import com.cloudera.sqoop.lib.GenericSqoopRecord;
 import com.cloudera.sqoop.lib.JdbcWritableBridge;
 import com.cloudera.sqoop.lib.LargeObjectLoader;
 import com.cloudera.sqoop.lib.LobSerializer;
@@ -40,7 +43,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -108,7 +113,7 @@ public class ClassWriter {
    * This number is retrieved by the SqoopRecord.getClassFormatVersion()
    * method.
    */
-  public static final int CLASS_WRITER_VERSION = 3;
+  public static final int CLASS_WRITER_VERSION = 4;
 
   private SqoopOptions options;
   private ConnManager connManager;
@@ -643,6 +648,53 @@ public class ClassWriter {
     sb.append("  }\n\n");
   }
 
+  /**
+   * Generate the copyTo() method, which copies this record's fields into
+   * another instance of the same class. Immutable field values are
+   * shared; mutable ones are copied, as in clone().
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateCopyToMethod(Map<String, Integer> columnTypes,
+      String [] colNames, StringBuilder sb) {
+
+    TableClassName tableNameInfo = new TableClassName(options);
+    String className = tableNameInfo.getShortClassForTable(tableName);
+
+    sb.append("  public boolean copyTo(SqoopRecord __other)\n");
+    sb.append("      throws CloneNotSupportedException {\n");
+    sb.append("    if (null == __other\n");
+    sb.append("        || __other.getClass() != getClass()) {\n");
+    sb.append("      return false;\n");
+    sb.append("    }\n");
+    sb.append("    " + className + " o = (" + className + ") __other;\n");
+
+    for (String colName : colNames) {
+      int sqlType = columnTypes.get(colName);
+      String javaType = connManager.toJavaType(sqlType);
+      if (null == javaType) {
+        continue;
+      } else if (javaType.equals("java.sql.Date")
+          || javaType.equals("java.sql.Time")
+          || javaType.equals("java.sql.Timestamp")
+          || javaType.equals(ClobRef.class.getName())
+          || javaType.equals(BlobRef.class.getName())) {
+        sb.append("    o." + colName + " = null == " + colName + " ? null : ("
+            + javaType + ") " + colName + ".clone();\n");
+      } else if (javaType.equals(BytesWritable.class.getName())) {
+        sb.append("    o." + colName + " = null == " + colName
+            + " ? null : new BytesWritable(Arrays.copyOf("
+            + colName + ".getBytes(), " + colName + ".getLength()));\n");
+      } else {
+        sb.append("    o." + colName + " = " + colName + ";\n");
+      }
+    }
+
+    sb.append("    return true;\n");
+    sb.append("  }\n\n");
+  }
+
   /**
    * Generate the getFieldMap() method.
    * @param columnTypes - mapping from column names to sql types
@@ -662,6 +714,22 @@ public class ClassWriter {
     sb.append("  }\n\n");
   }
 
+  /**
+   * Generate the getFieldValue() method.
+   * @param colNames - ordered list of column names for table.
+   * @param sb - StringBuilder to append code to
+   */
+  private void generateGetFieldValue(String [] colNames, StringBuilder sb) {
+    sb.append("  public Object getFieldValue(String __fieldName) {\n");
+    for (String colName : colNames) {
+      sb.append("    if (\"" + colName + "\".equals(__fieldName)) {\n");
+      sb.append("      return this." + colName + ";\n");
+      sb.append("    }\n");
+    }
+    sb.append("    return null;\n");
+    sb.append("  }\n\n");
+  }
+
   /**
    * Generate the toString() method.
    * @param columnTypes - mapping from column names to sql types
@@ -682,8 +750,27 @@ public class ClassWriter {
     sb.append("  }\n");
 
     // This toString() variant, though, accepts delimiters as arguments.
+    // It formats the record via appendTo().
     sb.append("  public String toString(DelimiterSet delimiters) {\n");
     sb.append("    StringBuilder __sb = new StringBuilder();\n");
+    sb.append("    try {\n");
+    sb.append("      appendTo(__sb, delimiters);\n");
+    sb.append("    } catch (IOException ioe) {\n");
+    sb.append("      // StringBuilder never throws IOException.\n");
+    sb.append("      throw new RuntimeException(ioe);\n");
+    sb.append("    }\n");
+    sb.append("    return __sb.toString();\n");
+    sb.append("  }\n");
+
+    // appendTo() writes each escaped field directly to an Appendable
+    // (e.g., a Utf8Buffer) without creating intermediate Strings.
+    sb.append("  public void appendTo(Appendable __out) "
+        + "throws IOException {\n");
+    sb.append("    appendTo(__out, __outputDelimiters);\n");
+    sb.append("  }\n");
+
+    sb.append("  public void appendTo(Appendable __out, "
+        + "DelimiterSet delimiters)\n      throws IOException {\n");
     sb.append("    char fieldDelim = delimiters.getFieldsTerminatedBy();\n");
 
     boolean first = true;
@@ -697,23 +784,34 @@ public class ClassWriter {
 
       if (!first) {
         // print inter-field tokens.
-        sb.append("    __sb.append(fieldDelim);\n");
+        sb.append("    __out.append(fieldDelim);\n");
       }
 
       first = false;
 
+      if (javaType.equals("Integer") || javaType.equals("Long")) {
+        // Format integral values without creating a String.
+        sb.append("    if (null == " + col + ") {\n");
+        sb.append("      FieldFormatter.appendEscapedAndEnclosed(\"null\", "
+            + "delimiters, __out);\n");
+        sb.append("    } else {\n");
+        sb.append("      FieldFormatter.appendEscapedAndEnclosed(" + col
+            + ".longValue(), delimiters, __out);\n");
+        sb.append("    }\n");
+        continue;
+      }
+
       String stringExpr = stringifierForType(javaType, col);
       if (null == stringExpr) {
         LOG.error("No toString method for Java type " + javaType);
         continue;
       }
 
-      sb.append("    __sb.append(FieldFormatter.escapeAndEnclose(" + stringExpr 
-          + ", delimiters));\n");
+      sb.append("    FieldFormatter.appendEscapedAndEnclosed(" + stringExpr
+          + ", delimiters, __out);\n");
     }
 
-    sb.append("    __sb.append(delimiters.getLinesTerminatedBy());\n");
-    sb.append("    return __sb.toString();\n");
+    sb.append("    __out.append(delimiters.getLinesTerminatedBy());\n");
     sb.append("  }\n");
   }
 
@@ -735,6 +833,22 @@ public class ClassWriter {
     sb.append("  }\n\n");
   }
 
+  /**
+   * Writes out the parse(Text) method. Rather than building a list of
+   * Strings, this has the parser split the UTF-8 bytes of the record
+   * into a reusable buffer and decodes each field in place.
+   */
+  private void generateTextParseMethod(StringBuilder sb) {
+    sb.append("  public void parse(Text __record) "
+        + "throws RecordParser.ParseError {\n");
+    sb.append("    if (null == this.__parser) {\n");
+    sb.append("      this.__parser = new RecordParser(__inputDelimiters);\n");
+    sb.append("    }\n");
+    sb.append("    int __numFields = this.__parser.parseFields(__record);\n");
+    sb.append("    __loadFromFieldOffsets(__numFields);\n");
+    sb.append("  }\n\n");
+  }
+
   /**
    * Helper method for parseColumn(). Interpret the string 'null' as a null
    * for a particular column.
@@ -795,6 +909,69 @@ public class ClassWriter {
     sb.append("    }\n\n"); // the closing '{' based on code in parseNullVal();
   }
 
+  /**
+   * Helper method for generateParser(). Generates the code that loads one
+   * field of a specified name and type from a slice of the parser's field
+   * buffer, without creating an intermediate String where possible.
+   */
+  private void parseColumnFromOffsets(String colName, int colType,
+      int fieldNum, StringBuilder sb) {
+    // assume that we have __buf, __offsets, __start and __end vars, based
+    // on __loadFromFieldOffsets() code.
+    sb.append("    __start = __offsets[" + (2 * fieldNum) + "];\n");
+    sb.append("    __end = __offsets[" + (2 * fieldNum + 1) + "];\n");
+    String javaType = connManager.toJavaType(colType);
+    String slice = "(__buf, __start, __end)";
+
+    sb.append("    if (FieldParser.isNull" + slice + ") { this.");
+    sb.append(colName);
+    sb.append(" = null; } else {\n");
+    if (javaType.equals("String")) {
+      sb.append("      this." + colName + " = FieldParser.parseString"
+          + slice + ";\n");
+    } else if (javaType.equals("Integer")) {
+      sb.append("      this." + colName
+          + " = Integer.valueOf(FieldParser.parseInt" + slice + ");\n");
+    } else if (javaType.equals("Long")) {
+      sb.append("      this." + colName
+          + " = Long.valueOf(FieldParser.parseLong" + slice + ");\n");
+    } else if (javaType.equals("Float")) {
+      sb.append("      this." + colName
+          + " = Float.valueOf(FieldParser.parseFloat" + slice + ");\n");
+    } else if (javaType.equals("Double")) {
+      sb.append("      this." + colName
+          + " = Double.valueOf(FieldParser.parseDouble" + slice + ");\n");
+    } else if (javaType.equals("Boolean")) {
+      sb.append("      this." + colName
+          + " = Boolean.valueOf(FieldParser.parseBoolean" + slice + ");\n");
+    } else if (javaType.equals("java.sql.Date")) {
+      sb.append("      this." + colName
+          + " = java.sql.Date.valueOf(FieldParser.parseString"
+          + slice + ");\n");
+    } else if (javaType.equals("java.sql.Time")) {
+      sb.append("      this." + colName
+          + " = java.sql.Time.valueOf(FieldParser.parseString"
+          + slice + ");\n");
+    } else if (javaType.equals("java.sql.Timestamp")) {
+      sb.append("      this." + colName
+          + " = java.sql.Timestamp.valueOf(FieldParser.parseString"
+          + slice + ");\n");
+    } else if (javaType.equals("java.math.BigDecimal")) {
+      sb.append("      this." + colName + " = FieldParser.parseBigDecimal"
+          + slice + ";\n");
+    } else if (javaType.equals(ClobRef.class.getName())) {
+      sb.append("      this." + colName
+          + " = ClobRef.parse(FieldParser.parseString" + slice + ");\n");
+    } else if (javaType.equals(BlobRef.class.getName())) {
+      sb.append("      this." + colName
+          + " = BlobRef.parse(FieldParser.parseString" + slice + ");\n");
+    } else {
+      LOG.error("No parser available for Java type " + javaType);
+    }
+
+    sb.append("    }\n\n"); // the closing '{' based on the isNull() test.
+  }
+
   /**
    * Generate the parse() method.
    * @param columnTypes - mapping from column names to sql types
@@ -815,7 +992,7 @@ public class ClassWriter {
     sb.append("  private RecordParser __parser;\n"); 
 
     // Generate wrapper methods which will invoke the parser.
-    generateParseMethod("Text", sb);
+    generateTextParseMethod(sb);
     generateParseMethod("CharSequence", sb);
     generateParseMethod("byte []", sb);
     generateParseMethod("char []", sb);
@@ -833,6 +1010,25 @@ public class ClassWriter {
       parseColumn(colName, colType, sb);
     }
     sb.append("  }\n\n");
+
+    // parse(Text) instead uses __loadFromFieldOffsets() to decode the
+    // fields directly from the parser's buffer.
+    sb.append("  private void __loadFromFieldOffsets(int __numFields)\n");
+    sb.append("      throws RecordParser.ParseError {\n");
+    sb.append("    if (__numFields < " + colNames.length + ") {\n");
+    sb.append("      throw new RecordParser.ParseError(\"Expected "
+        + colNames.length + " fields but found \" + __numFields);\n");
+    sb.append("    }\n");
+    sb.append("    byte [] __buf = this.__parser.getFieldBuffer();\n");
+    sb.append("    int [] __offsets = this.__parser.getFieldOffsets();\n");
+    sb.append("    int __start;\n");
+    sb.append("    int __end;\n");
+    for (int i = 0; i < colNames.length; i++) {
+      String colName = colNames[i];
+      int colType = columnTypes.get(colName);
+      parseColumnFromOffsets(colName, colType, i, sb);
+    }
+    sb.append("  }\n\n");
   }
 
   /**
@@ -887,14 +1083,13 @@ public class ClassWriter {
 
 
   /**
-   * Generate the ORM code for the class.
+   * @return the mapping from column names to SQL types for the table or
+   * query being generated.
    */
-  public void generate() throws IOException {
-    Map<String, Integer> columnTypes;
-    
+  private Map<String, Integer> getColumnTypes() throws IOException {
     if (null != tableName) {
       // We're generating a class based on a table import.
-      columnTypes = connManager.getColumnTypes(tableName);
+      return connManager.getColumnTypes(tableName);
     } else {
       // This is based on an arbitrary query.
       String query = this.options.getSqlQuery();
@@ -903,9 +1098,16 @@ public class ClassWriter {
             + SqlManager.SUBSTITUTE_TOKEN + "' in WHERE clause.");
       }
 
-      columnTypes = connManager.getColumnTypesForQuery(query);
+      return connManager.getColumnTypesForQuery(query);
     }
+  }
 
+  /**
+   * @return the ordered list of column names to generate fields for.
+   * Aliases are added to columnTypes for any user-specified column names
+   * whose case differs from that reported by the database.
+   */
+  private String [] getColumnNames(Map<String, Integer> columnTypes) {
     String [] colNames = options.getColumns();
     if (null == colNames) {
       if (null != tableName) {
@@ -935,30 +1137,98 @@ public class ClassWriter {
       }
     }
 
-    // Translate all the column names into names that are safe to
-    // use as identifiers.
+    return colNames;
+  }
+
+  /**
+   * Translate all the column names into names that are safe to use as
+   * identifiers, and make sure the col-&gt;type mapping holds for the new
+   * identifier names too.
+   */
+  private String [] cleanColNames(String [] colNames,
+      Map<String, Integer> columnTypes) {
     String [] cleanedColNames = cleanColNames(colNames);
 
     for (int i = 0; i < colNames.length; i++) {
-      // Make sure the col->type mapping holds for the 
-      // new identifier name, too.
       String identifier = cleanedColNames[i];
       String col = colNames[i];
       columnTypes.put(identifier, columnTypes.get(col));
     }
 
-    // The db write() method may use column names in a different
-    // order. If this is set in the options, pull it out here and
-    // make sure we format the column names to identifiers in the same way
-    // as we do for the ordinary column list.
+    return cleanedColNames;
+  }
+
+  /**
+   * The db write() method may use column names in a different
+   * order. If this is set in the options, pull it out here and
+   * make sure we format the column names to identifiers in the same way
+   * as we do for the ordinary column list.
+   */
+  private String [] getDbWriteColNames(String [] cleanedColNames) {
     String [] dbWriteColNames = options.getDbOutputColumns();
-    String [] cleanedDbWriteColNames = null;
     if (null == dbWriteColNames) {
-      cleanedDbWriteColNames = cleanedColNames;
+      return cleanedColNames;
     } else {
-      cleanedDbWriteColNames = cleanColNames(dbWriteColNames);
+      return cleanColNames(dbWriteColNames);
+    }
+  }
+
+  /**
+   * Describe the table or query in a Configuration, so that a
+   * GenericSqoopRecord can stand in for the class generate() would write.
+   * @param conf the Configuration to store the record schema in.
+   * @return false if some column cannot be held by a GenericSqoopRecord,
+   * in which case conf is not modified and generate() must be used.
+   */
+  public boolean configureGenericRecord(Configuration conf)
+      throws IOException {
+    Map<String, Integer> columnTypes = getColumnTypes();
+    String [] colNames = getColumnNames(columnTypes);
+    String [] cleanedColNames = cleanColNames(colNames, columnTypes);
+    String [] cleanedDbWriteColNames = getDbWriteColNames(cleanedColNames);
+
+    int [] sqlTypes = new int[cleanedColNames.length];
+    String [] javaTypes = new String[cleanedColNames.length];
+    for (int i = 0; i < cleanedColNames.length; i++) {
+      Integer sqlType = columnTypes.get(cleanedColNames[i]);
+      String javaType = null == sqlType ? null
+          : connManager.toJavaType(sqlType);
+      if (null == javaType || !GenericSqoopRecord.isSupportedType(javaType)) {
+        LOG.info("Column " + colNames[i] + " has SQL type " + sqlType
+            + " which cannot be held in a generic record.");
+        return false;
+      }
+
+      sqlTypes[i] = sqlType;
+      javaTypes[i] = javaType;
+    }
+
+    List<String> fieldList = Arrays.asList(cleanedColNames);
+    int [] dbWriteOrder = new int[cleanedDbWriteColNames.length];
+    for (int i = 0; i < cleanedDbWriteColNames.length; i++) {
+      dbWriteOrder[i] = fieldList.indexOf(cleanedDbWriteColNames[i]);
+      if (dbWriteOrder[i] < 0) {
+        LOG.info("Column " + cleanedDbWriteColNames[i]
+            + " is not among the selected columns.");
+        return false;
+      }
     }
 
+    GenericSqoopRecord.configure(conf, cleanedColNames, sqlTypes, javaTypes,
+        dbWriteOrder, options.getInputDelimiters(),
+        options.getOutputDelimiters());
+    return true;
+  }
+
+  /**
+   * Generate the ORM code for the class.
+   */
+  public void generate() throws IOException {
+    Map<String, Integer> columnTypes = getColumnTypes();
+    String [] colNames = getColumnNames(columnTypes);
+    String [] cleanedColNames = cleanColNames(colNames, columnTypes);
+    String [] cleanedDbWriteColNames = getDbWriteColNames(cleanedColNames);
+
     if (LOG.isDebugEnabled()) {
       LOG.debug("selected columns:");
       for (String col : cleanedColNames) {
@@ -1072,6 +1342,7 @@ public class ClassWriter {
     sb.append("import " + JdbcWritableBridge.class.getCanonicalName() + ";\n");
     sb.append("import " + DelimiterSet.class.getCanonicalName() + ";\n");
     sb.append("import " + FieldFormatter.class.getCanonicalName() + ";\n");
+    sb.append("import " + FieldParser.class.getCanonicalName() + ";\n");
     sb.append("import " + RecordParser.class.getCanonicalName() + ";\n");
     sb.append("import " + BooleanParser.class.getCanonicalName() + ";\n");
     sb.append("import " + BlobRef.class.getCanonicalName() + ";\n");
@@ -1113,7 +1384,9 @@ public class ClassWriter {
     generateToString(columnTypes, colNames, sb);
     generateParser(columnTypes, colNames, sb);
     generateCloneMethod(columnTypes, colNames, sb);
+    generateCopyToMethod(columnTypes, colNames, sb);
     generateGetFieldMap(columnTypes, colNames, sb);
+    generateGetFieldValue(colNames, sb);
 
     // TODO(aaron): Generate hashCode(), compareTo(), equals() so it can be a
     // WritableComparable
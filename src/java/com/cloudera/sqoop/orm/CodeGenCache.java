@@ -0,0 +1,270 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.orm;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.VersionInfo;
+
+import com.cloudera.sqoop.SqoopVersion;
+
+/**
+ * A persistent, size-bounded cache of jars built by the code generator.
+ *
+ * Each jar is stored under a fingerprint of the generated source files,
+ * the ClassWriter version, and the Sqoop, Hadoop and Java versions used
+ * to build it. The generated source captures the class and package
+ * names, the column names and types and the delimiters, so two code
+ * generation runs with the same fingerprint would produce the same
+ * classes and the cached jar can be used instead of running javac.
+ *
+ * When the jars in the cache exceed the configured size, the least
+ * recently used ones are removed. Several processes may share a cache
+ * directory; entries are added by renaming a complete file into place.
+ */
+public class CodeGenCache {
+
+  public static final Log LOG = LogFactory.getLog(
+      CodeGenCache.class.getName());
+
+  /** Configuration key to enable or disable the codegen cache. */
+  public static final String CACHE_ENABLED_KEY = "sqoop.codegen.cache.enabled";
+
+  /** Configuration key specifying the directory holding the cache. */
+  public static final String CACHE_DIR_KEY = "sqoop.codegen.cache.dir";
+
+  /** Configuration key specifying the maximum size of the cache. */
+  public static final String CACHE_MAX_SIZE_KEY =
+      "sqoop.codegen.cache.max.size";
+
+  /** Default maximum size (in bytes) of all cached jars. */
+  public static final long DEFAULT_CACHE_MAX_SIZE = 64 * 1024 * 1024;
+
+  private static final String JAR_SUFFIX = ".jar";
+  private static final String TMP_PREFIX = ".tmp-";
+
+  private final boolean enabled;
+  private final File cacheDir;
+  private final long maxSize;
+
+  public CodeGenCache(Configuration conf) {
+    if (null == conf) {
+      // Nowhere to read our settings from; don't touch the disk.
+      this.enabled = false;
+      this.cacheDir = null;
+      this.maxSize = 0;
+      return;
+    }
+
+    this.enabled = conf.getBoolean(CACHE_ENABLED_KEY, true);
+    // -Dsqoop.codegen.cache.dir on the JVM command line (as the unit tests
+    // do) sets the default directory.
+    String dir = conf.get(CACHE_DIR_KEY, System.getProperty(CACHE_DIR_KEY));
+    if (null == dir) {
+      File sqoopDataDir = new File(System.getProperty("user.home"), ".sqoop");
+      this.cacheDir = new File(sqoopDataDir, "codegen-cache");
+    } else {
+      this.cacheDir = new File(dir);
+    }
+    this.maxSize = conf.getLong(CACHE_MAX_SIZE_KEY, DEFAULT_CACHE_MAX_SIZE);
+  }
+
+  /**
+   * @return true if generated jars should be looked up in and added to
+   * the cache.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Compute the fingerprint identifying the jar built from a set of
+   * generated source files.
+   * @param baseDir the directory the source file names are relative to.
+   * @param sourceNames the relative names of the source files.
+   * @return a hex string suitable for use as a file name.
+   */
+  public String getFingerprint(File baseDir, List<String> sourceNames)
+      throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IOException("Could not compute codegen fingerprint", nsae);
+    }
+
+    updateDigest(digest, "ClassWriter " + ClassWriter.CLASS_WRITER_VERSION);
+    updateDigest(digest, "Sqoop " + SqoopVersion.VERSION + " "
+        + SqoopVersion.GIT_HASH);
+    updateDigest(digest, "Hadoop " + VersionInfo.getVersion());
+    updateDigest(digest, "Java "
+        + System.getProperty("java.specification.version"));
+
+    byte [] buf = new byte[4096];
+    for (String sourceName : sourceNames) {
+      updateDigest(digest, sourceName);
+      InputStream is = new FileInputStream(new File(baseDir, sourceName));
+      try {
+        int len;
+        while ((len = is.read(buf)) != -1) {
+          digest.update(buf, 0, len);
+        }
+      } finally {
+        is.close();
+      }
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Add a length-prefixed string to the digest, so that consecutive
+   * strings cannot run together into the same byte sequence.
+   */
+  private static void updateDigest(MessageDigest digest, String str)
+      throws IOException {
+    byte [] bytes = str.getBytes("UTF-8");
+    digest.update((byte) (bytes.length >>> 24));
+    digest.update((byte) (bytes.length >>> 16));
+    digest.update((byte) (bytes.length >>> 8));
+    digest.update((byte) bytes.length);
+    digest.update(bytes);
+  }
+
+  private File getCacheFile(String fingerprint) {
+    return new File(cacheDir, fingerprint + JAR_SUFFIX);
+  }
+
+  /**
+   * Copy the cached jar for a fingerprint to the specified location.
+   * @return true if the jar was found in the cache and copied.
+   */
+  public boolean fetch(String fingerprint, File jarFile) {
+    File cached = getCacheFile(fingerprint);
+    if (!cached.exists()) {
+      LOG.info("Codegen cache miss for " + fingerprint);
+      return false;
+    }
+
+    try {
+      FileUtils.copyFile(cached, jarFile);
+    } catch (IOException ioe) {
+      // It may have been evicted by another process as we copied it.
+      LOG.warn("Could not read cached jar " + cached + ": " + ioe);
+      return false;
+    }
+
+    // Mark this entry as recently used.
+    if (!cached.setLastModified(System.currentTimeMillis())) {
+      LOG.debug("Could not update modification time of " + cached);
+    }
+
+    LOG.info("Codegen cache hit for " + fingerprint + "; using " + cached);
+    return true;
+  }
+
+  /**
+   * Add a jar to the cache under the specified fingerprint, then evict
+   * the least recently used jars if the cache has grown too large.
+   * Failures are logged but otherwise ignored.
+   */
+  public void store(String fingerprint, File jarFile) {
+    try {
+      if (!cacheDir.exists() && !cacheDir.mkdirs() && !cacheDir.exists()) {
+        LOG.warn("Could not create codegen cache directory " + cacheDir);
+        return;
+      }
+
+      File tmpFile = File.createTempFile(TMP_PREFIX, JAR_SUFFIX + ".tmp",
+          cacheDir);
+      FileUtils.copyFile(jarFile, tmpFile);
+      if (tmpFile.renameTo(getCacheFile(fingerprint))) {
+        LOG.debug("Added " + jarFile + " to codegen cache as " + fingerprint);
+      } else {
+        // Another process beat us to it.
+        if (!tmpFile.delete()) {
+          LOG.debug("Could not remove temporary file " + tmpFile);
+        }
+      }
+    } catch (IOException ioe) {
+      LOG.warn("Could not add " + jarFile + " to codegen cache: " + ioe);
+      return;
+    }
+
+    evict();
+  }
+
+  /**
+   * Remove the least recently used jars until the cache fits within
+   * its maximum size.
+   */
+  private void evict() {
+    File [] entries = cacheDir.listFiles(new FileFilter() {
+      public boolean accept(File f) {
+        return f.isFile() && f.getName().endsWith(JAR_SUFFIX);
+      }
+    });
+    if (null == entries) {
+      return;
+    }
+
+    long totalSize = 0;
+    for (File entry : entries) {
+      totalSize += entry.length();
+    }
+
+    if (totalSize <= maxSize) {
+      return;
+    }
+
+    Arrays.sort(entries, new Comparator<File>() {
+      public int compare(File a, File b) {
+        long aTime = a.lastModified();
+        long bTime = b.lastModified();
+        return aTime < bTime ? -1 : (aTime == bTime ? 0 : 1);
+      }
+    });
+
+    for (int i = 0; i < entries.length && totalSize > maxSize; i++) {
+      long len = entries[i].length();
+      if (entries[i].delete()) {
+        LOG.debug("Evicted " + entries[i] + " from codegen cache");
+        totalSize -= len;
+      }
+    }
+  }
+}
@@ -205,6 +205,18 @@ public class CompilationManager {
       throw new IOException("Error returned by javac");
     }
 
+    moveSourceFiles();
+  }
+
+  /**
+   * Move the .java files from the jar output dir to the code output dir.
+   */
+  private void moveSourceFiles() {
+    String jarOutDir = options.getJarOutputDir();
+    if (!jarOutDir.endsWith(File.separator)) {
+      jarOutDir = jarOutDir + File.separator;
+    }
+
     // Where we should move source files after compilation.
     String srcOutDir = new File(options.getCodeOutputDir()).getAbsolutePath();
     if (!srcOutDir.endsWith(File.separator)) {
@@ -230,6 +242,32 @@ public class CompilationManager {
     }
   }
 
+  /**
+   * Compile the .java files and write the jar, or, if the codegen cache
+   * holds a jar built from identical sources, copy that jar instead.
+   * Either way, the .java files are moved to the code output dir.
+   */
+  public void compileAndJar() throws IOException {
+    CodeGenCache cache = new CodeGenCache(options.getConf());
+    if (!cache.isEnabled()) {
+      compile();
+      jar();
+      return;
+    }
+
+    File jarFile = new File(getJarFilename());
+    String fingerprint = cache.getFingerprint(
+        new File(options.getJarOutputDir()), sources);
+    if (cache.fetch(fingerprint, jarFile)) {
+      moveSourceFiles();
+      return;
+    }
+
+    compile();
+    jar();
+    cache.store(fingerprint, jarFile);
+  }
+
   /**
    * @return the complete filename of the .jar file to generate. */
   public String getJarFilename() {
@@ -70,6 +70,8 @@ public abstract class BaseSqoopTool extends SqoopTool {
   public static final String TABLE_ARG = "table";
   public static final String COLUMNS_ARG = "columns";
   public static final String SPLIT_BY_ARG = "split-by";
+  public static final String SPLIT_STRATEGY_ARG = "split-strategy";
+  public static final String DYNAMIC_SPLITS_ARG = "dynamic-splits";
   public static final String WHERE_ARG = "where";
   public static final String HADOOP_HOME_ARG = "hadoop-home";
   public static final String HIVE_HOME_ARG = "hive-home";
@@ -84,6 +86,7 @@ public abstract class BaseSqoopTool extends SqoopTool {
   public static final String HIVE_OVERWRITE_ARG = "hive-overwrite";
   public static final String NUM_MAPPERS_ARG = "num-mappers";
   public static final String NUM_MAPPERS_SHORT_ARG = "m";
+  public static final String PARALLEL_TABLES_ARG = "parallel-tables";
   public static final String COMPRESS_ARG = "compress";
   public static final String COMPRESS_SHORT_ARG = "z";
   public static final String DIRECT_SPLIT_SIZE_ARG = "direct-split-size";
@@ -109,11 +112,13 @@ public abstract class BaseSqoopTool extends SqoopTool {
   public static final String PACKAGE_NAME_ARG = "package-name";
   public static final String CLASS_NAME_ARG = "class-name";
   public static final String JAR_FILE_NAME_ARG = "jar-file";
+  public static final String GENERIC_RECORDS_ARG = "generic-records";
   public static final String SQL_QUERY_ARG = "query";
   public static final String SQL_QUERY_SHORT_ARG = "e";
   public static final String VERBOSE_ARG = "verbose";
   public static final String HELP_ARG = "help";
   public static final String UPDATE_KEY_ARG = "update-key";
+  public static final String BATCH_ARG = "batch";
 
   // Arguments for incremental imports.
   public static final String INCREMENT_TYPE_ARG = "incremental";
@@ -125,6 +130,7 @@ public abstract class BaseSqoopTool extends SqoopTool {
   public static final String HBASE_COL_FAM_ARG = "column-family";
   public static final String HBASE_ROW_KEY_ARG = "hbase-row-key";
   public static final String HBASE_CREATE_TABLE_ARG = "hbase-create-table";
+  public static final String HBASE_BULK_LOAD_ARG = "hbase-bulkload";
 
 
   // Arguments for the saved job management system.
@@ -143,6 +149,7 @@ public abstract class BaseSqoopTool extends SqoopTool {
   public static final String NEW_DATASET_ARG = "new-data";
   public static final String OLD_DATASET_ARG = "onto";
   public static final String MERGE_KEY_ARG = "merge-key";
+  public static final String SORTED_MERGE_ARG = "sorted-merge";
 
   public BaseSqoopTool() {
   }
@@ -501,6 +508,11 @@ public abstract class BaseSqoopTool extends SqoopTool {
           .withLongOpt(CLASS_NAME_ARG)
           .create());
     }
+    codeGenOpts.addOption(OptionBuilder
+        .withDescription("Use generic records instead of compiling a "
+        + "class for imports and exports")
+        .withLongOpt(GENERIC_RECORDS_ARG)
+        .create());
     return codeGenOpts;
   }
 
@@ -526,6 +538,10 @@ public abstract class BaseSqoopTool extends SqoopTool {
         .withDescription("If specified, create missing HBase tables")
         .withLongOpt(HBASE_CREATE_TABLE_ARG)
         .create());
+    hbaseOpts.addOption(OptionBuilder
+        .withDescription("Write HFiles and bulk-load them into HBase")
+        .withLongOpt(HBASE_BULK_LOAD_ARG)
+        .create());
 
     return hbaseOpts;
   }
@@ -698,6 +714,10 @@ public abstract class BaseSqoopTool extends SqoopTool {
     if (!multiTable && in.hasOption(CLASS_NAME_ARG)) {
       out.setClassName(in.getOptionValue(CLASS_NAME_ARG));
     }
+
+    if (in.hasOption(GENERIC_RECORDS_ARG)) {
+      out.setUseGenericRecords(true);
+    }
   }
 
   protected void applyHBaseOptions(CommandLine in, SqoopOptions out) {
@@ -716,6 +736,10 @@ public abstract class BaseSqoopTool extends SqoopTool {
     if (in.hasOption(HBASE_CREATE_TABLE_ARG)) {
       out.setCreateHBaseTable(true);
     }
+
+    if (in.hasOption(HBASE_BULK_LOAD_ARG)) {
+      out.setHBaseBulkLoad(true);
+    }
   }
 
   protected void validateCommonOptions(SqoopOptions options)
@@ -774,6 +798,11 @@ public abstract class BaseSqoopTool extends SqoopTool {
           "Both --hbase-table and --column-family must be set together."
           + HELP_STR);
     }
+
+    if (options.isHBaseBulkLoad() && options.getHBaseTable() == null) {
+      throw new InvalidOptionsException(
+          "--hbase-bulkload requires --hbase-table." + HELP_STR);
+    }
   }
 
   /**
@@ -26,6 +26,7 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.util.StringUtils;
 
 import com.cloudera.sqoop.Sqoop;
@@ -34,6 +35,7 @@ import com.cloudera.sqoop.SqoopOptions.InvalidOptionsException;
 import com.cloudera.sqoop.cli.RelatedOptions;
 import com.cloudera.sqoop.cli.ToolOptions;
 import com.cloudera.sqoop.hive.HiveImport;
+import com.cloudera.sqoop.mapreduce.ExportJobBase;
 import com.cloudera.sqoop.orm.ClassWriter;
 import com.cloudera.sqoop.orm.CompilationManager;
 
@@ -60,8 +62,10 @@ public class CodeGenTool extends BaseSqoopTool {
   }
 
   /**
-   * Generate the .class and .jar files.
-   * @return the filename of the emitted jar file.
+   * Generate the .class and .jar files, unless an existing jar was
+   * specified or generic records can be used instead.
+   * @return the filename of the emitted jar file, or null if the job should
+   * use a GenericSqoopRecord described by the Configuration.
    * @throws IOException
    */
   public String generateORM(SqoopOptions options, String tableName)
@@ -75,13 +79,51 @@ public class CodeGenTool extends BaseSqoopTool {
       return existingJar;
     }
 
+    if (options.useGenericRecords()) {
+      if (usesSequenceFiles(options)) {
+        // SequenceFile readers could not recover the record schema.
+        LOG.warn("Generic records cannot be stored in SequenceFiles.");
+      } else {
+        ClassWriter classWriter = new ClassWriter(options, manager,
+            tableName, null);
+        if (classWriter.configureGenericRecord(options.getConf())) {
+          LOG.info("Using generic records; skipping code generation");
+          return null;
+        }
+      }
+
+      LOG.warn("Falling back to code generation");
+    }
+
+    return generateClass(options, tableName);
+  }
+
+  /**
+   * @return true if the job will write SequenceFiles or, for an export,
+   * read them.
+   */
+  private boolean usesSequenceFiles(SqoopOptions options) throws IOException {
+    String exportDir = options.getExportDir();
+    if (null != exportDir) {
+      return ExportJobBase.isSequenceFiles(options.getConf(),
+          new Path(exportDir));
+    }
+
+    return options.getFileLayout() == SqoopOptions.FileLayout.SequenceFile;
+  }
+
+  /**
+   * Generate, compile and jar the record class for a table.
+   * @return the filename of the emitted jar file.
+   */
+  private String generateClass(SqoopOptions options, String tableName)
+      throws IOException {
     LOG.info("Beginning code generation");
     CompilationManager compileMgr = new CompilationManager(options);
     ClassWriter classWriter = new ClassWriter(options, manager, tableName,
         compileMgr);
     classWriter.generate();
-    compileMgr.compile();
-    compileMgr.jar();
+    compileMgr.compileAndJar();
     String jarFile = compileMgr.getJarFilename();
     this.generatedJarFiles.add(jarFile);
     return jarFile;
@@ -96,7 +138,8 @@ public class CodeGenTool extends BaseSqoopTool {
     }
 
     try {
-      generateORM(options, options.getTableName());
+      // Always emit the class; generic records only apply to jobs.
+      generateClass(options, options.getTableName());
 
       // If the user has also specified Hive import code generation,
       // use a HiveImport to generate the DDL statements and write
@@ -160,6 +160,11 @@ public class ExportTool extends BaseSqoopTool {
         .withDescription("Update records by specified key column")
         .withLongOpt(UPDATE_KEY_ARG)
         .create());
+    exportOpts.addOption(OptionBuilder
+        .withDescription("Insert rows with JDBC batches of single-row "
+            + "statements")
+        .withLongOpt(BATCH_ARG)
+        .create());
 
     return exportOpts;
   }
@@ -231,6 +236,10 @@ public class ExportTool extends BaseSqoopTool {
         out.setUpdateKeyCol(in.getOptionValue(UPDATE_KEY_ARG));
       }
 
+      if (in.hasOption(BATCH_ARG)) {
+        out.setBatchMode(true);
+      }
+
       applyInputFormatOptions(in, out);
       applyOutputFormatOptions(in, out);
       applyOutputFormatOptions(in, out);
@@ -266,6 +275,12 @@ public class ExportTool extends BaseSqoopTool {
       throw new InvalidOptionsException("Jar cannot be specified with "
           + "--jar-file when export is running in update mode.");
     }
+
+    if (options.isBatchMode() && options.getUpdateKeyCol() != null) {
+      // UpdateOutputFormat always binds each record into a JDBC batch.
+      LOG.warn("--" + BATCH_ARG + " has no effect with --" + UPDATE_KEY_ARG
+          + "; updates are always executed as JDBC batches.");
+    }
   }
 
   @Override
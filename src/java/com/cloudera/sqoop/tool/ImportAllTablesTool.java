@@ -19,6 +19,22 @@
 package com.cloudera.sqoop.tool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -59,6 +75,8 @@ public class ImportAllTablesTool extends ImportTool {
         System.err.println("Could not retrieve tables list from server");
         LOG.error("manager.listTables() returned null");
         return 1;
+      } else if (options.getParallelTables() > 1) {
+        importTablesInParallel(options, tables, hiveImport);
       } else {
         for (String tableName : tables) {
           importTable(options, tableName, hiveImport);
@@ -86,5 +104,180 @@ public class ImportAllTablesTool extends ImportTool {
     return 0;
   }
 
-}
+  /**
+   * Import the tables using up to options.getParallelTables() concurrent
+   * MapReduce jobs, starting with the largest tables so that the long
+   * jobs do not all end up at the tail of the run.
+   *
+   * All imports share this tool's ConnManager. Code generation and other
+   * uses of the manager are serialized by a lock which each import gives
+   * up while its MapReduce job runs. If an import fails, no more are
+   * started; the running imports are allowed to finish and the first
+   * failure is then rethrown.
+   */
+  private void importTablesInParallel(SqoopOptions options,
+      String [] tables, final HiveImport hiveImport)
+      throws IOException, ImportException {
+    final Map<String, Long> sizes = getTableSizeEstimates(tables);
+    List<String> pending = new ArrayList<String>(sizes.keySet());
+    Collections.sort(pending, new Comparator<String>() {
+      public int compare(String a, String b) {
+        // Largest first; tables without an estimate go last.
+        return sizes.get(b).compareTo(sizes.get(a));
+      }
+    });
+
+    final ReentrantLock lock = new ReentrantLock();
+    setManagerLock(lock);
+
+    int numThreads = Math.min(options.getParallelTables(), tables.length);
+    LOG.info("Importing " + tables.length + " tables, " + numThreads
+        + " at a time");
+    ExecutorService pool = Executors.newFixedThreadPool(numThreads,
+        new ImportThreadFactory());
+    CompletionService<String> completions =
+        new ExecutorCompletionService<String>(pool);
+    ImportProgress progress = new ImportProgress(sizes);
+
+    Throwable failure = null;
+    int running = 0;
+    try {
+      while (running > 0 || (null == failure && !pending.isEmpty())) {
+        while (null == failure && running < numThreads
+            && !pending.isEmpty()) {
+          final String tableName = pending.remove(0);
+          // Each import gets its own options so that per-table settings
+          // (e.g., generic record schemas) do not collide.
+          final SqoopOptions tableOptions = (SqoopOptions) options.clone();
+          completions.submit(new Callable<String>() {
+            public String call() throws IOException, ImportException {
+              lock.lock();
+              try {
+                importTable(tableOptions, tableName, hiveImport);
+              } finally {
+                lock.unlock();
+              }
+              return tableName;
+            }
+          });
+          running++;
+        }
+
+        Future<String> done = completions.take();
+        running--;
+        try {
+          progress.tableDone(done.get(), running, pending.size());
+        } catch (ExecutionException ee) {
+          progress.tableFailed();
+          if (null == failure) {
+            failure = ee.getCause();
+            LOG.error("Table import failed; waiting for " + running
+                + " running imports to finish.");
+          }
+        }
+      }
+    } catch (InterruptedException ie) {
+      throw new IOException(ie);
+    } finally {
+      pool.shutdownNow();
+      setManagerLock(null);
+    }
+
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof ImportException) {
+      throw (ImportException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (null != failure) {
+      throw new IOException(failure);
+    }
+  }
+
+  /**
+   * @return a map from each table name to its estimated size in rows, or
+   * -1 where the database provides no estimate. Iteration order is the
+   * order of the tables argument.
+   */
+  private Map<String, Long> getTableSizeEstimates(String [] tables) {
+    Map<String, Long> sizes = new LinkedHashMap<String, Long>();
+    for (String tableName : tables) {
+      long size = manager.getTableSizeEstimate(tableName);
+      LOG.debug("Estimated size of " + tableName + ": " + size + " rows");
+      sizes.put(tableName, size);
+    }
+
+    return sizes;
+  }
+
+  /**
+   * Creates daemon threads named after this tool, so that a failed run
+   * does not hang on exit.
+   */
+  private static class ImportThreadFactory implements ThreadFactory {
+    private int count = 0;
 
+    public synchronized Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "import-all-tables-" + count++);
+      t.setDaemon(true);
+      return t;
+    }
+  }
+
+  /**
+   * Logs the progress of a parallel import after each table completes.
+   */
+  private static class ImportProgress {
+    private final Map<String, Long> sizes;
+    private final long startTime;
+    private final int numTables;
+    private long estimatedRows;
+    private long rowsDone;
+    private int tablesDone;
+    private int tablesFailed;
+
+    ImportProgress(Map<String, Long> tableSizes) {
+      this.sizes = new HashMap<String, Long>(tableSizes);
+      this.startTime = System.currentTimeMillis();
+      this.numTables = tableSizes.size();
+      for (long size : tableSizes.values()) {
+        if (size > 0) {
+          estimatedRows += size;
+        }
+      }
+    }
+
+    void tableFailed() {
+      tablesFailed++;
+    }
+
+    void tableDone(String tableName, int running, int pending) {
+      tablesDone++;
+      long size = sizes.get(tableName);
+      if (size > 0) {
+        rowsDone += size;
+      }
+
+      double elapsedSecs =
+          Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+      StringBuilder sb = new StringBuilder();
+      sb.append("Imported ").append(tableName).append(": ");
+      sb.append(tablesDone).append(" of ").append(numTables);
+      sb.append(" tables done, ").append(running).append(" running, ");
+      sb.append(pending).append(" waiting");
+      if (tablesFailed > 0) {
+        sb.append(", ").append(tablesFailed).append(" failed");
+      }
+
+      sb.append(String.format(" in %.1f seconds (%.2f tables/min",
+          elapsedSecs, tablesDone * 60 / elapsedSecs));
+      if (estimatedRows > 0) {
+        sb.append(String.format(", ~%.0f rows/sec; ~%d%% of estimated rows",
+            rowsDone / elapsedSecs, rowsDone * 100 / estimatedRows));
+      }
+
+      sb.append(")");
+      LOG.info(sb.toString());
+    }
+  }
+}
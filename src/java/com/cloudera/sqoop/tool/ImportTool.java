@@ -29,6 +29,7 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.OptionBuilder;
@@ -44,6 +45,7 @@ import com.cloudera.sqoop.cli.RelatedOptions;
 import com.cloudera.sqoop.cli.ToolOptions;
 import com.cloudera.sqoop.hive.HiveImport;
 import com.cloudera.sqoop.manager.ImportJobContext;
+import com.cloudera.sqoop.mapreduce.db.DataDrivenDBInputFormat;
 
 import com.cloudera.sqoop.metastore.JobData;
 import com.cloudera.sqoop.metastore.JobStorage;
@@ -61,6 +63,10 @@ public class ImportTool extends BaseSqoopTool {
 
   private CodeGenTool codeGenerator;
 
+  // If set, held while importTable() uses the ConnManager, so that several
+  // threads may import tables through one manager.
+  private ReentrantLock managerLock;
+
   // true if this is an all-tables import. Set by a subclass which
   // overrides the run() method of this tool (which can only do
   // a single table).
@@ -83,6 +89,14 @@ public class ImportTool extends BaseSqoopTool {
     return ret;
   }
 
+  /**
+   * Set a lock that callers of importTable() hold while they use the
+   * ConnManager. importTable() releases it while each MapReduce job runs.
+   */
+  protected void setManagerLock(ReentrantLock lock) {
+    this.managerLock = lock;
+  }
+
   /**
    * @return a list of jar files generated as part of this import process
    */
@@ -339,6 +353,7 @@ public class ImportTool extends BaseSqoopTool {
     // Do the actual import.
     ImportJobContext context = new ImportJobContext(tableName, jarFile,
         options, getOutputPath(options, tableName));
+    context.setManagerLock(managerLock);
     
     // If we're doing an incremental import, set up the
     // filtering conditions used to get the latest records.
@@ -489,6 +504,12 @@ public class ImportTool extends BaseSqoopTool {
           .withDescription("Import results of SQL 'statement'")
           .withLongOpt(SQL_QUERY_ARG)
           .create(SQL_QUERY_SHORT_ARG));
+    } else {
+      importOpts.addOption(OptionBuilder.withArgName("n")
+          .hasArg()
+          .withDescription("Import 'n' tables at a time")
+          .withLongOpt(PARALLEL_TABLES_ARG)
+          .create());
     }
 
     importOpts.addOption(OptionBuilder.withArgName("dir")
@@ -522,6 +543,18 @@ public class ImportTool extends BaseSqoopTool {
         .withDescription("Set the maximum size for an inline LOB")
         .withLongOpt(INLINE_LOB_LIMIT_ARG)
         .create());
+    importOpts.addOption(OptionBuilder.withArgName("strategy")
+        .hasArg()
+        .withDescription("How to divide the split-by column among tasks "
+        + "(range or histogram)")
+        .withLongOpt(SPLIT_STRATEGY_ARG)
+        .create());
+    importOpts.addOption(OptionBuilder.withArgName("n")
+        .hasArg()
+        .withDescription("Divide the split-by column into 'n' ranges per "
+        + "task, claimed by tasks from a shared queue")
+        .withLongOpt(DYNAMIC_SPLITS_ARG)
+        .create());
 
     return importOpts;
   }
@@ -682,6 +715,11 @@ public class ImportTool extends BaseSqoopTool {
         out.setNumMappers(Integer.parseInt(in.getOptionValue(NUM_MAPPERS_ARG)));
       }
 
+      if (allTables && in.hasOption(PARALLEL_TABLES_ARG)) {
+        out.setParallelTables(Integer.parseInt(
+            in.getOptionValue(PARALLEL_TABLES_ARG)));
+      }
+
       if (in.hasOption(COMPRESS_ARG)) {
         out.setUseCompression(true);
       }
@@ -696,6 +734,15 @@ public class ImportTool extends BaseSqoopTool {
             INLINE_LOB_LIMIT_ARG)));
       }
 
+      if (in.hasOption(SPLIT_STRATEGY_ARG)) {
+        out.setSplitStrategy(in.getOptionValue(SPLIT_STRATEGY_ARG));
+      }
+
+      if (in.hasOption(DYNAMIC_SPLITS_ARG)) {
+        out.setDynamicSplits(Integer.parseInt(in.getOptionValue(
+            DYNAMIC_SPLITS_ARG)));
+      }
+
       if (in.hasOption(JAR_FILE_NAME_ARG)) {
         out.setExistingJarName(in.getOptionValue(JAR_FILE_NAME_ARG));
       }
@@ -753,6 +800,22 @@ public class ImportTool extends BaseSqoopTool {
       throw new InvalidOptionsException(
           "When importing query results in parallel, you must specify --"
           + SPLIT_BY_ARG + "." + HELP_STR);
+    } else if (options.getSplitStrategy() != null
+        && !DataDrivenDBInputFormat.SPLIT_STRATEGY_RANGE.equals(
+            options.getSplitStrategy())
+        && !DataDrivenDBInputFormat.SPLIT_STRATEGY_HISTOGRAM.equals(
+            options.getSplitStrategy())) {
+      throw new InvalidOptionsException("Unknown --" + SPLIT_STRATEGY_ARG
+          + " '" + options.getSplitStrategy() + "'; expected '"
+          + DataDrivenDBInputFormat.SPLIT_STRATEGY_RANGE + "' or '"
+          + DataDrivenDBInputFormat.SPLIT_STRATEGY_HISTOGRAM + "'."
+          + HELP_STR);
+    } else if (options.getDynamicSplits() < 0) {
+      throw new InvalidOptionsException("--" + DYNAMIC_SPLITS_ARG
+          + " must not be negative." + HELP_STR);
+    } else if (options.getParallelTables() < 1) {
+      throw new InvalidOptionsException("--" + PARALLEL_TABLES_ARG
+          + " must be at least 1." + HELP_STR);
     }
   }
 
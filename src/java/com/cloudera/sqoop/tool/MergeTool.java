@@ -115,6 +115,12 @@ public class MergeTool extends BaseSqoopTool {
         .hasArg().withDescription("Key column to use to join results")
         .withLongOpt(MERGE_KEY_ARG)
         .create());
+
+    mergeOpts.addOption(OptionBuilder
+        .withDescription("Datasets are partitioned and sorted by the "
+        + "merge key; merge them without a reduce phase")
+        .withLongOpt(SORTED_MERGE_ARG)
+        .create());
   
     // Since the "common" options aren't used in the merge tool,
     // add these settings here.
@@ -181,6 +187,10 @@ public class MergeTool extends BaseSqoopTool {
     if (in.hasOption(MERGE_KEY_ARG)) {
       out.setMergeKeyCol(in.getOptionValue(MERGE_KEY_ARG));
     }
+
+    if (in.hasOption(SORTED_MERGE_ARG)) {
+      out.setSortedMerge(true);
+    }
   }
 
   /**
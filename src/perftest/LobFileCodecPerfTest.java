@@ -0,0 +1,177 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.*;
+import java.util.Random;
+import org.apache.hadoop.fs.*;
+import org.apache.hadoop.conf.*;
+import com.cloudera.sqoop.io.*;
+
+/**
+ * Compares LobFile compression codecs. For each kind of record data
+ * (compressible text, incompressible random bytes as in already-compressed
+ * images, and an even mix of the two), writes a file with each codec and
+ * reads it back, reporting write and read throughput in MB/s (of
+ * uncompressed data) and the compression ratio.
+ *
+ * Codecs which are not installed (e.g., lzo) are skipped. The
+ * "deflate/per-record" configuration chooses a codec for each record.
+ * Run with:
+ * src/scripts/run-perftest.sh LobFileCodecPerfTest [numRecords [recordLen]]
+ */
+public class LobFileCodecPerfTest {
+
+  private int numRecords = 200;
+  private int recordLen = 1024 * 1024;
+  private Path p = new Path("codec-perf.lob");
+
+  private static final String PER_RECORD_SUFFIX = "/per-record";
+
+  private static final String [] CODECS = {
+    CodecMap.NONE,
+    CodecMap.DEFLATE,
+    CodecMap.LZO,
+    CodecMap.DEFLATE + PER_RECORD_SUFFIX,
+  };
+
+  private static final String [] DATA_KINDS = { "text", "random", "mixed" };
+
+  public LobFileCodecPerfTest(String [] args) {
+    if (args.length > 0) {
+      numRecords = Integer.parseInt(args[0]);
+    }
+
+    if (args.length > 1) {
+      recordLen = Integer.parseInt(args[1]);
+    }
+  }
+
+  /**
+   * @return the body of record number 'i' for the given kind of data.
+   */
+  private byte [] makeRecord(String kind, int i) {
+    byte [] data = new byte[recordLen];
+    boolean random = "random".equals(kind)
+        || ("mixed".equals(kind) && i % 2 == 1);
+    if (random) {
+      new Random(i).nextBytes(data);
+    } else {
+      Random r = new Random(i);
+      byte [] word = new byte[8];
+      for (int pos = 0; pos < recordLen; pos++) {
+        if (pos % word.length == 0) {
+          // Draw words from a small vocabulary, like text.
+          for (int j = 0; j < word.length - 1; j++) {
+            word[j] = (byte) ('a' + r.nextInt(4));
+          }
+          word[word.length - 1] = ' ';
+        }
+        data[pos] = word[pos % word.length];
+      }
+    }
+
+    return data;
+  }
+
+  private double megabytesPerSec(long bytes, long millis) {
+    return (bytes / (1024.0 * 1024.0)) / (Math.max(1, millis) / 1000.0);
+  }
+
+  private void runCodec(String kind, byte [][] records, String codecSpec)
+      throws Exception {
+    Configuration conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+    String codec = codecSpec;
+    if (codecSpec.endsWith(PER_RECORD_SUFFIX)) {
+      codec = codecSpec.substring(0,
+          codecSpec.length() - PER_RECORD_SUFFIX.length());
+      conf.setBoolean(LobFile.PER_RECORD_CODEC_KEY, true);
+    }
+
+    try {
+      CodecMap.getCodec(codec, conf);
+    } catch (UnsupportedCodecException uce) {
+      System.out.println(kind + "\t" + codecSpec + "\t(not available)");
+      return;
+    }
+
+    long rawBytes = (long) numRecords * recordLen;
+    long start = System.currentTimeMillis();
+    LobFile.Writer w = LobFile.create(p, conf, false, codec);
+    for (int i = 0; i < numRecords; i++) {
+      OutputStream out = w.writeBlobRecord(recordLen);
+      out.write(records[i % records.length]);
+      out.close();
+    }
+    w.close();
+    long writeMillis = System.currentTimeMillis() - start;
+
+    FileSystem fs = p.getFileSystem(conf);
+    long fileLen = fs.getFileStatus(p).getLen();
+
+    start = System.currentTimeMillis();
+    LobFile.Reader r = LobFile.open(p, conf);
+    byte [] buf = new byte[64 * 1024];
+    long readBytes = 0;
+    while (r.next()) {
+      InputStream in = r.readBlobRecord();
+      while (true) {
+        int len = in.read(buf);
+        if (-1 == len) {
+          break;
+        }
+        readBytes += len;
+      }
+    }
+    r.close();
+    long readMillis = System.currentTimeMillis() - start;
+    fs.delete(p, false);
+
+    if (readBytes != rawBytes) {
+      throw new IOException("Read " + readBytes + " bytes; expected "
+          + rawBytes);
+    }
+
+    System.out.printf("%s\t%s\t%.1f\t%.1f\t%.3f%n", kind, codecSpec,
+        megabytesPerSec(rawBytes, writeMillis),
+        megabytesPerSec(rawBytes, readMillis),
+        (double) fileLen / rawBytes);
+  }
+
+  public void run() throws Exception {
+    System.out.println("Writing " + numRecords + " records of "
+        + recordLen + " bytes per run.");
+    System.out.println("data\tcodec\twrite MB/s\tread MB/s\tratio");
+    for (String kind : DATA_KINDS) {
+      // Use a few distinct record bodies, repeated.
+      byte [][] records = new byte[Math.min(numRecords, 4)][];
+      for (int i = 0; i < records.length; i++) {
+        records[i] = makeRecord(kind, i);
+      }
+
+      for (String codec : CODECS) {
+        runCodec(kind, records, codec);
+      }
+    }
+  }
+
+  public static void main(String [] args) throws Exception {
+    LobFileCodecPerfTest test = new LobFileCodecPerfTest(args);
+    test.run();
+  }
+}
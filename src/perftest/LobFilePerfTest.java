@@ -17,13 +17,17 @@
  */
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Random;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.conf.*;
 import com.cloudera.sqoop.io.*;
 
 /**
  * A simple benchmark to performance test LobFile reader/writer speed.
- * Writes out 10 GB of data to the local disk and then reads it back.
+ * Writes out 10 GB of data to the local disk and then reads it back,
+ * first sequentially and then in a random order, both through record
+ * streams and through Reader.readRecordBuffer().
  * Run with:
  * HADOOP_OPTS=-agentlib:hprof=cpu=samples \
  *     src/scripts/run-perftest.sh LobFilePerfTest
@@ -36,6 +40,7 @@ public class LobFilePerfTest {
   private Path p;
   private long startTime;
   private byte [] record;
+  private long [] offsets;
 
   public LobFilePerfTest() {
     conf = new Configuration();
@@ -64,10 +69,14 @@ public class LobFilePerfTest {
     stopTiming();
   }
 
-  private void writeFile() throws Exception {
-    startTiming("Writing " + numRecords + " records to lob file");
+  private void writeFile(boolean async) throws Exception {
+    conf.setBoolean(LobFile.ASYNC_WRITE_KEY, async);
+    startTiming("Writing " + numRecords + " records to lob file "
+        + (async ? "(background writer)" : "(synchronous)"));
     LobFile.Writer w = LobFile.create(p, conf);
+    offsets = new long[numRecords];
     for (int i = 0; i < numRecords; i++) {
+      offsets[i] = w.tell();
       OutputStream out = w.writeBlobRecord(recordLen);
       out.write(record);
       out.close();
@@ -100,10 +109,71 @@ public class LobFilePerfTest {
     System.out.println("Read " + recordSize + " bytes");
   }
 
+  /**
+   * @return the record offsets in a shuffled order.
+   */
+  private long [] getRandomOrder() {
+    long [] order = offsets.clone();
+    Random r = new Random(0);
+    for (int i = order.length - 1; i > 0; i--) {
+      int j = r.nextInt(i + 1);
+      long tmp = order[i];
+      order[i] = order[j];
+      order[j] = tmp;
+    }
+    return order;
+  }
+
+  private void readRandomStreams() throws Exception {
+    startTiming("Reading records in random order with seek()");
+    LobFile.Reader r = LobFile.open(p, conf);
+    byte [] inputBuffer = new byte[4096];
+    long recordSize = 0;
+    for (long offset : getRandomOrder()) {
+      r.seek(offset);
+      r.next();
+      InputStream in = r.readBlobRecord();
+      while (true) {
+        int thisRead = in.read(inputBuffer);
+        if (-1 == thisRead) {
+          break;
+        }
+        recordSize += (long) thisRead;
+      }
+    }
+    r.close();
+    stopTiming();
+    System.out.println("Read " + recordSize + " bytes");
+  }
+
+  private void readRandomBuffers(boolean mmap) throws Exception {
+    conf.setBoolean(LobFile.MMAP_ENABLED_KEY, mmap);
+    startTiming("Reading records in random order with readRecordBuffer() "
+        + (mmap ? "(mmap)" : "(positional reads)"));
+    LobFile.Reader r = LobFile.open(p, conf);
+    byte [] inputBuffer = new byte[4096];
+    long recordSize = 0;
+    for (long offset : getRandomOrder()) {
+      ByteBuffer buf = r.readRecordBuffer(offset);
+      while (buf.hasRemaining()) {
+        int thisRead = Math.min(inputBuffer.length, buf.remaining());
+        buf.get(inputBuffer, 0, thisRead);
+        recordSize += (long) thisRead;
+      }
+    }
+    r.close();
+    stopTiming();
+    System.out.println("Read " + recordSize + " bytes");
+  }
+
   public void run() throws Exception {
     makeRecordBody();
-    writeFile();
+    writeFile(false);
+    writeFile(true);
     readFile();
+    readRandomStreams();
+    readRandomBuffers(false);
+    readRandomBuffers(true);
   }
 
   public static void main(String [] args) throws Exception {
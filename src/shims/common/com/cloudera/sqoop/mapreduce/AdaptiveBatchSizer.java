@@ -0,0 +1,191 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.sql.SQLException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Chooses the number of records to put in each export statement, based on
+ * the measured execution time of previous statements.
+ *
+ * Statement timings are gathered in windows of a few statements. After
+ * each window the size is adjusted using additive-increase,
+ * multiplicative-decrease: it grows by a fixed step while statements
+ * finish within the target latency and the rows-per-second rate has not
+ * fallen, and is halved when statements are slower than the target (a
+ * sign of lock contention or an overloaded server), when throughput
+ * drops after an increase, or when a statement fails. The size always
+ * stays within the configured bounds.
+ *
+ * The number of statements per transaction is scaled along with the
+ * statement size, so that each transaction holds about as many rows as
+ * the initial settings would give.
+ *
+ * Instances are shared between a RecordWriter and its exec threads, so
+ * all methods are synchronized.
+ */
+public class AdaptiveBatchSizer {
+
+  private static final Log LOG = LogFactory.getLog(
+      AdaptiveBatchSizer.class.getName());
+
+  /** Number of statements to time before adjusting the size. */
+  public static final int WINDOW_STATEMENTS = 4;
+
+  // Throughput may fall by this fraction before an increase is reverted;
+  // this keeps timing noise from causing needless decreases.
+  private static final double THROUGHPUT_TOLERANCE = 0.9;
+
+  private static final int UNLIMITED =
+      AsyncSqlOutputFormat.UNLIMITED_STATEMENTS_PER_TRANSACTION;
+
+  private final int minRows;
+  private final int maxRows;
+  private final int increaseStep;
+  private final long targetNanos;
+  private final long rowsPerTx; // or UNLIMITED.
+
+  private int rowsPerStmt;
+
+  // Statistics for the current window.
+  private int windowStatements;
+  private long windowRows;
+  private long windowNanos;
+
+  // Result of the previous window.
+  private double lastRowsPerSec;
+  private boolean lastWasIncrease;
+
+  /**
+   * @param initialRows the number of records per statement to start with.
+   * @param minRows the smallest number of records per statement to use.
+   * @param maxRows the largest number of records per statement to use.
+   * @param stmtsPerTx the configured number of statements per transaction,
+   * or AsyncSqlOutputFormat.UNLIMITED_STATEMENTS_PER_TRANSACTION.
+   * @param targetMillis the statement execution time above which the
+   * statement size is decreased.
+   */
+  public AdaptiveBatchSizer(int initialRows, int minRows, int maxRows,
+      int stmtsPerTx, long targetMillis) {
+    this.minRows = Math.max(1, minRows);
+    this.maxRows = Math.max(this.minRows, maxRows);
+    this.rowsPerStmt = clamp(initialRows);
+    this.increaseStep = Math.max(1, this.rowsPerStmt / 4);
+    this.targetNanos = targetMillis * 1000000L;
+    if (stmtsPerTx == UNLIMITED) {
+      this.rowsPerTx = stmtsPerTx;
+    } else {
+      this.rowsPerTx = (long) this.rowsPerStmt * Math.max(1, stmtsPerTx);
+    }
+  }
+
+  private int clamp(int rows) {
+    return Math.min(maxRows, Math.max(minRows, rows));
+  }
+
+  /**
+   * @return the number of records to put in the next statement.
+   */
+  public synchronized int getRowsPerStatement() {
+    return rowsPerStmt;
+  }
+
+  /**
+   * @return the number of statements to execute before committing, or
+   * UNLIMITED_STATEMENTS_PER_TRANSACTION.
+   */
+  public synchronized int getStatementsPerTransaction() {
+    if (rowsPerTx == UNLIMITED) {
+      return UNLIMITED;
+    }
+
+    return (int) Math.max(1, rowsPerTx / rowsPerStmt);
+  }
+
+  /**
+   * Record the successful execution of a statement.
+   * @param rows the number of records in the statement.
+   * @param nanos the time taken to execute the statement.
+   */
+  public synchronized void statementExecuted(int rows, long nanos) {
+    if (rows <= 0) {
+      return;
+    }
+
+    windowStatements++;
+    windowRows += rows;
+    windowNanos += Math.max(1, nanos);
+    if (windowStatements < WINDOW_STATEMENTS) {
+      return;
+    }
+
+    double rowsPerSec = windowRows * 1e9 / windowNanos;
+    long avgNanos = windowNanos / windowStatements;
+    windowStatements = 0;
+    windowRows = 0;
+    windowNanos = 0;
+
+    if (avgNanos > targetNanos) {
+      decrease("average statement time " + (avgNanos / 1000000L)
+          + " ms exceeds target");
+    } else if (lastWasIncrease
+        && rowsPerSec < lastRowsPerSec * THROUGHPUT_TOLERANCE) {
+      decrease("throughput fell to " + (long) rowsPerSec + " rows/sec");
+    } else {
+      increase();
+    }
+
+    lastRowsPerSec = rowsPerSec;
+  }
+
+  /**
+   * Record a failed statement.
+   * @param sqlE the error raised by the statement.
+   */
+  public synchronized void statementFailed(SQLException sqlE) {
+    decrease("statement failed: " + sqlE.getMessage());
+  }
+
+  private void increase() {
+    int newRows = clamp(rowsPerStmt + increaseStep);
+    lastWasIncrease = newRows > rowsPerStmt;
+    if (lastWasIncrease) {
+      LOG.debug("Increasing records per statement to " + newRows);
+      rowsPerStmt = newRows;
+    }
+  }
+
+  private void decrease(String reason) {
+    int newRows = clamp(rowsPerStmt / 2);
+    lastWasIncrease = false;
+    if (newRows < rowsPerStmt) {
+      LOG.info("Decreasing records per statement to " + newRows + "; "
+          + reason);
+      rowsPerStmt = newRows;
+    }
+
+    // Start afresh with the new size.
+    windowStatements = 0;
+    windowRows = 0;
+    windowNanos = 0;
+  }
+}
@@ -18,10 +18,15 @@
 
 package com.cloudera.sqoop.mapreduce;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 
 import org.apache.commons.logging.Log;
@@ -32,6 +37,7 @@ import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.util.StringUtils;
 
+import com.cloudera.sqoop.lib.LobExportContext;
 import com.cloudera.sqoop.lib.SqoopRecord;
 
 /**
@@ -64,6 +70,54 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
   public static final String STATEMENTS_PER_TRANSACTION_KEY =
       "sqoop.export.statements.per.transaction";
 
+  /**
+   * conf key: number of background threads executing statements for
+   * each RecordWriter. Each thread uses its own database connection,
+   * and hence its own sequence of transactions.
+   */
+  public static final String EXEC_THREADS_KEY =
+      "sqoop.export.exec.threads";
+
+  /**
+   * conf key: number of prepared statements which may be queued for
+   * each executor thread while it is running a previous statement.
+   * If this is 0, the RecordWriter hands each statement directly to the
+   * executor thread, blocking until that thread is ready for it.
+   */
+  public static final String EXEC_QUEUE_DEPTH_KEY =
+      "sqoop.export.exec.queue.depth";
+
+  /**
+   * conf key: number of prepared statements to keep for reuse on each
+   * connection. If this is 0, every statement is prepared anew and closed
+   * after it executes.
+   */
+  public static final String STATEMENT_CACHE_SIZE_KEY =
+      "sqoop.export.statement.cache.size";
+
+  /**
+   * conf key: if true, the number of records per statement is adjusted
+   * while the export runs, based on how long statements take to execute.
+   * The configured number of records per statement is the starting point.
+   */
+  public static final String ADAPTIVE_BATCH_KEY =
+      "sqoop.export.adaptive.batch";
+
+  /** conf key: smallest number of records per statement when adaptive. */
+  public static final String MIN_RECORDS_PER_STATEMENT_KEY =
+      "sqoop.export.records.per.statement.min";
+
+  /** conf key: largest number of records per statement when adaptive. */
+  public static final String MAX_RECORDS_PER_STATEMENT_KEY =
+      "sqoop.export.records.per.statement.max";
+
+  /**
+   * conf key: statement execution time, in milliseconds, above which the
+   * number of records per statement is decreased when adaptive.
+   */
+  public static final String TARGET_STATEMENT_MILLIS_KEY =
+      "sqoop.export.adaptive.statement.millis";
+
   /**
    * Default number of records to put in an INSERT statement or
    * other batched update statement.
@@ -83,6 +137,25 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
    */
   public static final int UNLIMITED_STATEMENTS_PER_TRANSACTION = -1;
 
+  /** Default number of executor threads per RecordWriter. */
+  public static final int DEFAULT_EXEC_THREADS = 1;
+
+  /**
+   * Default depth of each executor thread's operation queue; by default
+   * statements are handed off synchronously.
+   */
+  public static final int DEFAULT_EXEC_QUEUE_DEPTH = 0;
+
+  /** Default number of idle prepared statements kept per connection. */
+  public static final int DEFAULT_STATEMENT_CACHE_SIZE = 4;
+
+  /** Default bounds on the adaptive number of records per statement. */
+  public static final int DEFAULT_MIN_RECORDS_PER_STATEMENT = 1;
+  public static final int DEFAULT_MAX_RECORDS_PER_STATEMENT = 1000;
+
+  /** Default target statement execution time when adaptive. */
+  public static final long DEFAULT_TARGET_STATEMENT_MILLIS = 2000;
+
   private static final Log LOG = LogFactory.getLog(AsyncSqlOutputFormat.class);
 
   @Override
@@ -114,6 +187,8 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
     private final PreparedStatement stmt;
     private final boolean commitAndClose;
     private final boolean isBatch;
+    private final int numRows;
+    private final List<Closeable> boundStreams;
 
     /**
      * Create an asynchronous database operation.
@@ -125,9 +200,44 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
      */
     public AsyncDBOperation(PreparedStatement s, boolean commitAndClose,
         boolean batch) {
+      this(s, commitAndClose, batch, 0);
+    }
+
+    /**
+     * Create an asynchronous database operation.
+     * @param s the statement, if any, to execute.
+     * @param commitAndClose if true, the current transaction should be
+     * committed, and the executor thread should stop after this operation.
+     * @param batch is true if this is a batch PreparedStatement, or false
+     * if it's a normal singleton statement.
+     * @param rows the number of records bound into the statement, or 0 if
+     * this is unknown.
+     */
+    public AsyncDBOperation(PreparedStatement s, boolean commitAndClose,
+        boolean batch, int rows) {
+      this(s, commitAndClose, batch, rows,
+          Collections.<Closeable>emptyList());
+    }
+
+    /**
+     * Create an asynchronous database operation.
+     * @param s the statement, if any, to execute.
+     * @param commitAndClose if true, the current transaction should be
+     * committed, and the executor thread should stop after this operation.
+     * @param batch is true if this is a batch PreparedStatement, or false
+     * if it's a normal singleton statement.
+     * @param rows the number of records bound into the statement, or 0 if
+     * this is unknown.
+     * @param streams external LOB streams bound into the statement, which
+     * are closed once it has been executed.
+     */
+    public AsyncDBOperation(PreparedStatement s, boolean commitAndClose,
+        boolean batch, int rows, List<Closeable> streams) {
       this.stmt = s;
       this.commitAndClose = commitAndClose;
       this.isBatch = batch;
+      this.numRows = rows;
+      this.boundStreams = streams;
     }
 
     /**
@@ -158,6 +268,20 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
     public boolean execAsBatch() {
       return this.isBatch;
     }
+
+    /**
+     * @return the number of records in the statement, or 0 if unknown.
+     */
+    public int getNumRows() {
+      return this.numRows;
+    }
+
+    /**
+     * @return the external LOB streams bound into the statement.
+     */
+    public List<Closeable> getBoundStreams() {
+      return this.boundStreams;
+    }
   }
 
   /**
@@ -170,7 +294,13 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
     private SQLException err; // Error from a previously-run statement.
 
     // How we receive database operations from the RecordWriter.
-    private SynchronousQueue<AsyncDBOperation> opsQueue;
+    private BlockingQueue<AsyncDBOperation> opsQueue;
+
+    // If non-null, executed statements are returned here for reuse.
+    private PreparedStatementCache stmtCache;
+
+    // If non-null, receives statement timings and sets the transaction size.
+    private AdaptiveBatchSizer batchSizer;
 
     protected int curNumStatements; // statements executed thus far in the tx.
     protected final int stmtsPerTx;  // statements per transaction.
@@ -183,12 +313,74 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
      * the current transaction.
      */
     public AsyncSqlExecThread(Connection conn, int stmtsPerTx) {
+      this(conn, stmtsPerTx, DEFAULT_EXEC_QUEUE_DEPTH);
+    }
+
+    /**
+     * Create a new update thread that interacts with the database.
+     * @param conn the connection to use. This must only be used by this
+     * thread.
+     * @param stmtsPerTx the number of statements to execute before committing
+     * the current transaction.
+     * @param queueDepth the number of operations which may be waiting to
+     * execute. If this is 0, put() blocks until this thread takes the
+     * operation.
+     */
+    public AsyncSqlExecThread(Connection conn, int stmtsPerTx,
+        int queueDepth) {
       this.conn = conn;
       this.err = null;
-      this.opsQueue = new SynchronousQueue<AsyncDBOperation>();
+      if (queueDepth > 0) {
+        this.opsQueue = new ArrayBlockingQueue<AsyncDBOperation>(queueDepth);
+      } else {
+        this.opsQueue = new SynchronousQueue<AsyncDBOperation>();
+      }
       this.stmtsPerTx = stmtsPerTx;
     }
 
+    /**
+     * Return executed statements to the specified cache rather than
+     * closing them. The cache is closed when this thread stops.
+     * @param cache a cache of statements for this thread's connection.
+     */
+    public void setStatementCache(PreparedStatementCache cache) {
+      this.stmtCache = cache;
+    }
+
+    /**
+     * Report statement execution times to the specified sizer, and take
+     * the number of statements per transaction from it rather than using
+     * the fixed value given to the constructor.
+     * @param sizer the sizer shared by this thread's RecordWriter.
+     */
+    public void setBatchSizer(AdaptiveBatchSizer sizer) {
+      this.batchSizer = sizer;
+    }
+
+    /**
+     * @return the number of statements to run before committing.
+     */
+    private int getStatementsPerTransaction() {
+      if (null != batchSizer) {
+        return batchSizer.getStatementsPerTransaction();
+      }
+
+      return stmtsPerTx;
+    }
+
+    /**
+     * Close a statement, or return it to the statement cache if it
+     * came from there.
+     * @param stmt the statement to dispose of.
+     * @param reuse true if the statement executed successfully.
+     */
+    private void releaseStatement(PreparedStatement stmt, boolean reuse)
+        throws SQLException {
+      if (null == stmtCache || !stmtCache.release(stmt, reuse)) {
+        stmt.close();
+      }
+    }
+
     public void run() {
       while (true) {
         AsyncDBOperation op = null;
@@ -212,41 +404,63 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
         synchronized (conn) {
           try {
             if (null != stmt) {
+              long startNanos = System.nanoTime();
               if (op.execAsBatch()) {
                 stmt.executeBatch();
               } else {
                 // Normal update.
                 stmt.executeUpdate();
               }
-              stmt.close();
-              stmt = null;
+              if (null != batchSizer) {
+                batchSizer.statementExecuted(op.getNumRows(),
+                    System.nanoTime() - startNanos);
+              }
               this.curNumStatements++;
+              PreparedStatement executed = stmt;
+              stmt = null;
+              releaseStatement(executed, true);
             }
 
-            if (op.requiresCommit() || (curNumStatements >= stmtsPerTx
-                && stmtsPerTx != UNLIMITED_STATEMENTS_PER_TRANSACTION)) {
+            int txStatements = getStatementsPerTransaction();
+            if (op.requiresCommit() || (curNumStatements >= txStatements
+                && txStatements != UNLIMITED_STATEMENTS_PER_TRANSACTION)) {
               LOG.debug("Committing transaction of " + curNumStatements
                   + " statements");
               this.conn.commit();
               this.curNumStatements = 0;
             }
           } catch (SQLException sqlE) {
+            if (null != batchSizer) {
+              batchSizer.statementFailed(sqlE);
+            }
             setLastError(sqlE);
           } finally {
             // Close the statement on our way out if that didn't happen
             // via the normal execution path.
             if (null != stmt) {
               try {
-                stmt.close();
+                releaseStatement(stmt, false);
               } catch (SQLException sqlE) {
                 setLastError(sqlE);
               }
             }
 
+            // The driver is done with any LOB streams it did not read to
+            // the end; release their LobFile readers.
+            LobExportContext.closeStreams(op.getBoundStreams());
+
             // Always check whether we should end the loop, regardless
             // of the presence of an exception.
             if (op.stop()) {
               // Don't continue processing after this operation.
+              try {
+                if (null != stmtCache) {
+                  stmtCache.close();
+                }
+              } catch (SQLException sqlE) {
+                setLastError(sqlE);
+              }
+
               try {
                 conn.close();
               } catch (SQLException sqlE) {
@@ -262,7 +476,9 @@ public abstract class AsyncSqlOutputFormat<K extends SqoopRecord, V>
     /**
      * Allows a user to enqueue the next database operation to run.
      * Since the connection can only execute a single operation at a time,
-     * the put() method may block if another operation is already underway.
+     * the put() method may block if another operation is already underway
+     * and the queue of pending operations is full.
+     * Operations are executed (and committed) in the order they are put.
      * @param op the database operation to perform.
      */
     public void put(AsyncDBOperation op) throws InterruptedException {
@@ -18,6 +18,7 @@
 
 package com.cloudera.sqoop.mapreduce;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -25,37 +26,77 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import com.cloudera.sqoop.mapreduce.db.DBConfiguration;
 
+import com.cloudera.sqoop.lib.LobExportContext;
 import com.cloudera.sqoop.lib.SqoopRecord;
 
 /**
  * Abstract RecordWriter base class that buffers SqoopRecords to be injected
  * into JDBC SQL PreparedStatements to be executed by the
- * AsyncSqlOutputFormat's background thread.
+ * AsyncSqlOutputFormat's background threads.
+ *
+ * By default a single background thread executes statements while the
+ * next batch of records is being collected. If sqoop.export.exec.threads
+ * is set higher, each thread gets its own connection and statements are
+ * handed to the threads round-robin. Each thread commits its own
+ * transactions in the order it received its statements. Updates to
+ * existing rows (--update-key) always use a single thread: statements
+ * on separate connections that touch the same row could otherwise wait
+ * on each other's uncommitted transactions forever.
  *
  * Record objects are buffered before actually performing the INSERT
  * statements; this requires that the key implement the SqoopRecord interface.
+ * Buffered copies of records are reused once their values have been bound
+ * into a statement. If the subclass executes a single-record statement in
+ * batch mode (see getBatchRecordStatement()), records are instead bound
+ * into the pending statement as they arrive and are not copied at all.
  *
  * Uses DBOutputFormat/DBConfiguration for configuring the output.
  */
 public abstract class AsyncSqlRecordWriter<K extends SqoopRecord, V>
     extends RecordWriter<K, V> {
 
-  private Connection connection;
+  private static final Log LOG = LogFactory.getLog(
+      AsyncSqlRecordWriter.class.getName());
+
+  // One connection per executor thread; connections[i] is used only
+  // by execThreads[i] (and by the statements prepared for it).
+  private Connection [] connections;
+
+  // Reusable statements for each connection, or null if disabled.
+  private PreparedStatementCache [] stmtCaches;
 
   private Configuration conf;
 
   protected final int rowsPerStmt; // rows to insert per statement.
+
+  // If non-null, chooses the number of rows per statement instead.
+  private AdaptiveBatchSizer batchSizer;
   
   // Buffer for records to be put into export SQL statements.
   private List<SqoopRecord> records;
 
-  // Background thread to actually perform the updates.
-  private AsyncSqlOutputFormat.AsyncSqlExecThread execThread;
+  // Record objects whose values have been bound into a statement, and
+  // which may be overwritten with the next records to buffer.
+  private List<SqoopRecord> spareRecords;
+
+  // If records are bound as they arrive, the text of the statement they
+  // are bound into, the pending statement, and the rows bound into it.
+  private boolean checkedBatchRecordStmt;
+  private String batchRecordStmt;
+  private PreparedStatement pendingStmt;
+  private int pendingRows;
+
+  // Background threads to actually perform the updates. Statements are
+  // dispatched to these round-robin; curThread receives the next one.
+  private AsyncSqlOutputFormat.AsyncSqlExecThread [] execThreads;
+  private int curThread;
   private boolean startedExecThread;
 
   public AsyncSqlRecordWriter(TaskAttemptContext context)
@@ -68,27 +109,131 @@ public abstract class AsyncSqlRecordWriter<K extends SqoopRecord, V>
     int stmtsPerTx = conf.getInt(
         AsyncSqlOutputFormat.STATEMENTS_PER_TRANSACTION_KEY,
         AsyncSqlOutputFormat.DEFAULT_STATEMENTS_PER_TRANSACTION);
+    int numThreads = Math.max(1, conf.getInt(
+        AsyncSqlOutputFormat.EXEC_THREADS_KEY,
+        AsyncSqlOutputFormat.DEFAULT_EXEC_THREADS));
+    if (numThreads > 1
+        && null != conf.get(ExportJobBase.SQOOP_EXPORT_UPDATE_COL_KEY)) {
+      LOG.warn("Ignoring " + AsyncSqlOutputFormat.EXEC_THREADS_KEY
+          + "=" + numThreads + "; updates use a single connection.");
+      numThreads = 1;
+    }
+    int queueDepth = conf.getInt(
+        AsyncSqlOutputFormat.EXEC_QUEUE_DEPTH_KEY,
+        AsyncSqlOutputFormat.DEFAULT_EXEC_QUEUE_DEPTH);
+    int cacheSize = conf.getInt(
+        AsyncSqlOutputFormat.STATEMENT_CACHE_SIZE_KEY,
+        AsyncSqlOutputFormat.DEFAULT_STATEMENT_CACHE_SIZE);
 
-    DBConfiguration dbConf = new DBConfiguration(conf);
-    this.connection = dbConf.getConnection();
-    this.connection.setAutoCommit(false);
+    if (conf.getBoolean(AsyncSqlOutputFormat.ADAPTIVE_BATCH_KEY, false)) {
+      this.batchSizer = new AdaptiveBatchSizer(this.rowsPerStmt,
+          conf.getInt(AsyncSqlOutputFormat.MIN_RECORDS_PER_STATEMENT_KEY,
+              AsyncSqlOutputFormat.DEFAULT_MIN_RECORDS_PER_STATEMENT),
+          conf.getInt(AsyncSqlOutputFormat.MAX_RECORDS_PER_STATEMENT_KEY,
+              AsyncSqlOutputFormat.DEFAULT_MAX_RECORDS_PER_STATEMENT),
+          stmtsPerTx,
+          conf.getLong(AsyncSqlOutputFormat.TARGET_STATEMENT_MILLIS_KEY,
+              AsyncSqlOutputFormat.DEFAULT_TARGET_STATEMENT_MILLIS));
+    }
 
     this.records = new ArrayList<SqoopRecord>(this.rowsPerStmt);
+    this.spareRecords = new ArrayList<SqoopRecord>(this.rowsPerStmt);
+
+    DBConfiguration dbConf = new DBConfiguration(conf);
+    this.connections = new Connection[numThreads];
+    this.execThreads = new AsyncSqlOutputFormat.AsyncSqlExecThread[numThreads];
+    if (cacheSize > 0) {
+      this.stmtCaches = new PreparedStatementCache[numThreads];
+    }
+    boolean success = false;
+    try {
+      for (int i = 0; i < numThreads; i++) {
+        Connection conn = dbConf.getConnection();
+        this.connections[i] = conn;
+        conn.setAutoCommit(false);
+
+        this.execThreads[i] = new AsyncSqlOutputFormat.AsyncSqlExecThread(
+            conn, stmtsPerTx, queueDepth);
+        this.execThreads[i].setDaemon(true);
+        if (null != this.batchSizer) {
+          this.execThreads[i].setBatchSizer(this.batchSizer);
+        }
+        if (null != this.stmtCaches) {
+          this.stmtCaches[i] = new PreparedStatementCache(conn, cacheSize);
+          this.execThreads[i].setStatementCache(this.stmtCaches[i]);
+        }
+      }
+      success = true;
+    } finally {
+      if (!success) {
+        // Don't leak the connections we did manage to open.
+        for (Connection conn : this.connections) {
+          if (null != conn) {
+            try {
+              conn.close();
+            } catch (SQLException sqlE) {
+              // Already failing; the original exception is rethrown.
+            }
+          }
+        }
+      }
+    }
 
-    this.execThread = new AsyncSqlOutputFormat.AsyncSqlExecThread(
-        connection, stmtsPerTx);
-    this.execThread.setDaemon(true);
+    this.curThread = 0;
     this.startedExecThread = false;
   }
 
   /**
    * Allow subclasses access to the Connection instance we hold.
-   * This Connection is shared with the asynchronous SQL exec thread.
+   * This Connection is shared with the asynchronous SQL exec thread
+   * which will run the next statement; statements passed back from
+   * getPreparedStatement() must be prepared against this Connection.
    * Any uses of the Connection must be synchronized on it.
    * @return the Connection object used for this SQL transaction. 
    */
   protected final Connection getConnection() {
-    return this.connection;
+    return this.connections[this.curThread];
+  }
+
+  /**
+   * Create a PreparedStatement for the given SQL on the Connection
+   * returned by getConnection(). If a statement with the same SQL text
+   * has already been executed and released by the exec thread, it is
+   * reused rather than being prepared again. Subclasses should obtain
+   * statements through this method rather than by calling
+   * Connection.prepareStatement() themselves.
+   * @param sql the SQL text of the statement.
+   * @return a PreparedStatement with no parameters set.
+   */
+  protected final PreparedStatement prepareStatement(String sql)
+      throws SQLException {
+    Connection conn = getConnection();
+    if (null == stmtCaches) {
+      synchronized (conn) {
+        return conn.prepareStatement(sql);
+      }
+    }
+
+    return stmtCaches[curThread].prepareStatement(sql);
+  }
+
+  /**
+   * @return the number of background threads executing statements.
+   */
+  final int getNumExecThreads() {
+    return this.execThreads.length;
+  }
+
+  /**
+   * @return the number of records to put in the next statement. This is
+   * rowsPerStmt unless the statement size is being adjusted adaptively.
+   */
+  protected final int getRowsPerStatement() {
+    if (null != batchSizer) {
+      return batchSizer.getRowsPerStatement();
+    }
+
+    return rowsPerStmt;
   }
 
   /**
@@ -108,6 +253,19 @@ public abstract class AsyncSqlRecordWriter<K extends SqoopRecord, V>
     return false;
   }
 
+  /**
+   * Subclasses which execute their statements in batch mode, with one
+   * batch entry per record written with SqoopRecord.write(stmt, 0), may
+   * return the SQL text of that statement here. Each record is then bound
+   * into a pending statement as soon as it arrives, instead of being
+   * copied and buffered for getPreparedStatement(). This is called once,
+   * when the first record is written.
+   * @return the single-record statement text, or null to buffer records.
+   */
+  protected String getBatchRecordStatement() {
+    return null;
+  }
+
   /**
    * Generate the PreparedStatement object that will be fed into the execution
    * thread. All parameterized fields of the PreparedStatement must be set in
@@ -134,68 +292,182 @@ public abstract class AsyncSqlRecordWriter<K extends SqoopRecord, V>
   private void execUpdate(boolean closeConn)
       throws InterruptedException, SQLException {
 
-    if (!startedExecThread) {
-      this.execThread.start();
-      this.startedExecThread = true;
-    }
+    startExecThreads();
 
     PreparedStatement stmt = null;
+    List<Closeable> lobStreams = null;
+    boolean batch = isBatchExec();
+    int numRows = 0;
     boolean successfulPut = false;
     try {
-      if (records.size() > 0) {
+      if (null != pendingStmt) {
+        // Records bound as they arrived are always executed as a batch.
+        batch = true;
+        numRows = pendingRows;
+        stmt = pendingStmt;
+        pendingStmt = null;
+        pendingRows = 0;
+      } else if (records.size() > 0) {
+        numRows = records.size();
         stmt = getPreparedStatement(records);
+        // The record values are now bound; the objects may be reused.
+        this.spareRecords.addAll(this.records);
         this.records.clear();
       }
 
-      // Pass this operation off to the update thread. This will block if
-      // the update thread is already performing an update.
-      AsyncSqlOutputFormat.AsyncDBOperation op =
-          new AsyncSqlOutputFormat.AsyncDBOperation(stmt, closeConn,
-          isBatchExec());
-      execThread.put(op);
+      if (null != stmt) {
+        // Any external LOB streams bound since the last statement belong
+        // to this one, and are closed by the exec thread after it runs.
+        lobStreams = LobExportContext.takeBoundStreams();
+
+        // Pass this operation off to the current update thread. This will
+        // block if that thread's queue of pending updates is full.
+        AsyncSqlOutputFormat.AsyncDBOperation op =
+            new AsyncSqlOutputFormat.AsyncDBOperation(stmt, false, batch,
+            numRows, lobStreams);
+        execThreads[curThread].put(op);
+        curThread = (curThread + 1) % execThreads.length;
+      }
       successfulPut = true; // op has been posted to the other thread.
     } finally {
       if (!successfulPut && null != stmt) {
         // We created a statement but failed to enqueue it. Close it.
-        stmt.close();
+        if (null == stmtCaches || !stmtCaches[curThread].release(stmt, false)) {
+          stmt.close();
+        }
+        if (null != lobStreams) {
+          LobExportContext.closeStreams(lobStreams);
+        }
+      }
+
+      if (closeConn) {
+        // Every thread must be told to commit and stop, even if we are
+        // leaving on an error path; otherwise close() would never finish
+        // joining it.
+        for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread
+            : execThreads) {
+          execThread.put(new AsyncSqlOutputFormat.AsyncDBOperation(
+              null, true, isBatchExec()));
+        }
       }
     }
 
     // Check for any previous SQLException. If one happened, rethrow it here.
-    SQLException lastException = execThread.getLastError();
+    checkLastError();
+  }
+
+  /**
+   * Start the background threads if this has not been done already.
+   */
+  private void startExecThreads() {
+    if (!startedExecThread) {
+      for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread : execThreads) {
+        execThread.start();
+      }
+      this.startedExecThread = true;
+    }
+  }
+
+  /**
+   * Rethrow the first SQLException (if any) that occurred in any of the
+   * background threads. Errors from the other threads are logged and
+   * chained to it with setNextException().
+   */
+  private void checkLastError() throws SQLException {
+    SQLException lastException = collectErrors(null);
     if (null != lastException) {
       throw lastException;
     }
   }
 
+  /**
+   * Clear the error slot of every background thread.
+   * @param first an exception already being reported, or null.
+   * @return 'first' (or, if that is null, the first error found) with
+   * every error found chained to it.
+   */
+  private SQLException collectErrors(SQLException first) {
+    SQLException head = first;
+    for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread : execThreads) {
+      SQLException threadErr = execThread.getLastError();
+      if (null == threadErr) {
+        continue;
+      } else if (null == head) {
+        head = threadErr;
+      } else {
+        LOG.error("Additional error in update thread: " + threadErr);
+        head.setNextException(threadErr);
+      }
+    }
+
+    return head;
+  }
+
   @Override
   /** {@inheritDoc} */
   public void close(TaskAttemptContext context)
       throws IOException, InterruptedException {
+    SQLException err = null;
     try {
       execUpdate(true);
     } catch (SQLException sqle) {
-      throw new IOException(sqle);
+      err = sqle;
     } finally {
-      execThread.join();
+      for (AsyncSqlOutputFormat.AsyncSqlExecThread execThread : execThreads) {
+        execThread.join();
+      }
     }
 
-    // If we're not leaving on an error return path already,
-    // now that execThread is definitely stopped, check that the
-    // error slot remains empty.
-    SQLException lastErr = execThread.getLastError();
-    if (null != lastErr) {
-      throw new IOException(lastErr);
+    // Now that the exec threads are definitely stopped, report anything
+    // left in their error slots along with any error already caught.
+    err = collectErrors(err);
+    if (null != err) {
+      throw new IOException(err);
     }
   }
 
+  /**
+   * @return a copy of 'record' which remains unchanged if the caller
+   * reuses 'record'. A spare record object is overwritten if possible.
+   */
+  private SqoopRecord copyRecord(SqoopRecord record)
+      throws CloneNotSupportedException {
+    int numSpare = spareRecords.size();
+    if (numSpare > 0) {
+      SqoopRecord copy = spareRecords.remove(numSpare - 1);
+      if (record.copyTo(copy)) {
+        return copy;
+      }
+    }
+
+    return (SqoopRecord) record.clone();
+  }
+
   @Override
   /** {@inheritDoc} */
   public void write(K key, V value)
       throws InterruptedException, IOException {
     try {
-      records.add((SqoopRecord) key.clone());
-      if (records.size() >= this.rowsPerStmt) {
+      if (!checkedBatchRecordStmt) {
+        batchRecordStmt = getBatchRecordStatement();
+        checkedBatchRecordStmt = true;
+      }
+
+      if (null != batchRecordStmt) {
+        // Bind the record right away; nothing needs to be retained.
+        if (null == pendingStmt) {
+          pendingStmt = prepareStatement(batchRecordStmt);
+        }
+        key.write(pendingStmt, 0);
+        pendingStmt.addBatch();
+        if (++pendingRows >= getRowsPerStatement()) {
+          execUpdate(false);
+        }
+        return;
+      }
+
+      records.add(copyRecord(key));
+      if (records.size() >= getRowsPerStatement()) {
         execUpdate(false);
       }
     } catch (CloneNotSupportedException cnse) {
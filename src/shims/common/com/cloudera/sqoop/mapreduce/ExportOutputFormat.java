@@ -19,7 +19,6 @@
 package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Arrays;
@@ -44,6 +43,10 @@ import com.cloudera.sqoop.lib.SqoopRecord;
  * statements; this requires that the key implement the
  * SqoopRecord interface.
  *
+ * By default, each statement is a multi-row INSERT. If
+ * sqoop.mapreduce.export.batch is set, each statement is instead a
+ * single-row INSERT executed as a JDBC batch with one entry per record.
+ *
  * Uses DBOutputFormat/DBConfiguration for configuring the output.
  */
 public class ExportOutputFormat<K extends SqoopRecord, V> 
@@ -90,6 +93,13 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
     private String tableName;
     private String [] columnNames; // The columns to insert into.
     private int columnCount; // If columnNames is null, tells ## of cols.
+    private boolean batchMode; // Use JDBC batches of single-row INSERTs.
+
+    // INSERT statement text for the most recent number of rows. Only one
+    // is kept: the row count changes rarely, but may take many values
+    // over a long task if it is adjusted adaptively.
+    private int insertStatementRows;
+    private String insertStatement;
 
     public ExportRecordWriter(TaskAttemptContext context)
         throws ClassNotFoundException, SQLException {
@@ -101,6 +111,25 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       this.tableName = dbConf.getOutputTableName();
       this.columnNames = dbConf.getOutputFieldNames();
       this.columnCount = dbConf.getOutputFieldCount();
+      this.batchMode = conf.getBoolean(
+          ExportJobBase.SQOOP_EXPORT_BATCH_KEY, false);
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    protected boolean isBatchExec() {
+      return batchMode;
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    protected String getBatchRecordStatement() {
+      if (batchMode) {
+        // Records are bound into a single-row INSERT as they arrive.
+        return getCachedInsertStatement(1);
+      } else {
+        return null;
+      }
     }
 
     /**
@@ -133,14 +162,10 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
     protected PreparedStatement getPreparedStatement(
         List<SqoopRecord> userRecords) throws SQLException {
 
-      PreparedStatement stmt = null;
-
-      // Synchronize on connection to ensure this does not conflict
-      // with the operations in the update thread.
-      Connection conn = getConnection();
-      synchronized (conn) {
-        stmt = conn.prepareStatement(getInsertStatement(userRecords.size()));
-      }
+      // Full batches all share the same statement text, so this reuses
+      // a previously-prepared statement when one is available.
+      PreparedStatement stmt = prepareStatement(
+          getCachedInsertStatement(userRecords.size()));
 
       // Inject the record parameters into the VALUES clauses.
       int position = 0;
@@ -151,6 +176,19 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       return stmt;
     }
 
+    /**
+     * @return the result of getInsertStatement(numRows), which is not
+     * generated again while numRows stays the same.
+     */
+    private String getCachedInsertStatement(int numRows) {
+      if (null == insertStatement || numRows != insertStatementRows) {
+        insertStatement = getInsertStatement(numRows);
+        insertStatementRows = numRows;
+      }
+
+      return insertStatement;
+    }
+
     /**
      * @return an INSERT statement suitable for inserting 'numRows' rows.
      */
@@ -0,0 +1,299 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.LineReader;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.cloudera.sqoop.lib.RecordParser;
+import com.cloudera.sqoop.lib.SqoopRecord;
+
+/**
+ * InputFormat for a map-side merge. Each split pairs part file i of the
+ * old dataset with part file i of the new dataset; both files must be
+ * sorted by the merge key. The RecordReader emits the merged records
+ * directly, so the job needs no mapper logic and no reduce phase.
+ *
+ * The datasets must also be partitioned by key range in the order of
+ * their part files, so that no key is held by two splits. Each split
+ * carries the smallest first key of the splits that follow it, and its
+ * RecordReader fails if it reaches that key.
+ */
+public class MergeSortedInputFormat
+    extends InputFormat<SqoopRecord, NullWritable> {
+
+  public static final Log LOG =
+      LogFactory.getLog(MergeSortedInputFormat.class.getName());
+
+  /**
+   * A pair of old and new part files to merge in a single map task.
+   */
+  public static class MergeSortedSplit extends InputSplit implements Writable {
+    private Path oldPath;
+    private long oldLength;
+    private Path newPath;
+    private long newLength;
+    private MergeKey limit;
+    private String [] locations;
+
+    /**
+     * Default Constructor.
+     */
+    public MergeSortedSplit() {
+      this.locations = new String[0];
+    }
+
+    public MergeSortedSplit(Path oldPath, long oldLength, Path newPath,
+        long newLength, MergeKey limit, String [] locations) {
+      this.oldPath = oldPath;
+      this.oldLength = oldLength;
+      this.newPath = newPath;
+      this.newLength = newLength;
+      this.limit = limit;
+      this.locations = locations;
+    }
+
+    public Path getOldPath() {
+      return oldPath;
+    }
+
+    public long getOldLength() {
+      return oldLength;
+    }
+
+    public Path getNewPath() {
+      return newPath;
+    }
+
+    public long getNewLength() {
+      return newLength;
+    }
+
+    /**
+     * @return the first key held by a later split; every key in this
+     * split must sort before it. null if no later split holds a key.
+     */
+    public MergeKey getLimit() {
+      return limit;
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public long getLength() throws IOException {
+      return oldLength + newLength;
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public String [] getLocations() throws IOException {
+      return locations;
+    }
+
+    @Override
+    public String toString() {
+      return oldPath + " + " + newPath;
+    }
+
+    /** {@inheritDoc} */
+    public void readFields(DataInput in) throws IOException {
+      oldPath = new Path(Text.readString(in));
+      oldLength = in.readLong();
+      newPath = new Path(Text.readString(in));
+      newLength = in.readLong();
+      if (in.readBoolean()) {
+        limit = new MergeKey();
+        limit.readFields(in);
+      } else {
+        limit = null;
+      }
+      // Locations are only used by the scheduler.
+      locations = new String[0];
+    }
+
+    /** {@inheritDoc} */
+    public void write(DataOutput out) throws IOException {
+      Text.writeString(out, oldPath.toString());
+      out.writeLong(oldLength);
+      Text.writeString(out, newPath.toString());
+      out.writeLong(newLength);
+      out.writeBoolean(null != limit);
+      if (null != limit) {
+        limit.write(out);
+      }
+    }
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    Path oldDir = new Path(conf.get(MergeJob.MERGE_OLD_PATH_KEY));
+    Path newDir = new Path(conf.get(MergeJob.MERGE_NEW_PATH_KEY));
+
+    FileStatus [] oldFiles = MergeJob.getPartFiles(conf, oldDir);
+    FileStatus [] newFiles = MergeJob.getPartFiles(conf, newDir);
+    if (oldFiles.length != newFiles.length) {
+      throw new IOException("Cannot merge " + oldFiles.length
+          + " part files in " + oldDir + " with " + newFiles.length
+          + " part files in " + newDir);
+    }
+
+    // Since the files are sorted, the first key of each pair of files is
+    // the smallest key in the split. Walking backwards, find the
+    // smallest key of all later splits to use as this split's limit.
+    MergeKey [] limits = new MergeKey[oldFiles.length];
+    MergeKey limit = null;
+    for (int i = oldFiles.length - 1; i >= 0; i--) {
+      limits[i] = limit;
+      limit = min(limit, readFirstKey(conf, oldFiles[i].getPath()));
+      limit = min(limit, readFirstKey(conf, newFiles[i].getPath()));
+    }
+
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    for (int i = 0; i < oldFiles.length; i++) {
+      FileStatus oldFile = oldFiles[i];
+      FileStatus newFile = newFiles[i];
+      MergeSortedSplit split = new MergeSortedSplit(oldFile.getPath(),
+          oldFile.getLen(), newFile.getPath(), newFile.getLen(), limits[i],
+          getHosts(conf, oldFile.getLen() >= newFile.getLen()
+          ? oldFile : newFile));
+      LOG.debug("Generated split: " + split);
+      splits.add(split);
+    }
+
+    return splits;
+  }
+
+  /**
+   * @return the lesser of two keys, either of which may be null.
+   */
+  private static MergeKey min(MergeKey a, MergeKey b) {
+    if (null == a) {
+      return b;
+    } else if (null == b || a.compareValueTo(b) <= 0) {
+      return a;
+    } else {
+      return b;
+    }
+  }
+
+  /**
+   * @return the merge key of the first record in a part file, or null if
+   * the file holds no records.
+   */
+  private MergeKey readFirstKey(Configuration conf, Path path)
+      throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    SqoopRecord record;
+    if (ExportJobBase.isSequenceFiles(conf, path)) {
+      SequenceFile.Reader reader = new SequenceFile.Reader(fs, path, conf);
+      try {
+        Writable key = (Writable) ReflectionUtils.newInstance(
+            reader.getKeyClass(), conf);
+        Writable val = (Writable) ReflectionUtils.newInstance(
+            reader.getValueClass(), conf);
+        if (!reader.next(key, val)) {
+          return null;
+        }
+
+        // Imports store the record as the value; merge output stores it
+        // as the key.
+        record = (SqoopRecord) (key instanceof SqoopRecord ? key : val);
+      } finally {
+        reader.close();
+      }
+    } else {
+      InputStream in = fs.open(path);
+      CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+      if (null != codec) {
+        in = codec.createInputStream(in);
+      }
+
+      LineReader lines = new LineReader(in, conf);
+      try {
+        Text line = new Text();
+        if (lines.readLine(line) == 0) {
+          return null;
+        }
+
+        Class<? extends SqoopRecord> recordClass =
+            (Class<? extends SqoopRecord>) conf.getClass(
+            MergeJob.MERGE_SQOOP_RECORD_KEY, SqoopRecord.class);
+        record = ReflectionUtils.newInstance(recordClass, conf);
+        record.parse(line);
+      } catch (RecordParser.ParseError pe) {
+        throw new IOException(pe);
+      } finally {
+        lines.close();
+      }
+    }
+
+    MergeKey key = new MergeKey();
+    key.set(MergeMapperBase.getMergeKeyValue(record,
+        conf.get(MergeJob.MERGE_KEY_COL_KEY)), false);
+    return key;
+  }
+
+  /**
+   * @return the hosts holding the first block of a file, so that the
+   * task reading it can be scheduled near the larger of its inputs.
+   */
+  private String [] getHosts(Configuration conf, FileStatus file)
+      throws IOException {
+    FileSystem fs = file.getPath().getFileSystem(conf);
+    BlockLocation [] blocks = fs.getFileBlockLocations(file, 0, 1);
+    if (null == blocks || blocks.length == 0) {
+      return new String[0];
+    }
+
+    return blocks[0].getHosts();
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public RecordReader<SqoopRecord, NullWritable> createRecordReader(
+      InputSplit split, TaskAttemptContext context) {
+    return new MergeSortedRecordReader();
+  }
+}
@@ -0,0 +1,271 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileRecordReader;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.cloudera.sqoop.lib.RecordParser;
+import com.cloudera.sqoop.lib.SqoopRecord;
+
+/**
+ * RecordReader that merges an old and a new part file, both sorted by
+ * the merge key, in a single pass. For each key, the record from the new
+ * file is returned if there is one; otherwise the record from the old
+ * file is used. This matches the choice made by MergeReducer, and the
+ * files must be sorted in the order MergeKey defines. Keys must also sort
+ * before the split's limit; a greater key could be held by another split
+ * too, so the datasets are not co-partitioned.
+ */
+public class MergeSortedRecordReader
+    extends RecordReader<SqoopRecord, NullWritable> {
+
+  private SortedInput oldInput;
+  private SortedInput newInput;
+
+  private SqoopRecord current;
+  private MergeKey currentKey;
+
+  public MergeSortedRecordReader() {
+    this.currentKey = new MergeKey();
+  }
+
+  /**
+   * One side of the merge: a part file read in order, along with the
+   * key of its current record.
+   */
+  private static class SortedInput {
+    private final Path path;
+    private final long length;
+    private final RecordReader<?, ?> reader;
+    private final String keyColName;
+    private final boolean isNew;
+    private final MergeKey limit;
+
+    // Record instance to parse text lines into; null for SequenceFiles.
+    private final SqoopRecord textRecord;
+
+    private SqoopRecord record;
+    private MergeKey key;
+    private MergeKey prevKey;
+    private boolean hasRecord;
+
+    SortedInput(Path path, long length, boolean isNew, MergeKey limit,
+        TaskAttemptContext context) throws IOException, InterruptedException {
+      this.path = path;
+      this.length = length;
+      this.isNew = isNew;
+      this.limit = limit;
+
+      Configuration conf = context.getConfiguration();
+      this.keyColName = conf.get(MergeJob.MERGE_KEY_COL_KEY);
+
+      if (ExportJobBase.isSequenceFiles(conf, path)) {
+        this.reader = new SequenceFileRecordReader<Object, Object>();
+        this.textRecord = null;
+      } else {
+        Class<? extends SqoopRecord> recordClass =
+            (Class<? extends SqoopRecord>) conf.getClass(
+            MergeJob.MERGE_SQOOP_RECORD_KEY, SqoopRecord.class);
+        this.reader = new LineRecordReader();
+        this.textRecord = ReflectionUtils.newInstance(recordClass, conf);
+      }
+
+      this.reader.initialize(new FileSplit(path, 0, length, new String[0]),
+          context);
+
+      this.key = new MergeKey();
+      this.prevKey = new MergeKey();
+      advance();
+    }
+
+    /**
+     * Move to the next record in the file.
+     * @throws IOException if the file is not sorted by the merge key, or
+     * holds a key at or beyond the limit.
+     */
+    void advance() throws IOException, InterruptedException {
+      if (!reader.nextKeyValue()) {
+        hasRecord = false;
+        return;
+      }
+
+      if (null != textRecord) {
+        try {
+          textRecord.parse((Text) reader.getCurrentValue());
+        } catch (RecordParser.ParseError pe) {
+          throw new IOException(pe);
+        }
+        record = textRecord;
+      } else {
+        // Imports store the record as the value; merge output stores it
+        // as the key.
+        Object k = reader.getCurrentKey();
+        if (k instanceof SqoopRecord) {
+          record = (SqoopRecord) k;
+        } else {
+          record = (SqoopRecord) reader.getCurrentValue();
+        }
+      }
+
+      MergeKey tmp = prevKey;
+      prevKey = key;
+      key = tmp;
+      Object keyVal = MergeMapperBase.getMergeKeyValue(record, keyColName);
+      key.set(keyVal, isNew);
+
+      if (hasRecord && key.compareValueTo(prevKey) < 0) {
+        throw new IOException("File " + path + " is not sorted by the "
+            + "merge key: " + keyVal + " follows a greater key");
+      }
+
+      if (null != limit && key.compareValueTo(limit) >= 0) {
+        throw new IOException("File " + path + " holds merge key " + keyVal
+            + ", which is in the key range of a later part file; the "
+            + "datasets are not co-partitioned");
+      }
+
+      hasRecord = true;
+    }
+
+    /**
+     * Move past any records whose key is 'skipKey'.
+     */
+    void skip(MergeKey skipKey) throws IOException, InterruptedException {
+      while (hasRecord && key.compareValueTo(skipKey) == 0) {
+        advance();
+      }
+    }
+
+    boolean hasRecord() {
+      return hasRecord;
+    }
+
+    SqoopRecord getRecord() {
+      return record;
+    }
+
+    MergeKey getKey() {
+      return key;
+    }
+
+    long getLength() {
+      return length;
+    }
+
+    float getProgress() throws IOException, InterruptedException {
+      return reader.getProgress();
+    }
+
+    void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void initialize(InputSplit split, TaskAttemptContext context)
+      throws IOException, InterruptedException {
+    MergeSortedInputFormat.MergeSortedSplit mergeSplit =
+        (MergeSortedInputFormat.MergeSortedSplit) split;
+
+    this.oldInput = new SortedInput(mergeSplit.getOldPath(),
+        mergeSplit.getOldLength(), false, mergeSplit.getLimit(), context);
+    this.newInput = new SortedInput(mergeSplit.getNewPath(),
+        mergeSplit.getNewLength(), true, mergeSplit.getLimit(), context);
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    if (null != current) {
+      // Both inputs are positioned at or after the key we returned last.
+      // Any remaining records with that key have been superseded.
+      oldInput.skip(currentKey);
+      newInput.skip(currentKey);
+    }
+
+    SortedInput next;
+    if (!oldInput.hasRecord() && !newInput.hasRecord()) {
+      current = null;
+      return false;
+    } else if (!oldInput.hasRecord()) {
+      next = newInput;
+    } else if (!newInput.hasRecord()) {
+      next = oldInput;
+    } else if (newInput.getKey().compareValueTo(oldInput.getKey()) <= 0) {
+      // Prefer the new record when both inputs hold the same key.
+      next = newInput;
+    } else {
+      next = oldInput;
+    }
+
+    current = next.getRecord();
+    currentKey.set(next.getKey());
+    return true;
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public SqoopRecord getCurrentKey() {
+    return current;
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public NullWritable getCurrentValue() {
+    return NullWritable.get();
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public float getProgress() throws IOException, InterruptedException {
+    long total = oldInput.getLength() + newInput.getLength();
+    if (total == 0) {
+      return 1.0f;
+    }
+
+    return (oldInput.getProgress() * oldInput.getLength()
+        + newInput.getProgress() * newInput.getLength()) / total;
+  }
+
+  @Override
+  /** {@inheritDoc} */
+  public void close() throws IOException {
+    if (null != oldInput) {
+      oldInput.close();
+      oldInput = null;
+    }
+
+    if (null != newInput) {
+      newInput.close();
+      newInput = null;
+    }
+  }
+}
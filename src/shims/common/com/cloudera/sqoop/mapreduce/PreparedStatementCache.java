@@ -0,0 +1,207 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Holds PreparedStatements for a single Connection so that statements
+ * with the same SQL text can be reused from one batch of records to the
+ * next, rather than being re-prepared (and re-parsed by the database)
+ * every time.
+ *
+ * A statement is checked out with prepareStatement() by the thread
+ * binding parameters into it, and returned with release() by the thread
+ * which executed it. A statement is never handed out again while it is
+ * checked out. At most maxIdle statements are retained between uses;
+ * beyond that, statements for the least-recently-used SQL text are
+ * closed.
+ *
+ * All access to the cache is synchronized on the Connection, which the
+ * users of the Connection must already do.
+ */
+public class PreparedStatementCache {
+
+  private static final Log LOG = LogFactory.getLog(
+      PreparedStatementCache.class.getName());
+
+  private final Connection conn;
+  private final int maxIdle;
+
+  // Statements ready for reuse, keyed by their SQL text. Iteration order
+  // is least-recently-used first.
+  private final LinkedHashMap<String, List<PreparedStatement>> idle;
+  private int numIdle;
+
+  // Statements currently in use, mapped to their SQL text.
+  private final Map<PreparedStatement, String> checkedOut;
+
+  private boolean closed;
+
+  /**
+   * Create a cache of statements prepared against 'conn'.
+   * @param conn the connection the statements belong to.
+   * @param maxIdle the maximum number of statements to retain while they
+   * are not in use.
+   */
+  public PreparedStatementCache(Connection conn, int maxIdle) {
+    this.conn = conn;
+    this.maxIdle = maxIdle;
+    this.idle = new LinkedHashMap<String, List<PreparedStatement>>(
+        16, 0.75f, true);
+    this.numIdle = 0;
+    this.checkedOut = new IdentityHashMap<PreparedStatement, String>();
+    this.closed = false;
+  }
+
+  /**
+   * @return the connection the statements are prepared against.
+   */
+  public Connection getConnection() {
+    return this.conn;
+  }
+
+  /**
+   * Check out a statement for the given SQL text, preparing a new one
+   * if no idle statement with that text is available.
+   * @param sql the SQL text of the statement.
+   * @return a PreparedStatement with no parameters set.
+   */
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    synchronized (conn) {
+      PreparedStatement stmt = null;
+      List<PreparedStatement> stmts = idle.get(sql);
+      if (null != stmts && stmts.size() > 0) {
+        stmt = stmts.remove(stmts.size() - 1);
+        numIdle--;
+      } else {
+        stmt = conn.prepareStatement(sql);
+      }
+
+      checkedOut.put(stmt, sql);
+      return stmt;
+    }
+  }
+
+  /**
+   * Return a statement previously handed out by prepareStatement().
+   * @param stmt the statement to return.
+   * @param reuse if true, the statement has executed successfully and may
+   * be reused. If false, the statement is closed.
+   * @return false if the statement did not come from this cache; in this
+   * case, the caller remains responsible for closing it.
+   */
+  public boolean release(PreparedStatement stmt, boolean reuse)
+      throws SQLException {
+    synchronized (conn) {
+      String sql = checkedOut.remove(stmt);
+      if (null == sql) {
+        return false;
+      }
+
+      if (!reuse || closed || maxIdle <= 0) {
+        stmt.close();
+        return true;
+      }
+
+      try {
+        stmt.clearParameters();
+      } catch (SQLException sqlE) {
+        stmt.close();
+        throw sqlE;
+      }
+
+      List<PreparedStatement> stmts = idle.get(sql);
+      if (null == stmts) {
+        stmts = new ArrayList<PreparedStatement>();
+        idle.put(sql, stmts);
+      }
+      stmts.add(stmt);
+      numIdle++;
+
+      evict();
+      return true;
+    }
+  }
+
+  /**
+   * Close idle statements until no more than maxIdle remain, starting
+   * with the least-recently-used SQL text.
+   */
+  private void evict() throws SQLException {
+    Iterator<List<PreparedStatement>> it = idle.values().iterator();
+    while (numIdle > maxIdle && it.hasNext()) {
+      List<PreparedStatement> stmts = it.next();
+      while (numIdle > maxIdle && stmts.size() > 0) {
+        stmts.remove(0).close();
+        numIdle--;
+      }
+
+      if (stmts.size() == 0) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Close all statements held by this cache, including any which were
+   * never released. Statements released after this are closed.
+   */
+  public void close() throws SQLException {
+    synchronized (conn) {
+      SQLException firstErr = null;
+      List<PreparedStatement> all = new ArrayList<PreparedStatement>();
+      for (List<PreparedStatement> stmts : idle.values()) {
+        all.addAll(stmts);
+      }
+      all.addAll(checkedOut.keySet());
+
+      idle.clear();
+      checkedOut.clear();
+      numIdle = 0;
+      closed = true;
+
+      for (PreparedStatement stmt : all) {
+        try {
+          stmt.close();
+        } catch (SQLException sqlE) {
+          LOG.debug("Error closing cached statement: " + sqlE);
+          if (null == firstErr) {
+            firstErr = sqlE;
+          }
+        }
+      }
+
+      if (null != firstErr) {
+        throw firstErr;
+      }
+    }
+  }
+}
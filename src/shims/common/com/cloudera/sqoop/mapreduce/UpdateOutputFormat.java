@@ -19,7 +19,6 @@
 package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Arrays;
@@ -89,6 +88,7 @@ public class UpdateOutputFormat<K extends SqoopRecord, V>
     private String tableName;
     private String [] columnNames; // The columns to update.
     private String updateCol; // The column containing the fixed key.
+    private String updateStatement; // SQL text; generated once.
 
     public UpdateRecordWriter(TaskAttemptContext context)
         throws ClassNotFoundException, SQLException {
@@ -109,6 +109,18 @@ public class UpdateOutputFormat<K extends SqoopRecord, V>
       return true;
     }
 
+    @Override
+    /** {@inheritDoc} */
+    protected String getBatchRecordStatement() {
+      // Each record is bound into the UPDATE statement as it arrives.
+      // This assumes that the update key column is the last column
+      // serialized in by the underlying record (see getPreparedStatement()).
+      if (null == updateStatement) {
+        updateStatement = getUpdateStatement();
+      }
+      return updateStatement;
+    }
+
     /**
      * @return the name of the table we are inserting into.
      */
@@ -139,14 +151,12 @@ public class UpdateOutputFormat<K extends SqoopRecord, V>
     protected PreparedStatement getPreparedStatement(
         List<SqoopRecord> userRecords) throws SQLException {
 
-      PreparedStatement stmt = null;
-
-      // Synchronize on connection to ensure this does not conflict
-      // with the operations in the update thread.
-      Connection conn = getConnection();
-      synchronized (conn) {
-        stmt = conn.prepareStatement(getUpdateStatement());
+      // Every batch uses the same statement text, so this reuses a
+      // previously-prepared statement when one is available.
+      if (null == updateStatement) {
+        updateStatement = getUpdateStatement();
       }
+      PreparedStatement stmt = prepareStatement(updateStatement);
 
       // Inject the record parameters into the UPDATE and WHERE clauses.  This
       // assumes that the update key column is the last column serialized in
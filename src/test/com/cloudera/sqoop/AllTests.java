@@ -20,6 +20,7 @@ package com.cloudera.sqoop;
 
 import com.cloudera.sqoop.hbase.TestHBaseImport;
 import com.cloudera.sqoop.hbase.TestHBaseQueryImport;
+import com.cloudera.sqoop.hbase.TestParallelPutWriter;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -38,6 +39,7 @@ public final class AllTests {
     suite.addTest(ThirdPartyTests.suite());
     suite.addTestSuite(TestHBaseImport.class);
     suite.addTestSuite(TestHBaseQueryImport.class);
+    suite.addTestSuite(TestParallelPutWriter.class);
     suite.addTestSuite(TestIncrementalImport.class);
 
     return suite;
@@ -20,20 +20,28 @@ package com.cloudera.sqoop;
 
 import com.cloudera.sqoop.hive.TestHiveImport;
 import com.cloudera.sqoop.hive.TestTableDefWriter;
+import com.cloudera.sqoop.io.TestAsyncOutputStream;
 import com.cloudera.sqoop.io.TestLobFile;
+import com.cloudera.sqoop.io.TestLobReaderCache;
 import com.cloudera.sqoop.io.TestNamedFifo;
 import com.cloudera.sqoop.io.TestSplittableBufferedWriter;
 import com.cloudera.sqoop.lib.TestBooleanParser;
 import com.cloudera.sqoop.lib.TestFieldFormatter;
+import com.cloudera.sqoop.lib.TestFieldParser;
+import com.cloudera.sqoop.lib.TestGenericSqoopRecord;
 import com.cloudera.sqoop.lib.TestRecordParser;
+import com.cloudera.sqoop.lib.TestUtf8Buffer;
 import com.cloudera.sqoop.lib.TestBlobRef;
 import com.cloudera.sqoop.lib.TestClobRef;
 import com.cloudera.sqoop.lib.TestLargeObjectLoader;
+import com.cloudera.sqoop.lib.TestLobExportContext;
 import com.cloudera.sqoop.manager.TestHsqldbManager;
 import com.cloudera.sqoop.manager.TestSqlManager;
+import com.cloudera.sqoop.manager.TestPostgresqlUtils;
 import com.cloudera.sqoop.mapreduce.MapreduceTests;
 import com.cloudera.sqoop.metastore.TestSavedJobs;
 import com.cloudera.sqoop.orm.TestClassWriter;
+import com.cloudera.sqoop.orm.TestCodeGenCache;
 import com.cloudera.sqoop.orm.TestParseMethods;
 import com.cloudera.sqoop.util.TestDirectImportUtils;
 
@@ -53,7 +61,9 @@ public final class SmokeTests {
     suite.addTestSuite(TestAllTables.class);
     suite.addTestSuite(TestHsqldbManager.class);
     suite.addTestSuite(TestSqlManager.class);
+    suite.addTestSuite(TestPostgresqlUtils.class);
     suite.addTestSuite(TestClassWriter.class);
+    suite.addTestSuite(TestCodeGenCache.class);
     suite.addTestSuite(TestColumnTypes.class);
     suite.addTestSuite(TestExport.class);
     suite.addTestSuite(TestMultiCols.class);
@@ -62,10 +72,14 @@ public final class SmokeTests {
     suite.addTestSuite(TestQuery.class);
     suite.addTestSuite(TestWhere.class);
     suite.addTestSuite(TestTargetDir.class);
+    suite.addTestSuite(TestGenericRecords.class);
     suite.addTestSuite(TestAppendUtils.class);
     suite.addTestSuite(TestHiveImport.class);
     suite.addTestSuite(TestRecordParser.class);
     suite.addTestSuite(TestFieldFormatter.class);
+    suite.addTestSuite(TestFieldParser.class);
+    suite.addTestSuite(TestGenericSqoopRecord.class);
+    suite.addTestSuite(TestUtf8Buffer.class);
     suite.addTestSuite(TestSqoopOptions.class);
     suite.addTestSuite(TestParseMethods.class);
     suite.addTestSuite(TestConnFactory.class);
@@ -74,8 +88,11 @@ public final class SmokeTests {
     suite.addTestSuite(TestBlobRef.class);
     suite.addTestSuite(TestClobRef.class);
     suite.addTestSuite(TestLargeObjectLoader.class);
+    suite.addTestSuite(TestLobExportContext.class);
     suite.addTestSuite(TestDirectImportUtils.class);
+    suite.addTestSuite(TestAsyncOutputStream.class);
     suite.addTestSuite(TestLobFile.class);
+    suite.addTestSuite(TestLobReaderCache.class);
     suite.addTestSuite(TestExportUpdate.class);
     suite.addTestSuite(TestSavedJobs.class);
     suite.addTestSuite(TestNamedFifo.class);
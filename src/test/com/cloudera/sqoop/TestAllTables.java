@@ -109,7 +109,25 @@ public class TestAllTables extends ImportJobTestCase {
   public void testMultiTableImport() throws IOException {
     String [] argv = getArgv(true);
     runImport(new ImportAllTablesTool(), argv);
+    verifyImport();
+  }
+
+  public void testParallelMultiTableImport() throws IOException {
+    ArrayList<String> args = new ArrayList<String>();
+    for (String arg : getArgv(true)) {
+      args.add(arg);
+    }
+    args.add("--parallel-tables");
+    args.add("2");
 
+    runImport(new ImportAllTablesTool(), args.toArray(new String[0]));
+    verifyImport();
+  }
+
+  /**
+   * Check that each table was imported to its own directory.
+   */
+  private void verifyImport() throws IOException {
     Path warehousePath = new Path(this.getWarehouseDir());
     int i = 0;
     for (String tableName : this.tableNames) {
@@ -45,6 +45,7 @@ import org.apache.hadoop.util.ReflectionUtils;
 
 import com.cloudera.sqoop.lib.RecordParser;
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.mapreduce.ExportOutputFormat;
 import com.cloudera.sqoop.testutil.ExportJobTestCase;
 import com.cloudera.sqoop.tool.CodeGenTool;
 import com.cloudera.sqoop.util.ClassLoaderStack;
@@ -485,6 +486,46 @@ public class TestExport extends ExportJobTestCase {
     verifyExport(TOTAL_RECORDS);
   }
 
+  /**
+   * Ensure that statements are executed correctly by several threads
+   * with queued statements, reusing cached statements along the way.
+   */
+  public void testMultiThreadedExport() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 47;
+    createTextFile(0, TOTAL_RECORDS, true);
+    createTable();
+    runExport(getArgv(true, 5, 2,
+        "-D", ExportOutputFormat.EXEC_THREADS_KEY + "=3",
+        "-D", ExportOutputFormat.EXEC_QUEUE_DEPTH_KEY + "=2",
+        "-D", ExportOutputFormat.STATEMENT_CACHE_SIZE_KEY + "=2"));
+    verifyExport(TOTAL_RECORDS);
+  }
+
+  /**
+   * Ensure that single-row INSERTs executed as JDBC batches work.
+   */
+  public void testBatchModeExport() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 23;
+    createTextFile(0, TOTAL_RECORDS, true);
+    createTable();
+    runExport(getArgv(true, 5, 2, "--batch"));
+    verifyExport(TOTAL_RECORDS);
+  }
+
+  /**
+   * Ensure that an export with adaptive statement sizes loads all rows.
+   */
+  public void testAdaptiveExport() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 100;
+    createTextFile(0, TOTAL_RECORDS, true);
+    createTable();
+    runExport(getArgv(true, 4, 3,
+        "-D", ExportOutputFormat.ADAPTIVE_BATCH_KEY + "=true",
+        "-D", ExportOutputFormat.MAX_RECORDS_PER_STATEMENT_KEY + "="
+        + getMaxRowsPerStatement()));
+    verifyExport(TOTAL_RECORDS);
+  }
+
   /** Run 2 mappers, make sure all records load in correctly. */
   public void testMultiMapTextExport() throws IOException, SQLException {
 
@@ -0,0 +1,145 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+
+import com.cloudera.sqoop.testutil.CommonArgs;
+import com.cloudera.sqoop.testutil.ImportJobTestCase;
+import com.cloudera.sqoop.tool.ExportTool;
+import com.cloudera.sqoop.tool.ImportTool;
+
+/**
+ * Test that --generic-records imports and exports the same data as a
+ * generated record class.
+ */
+public class TestGenericRecords extends ImportJobTestCase {
+
+  private String getTargetDir(String name) {
+    return getWarehouseDir() + "/" + getTableName() + "-" + name;
+  }
+
+  private String [] getImportArgv(String targetDir, String... extraArgs) {
+    ArrayList<String> args = new ArrayList<String>();
+    CommonArgs.addHadoopFlags(args);
+    args.add("--table");
+    args.add(getTableName());
+    args.add("--split-by");
+    args.add(getColName(0));
+    args.add("--target-dir");
+    args.add(targetDir);
+    args.add("--connect");
+    args.add(getConnectString());
+    args.add("--num-mappers");
+    args.add("1");
+    args.add("--enclosed-by");
+    args.add("\"");
+    args.addAll(Arrays.asList(extraArgs));
+    return args.toArray(new String[0]);
+  }
+
+  private String [] getExportArgv(String exportDir) {
+    ArrayList<String> args = new ArrayList<String>();
+    CommonArgs.addHadoopFlags(args);
+    args.add("--table");
+    args.add(getTableName());
+    args.add("--export-dir");
+    args.add(exportDir);
+    args.add("--connect");
+    args.add(getConnectString());
+    args.add("--num-mappers");
+    args.add("1");
+    args.add("--input-enclosed-by");
+    args.add("\"");
+    args.add("--generic-records");
+    return args.toArray(new String[0]);
+  }
+
+  private String importTable(String targetDir, String... extraArgs)
+      throws IOException {
+    FileUtils.deleteDirectory(new File(targetDir));
+    runImport(new ImportTool(), getImportArgv(targetDir, extraArgs));
+    return FileUtils.readFileToString(new File(targetDir, "part-m-00000"));
+  }
+
+  private void executeUpdate(String sql) throws SQLException {
+    Connection conn = getManager().getConnection();
+    Statement s = conn.createStatement();
+    try {
+      s.executeUpdate(sql);
+      conn.commit();
+    } finally {
+      s.close();
+    }
+  }
+
+  public void testImportExport() throws Exception {
+    String [] types = { "INT", "INT", "VARCHAR(32)", "DATE" };
+    String [] vals = { "1", "null", "null", "null" };
+    createTableWithColTypes(types, vals);
+    executeUpdate("INSERT INTO " + getTableName()
+        + " VALUES (2, 42, 'a,b', '2010-05-06')");
+
+    // Nulls and enclosed fields must come out just as they would from
+    // the generated class.
+    String expected = importTable(getTargetDir("codegen"));
+    String genericDir = getTargetDir("generic");
+    String actual = importTable(genericDir, "--generic-records");
+    assertEquals(expected, actual);
+
+    // Load the generic import back into the emptied table.
+    executeUpdate("DELETE FROM " + getTableName());
+    ExportTool exporter = new ExportTool();
+    assertEquals(0, Sqoop.runSqoop(new Sqoop(exporter),
+        getExportArgv(genericDir)));
+    assertTrue(exporter.getGeneratedJarFiles().isEmpty());
+
+    Statement s = getManager().getConnection().createStatement();
+    try {
+      ResultSet rs = s.executeQuery("SELECT * FROM " + getTableName()
+          + " ORDER BY " + getColName(0));
+      try {
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertNull(rs.getObject(2));
+        assertNull(rs.getString(3));
+        assertNull(rs.getDate(4));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(42, rs.getInt(2));
+        assertEquals("a,b", rs.getString(3));
+        assertEquals("2010-05-06", rs.getDate(4).toString());
+        assertFalse(rs.next());
+      } finally {
+        rs.close();
+      }
+    } finally {
+      s.close();
+    }
+  }
+}
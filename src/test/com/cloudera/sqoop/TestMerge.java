@@ -22,6 +22,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.Timestamp;
 import java.sql.PreparedStatement;
@@ -148,50 +149,64 @@ public class TestMerge extends TestCase {
   }
 
   public void testMerge() throws Exception {
+    runMergeTest("ClassForMerging", "merge", false);
+  }
+
+  public void testSortedMerge() throws Exception {
+    // Each import uses a single mapper and retrieves rows in primary key
+    // order, so the datasets qualify for a map-side merge.
+    runMergeTest("ClassForSortedMerging", "sortedmerge", true);
+
+    // A map-only job names its output files part-m-NNNNN.
+    assertTrue("Expected map-side merge output",
+        hasFileWithPrefix("part-m-", "sortedmerge-final"));
+    assertFalse("Superseded record in merge output",
+        recordStartsWith("1,42,", "sortedmerge-final"));
+  }
+
+  /**
+   * Import a table twice, modifying it in between, and merge the results.
+   * @param mergeClassName the record class name to generate for merging.
+   * @param dirPrefix prefix of the warehouse directories to use.
+   * @param sorted true if the merge should use the map-side merge.
+   */
+  private void runMergeTest(final String mergeClassName, String dirPrefix,
+      boolean sorted) throws Exception {
     createTable();
 
     // Create a jar to use for the merging process; we'll load it
     // into the current thread CL for when this runs. This needs
     // to contain a different class name than used for the imports
     // due to classloaderstack issues in the same JVM.
-    final String MERGE_CLASS_NAME = "ClassForMerging";
-    SqoopOptions options = getSqoopOptions(newConf());
-    options.setTableName(TABLE_NAME);
-    options.setClassName(MERGE_CLASS_NAME);
-
-    CodeGenTool codeGen = new CodeGenTool();
-    Sqoop codeGenerator = new Sqoop(codeGen, options.getConf(), options);
-    int ret = Sqoop.runSqoop(codeGenerator, new String[0]);
-    if (0 != ret) {
-      fail("Nonzero exit from codegen: " + ret);
-    }
-
-    List<String> jars = codeGen.getGeneratedJarFiles();
-    String jarFileName = jars.get(0);
+    final String MERGE_CLASS_NAME = mergeClassName;
+    final String OLD_DIR = dirPrefix + "-old";
+    final String NEW_DIR = dirPrefix + "-new";
+    final String FINAL_DIR = dirPrefix + "-final";
+    String jarFileName = generateMergeClass(MERGE_CLASS_NAME);
 
     // Now do the imports.
 
     Path warehouse = new Path(BaseSqoopTestCase.LOCAL_WAREHOUSE_DIR);
 
-    options = getSqoopOptions(newConf());
+    SqoopOptions options = getSqoopOptions(newConf());
     options.setTableName(TABLE_NAME);
     options.setNumMappers(1);
 
     // Do an import of this data into the "old" dataset.
-    options.setTargetDir(new Path(warehouse, "merge-old").toString());
+    options.setTargetDir(new Path(warehouse, OLD_DIR).toString());
     options.setIncrementalMode(IncrementalMode.DateLastModified);
     options.setIncrementalTestColumn("lastmod");
 
     ImportTool importTool = new ImportTool();
     Sqoop importer = new Sqoop(importTool, options.getConf(), options);
-    ret = Sqoop.runSqoop(importer, new String[0]);
+    int ret = Sqoop.runSqoop(importer, new String[0]);
     if (0 != ret) {
       fail("Initial import failed with exit code " + ret);
     }
 
     // Check that we got records that meet our expected values.
-    assertRecordStartsWith("0,0,", "merge-old");
-    assertRecordStartsWith("1,42,", "merge-old");
+    assertRecordStartsWith("0,0,", OLD_DIR);
+    assertRecordStartsWith("1,42,", OLD_DIR);
 
     long prevImportEnd = System.currentTimeMillis();
 
@@ -222,7 +237,7 @@ public class TestMerge extends TestCase {
     options = getSqoopOptions(newConf());
     options.setTableName(TABLE_NAME);
     options.setNumMappers(1);
-    options.setTargetDir(new Path(warehouse, "merge-new").toString());
+    options.setTargetDir(new Path(warehouse, NEW_DIR).toString());
     options.setIncrementalMode(IncrementalMode.DateLastModified);
     options.setIncrementalTestColumn("lastmod");
     options.setIncrementalLastValue(new Timestamp(prevImportEnd).toString());
@@ -234,29 +249,116 @@ public class TestMerge extends TestCase {
       fail("Second import failed with exit code " + ret);
     }
 
-    assertRecordStartsWith("1,43,", "merge-new");
-    assertRecordStartsWith("3,313,", "merge-new");
+    assertRecordStartsWith("1,43,", NEW_DIR);
+    assertRecordStartsWith("3,313,", NEW_DIR);
 
     // Now merge the results!
-    ClassLoaderStack.addJarFile(jarFileName, MERGE_CLASS_NAME);
+    runMerge(jarFileName, MERGE_CLASS_NAME, OLD_DIR, NEW_DIR, FINAL_DIR,
+        sorted);
 
-    options = getSqoopOptions(newConf());
-    options.setMergeOldPath(new Path(warehouse, "merge-old").toString());
-    options.setMergeNewPath(new Path(warehouse, "merge-new").toString());
+    assertRecordStartsWith("0,0,", FINAL_DIR);
+    assertRecordStartsWith("1,43,", FINAL_DIR);
+    assertRecordStartsWith("3,313,", FINAL_DIR);
+  }
+
+  public void testSortedMergeMismatchedRanges() throws Exception {
+    createTable();
+    String jarFileName = generateMergeClass("ClassForMismatchedMerging");
+
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path warehouse = new Path(LOCAL_WAREHOUSE_DIR);
+    String [] dirs = { "mismatched-old", "mismatched-new", "mismatched-final" };
+    for (String dir : dirs) {
+      fs.delete(new Path(warehouse, dir), true);
+    }
+
+    // Both datasets have two sorted part files, but the key ranges of
+    // the part files do not line up: key 3 is in the first new part file
+    // and in the second old one. Merging the files pairwise would keep
+    // both records for key 3.
+    writePartFile("mismatched-old", "part-m-00000", "0,0,null", "1,42,null");
+    writePartFile("mismatched-old", "part-m-00001", "3,10,null", "4,11,null");
+    writePartFile("mismatched-new", "part-m-00000", "1,43,null",
+        "3,313,null");
+    writePartFile("mismatched-new", "part-m-00001", "4,44,null");
+
+    runMerge(jarFileName, "ClassForMismatchedMerging", "mismatched-old",
+        "mismatched-new", "mismatched-final", true);
+
+    // The map-side merge must fail and fall back to the regular merge.
+    assertTrue("Expected regular merge output",
+        hasFileWithPrefix("part-r-", "mismatched-final"));
+    assertFalse("Unexpected map-side merge output",
+        hasFileWithPrefix("part-m-", "mismatched-final"));
+    assertRecordStartsWith("0,0,", "mismatched-final");
+    assertRecordStartsWith("1,43,", "mismatched-final");
+    assertRecordStartsWith("3,313,", "mismatched-final");
+    assertRecordStartsWith("4,44,", "mismatched-final");
+    assertFalse("Superseded record in merge output",
+        recordStartsWith("3,10,", "mismatched-final"));
+  }
+
+  /**
+   * Generate a record class for the test table.
+   * @return the name of the jar holding the class.
+   */
+  private String generateMergeClass(String className) throws Exception {
+    SqoopOptions options = getSqoopOptions(newConf());
+    options.setTableName(TABLE_NAME);
+    options.setClassName(className);
+
+    CodeGenTool codeGen = new CodeGenTool();
+    Sqoop codeGenerator = new Sqoop(codeGen, options.getConf(), options);
+    int ret = Sqoop.runSqoop(codeGenerator, new String[0]);
+    if (0 != ret) {
+      fail("Nonzero exit from codegen: " + ret);
+    }
+
+    List<String> jars = codeGen.getGeneratedJarFiles();
+    return jars.get(0);
+  }
+
+  /**
+   * Write a text part file holding the specified lines into a directory
+   * of the warehouse, replacing any existing file.
+   */
+  private void writePartFile(String dirName, String fileName,
+      String... lines) throws IOException {
+    Path dir = new Path(new Path(LOCAL_WAREHOUSE_DIR), dirName);
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    OutputStream os = fs.create(new Path(dir, fileName), true);
+    try {
+      for (String line : lines) {
+        os.write((line + "\n").getBytes("UTF-8"));
+      }
+    } finally {
+      os.close();
+    }
+  }
+
+  /**
+   * Merge two datasets in the warehouse using the record class in the
+   * specified jar.
+   */
+  private void runMerge(String jarFileName, String className, String oldDir,
+      String newDir, String finalDir, boolean sorted) throws Exception {
+    ClassLoaderStack.addJarFile(jarFileName, className);
+
+    Path warehouse = new Path(BaseSqoopTestCase.LOCAL_WAREHOUSE_DIR);
+    SqoopOptions options = getSqoopOptions(newConf());
+    options.setMergeOldPath(new Path(warehouse, oldDir).toString());
+    options.setMergeNewPath(new Path(warehouse, newDir).toString());
     options.setMergeKeyCol("ID");
-    options.setTargetDir(new Path(warehouse, "merge-final").toString());
-    options.setClassName(MERGE_CLASS_NAME);
+    options.setTargetDir(new Path(warehouse, finalDir).toString());
+    options.setClassName(className);
+    options.setSortedMerge(sorted);
 
     MergeTool mergeTool = new MergeTool();
     Sqoop merger = new Sqoop(mergeTool, options.getConf(), options);
-    ret = Sqoop.runSqoop(merger, new String[0]);
+    int ret = Sqoop.runSqoop(merger, new String[0]);
     if (0 != ret) {
       fail("Merge failed with exit code " + ret);
     }
-
-    assertRecordStartsWith("0,0,", "merge-final");
-    assertRecordStartsWith("1,43,", "merge-final");
-    assertRecordStartsWith("3,313,", "merge-final");
   }
 
   /**
@@ -313,6 +415,26 @@ public class TestMerge extends TestCase {
     return false;
   }
 
+  /**
+   * Return true if 'dirName' contains a file whose name starts with
+   * 'prefix'.
+   */
+  protected boolean hasFileWithPrefix(String prefix, String dirName)
+      throws Exception {
+    Path targetPath = new Path(new Path(LOCAL_WAREHOUSE_DIR), dirName);
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    FileStatus [] files = fs.listStatus(targetPath);
+    if (null != files) {
+      for (FileStatus stat : files) {
+        if (stat.getPath().getName().startsWith(prefix)) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
   protected void assertRecordStartsWith(String prefix, String dirName)
       throws Exception {
     if (!recordStartsWith(prefix, dirName)) {
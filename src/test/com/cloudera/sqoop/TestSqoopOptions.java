@@ -243,10 +243,14 @@ public class TestSqoopOptions extends TestCase {
     out.setUsername("user");
     out.setConnectString("bla");
     out.setNumMappers(4);
+    out.setParallelTables(3);
     out.setAppendMode(true);
     out.setHBaseTable("hbasetable");
+    out.setHBaseBulkLoad(true);
     out.setWarehouseDir("Warehouse");
     out.setClassName("someclass");
+    out.setUseGenericRecords(true);
+    out.setSortedMerge(true);
     out.setSplitByCol("somecol");
     out.setSqlQuery("the query");
     out.setPackageName("a.package");
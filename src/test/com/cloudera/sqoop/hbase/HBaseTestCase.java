@@ -100,6 +100,13 @@ public class HBaseTestCase extends ImportJobTestCase {
     }
   }
 
+  /**
+   * @return the utility managing the HBase mini cluster.
+   */
+  protected HBaseTestingUtility getHBaseTestUtil() {
+    return hbaseTestUtil;
+  }
+
   @Override
   @Before
   public void setUp() {
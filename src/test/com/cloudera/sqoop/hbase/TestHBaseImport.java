@@ -19,6 +19,9 @@
 package com.cloudera.sqoop.hbase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -93,4 +96,40 @@ public class TestHBaseImport extends HBaseTestCase {
     // This cell should not be placed in the results..
     verifyHBaseCell("nullT", "0", "nullF", getColName(2), null);
   }
+
+  @Test
+  public void testParallelWriters() throws IOException {
+    // Write through several threads, handing each Put over on its own.
+    List<String> args = new ArrayList<String>();
+    args.add("-D");
+    args.add(HBasePutProcessor.WRITER_THREADS_KEY + "=3");
+    args.add("-D");
+    args.add(HBasePutProcessor.BATCH_SIZE_KEY + "=1");
+    args.addAll(Arrays.asList(
+        getArgv(true, "parallelT", "parallelF", true, null)));
+    String [] argv = args.toArray(new String[0]);
+
+    String [] types = { "INT", "INT", "VARCHAR(32)" };
+    String [] vals = { "0", "42", "'abc'" };
+    createTableWithColTypes(types, vals);
+    runImport(argv);
+    verifyHBaseCell("parallelT", "0", "parallelF", getColName(1), "42");
+    verifyHBaseCell("parallelT", "0", "parallelF", getColName(2), "abc");
+  }
+
+  @Test
+  public void testBulkLoad() throws IOException {
+    // Write HFiles and load them, rather than sending Puts.
+    List<String> args = new ArrayList<String>(Arrays.asList(
+        getArgv(true, "bulkT", "bulkF", true, null)));
+    args.add("--hbase-bulkload");
+    String [] argv = args.toArray(new String[0]);
+
+    String [] types = { "INT", "INT", "INT" };
+    String [] vals = { "0", "42", "null" };
+    createTableWithColTypes(types, vals);
+    runImport(argv);
+    verifyHBaseCell("bulkT", "0", "bulkF", getColName(1), "42");
+    verifyHBaseCell("bulkT", "0", "bulkF", getColName(2), null);
+  }
 }
@@ -0,0 +1,106 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.HBaseAdmin;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import org.junit.Test;
+
+/**
+ * Test ParallelPutWriter against a table with several regions.
+ */
+public class TestParallelPutWriter extends HBaseTestCase {
+
+  private static final String TABLE_NAME = "parallelPutT";
+  private static final String COL_FAMILY = "parallelPutF";
+  private static final String COL_NAME = "val";
+
+  private static final int NUM_ROUNDS = 10;
+  private static final int ROWS_PER_PREFIX = 10;
+
+  /**
+   * @return the row keys written in each round. These span all of the
+   * regions created by createMultiRegions().
+   */
+  private List<String> getRowKeys() {
+    List<String> keys = new ArrayList<String>();
+    for (char c = 'a'; c <= 'z'; c++) {
+      String prefix = "" + c + c + c;
+      for (int i = 0; i < ROWS_PER_PREFIX; i++) {
+        keys.add(prefix + i);
+      }
+    }
+    return keys;
+  }
+
+  @Test
+  public void testSameRowOrderAcrossSplits() throws IOException {
+    Configuration conf = HBaseConfiguration.addHbaseResources(
+        new Configuration());
+    byte [] tableName = Bytes.toBytes(TABLE_NAME);
+    byte [] colFamily = Bytes.toBytes(COL_FAMILY);
+    HTable table = getHBaseTestUtil().createTable(tableName, colFamily);
+    try {
+      assertTrue(getHBaseTestUtil().createMultiRegions(table, colFamily) > 1);
+    } finally {
+      table.close();
+    }
+
+    // Every round overwrites every row, so each writer receives Puts for
+    // several regions per batch. Split the regions halfway through; rows
+    // then move to new regions, which may belong to other writers.
+    List<String> keys = getRowKeys();
+    HBaseAdmin admin = new HBaseAdmin(conf);
+    ParallelPutWriter writer = new ParallelPutWriter(conf, TABLE_NAME, 3, 0);
+    try {
+      for (int round = 0; round < NUM_ROUNDS; round++) {
+        List<Put> puts = new ArrayList<Put>();
+        for (String key : keys) {
+          Put put = new Put(Bytes.toBytes(key));
+          put.add(colFamily, Bytes.toBytes(COL_NAME),
+              Bytes.toBytes(Integer.toString(round)));
+          puts.add(put);
+        }
+        writer.write(puts);
+
+        if (round == NUM_ROUNDS / 2) {
+          writer.flush();
+          admin.flush(tableName);
+          admin.split(tableName);
+        }
+      }
+    } finally {
+      writer.close();
+    }
+
+    String lastRound = Integer.toString(NUM_ROUNDS - 1);
+    for (String key : keys) {
+      verifyHBaseCell(TABLE_NAME, key, COL_FAMILY, COL_NAME, lastRound);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that AsyncOutputStream delivers data in order and reports errors.
+ */
+public class TestAsyncOutputStream extends TestCase {
+
+  private byte [] makeData(int len) {
+    byte [] data = new byte[len];
+    for (int i = 0; i < len; i++) {
+      data[i] = (byte) (i % 251);
+    }
+    return data;
+  }
+
+  public void testWritesInOrder() throws IOException {
+    ByteArrayOutputStream dest = new ByteArrayOutputStream();
+    AsyncOutputStream out = new AsyncOutputStream(dest, 7, "test");
+    byte [] data = makeData(1000);
+
+    // Mix single-byte and array writes across many buffer boundaries.
+    out.write(data[0]);
+    out.write(data, 1, 500);
+    for (int i = 501; i < 600; i++) {
+      out.write(data[i]);
+    }
+    out.write(data, 600, 400);
+    out.close();
+
+    assertTrue(Arrays.equals(data, dest.toByteArray()));
+  }
+
+  public void testSync() throws IOException {
+    ByteArrayOutputStream dest = new ByteArrayOutputStream();
+    AsyncOutputStream out = new AsyncOutputStream(dest, 16, "test");
+    out.write(makeData(40));
+    out.sync();
+    assertEquals(40, dest.size());
+    out.close();
+
+    try {
+      out.write(1);
+      fail("Expected IOException writing to a closed stream");
+    } catch (IOException ioe) {
+      // expected.
+    }
+
+    // A second close is a no-op.
+    out.close();
+  }
+
+  public void testSetDestination() throws IOException {
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    AsyncOutputStream out = new AsyncOutputStream(null, 4, "test");
+
+    out.setDestination(first);
+    out.write(makeData(10));
+    out.setDestination(second);
+    out.write(makeData(3));
+    out.setDestination(null);
+
+    assertEquals(10, first.size());
+    assertEquals(3, second.size());
+    out.close();
+  }
+
+  /** An OutputStream that fails every write and records its closing. */
+  private static class FailingOutputStream extends OutputStream {
+    private boolean closed;
+
+    @Override
+    public void write(int b) throws IOException {
+      throw new IOException("disk full");
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  public void testErrorReported() throws IOException {
+    FailingOutputStream failing = new FailingOutputStream();
+
+    AsyncOutputStream out = new AsyncOutputStream(failing, 4, "test");
+    try {
+      out.write(makeData(100));
+      out.sync();
+      fail("Expected IOException from the underlying stream");
+    } catch (IOException ioe) {
+      assertTrue(ioe.getMessage().contains("disk full"));
+    }
+
+    try {
+      out.close();
+      fail("Expected the error to be reported again on close");
+    } catch (IOException ioe) {
+      assertTrue(ioe.getMessage().contains("disk full"));
+    }
+
+    // The underlying stream is closed regardless.
+    assertTrue(failing.closed);
+  }
+}
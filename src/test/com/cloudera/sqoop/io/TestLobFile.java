@@ -25,7 +25,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -544,6 +547,85 @@ public class TestLobFile extends TestCase {
     verifyBlobRecords(p, NUM_RECORDS, DECLARED_RECORD_LEN, ACTUAL_RECORD_LEN);
   }
 
+  /**
+   * Read records back in reverse order with readRecordBuffer(), checking
+   * that this does not disturb the reader's sequential cursor.
+   */
+  private void runRecordBufferTest(boolean mmap) throws Exception {
+    conf.setBoolean(LobFile.MMAP_ENABLED_KEY, mmap);
+    final int NUM_RECORDS = 10;
+    Path p = new Path(TEMP_BASE_DIR, "buffers.lob");
+    if (fs.exists(p)) {
+      fs.delete(p, false);
+    }
+
+    // Use three entries per segment so the records span several segments.
+    LobFile.Writer writer = LobFile.create(p, conf, false, null, 3);
+    long [] offsets = new long[NUM_RECORDS];
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      offsets[i] = writer.tell();
+      writeBlobRecord(writer, 10 + i, 10 + i, i);
+    }
+    writer.close();
+
+    LobFile.Reader reader = LobFile.open(p, conf);
+    assertTrue(reader.next());
+    assertEquals(offsets[0], reader.getRecordOffset());
+
+    for (int i = NUM_RECORDS - 1; i >= 0; i--) {
+      ByteBuffer buf = reader.readRecordBuffer(offsets[i]);
+      assertEquals(10 + i, buf.remaining());
+      for (int j = 0; j < 10 + i; j++) {
+        assertEquals(j + i, (int) buf.get());
+      }
+    }
+
+    // The sequential cursor is still on the first record.
+    InputStream is = reader.readBlobRecord();
+    assertEquals(0, is.read());
+    is.close();
+    verifyBlobRecord(reader, 11, 11, 1);
+
+    try {
+      reader.readRecordBuffer(offsets[1] + 1);
+      fail("Expected IOException for an offset inside a record");
+    } catch (IOException ioe) {
+      // expected.
+    }
+
+    reader.close();
+    fs.delete(p, false);
+  }
+
+  public void testRecordBuffers() throws Exception {
+    runRecordBufferTest(false);
+  }
+
+  public void testMappedRecordBuffers() throws Exception {
+    runRecordBufferTest(true);
+  }
+
+  public void testCompressedRecordBuffers() throws Exception {
+    Path p = new Path(TEMP_BASE_DIR, "compressed-buffers.lob");
+    String [] records = {
+      "this is the first record, It should be compressed a lot!",
+      "record 2 record 2 record 2 record 2 2 2 2 2 2 2 2 2 2 2 2",
+      "and a third and a third yes this is the third",
+    };
+    long [] offsets = writeClobFile(p, CodecMap.DEFLATE, records);
+
+    LobFile.Reader reader = LobFile.open(p, conf);
+    for (int i = records.length - 1; i >= 0; i--) {
+      ByteBuffer buf = reader.readRecordBuffer(offsets[i]);
+      byte [] bytes = new byte[buf.remaining()];
+      buf.get(bytes);
+      assertEquals(records[i], new String(bytes, "UTF-8"));
+    }
+
+    reader.close();
+    fs.delete(p, false);
+  }
+
   private void runCompressedTest(String codec) throws Exception {
     LOG.info("Testing with codec: " + codec);
     Path p = new Path(TEMP_BASE_DIR, "compressed-" + codec + ".lob");
@@ -574,5 +656,133 @@ public class TestLobFile extends TestCase {
       LOG.info("Got unsupported codec exception for lzo; expected -- good.");
     }
   }
-}
 
+  public void testSynchronousWrites() throws Exception {
+    conf.setBoolean(LobFile.ASYNC_WRITE_KEY, false);
+    runCompressedTest(null);
+    runCompressedTest(CodecMap.DEFLATE);
+    runRecordBufferTest(false);
+  }
+
+  public void testSmallAsyncBuffers() throws Exception {
+    // Records span many buffers; all of them must still be written
+    // in order, with correct offsets and lengths.
+    conf.setInt(LobFile.ASYNC_BUFFER_SIZE_KEY, 5);
+    runCompressedTest(null);
+    runCompressedTest(CodecMap.DEFLATE);
+    runRecordBufferTest(false);
+  }
+
+  /**
+   * Write each of the records to a BLOB file and check that each is read
+   * back intact, compressed with the expected codec.
+   */
+  private void runRecordCodecTest(byte [][] records, String [] codecs)
+      throws Exception {
+    Path p = new Path(TEMP_BASE_DIR, "record-codecs.lob");
+    if (fs.exists(p)) {
+      fs.delete(p, false);
+    }
+
+    LobFile.Writer writer = LobFile.create(p, conf, false, CodecMap.DEFLATE);
+    long [] offsets = new long[records.length];
+    for (int i = 0; i < records.length; i++) {
+      offsets[i] = writer.tell();
+      OutputStream os = writer.writeBlobRecord(records[i].length);
+      os.write(records[i]);
+      os.close();
+    }
+    writer.close();
+
+    LobFile.Reader reader = LobFile.open(p, conf);
+    for (int i = 0; i < records.length; i++) {
+      assertTrue(reader.next());
+      assertEquals(codecs[i], reader.getRecordCodec());
+      InputStream is = reader.readBlobRecord();
+      byte [] data = new byte[records[i].length];
+      int pos = 0;
+      while (pos < data.length) {
+        int len = is.read(data, pos, data.length - pos);
+        assertTrue(len > 0);
+        pos += len;
+      }
+      assertEquals(-1, is.read());
+      assertTrue(Arrays.equals(records[i], data));
+
+      ByteBuffer buf = reader.readRecordBuffer(offsets[i]);
+      assertEquals(ByteBuffer.wrap(records[i]), buf);
+    }
+    assertFalse(reader.next());
+    reader.close();
+    fs.delete(p, false);
+  }
+
+  private byte [] makeTextRecord(int len) {
+    byte [] data = new byte[len];
+    byte [] text = "all work and no play makes jack a dull boy. ".getBytes();
+    for (int i = 0; i < len; i++) {
+      data[i] = text[i % text.length];
+    }
+    return data;
+  }
+
+  private byte [] makeRandomRecord(int len) {
+    byte [] data = new byte[len];
+    new Random(len).nextBytes(data);
+    return data;
+  }
+
+  private void runPerRecordCodecTest() throws Exception {
+    conf.setBoolean(LobFile.PER_RECORD_CODEC_KEY, true);
+
+    // Looks like a PNG image, even though the rest would compress.
+    byte [] png = makeTextRecord(20000);
+    png[0] = (byte) 0x89;
+    png[1] = 'P';
+    png[2] = 'N';
+    png[3] = 'G';
+
+    byte [][] records = {
+      makeTextRecord(100000),
+      makeRandomRecord(100000),
+      png,
+      makeTextRecord(50),
+      new byte[0],
+      makeTextRecord(1000),
+    };
+    String [] codecs = {
+      CodecMap.DEFLATE,
+      CodecMap.NONE,
+      CodecMap.NONE,
+      CodecMap.NONE,
+      CodecMap.NONE,
+      CodecMap.DEFLATE,
+    };
+
+    runRecordCodecTest(records, codecs);
+  }
+
+  public void testPerRecordCodecs() throws Exception {
+    runPerRecordCodecTest();
+  }
+
+  public void testSynchronousPerRecordCodecs() throws Exception {
+    conf.setBoolean(LobFile.ASYNC_WRITE_KEY, false);
+    runPerRecordCodecTest();
+  }
+
+  public void testLargeRecordCodec() throws Exception {
+    conf.setBoolean(LobFile.PER_RECORD_CODEC_KEY, true);
+    conf.set(LobFile.LARGE_RECORD_CODEC_KEY, CodecMap.NONE);
+    conf.setLong(LobFile.LARGE_RECORD_SIZE_KEY, 5000);
+
+    byte [][] records = { makeTextRecord(4000), makeTextRecord(6000) };
+    String [] codecs = { CodecMap.DEFLATE, CodecMap.NONE };
+    runRecordCodecTest(records, codecs);
+  }
+
+  public void testPerRecordClobs() throws Exception {
+    conf.setBoolean(LobFile.PER_RECORD_CODEC_KEY, true);
+    runCompressedTest(CodecMap.DEFLATE);
+  }
+}
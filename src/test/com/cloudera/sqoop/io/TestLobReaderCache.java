@@ -0,0 +1,192 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Test the pooling and eviction behavior of LobReaderCache.
+ */
+public class TestLobReaderCache extends TestCase {
+
+  public static final Path TEMP_BASE_DIR;
+
+  static {
+    String tmpDir = System.getProperty("test.build.data", "/tmp/");
+    if (!tmpDir.endsWith(File.separator)) {
+      tmpDir = tmpDir + File.separator;
+    }
+
+    TEMP_BASE_DIR = new Path(new Path(tmpDir), "lobcachetest");
+  }
+
+  private Configuration conf;
+  private FileSystem fs;
+  private LobReaderCache cache;
+
+  public void setUp() throws Exception {
+    conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+
+    fs = FileSystem.getLocal(conf);
+    fs.mkdirs(TEMP_BASE_DIR);
+    cache = new LobReaderCache(conf);
+  }
+
+  public void tearDown() throws Exception {
+    cache.clear();
+  }
+
+  private Path writeLobFile(String name) throws Exception {
+    Path p = new Path(TEMP_BASE_DIR, name);
+    LobFile.Writer writer = LobFile.create(p, conf);
+    OutputStream os = writer.writeBlobRecord(4);
+    os.write(new byte [] { 1, 2, 3, 4 });
+    os.close();
+    writer.close();
+    return p;
+  }
+
+  public void testHitAfterRecycle() throws Exception {
+    Path p = writeLobFile("hit.lob");
+    LobFile.Reader r1 = cache.get(p, conf);
+    assertEquals(0, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    cache.recycle(r1);
+    assertEquals(1, cache.getNumIdleReaders());
+
+    LobFile.Reader r2 = cache.get(p, conf);
+    assertSame(r1, r2);
+    assertEquals(1, cache.getHits());
+    assertEquals(0, cache.getNumIdleReaders());
+    cache.recycle(r2);
+  }
+
+  public void testReadersPerPath() throws Exception {
+    conf.setInt(LobReaderCache.MAX_READERS_PER_PATH_KEY, 2);
+    cache = new LobReaderCache(conf);
+    Path p = writeLobFile("pool.lob");
+
+    // Three concurrent users of the same file each get their own reader.
+    LobFile.Reader r1 = cache.get(p, conf);
+    LobFile.Reader r2 = cache.get(p, conf);
+    LobFile.Reader r3 = cache.get(p, conf);
+    assertNotSame(r1, r2);
+    assertNotSame(r2, r3);
+
+    cache.recycle(r1);
+    cache.recycle(r2);
+    cache.recycle(r3);
+
+    // Only two fit in the pool; the third is closed.
+    assertEquals(2, cache.getNumIdleReaders());
+    assertEquals(1, cache.getEvictions());
+    assertFalse(r1.isClosed());
+    assertFalse(r2.isClosed());
+    assertTrue(r3.isClosed());
+
+    // The most recently returned reader comes back first.
+    assertSame(r2, cache.get(p, conf));
+    assertSame(r1, cache.get(p, conf));
+  }
+
+  public void testMaxReaders() throws Exception {
+    conf.setInt(LobReaderCache.MAX_READERS_KEY, 2);
+    cache = new LobReaderCache(conf);
+    Path p1 = writeLobFile("lru1.lob");
+    Path p2 = writeLobFile("lru2.lob");
+    Path p3 = writeLobFile("lru3.lob");
+
+    LobFile.Reader r1 = cache.get(p1, conf);
+    LobFile.Reader r2 = cache.get(p2, conf);
+    LobFile.Reader r3 = cache.get(p3, conf);
+    cache.recycle(r1);
+    cache.recycle(r2);
+    cache.recycle(r3);
+
+    assertEquals(2, cache.getNumIdleReaders());
+    assertEquals(1, cache.getEvictions());
+    assertTrue(r1.isClosed());
+    assertFalse(r2.isClosed());
+    assertFalse(r3.isClosed());
+  }
+
+  public void testIdleEviction() throws Exception {
+    conf.setLong(LobReaderCache.IDLE_MILLIS_KEY, 1);
+    cache = new LobReaderCache(conf);
+    Path p1 = writeLobFile("idle1.lob");
+    Path p2 = writeLobFile("idle2.lob");
+
+    LobFile.Reader r1 = cache.get(p1, conf);
+    cache.recycle(r1);
+    Thread.sleep(50);
+
+    // Any use of the cache sweeps out expired readers.
+    LobFile.Reader r2 = cache.get(p2, conf);
+    assertTrue(r1.isClosed());
+    assertEquals(0, cache.getNumIdleReaders());
+    assertEquals(1, cache.getEvictions());
+    cache.recycle(r2);
+  }
+
+  public void testLimitsFixedAtCreation() throws Exception {
+    Path p = writeLobFile("fixed.lob");
+
+    // A caller's Configuration does not change the limits of the cache.
+    Configuration otherConf = new Configuration(conf);
+    otherConf.setInt(LobReaderCache.MAX_READERS_PER_PATH_KEY, 1);
+    LobFile.Reader r1 = cache.get(p, otherConf);
+    LobFile.Reader r2 = cache.get(p, otherConf);
+    cache.recycle(r1);
+    cache.recycle(r2);
+
+    assertEquals(2, cache.getNumIdleReaders());
+    assertEquals(0, cache.getEvictions());
+  }
+
+  public void testDoubleRecycle() throws Exception {
+    Path p = writeLobFile("double.lob");
+    LobFile.Reader r = cache.get(p, conf);
+    cache.recycle(r);
+    cache.recycle(r);
+    assertEquals(1, cache.getNumIdleReaders());
+  }
+
+  public void testClosedReaderNotCached() throws Exception {
+    Path p = writeLobFile("closed.lob");
+    LobFile.Reader r = cache.get(p, conf);
+    r.close();
+    cache.recycle(r);
+    assertEquals(0, cache.getNumIdleReaders());
+
+    LobFile.Reader r2 = cache.get(p, conf);
+    assertNotSame(r, r2);
+    assertFalse(r2.isClosed());
+    cache.recycle(r2);
+  }
+}
@@ -19,6 +19,7 @@
 package com.cloudera.sqoop.lib;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import junit.framework.TestCase;
 
@@ -132,6 +133,14 @@ public class TestBlobRef extends TestCase {
       for (int i = 0; i < bytes; i++) {
         assertEquals(data[i], buf[i]);
       }
+
+      // Read the same record into a buffer.
+      ByteBuffer dataBuf = blob.getDataBuffer(conf, tmpPath);
+      assertEquals(data.length, dataBuf.remaining());
+      for (int i = 0; i < data.length; i++) {
+        assertEquals(data[i], dataBuf.get(i));
+      }
+      blob.close();
     } finally {
       fs.delete(blobFile, false);
     }
@@ -18,6 +18,8 @@
 
 package com.cloudera.sqoop.lib;
 
+import java.io.IOException;
+
 import junit.framework.TestCase;
 
 
@@ -128,4 +130,62 @@ public class TestFieldFormatter extends TestCase {
         new DelimiterSet(',', '\n', '\"', '\\', false));
     assertEquals("\"foo\\\\,bar\"", result);
   }
+
+  /**
+   * Verify that appendEscapedAndEnclosed() produces the same output as
+   * escapeAndEnclose() for 'str'.
+   */
+  private void assertAppendMatches(String str, DelimiterSet delims)
+      throws IOException {
+    StringBuilder sb = new StringBuilder();
+    FieldFormatter.appendEscapedAndEnclosed(str, delims, sb);
+    assertEquals(FieldFormatter.escapeAndEnclose(str, delims), sb.toString());
+  }
+
+  public void testAppendMatchesEscapeAndEnclose() throws IOException {
+    String [] strs = { "", "foo", "foo,bar", "foo\nbar", "foo\"bar",
+        "foo\\bar", "foo\\\"bar", "foo\",bar", "foo\\,bar", "\\\\", };
+    DelimiterSet [] delimSets = {
+      DelimiterSet.DEFAULT_DELIMITERS,
+      new DelimiterSet(',', '\n', '\"', '\\', false),
+      new DelimiterSet(',', '\n', '\"', '\\', true),
+      new DelimiterSet(',', '\n', DelimiterSet.NULL_CHAR, '\\', false),
+      new DelimiterSet(',', ',', DelimiterSet.NULL_CHAR, '\\', false),
+      new DelimiterSet(',', '\n', '\"', DelimiterSet.NULL_CHAR, true),
+      new DelimiterSet('\\', '\n', DelimiterSet.NULL_CHAR, '\\', false),
+      new DelimiterSet('"', '\n', '"', '"', false),
+    };
+
+    for (DelimiterSet delims : delimSets) {
+      for (String str : strs) {
+        assertAppendMatches(str, delims);
+      }
+    }
+  }
+
+  public void testAppendNull() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    FieldFormatter.appendEscapedAndEnclosed(null,
+        new DelimiterSet(',', '\n', '\"', '\\', true), sb);
+    assertEquals("null", sb.toString());
+  }
+
+  public void testAppendLong() throws IOException {
+    long [] vals = { 0, 7, -7, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE };
+    DelimiterSet [] delimSets = {
+      DelimiterSet.DEFAULT_DELIMITERS,
+      new DelimiterSet(',', '\n', '\"', '\\', true),
+      new DelimiterSet('-', '\n', '\"', '\\', false),
+      new DelimiterSet('1', '\n', DelimiterSet.NULL_CHAR, '\\', false),
+    };
+
+    for (DelimiterSet delims : delimSets) {
+      for (long val : vals) {
+        StringBuilder sb = new StringBuilder();
+        FieldFormatter.appendEscapedAndEnclosed(val, delims, sb);
+        assertEquals(FieldFormatter.escapeAndEnclose("" + val, delims),
+            sb.toString());
+      }
+    }
+  }
 }
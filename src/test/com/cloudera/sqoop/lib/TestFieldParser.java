@@ -0,0 +1,141 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that FieldParser decodes field slices the same way as the
+ * String-based parse methods.
+ */
+public class TestFieldParser extends TestCase {
+
+  /**
+   * Embed 'str' in the middle of a larger buffer so that the tests
+   * exercise non-zero offsets.
+   */
+  private byte [] buf(String str) throws UnsupportedEncodingException {
+    byte [] strBytes = str.getBytes("UTF-8");
+    byte [] out = new byte[strBytes.length + 4];
+    out[0] = 'x';
+    out[1] = '9';
+    System.arraycopy(strBytes, 0, out, 2, strBytes.length);
+    out[out.length - 2] = '7';
+    out[out.length - 1] = ',';
+    return out;
+  }
+
+  private int end(byte [] b) {
+    return b.length - 2;
+  }
+
+  public void testIsNull() throws Exception {
+    byte [] b = buf("null");
+    assertTrue(FieldParser.isNull(b, 2, end(b)));
+    b = buf("NULL");
+    assertFalse(FieldParser.isNull(b, 2, end(b)));
+    b = buf("nul");
+    assertFalse(FieldParser.isNull(b, 2, end(b)));
+    b = buf("");
+    assertFalse(FieldParser.isNull(b, 2, end(b)));
+  }
+
+  public void testParseString() throws Exception {
+    byte [] b = buf("caf\u00e9");
+    assertEquals("caf\u00e9", FieldParser.parseString(b, 2, end(b)));
+  }
+
+  public void testParseInt() throws Exception {
+    String [] vals = { "0", "-0", "42", "-42", "999999999", "2147483647",
+        "-2147483648", "+17", };
+    for (String val : vals) {
+      byte [] b = buf(val);
+      assertEquals(val, Integer.parseInt(val),
+          FieldParser.parseInt(b, 2, end(b)));
+    }
+  }
+
+  public void testParseBadInt() throws Exception {
+    String [] vals = { "", "-", "1.0", "2147483648", "12a", " 1", };
+    for (String val : vals) {
+      byte [] b = buf(val);
+      try {
+        FieldParser.parseInt(b, 2, end(b));
+        fail("Expected NumberFormatException for " + val);
+      } catch (NumberFormatException nfe) {
+        // expected.
+      }
+    }
+  }
+
+  public void testParseLong() throws Exception {
+    String [] vals = { "0", "-1", "123456789012345678", "9223372036854775807",
+        "-9223372036854775808", };
+    for (String val : vals) {
+      byte [] b = buf(val);
+      assertEquals(val, Long.parseLong(val),
+          FieldParser.parseLong(b, 2, end(b)));
+    }
+  }
+
+  public void testParseBigDecimal() throws Exception {
+    String [] vals = { "0", "-0.00", "3.14159", ".5", "5.", "-12.340",
+        "1234567890.123456789012", "1E+5", };
+    for (String val : vals) {
+      byte [] b = buf(val);
+      BigDecimal expected = new BigDecimal(val);
+      BigDecimal actual = FieldParser.parseBigDecimal(b, 2, end(b));
+      assertEquals(val, expected, actual);
+      assertEquals(val, expected.scale(), actual.scale());
+    }
+  }
+
+  public void testParseDouble() throws Exception {
+    String [] vals = { "0", "-0.0", "0.1", "3.14159", "-2.5", "1e10",
+        "123456789.0123456", "NaN", "0.30000000000000004", };
+    for (String val : vals) {
+      byte [] b = buf(val);
+      assertEquals(val, Double.doubleToLongBits(Double.parseDouble(val)),
+          Double.doubleToLongBits(FieldParser.parseDouble(b, 2, end(b))));
+    }
+  }
+
+  public void testParseFloat() throws Exception {
+    String [] vals = { "0", "-0.0", "0.1", "3.14159", "-2.5", "16777217",
+        "1.17549435E-38", };
+    for (String val : vals) {
+      byte [] b = buf(val);
+      assertEquals(val, Float.floatToIntBits(Float.parseFloat(val)),
+          Float.floatToIntBits(FieldParser.parseFloat(b, 2, end(b))));
+    }
+  }
+
+  public void testParseBoolean() throws Exception {
+    String [] vals = { "true", "TRUE", "t", "T", "1", "on", "On", "yes",
+        "YES", "false", "f", "0", "off", "no", "null", "", "tru", "truex", };
+    for (String val : vals) {
+      byte [] b = buf(val);
+      assertEquals(val, BooleanParser.valueOf(val),
+          FieldParser.parseBoolean(b, 2, end(b)));
+    }
+  }
+}
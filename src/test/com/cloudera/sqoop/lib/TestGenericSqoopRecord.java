@@ -0,0 +1,192 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Test that GenericSqoopRecord reads and writes records according to the
+ * schema stored in its Configuration.
+ */
+public class TestGenericSqoopRecord extends TestCase {
+
+  private static final String [] NAMES = {
+    "ID", "NAME", "PRICE", "RATIO", "ACTIVE", "CREATED", "UPDATED",
+  };
+
+  private static final int [] SQL_TYPES = {
+    Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.DOUBLE,
+    Types.BOOLEAN, Types.DATE, Types.TIMESTAMP,
+  };
+
+  private static final String [] JAVA_TYPES = {
+    "Integer", "String", "java.math.BigDecimal", "Double", "Boolean",
+    "java.sql.Date", "java.sql.Timestamp",
+  };
+
+  private Configuration conf;
+
+  public void setUp() {
+    conf = new Configuration();
+    GenericSqoopRecord.configure(conf, NAMES, SQL_TYPES, JAVA_TYPES,
+        new int [] { 1, 2, 3, 4, 5, 6, 0 },
+        new DelimiterSet(',', '\n', '\'', '\\', false),
+        new DelimiterSet('|', '\n', '"', '\\', false));
+  }
+
+  private GenericSqoopRecord newRecord() {
+    return ReflectionUtils.newInstance(GenericSqoopRecord.class, conf);
+  }
+
+  private GenericSqoopRecord makeRecord() {
+    GenericSqoopRecord r = newRecord();
+    r.set(0, Integer.valueOf(42));
+    r.set(1, "a|b");
+    r.set(2, new BigDecimal("12.50"));
+    r.set(3, Double.valueOf(0.25));
+    r.set(4, Boolean.TRUE);
+    r.set(5, Date.valueOf("2010-06-01"));
+    r.set(6, Timestamp.valueOf("2010-06-01 12:34:56.789"));
+    return r;
+  }
+
+  public void testIsSupportedType() {
+    for (String type : JAVA_TYPES) {
+      assertTrue(type, GenericSqoopRecord.isSupportedType(type));
+    }
+    assertTrue(GenericSqoopRecord.isSupportedType(ClobRef.class.getName()));
+    assertTrue(GenericSqoopRecord.isSupportedType(
+        "org.apache.hadoop.io.BytesWritable"));
+    assertFalse(GenericSqoopRecord.isSupportedType("java.lang.Object"));
+    assertFalse(GenericSqoopRecord.isSupportedType(null));
+  }
+
+  public void testFormat() {
+    GenericSqoopRecord r = makeRecord();
+    assertEquals("42|\"a|b\"|12.50|0.25|true|2010-06-01|"
+        + "2010-06-01 12:34:56.789\n", r.toString());
+
+    r.set(0, null);
+    r.set(1, null);
+    assertTrue(r.toString().startsWith("null|null|12.50|"));
+  }
+
+  public void testFormatEnclosedNulls() {
+    // Match the generated class: only a null String is written bare.
+    GenericSqoopRecord.configure(conf, NAMES, SQL_TYPES, JAVA_TYPES,
+        new int [] { 1, 2, 3, 4, 5, 6, 0 },
+        DelimiterSet.DEFAULT_DELIMITERS,
+        new DelimiterSet('|', '\n', '"', '\\', true));
+    GenericSqoopRecord r = makeRecord();
+    r.set(0, null);
+    r.set(1, null);
+    r.set(5, null);
+    assertTrue(r.toString(), r.toString().startsWith(
+        "\"null\"|null|\"12.50\"|\"0.25\"|\"true\"|\"null\"|"));
+  }
+
+  public void testParseText() throws Exception {
+    GenericSqoopRecord r = newRecord();
+    r.parse(new Text("7,'x,y',1.5,2.0,1,2010-01-02,null\n"));
+    assertEquals(Integer.valueOf(7), r.get(0));
+    assertEquals("x,y", r.get(1));
+    assertEquals(new BigDecimal("1.5"), r.get(2));
+    assertEquals(Double.valueOf(2.0), r.get(3));
+    assertEquals(Boolean.TRUE, r.get(4));
+    assertEquals(Date.valueOf("2010-01-02"), r.get(5));
+    assertNull(r.get(6));
+  }
+
+  public void testParseString() throws Exception {
+    GenericSqoopRecord r = newRecord();
+    r.parse("7,'x,y',1.5,2.0,1,2010-01-02,null\n");
+    assertEquals(Integer.valueOf(7), r.get(0));
+    assertEquals("x,y", r.get(1));
+    assertEquals(new BigDecimal("1.5"), r.get(2));
+    assertNull(r.get(6));
+  }
+
+  public void testParseTooFewFields() {
+    GenericSqoopRecord r = newRecord();
+    try {
+      r.parse(new Text("7,x\n"));
+      fail("Expected ParseError");
+    } catch (RecordParser.ParseError pe) {
+      // expected.
+    }
+  }
+
+  public void testWritable() throws IOException {
+    GenericSqoopRecord r = makeRecord();
+    r.set(1, null);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    r.write(new DataOutputStream(bytes));
+
+    GenericSqoopRecord r2 = newRecord();
+    r2.readFields(new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(r.getFieldMap(), r2.getFieldMap());
+  }
+
+  public void testClone() throws Exception {
+    GenericSqoopRecord r = makeRecord();
+    GenericSqoopRecord r2 = (GenericSqoopRecord) r.clone();
+    assertEquals(r.getFieldMap(), r2.getFieldMap());
+
+    // Mutable values must not be shared.
+    ((Timestamp) r2.get(6)).setNanos(0);
+    assertEquals(Timestamp.valueOf("2010-06-01 12:34:56.789"), r.get(6));
+
+    GenericSqoopRecord r3 = newRecord();
+    assertTrue(r.copyTo(r3));
+    assertEquals(r.getFieldMap(), r3.getFieldMap());
+  }
+
+  public void testFieldMap() {
+    Map<String, Object> fields = makeRecord().getFieldMap();
+    assertEquals(NAMES.length, fields.size());
+    assertEquals(Integer.valueOf(42), fields.get("ID"));
+    assertEquals("a|b", fields.get("NAME"));
+  }
+
+  public void testFieldValue() {
+    GenericSqoopRecord r = makeRecord();
+    Map<String, Object> fields = r.getFieldMap();
+    for (String name : NAMES) {
+      assertEquals(fields.get(name), r.getFieldValue(name));
+    }
+    assertNull(r.getFieldValue("NO_SUCH_FIELD"));
+  }
+}
@@ -0,0 +1,238 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.cloudera.sqoop.io.LobFile;
+import com.cloudera.sqoop.io.LobReaderCache;
+
+/**
+ * Test that LOB values are bound into PreparedStatements for export,
+ * with external LOBs bound as streams.
+ */
+public class TestLobExportContext extends TestCase {
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path tmpPath;
+
+  // The last parameter-setting call made on the statement.
+  private String lastMethod;
+  private Object [] lastArgs;
+
+  public void setUp() throws IOException {
+    conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+    fs = FileSystem.getLocal(conf);
+    String tmpDir = System.getProperty("test.build.data", "/tmp/");
+    tmpPath = new Path(new Path(tmpDir), "lobexport");
+    fs.mkdirs(tmpPath);
+    LobExportContext.set(conf, tmpPath);
+  }
+
+  public void tearDown() throws IOException {
+    LobExportContext.set(null, null);
+    fs.delete(tmpPath, true);
+  }
+
+  /**
+   * @return a PreparedStatement that records the last call made on it.
+   */
+  private PreparedStatement makeStatement() {
+    InvocationHandler handler = new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object [] args) {
+        lastMethod = method.getName();
+        lastArgs = args;
+        return null;
+      }
+    };
+
+    return (PreparedStatement) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class [] { PreparedStatement.class }, handler);
+  }
+
+  public void testNull() throws SQLException {
+    JdbcWritableBridge.writeBlobRef(null, 1, Types.BLOB, makeStatement());
+    assertEquals("setNull", lastMethod);
+    JdbcWritableBridge.writeClobRef(null, 2, Types.CLOB, makeStatement());
+    assertEquals("setNull", lastMethod);
+    assertEquals(Integer.valueOf(Types.CLOB), lastArgs[1]);
+  }
+
+  public void testInline() throws Exception {
+    JdbcWritableBridge.writeBlobRef(new BlobRef(new byte[] { 1, 2, 3 }), 1,
+        Types.BLOB, makeStatement());
+    assertEquals("setBinaryStream", lastMethod);
+    assertEquals(Integer.valueOf(3), lastArgs[2]);
+    assertEquals(1, ((InputStream) lastArgs[1]).read());
+
+    JdbcWritableBridge.writeClobRef(new ClobRef("inline"), 1, Types.CLOB,
+        makeStatement());
+    assertEquals("setString", lastMethod);
+    assertEquals("inline", lastArgs[1]);
+  }
+
+  public void testExternalBlob() throws Exception {
+    byte [] data = new byte[1000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+
+    Path lobDir = new Path(tmpPath, "_lob");
+    fs.mkdirs(lobDir);
+    LobFile.Writer lw = LobFile.create(new Path(lobDir, "blobs"), conf, false);
+    lw.writeBlobRecord(3).write(new byte[] { 9, 9, 9 });
+    long off = lw.tell();
+    OutputStream os = lw.writeBlobRecord(data.length);
+    os.write(data);
+    os.close();
+    lw.close();
+
+    BlobRef ref = BlobRef.parse("externalLob(lf,_lob/blobs," + off + ","
+        + data.length + ")");
+    int idleBefore = LobReaderCache.getCache().getNumIdleReaders();
+    JdbcWritableBridge.writeBlobRef(ref, 4, Types.BLOB, makeStatement());
+    assertEquals("setBinaryStream", lastMethod);
+    assertEquals(Integer.valueOf(4), lastArgs[0]);
+    assertEquals(Integer.valueOf(data.length), lastArgs[2]);
+
+    // The stream stays valid after the LobRef is closed.
+    ref.close();
+    InputStream is = (InputStream) lastArgs[1];
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(data[i], (byte) is.read());
+    }
+    assertEquals(-1, is.read());
+
+    // Reaching the end of the stream released its reader.
+    assertEquals(idleBefore + 1,
+        LobReaderCache.getCache().getNumIdleReaders());
+    is.close();
+    assertEquals(idleBefore + 1,
+        LobReaderCache.getCache().getNumIdleReaders());
+  }
+
+  public void testExternalClob() throws Exception {
+    String data = "a character large object";
+    LobFile.Writer lw = LobFile.create(new Path(tmpPath, "clobs"),
+        conf, true);
+    long off = lw.tell();
+    Writer w = lw.writeClobRecord(data.length());
+    w.write(data);
+    w.close();
+    lw.close();
+
+    ClobRef ref = ClobRef.parse("externalLob(lf,clobs," + off + ","
+        + data.length() + ")");
+    JdbcWritableBridge.writeClobRef(ref, 1, Types.CLOB, makeStatement());
+    assertEquals("setCharacterStream", lastMethod);
+    assertEquals(Integer.valueOf(data.length()), lastArgs[2]);
+
+    Reader r = (Reader) lastArgs[1];
+    char [] buf = new char[data.length() + 10];
+    int total = 0;
+    while (true) {
+      int n = r.read(buf, total, buf.length - total);
+      if (-1 == n) {
+        break;
+      }
+      total += n;
+    }
+    r.close();
+    assertEquals(data, new String(buf, 0, total));
+  }
+
+  public void testUnreadStreamsClosed() throws Exception {
+    LobFile.Writer lw = LobFile.create(new Path(tmpPath, "unread"),
+        conf, false);
+    long off = lw.tell();
+    lw.writeBlobRecord(4).write(new byte[] { 1, 2, 3, 4 });
+    lw.close();
+
+    assertTrue(LobExportContext.takeBoundStreams().isEmpty());
+    BlobRef ref = BlobRef.parse("externalLob(lf,unread," + off + ",4)");
+    int idleBefore = LobReaderCache.getCache().getNumIdleReaders();
+    JdbcWritableBridge.writeBlobRef(ref, 1, Types.BLOB, makeStatement());
+    JdbcWritableBridge.writeBlobRef(new BlobRef(new byte[] { 5 }), 2,
+        Types.BLOB, makeStatement());
+
+    // Only the external stream is tracked; the driver never reads it,
+    // so its reader is released when the stream is closed.
+    List<Closeable> streams = LobExportContext.takeBoundStreams();
+    assertEquals(1, streams.size());
+    assertTrue(LobExportContext.takeBoundStreams().isEmpty());
+    assertEquals(idleBefore, LobReaderCache.getCache().getNumIdleReaders());
+    LobExportContext.closeStreams(streams);
+    assertEquals(idleBefore + 1,
+        LobReaderCache.getCache().getNumIdleReaders());
+  }
+
+  public void testUnknownLength() throws Exception {
+    LobFile.Writer lw = LobFile.create(new Path(tmpPath, "nolen"),
+        conf, false);
+    long off = lw.tell();
+    OutputStream os = lw.writeBlobRecord(-1);
+    os.write(new byte[] { 7, 8, 9 });
+    os.close();
+    lw.close();
+
+    // A record without a length is bound from memory.
+    BlobRef ref = BlobRef.parse("externalLob(lf,nolen," + off + ",3)");
+    JdbcWritableBridge.writeBlobRef(ref, 1, Types.BLOB, makeStatement());
+    assertEquals("setBinaryStream", lastMethod);
+    assertEquals(Integer.valueOf(3), lastArgs[2]);
+    InputStream is = (InputStream) lastArgs[1];
+    assertEquals(7, is.read());
+    assertEquals(8, is.read());
+    assertEquals(9, is.read());
+    assertEquals(-1, is.read());
+    assertTrue(LobExportContext.takeBoundStreams().isEmpty());
+  }
+
+  public void testUnconfigured() {
+    LobExportContext.set(null, null);
+    BlobRef ref = BlobRef.parse("externalLob(lf,_lob/blobs,0,10)");
+    try {
+      JdbcWritableBridge.writeBlobRef(ref, 1, Types.BLOB, makeStatement());
+      fail("Expected SQLException without a LOB base path");
+    } catch (SQLException sqle) {
+      // expected.
+    }
+  }
+}
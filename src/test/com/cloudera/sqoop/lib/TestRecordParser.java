@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.List;
 import junit.framework.TestCase;
 
+import org.apache.hadoop.io.Text;
+
 
 /**
  * Test that the record parser works in a variety of configurations.
@@ -410,4 +412,74 @@ public class TestRecordParser extends TestCase {
         parser.parseRecord("foo,\"bar\""));
   }
 
+  /**
+   * Parse 'input' with parseFields() and decode each field to a String.
+   */
+  private List<String> parseFields(RecordParser parser, String input)
+      throws RecordParser.ParseError {
+    int numFields = parser.parseFields(new Text(input));
+    ArrayList<String> out = new ArrayList<String>();
+    for (int i = 0; i < numFields; i++) {
+      out.add(parser.getFieldString(i));
+    }
+    return out;
+  }
+
+  public void testParseFields() throws RecordParser.ParseError {
+    RecordParser parser = new RecordParser(
+        new DelimiterSet(',', '\n', '\"', '\\', false));
+    String [] strings = { "field1", "the ,field", "", "the \"field" };
+    assertListsEqual(null, list(strings), parseFields(parser,
+        "field1,\"the ,field\",,the \\\"field\n"));
+
+    String [] strings2 = { "", "foo", "" };
+    assertListsEqual(null, list(strings2), parseFields(parser, ",foo,"));
+
+    String [] strings3 = { };
+    assertListsEqual(null, list(strings3), parseFields(parser, ""));
+  }
+
+  public void testParseFieldsMultiByte() throws RecordParser.ParseError {
+    RecordParser parser = new RecordParser(
+        new DelimiterSet(',', '\n', '\"', '\\', false));
+    String [] strings = { "caf\u00e9", "\u4e2d,\u6587", "\u00e9" };
+    assertListsEqual(null, list(strings), parseFields(parser,
+        "caf\u00e9,\"\u4e2d,\u6587\",\\\u00e9\n"));
+    assertListsEqual(null, list(strings), parser.parseRecord(
+        new Text("caf\u00e9,\"\u4e2d,\u6587\",\\\u00e9\n")));
+  }
+
+  public void testParseFieldsOffsets() throws RecordParser.ParseError {
+    RecordParser parser = new RecordParser(
+        new DelimiterSet(',', '\n', '\"', '\\', false));
+    assertEquals(3, parser.parseFields(new Text("12,\"a\\\"b\",345\n")));
+    int [] offsets = parser.getFieldOffsets();
+    byte [] buf = parser.getFieldBuffer();
+    assertEquals(2, offsets[1] - offsets[0]);
+    assertEquals(3, offsets[3] - offsets[2]);
+    assertEquals('"', (char) buf[offsets[2] + 1]);
+    assertEquals(3, parser.getFieldEnd(2) - parser.getFieldStart(2));
+    assertEquals("345", parser.getFieldString(2));
+  }
+
+  public void testParseFieldsNonAsciiDelimiter()
+      throws RecordParser.ParseError {
+    // Delimiters which are not 7-bit ASCII can't be matched on bytes.
+    RecordParser parser = new RecordParser(
+        new DelimiterSet('\u00fe', '\n', '\"', '\\', false));
+    String [] strings = { "a,b", "\u00e9", "" };
+    assertListsEqual(null, list(strings),
+        parseFields(parser, "a,b\u00fe\u00e9\u00fe\n"));
+  }
+
+  public void testParseFieldsRequiredQuotes() {
+    RecordParser parser = new RecordParser(
+        new DelimiterSet(',', '\n', '\"', '\\', true));
+    try {
+      parser.parseFields(new Text("\"field1\",field2"));
+      fail("Expected parse error for required quotes");
+    } catch (RecordParser.ParseError pe) {
+      // ok. expected.
+    }
+  }
 }
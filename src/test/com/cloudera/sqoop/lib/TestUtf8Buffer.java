@@ -0,0 +1,83 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test that Utf8Buffer encodes text the same way as String.getBytes().
+ */
+public class TestUtf8Buffer extends TestCase {
+
+  private void assertEncodes(String str, Utf8Buffer buf)
+      throws UnsupportedEncodingException {
+    byte [] expected = str.getBytes("UTF-8");
+    byte [] actual = Arrays.copyOf(buf.getBytes(), buf.getLength());
+    assertTrue("Bad encoding for " + str, Arrays.equals(expected, actual));
+  }
+
+  public void testAscii() throws Exception {
+    Utf8Buffer buf = new Utf8Buffer();
+    buf.append("foo").append(',').append("xbarx", 1, 4);
+    assertEncodes("foo,bar", buf);
+    assertEquals("foo,bar", buf.toString());
+  }
+
+  public void testMultiByte() throws Exception {
+    String str = "caf\u00e9 \u4e2d\u6587 \ud83d\ude00";
+    Utf8Buffer buf = new Utf8Buffer();
+    buf.append(str);
+    assertEncodes(str, buf);
+
+    // Append one char at a time, splitting the surrogate pair.
+    buf.reset();
+    for (int i = 0; i < str.length(); i++) {
+      buf.append(str.charAt(i));
+    }
+    assertEncodes(str, buf);
+  }
+
+  public void testUnpairedSurrogates() throws Exception {
+    Utf8Buffer buf = new Utf8Buffer();
+    buf.append("a\ud83db\ude00c\ud83d");
+    assertEncodes("a\ud83db\ude00c\ud83d", buf);
+  }
+
+  public void testGrowAndReset() throws Exception {
+    Utf8Buffer buf = new Utf8Buffer(4);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("\u00e9x");
+    }
+    buf.append(sb);
+    assertEncodes(sb.toString(), buf);
+
+    buf.reset();
+    assertEquals(0, buf.getLength());
+    buf.append("done");
+    Text text = new Text("some longer previous contents");
+    buf.copyTo(text);
+    assertEquals("done", text.toString());
+  }
+}
@@ -157,7 +157,7 @@ public class PostgresqlTest extends ImportJobTestCase {
   }
 
 
-  private String [] getArgv(boolean isDirect) {
+  private String [] getArgv(boolean isDirect, String... extraArgs) {
     ArrayList<String> args = new ArrayList<String>();
 
     CommonArgs.addHadoopFlags(args);
@@ -177,21 +177,24 @@ public class PostgresqlTest extends ImportJobTestCase {
       args.add("--direct");
     }
 
+    for (String arg : extraArgs) {
+      args.add(arg);
+    }
+
     return args.toArray(new String[0]);
   }
 
-  private void doImportAndVerify(boolean isDirect, String [] expectedResults)
-      throws IOException {
+  private void doImportAndVerify(boolean isDirect, String [] expectedResults,
+      String... extraArgs) throws IOException {
+    doImportAndVerify(isDirect, "part-m-00000", expectedResults, extraArgs);
+  }
+
+  private void doImportAndVerify(boolean isDirect, String fileName,
+      String [] expectedResults, String... extraArgs) throws IOException {
 
     Path warehousePath = new Path(this.getWarehouseDir());
     Path tablePath = new Path(warehousePath, TABLE_NAME);
-
-    Path filePath;
-    if (isDirect) {
-      filePath = new Path(tablePath, "data-00000");
-    } else {
-      filePath = new Path(tablePath, "part-m-00000");
-    }
+    Path filePath = new Path(tablePath, fileName);
 
     File tableFile = new File(tablePath.toString());
     if (tableFile.exists() && tableFile.isDirectory()) {
@@ -199,7 +202,7 @@ public class PostgresqlTest extends ImportJobTestCase {
       FileListing.recursiveDeleteDir(tableFile);
     }
 
-    String [] argv = getArgv(isDirect);
+    String [] argv = getArgv(isDirect, extraArgs);
     try {
       runImport(argv);
     } catch (IOException ioe) {
@@ -245,4 +248,17 @@ public class PostgresqlTest extends ImportJobTestCase {
 
     doImportAndVerify(true, expectedResults);
   }
+
+  @Test
+  public void testDirectImportSplitBySize() throws IOException {
+    String [] expectedResults = {
+      "2,Bob,2009-04-20,400,sales",
+      "3,Fred,2009-01-23,15,marketing",
+    };
+
+    // A single psql process writes the output through a
+    // SplittableBufferedWriter.
+    doImportAndVerify(true, "data-00000", expectedResults,
+        "--direct-split-size", "1048576");
+  }
 }
@@ -0,0 +1,79 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.manager;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+
+/**
+ * Test the COPY commands and psql arguments built by PostgresqlUtils.
+ */
+public class TestPostgresqlUtils extends TestCase {
+
+  private static final String [] COLS = { "a", "b" };
+
+  public void testCopyTable() {
+    assertEquals("COPY t(a, b) TO STDOUT WITH DELIMITER E'\\54' CSV ;",
+        PostgresqlUtils.getCopyCommand("t", COLS, null,
+        DelimiterSet.DEFAULT_DELIMITERS));
+  }
+
+  public void testCopyQuery() {
+    DelimiterSet delims = new DelimiterSet('\t', '\n', '"', '\\', true);
+    assertEquals("COPY (SELECT a, b FROM t WHERE a > 1) TO STDOUT WITH "
+        + "DELIMITER E'\\11' CSV QUOTE E'\\42' ESCAPE E'\\134' "
+        + "FORCE QUOTE a, b;",
+        PostgresqlUtils.getCopyCommand("t", COLS, "a > 1", delims));
+  }
+
+  public void testCopyFrom() {
+    // Without an enclosing character, '"' must not act as a quote.
+    assertEquals("COPY t(a, b) FROM STDIN WITH DELIMITER E'\\54' "
+        + "NULL 'null' CSV QUOTE E'\\1' ;",
+        PostgresqlUtils.getCopyFromCommand("t", COLS,
+        DelimiterSet.DEFAULT_DELIMITERS));
+
+    // FORCE QUOTE only applies to COPY TO.
+    DelimiterSet delims = new DelimiterSet(',', '\n', '\'', '\\', true);
+    assertEquals("COPY t FROM STDIN WITH DELIMITER E'\\54' NULL 'null' "
+        + "CSV QUOTE E'\\47' ESCAPE E'\\134' ;",
+        PostgresqlUtils.getCopyFromCommand("t", null, delims));
+  }
+
+  public void testCopyFromText() {
+    assertEquals("COPY t(a, b) FROM STDIN WITH NULL 'null';",
+        PostgresqlUtils.getCopyFromTextCommand("t", COLS));
+  }
+
+  public void testPsqlArgs() {
+    List<String> args = PostgresqlUtils.getPsqlArgs("db", "192.0.2.1", -1,
+        null, "cmd.sql");
+    assertEquals("[psql, --tuples-only, --quiet, --host, 192.0.2.1, db, "
+        + "-f, cmd.sql]", args.toString());
+
+    args = PostgresqlUtils.getPsqlCommandArgs("db", "192.0.2.1", 5433,
+        "user", "COPY t FROM STDIN;");
+    assertEquals("[psql, --tuples-only, --quiet, --username, user, "
+        + "--host, 192.0.2.1, --port, 5433, db, -c, COPY t FROM STDIN;]",
+        args.toString());
+  }
+}
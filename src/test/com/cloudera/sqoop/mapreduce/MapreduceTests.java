@@ -34,8 +34,18 @@ public final class MapreduceTests {
     TestSuite suite = new TestSuite(
         "Tests for com.cloudera.sqoop.mapreduce");
     suite.addTestSuite(TestImportJob.class);
+    suite.addTestSuite(TestPreparedStatementCache.class);
+    suite.addTestSuite(TestAsyncSqlRecordWriter.class);
+    suite.addTestSuite(TestAdaptiveBatchSizer.class);
+    suite.addTestSuite(TestMySQLDumpTransformer.class);
+    suite.addTestSuite(TestPostgresqlCopyMapper.class);
+    suite.addTestSuite(TestPostgresqlRecordExportMapper.class);
+    suite.addTestSuite(TestPostgresqlTextExportMapper.class);
+    suite.addTestSuite(TestMergeKey.class);
     suite.addTestSuite(TestDataDrivenDBInputFormat.class);
+    suite.addTestSuite(TestDynamicSplitQueue.class);
     suite.addTestSuite(TestIntegerSplitter.class);
+    suite.addTestSuite(TestHistogramSplitter.class);
     suite.addTestSuite(TestTextSplitter.class);
 
     return suite;
@@ -0,0 +1,110 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the adjustments made by AdaptiveBatchSizer.
+ */
+public class TestAdaptiveBatchSizer extends TestCase {
+
+  private static final long MILLIS = 1000000L;
+
+  /** Report a full window of statements of the current size. */
+  private void runWindow(AdaptiveBatchSizer sizer, long nanosPerStmt) {
+    for (int i = 0; i < AdaptiveBatchSizer.WINDOW_STATEMENTS; i++) {
+      sizer.statementExecuted(sizer.getRowsPerStatement(), nanosPerStmt);
+    }
+  }
+
+  public void testIncreaseWhenFast() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000, 100,
+        1000);
+    assertEquals(100, sizer.getRowsPerStatement());
+    runWindow(sizer, 10 * MILLIS);
+    assertEquals(125, sizer.getRowsPerStatement());
+    runWindow(sizer, 10 * MILLIS);
+    assertEquals(150, sizer.getRowsPerStatement());
+  }
+
+  public void testNoChangeWithinWindow() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000, 100,
+        1000);
+    for (int i = 0; i < AdaptiveBatchSizer.WINDOW_STATEMENTS - 1; i++) {
+      sizer.statementExecuted(100, 10 * MILLIS);
+    }
+    assertEquals(100, sizer.getRowsPerStatement());
+  }
+
+  public void testDecreaseWhenSlow() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000, 100,
+        1000);
+    runWindow(sizer, 5000 * MILLIS);
+    assertEquals(50, sizer.getRowsPerStatement());
+  }
+
+  public void testDecreaseWhenThroughputFalls() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000, 100,
+        1000);
+    runWindow(sizer, 10 * MILLIS); // 10,000 rows/sec; increase to 125.
+    assertEquals(125, sizer.getRowsPerStatement());
+    runWindow(sizer, 50 * MILLIS); // 2,500 rows/sec; back off.
+    assertEquals(62, sizer.getRowsPerStatement());
+  }
+
+  public void testDecreaseOnFailure() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000, 100,
+        1000);
+    sizer.statementFailed(new SQLException("lock wait timeout"));
+    assertEquals(50, sizer.getRowsPerStatement());
+  }
+
+  public void testBounds() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 80, 110, 100,
+        1000);
+    runWindow(sizer, 10 * MILLIS);
+    assertEquals(110, sizer.getRowsPerStatement());
+    runWindow(sizer, 10 * MILLIS);
+    assertEquals(110, sizer.getRowsPerStatement());
+    sizer.statementFailed(new SQLException("too big"));
+    assertEquals(80, sizer.getRowsPerStatement());
+
+    // The initial size is clamped too.
+    sizer = new AdaptiveBatchSizer(5000, 1, 1000, 100, 1000);
+    assertEquals(1000, sizer.getRowsPerStatement());
+  }
+
+  public void testTransactionSize() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000, 10,
+        1000);
+    assertEquals(10, sizer.getStatementsPerTransaction());
+    sizer.statementFailed(new SQLException("slow"));
+    // Half the rows per statement; twice the statements per transaction.
+    assertEquals(20, sizer.getStatementsPerTransaction());
+
+    sizer = new AdaptiveBatchSizer(100, 1, 1000,
+        AsyncSqlOutputFormat.UNLIMITED_STATEMENTS_PER_TRANSACTION, 1000);
+    sizer.statementFailed(new SQLException("slow"));
+    assertEquals(AsyncSqlOutputFormat.UNLIMITED_STATEMENTS_PER_TRANSACTION,
+        sizer.getStatementsPerTransaction());
+  }
+}
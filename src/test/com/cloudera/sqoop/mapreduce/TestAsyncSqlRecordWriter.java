@@ -0,0 +1,284 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.GenericSqoopRecord;
+import com.cloudera.sqoop.mapreduce.db.DBConfiguration;
+import com.cloudera.sqoop.shims.HadoopShim;
+
+/**
+ * Test the executor threads of AsyncSqlRecordWriter against an
+ * in-memory database.
+ */
+public class TestAsyncSqlRecordWriter extends TestCase {
+
+  private static final String DB_URL = "jdbc:hsqldb:mem:asyncwriter";
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+  private static final String TABLE_NAME = "ASYNC_WRITER_TABLE";
+
+  private Connection conn;
+  private Configuration conf;
+
+  public void setUp() throws Exception {
+    Class.forName(DRIVER_CLASS);
+    conn = DriverManager.getConnection(DB_URL);
+    Statement s = conn.createStatement();
+    try {
+      s.executeUpdate("DROP TABLE " + TABLE_NAME + " IF EXISTS");
+      s.executeUpdate("CREATE TABLE " + TABLE_NAME
+          + " (ID INT NOT NULL PRIMARY KEY, MSG VARCHAR(32), TS TIMESTAMP)");
+    } finally {
+      s.close();
+    }
+
+    conf = new Configuration();
+    DBConfiguration.configureDB(conf, DRIVER_CLASS, DB_URL);
+    conf.set(DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, TABLE_NAME);
+    conf.setStrings(DBConfiguration.OUTPUT_FIELD_NAMES_PROPERTY, "ID", "MSG");
+  }
+
+  public void tearDown() throws Exception {
+    conn.close();
+  }
+
+  /**
+   * Configure GenericSqoopRecords binding their fields in the given order.
+   */
+  private void configureRecords(int... dbWriteOrder) {
+    GenericSqoopRecord.configure(conf, new String [] { "ID", "MSG" },
+        new int [] { Types.INTEGER, Types.VARCHAR },
+        new String [] { "Integer", "String" }, dbWriteOrder,
+        DelimiterSet.DEFAULT_DELIMITERS, DelimiterSet.DEFAULT_DELIMITERS);
+  }
+
+  private GenericSqoopRecord newRecord(int id, String msg) {
+    GenericSqoopRecord record =
+        ReflectionUtils.newInstance(GenericSqoopRecord.class, conf);
+    record.set(0, Integer.valueOf(id));
+    record.set(1, msg);
+    return record;
+  }
+
+  private TaskAttemptContext getContext() {
+    String tmpDir = System.getProperty("test.build.data", "/tmp/");
+    return HadoopShim.get().getMapContextForIOPath(conf,
+        new Path(tmpDir, "testAsyncSqlRecordWriter"));
+  }
+
+  private void insertRow(int id, String msg) throws SQLException {
+    Statement s = conn.createStatement();
+    try {
+      s.executeUpdate("INSERT INTO " + TABLE_NAME + " (ID, MSG) VALUES ("
+          + id + ", '" + msg + "')");
+    } finally {
+      s.close();
+    }
+  }
+
+  private String getMsg(int id) throws SQLException {
+    Statement s = conn.createStatement();
+    try {
+      ResultSet rs = s.executeQuery("SELECT MSG FROM " + TABLE_NAME
+          + " WHERE ID = " + id);
+      try {
+        return rs.next() ? rs.getString(1) : null;
+      } finally {
+        rs.close();
+      }
+    } finally {
+      s.close();
+    }
+  }
+
+  private int getRowCount() throws SQLException {
+    Statement s = conn.createStatement();
+    try {
+      ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM " + TABLE_NAME);
+      try {
+        rs.next();
+        return rs.getInt(1);
+      } finally {
+        rs.close();
+      }
+    } finally {
+      s.close();
+    }
+  }
+
+  /**
+   * @return the number of SQLExceptions chained under the cause of 'ioe'.
+   */
+  private int countErrors(IOException ioe) {
+    int count = 0;
+    Throwable cause = ioe.getCause();
+    assertTrue("Unexpected cause: " + cause, cause instanceof SQLException);
+    for (SQLException e = (SQLException) cause; null != e;
+        e = e.getNextException()) {
+      count++;
+    }
+    return count;
+  }
+
+  public void testParallelInsert() throws Exception {
+    configureRecords(0, 1);
+    conf.setInt(AsyncSqlOutputFormat.EXEC_THREADS_KEY, 3);
+    conf.setInt(AsyncSqlOutputFormat.RECORDS_PER_STATEMENT_KEY, 2);
+
+    TaskAttemptContext context = getContext();
+    RecordWriter<GenericSqoopRecord, NullWritable> writer =
+        new ExportOutputFormat<GenericSqoopRecord, NullWritable>()
+        .getRecordWriter(context);
+    assertEquals(3,
+        ((AsyncSqlRecordWriter) writer).getNumExecThreads());
+    for (int i = 0; i < 21; i++) {
+      writer.write(newRecord(i, "msg" + i), NullWritable.get());
+    }
+    writer.close(context);
+
+    assertEquals(21, getRowCount());
+    assertEquals("msg20", getMsg(20));
+  }
+
+  public void testUpdateUsesOneThread() throws Exception {
+    // UPDATE ... SET MSG=? WHERE ID=? binds the fields in reverse.
+    configureRecords(1, 0);
+    conf.setStrings(DBConfiguration.OUTPUT_FIELD_NAMES_PROPERTY, "MSG");
+    conf.set(ExportJobBase.SQOOP_EXPORT_UPDATE_COL_KEY, "ID");
+    conf.setInt(AsyncSqlOutputFormat.EXEC_THREADS_KEY, 4);
+    for (int i = 0; i < 5; i++) {
+      insertRow(i, "old");
+    }
+
+    TaskAttemptContext context = getContext();
+    RecordWriter<GenericSqoopRecord, NullWritable> writer =
+        new UpdateOutputFormat<GenericSqoopRecord, NullWritable>()
+        .getRecordWriter(context);
+    assertEquals(1,
+        ((AsyncSqlRecordWriter) writer).getNumExecThreads());
+    for (int i = 0; i < 5; i++) {
+      writer.write(newRecord(i, "new" + i), NullWritable.get());
+    }
+    writer.close(context);
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals("new" + i, getMsg(i));
+    }
+  }
+
+  public void testAllThreadErrorsReported() throws Exception {
+    configureRecords(0, 1);
+    conf.setInt(AsyncSqlOutputFormat.EXEC_THREADS_KEY, 2);
+    conf.setInt(AsyncSqlOutputFormat.RECORDS_PER_STATEMENT_KEY, 1);
+    insertRow(1, "taken");
+    insertRow(2, "taken");
+
+    // Each thread gets one statement, which violates the primary key.
+    // Whenever they are noticed, both errors must be reported.
+    TaskAttemptContext context = getContext();
+    RecordWriter<GenericSqoopRecord, NullWritable> writer =
+        new ExportOutputFormat<GenericSqoopRecord, NullWritable>()
+        .getRecordWriter(context);
+    int numErrors = 0;
+    for (int i = 1; i <= 2; i++) {
+      try {
+        writer.write(newRecord(i, "dup"), NullWritable.get());
+      } catch (IOException ioe) {
+        numErrors += countErrors(ioe);
+      }
+    }
+
+    try {
+      writer.close(context);
+    } catch (IOException ioe) {
+      numErrors += countErrors(ioe);
+    }
+
+    assertEquals(2, numErrors);
+    assertEquals("taken", getMsg(1));
+  }
+
+  public void testReusedRecordsKeepBoundValues() throws Exception {
+    GenericSqoopRecord.configure(conf, new String [] { "ID", "MSG", "TS" },
+        new int [] { Types.INTEGER, Types.VARCHAR, Types.TIMESTAMP },
+        new String [] { "Integer", "String", "java.sql.Timestamp" },
+        new int [] { 0, 1, 2 },
+        DelimiterSet.DEFAULT_DELIMITERS, DelimiterSet.DEFAULT_DELIMITERS);
+    conf.setStrings(DBConfiguration.OUTPUT_FIELD_NAMES_PROPERTY,
+        "ID", "MSG", "TS");
+    conf.setInt(AsyncSqlOutputFormat.RECORDS_PER_STATEMENT_KEY, 2);
+    conf.setInt(AsyncSqlOutputFormat.EXEC_QUEUE_DEPTH_KEY, 2);
+
+    TaskAttemptContext context = getContext();
+    RecordWriter<GenericSqoopRecord, NullWritable> writer =
+        new ExportOutputFormat<GenericSqoopRecord, NullWritable>()
+        .getRecordWriter(context);
+
+    // Like a mapper, write the same record (and the same mutable
+    // Timestamp) each time. Later batches are copied into the record
+    // objects of earlier ones once those have been bound.
+    GenericSqoopRecord record = newRecord(0, null);
+    Timestamp ts = new Timestamp(0);
+    record.set(2, ts);
+    for (int i = 0; i < 7; i++) {
+      record.set(0, Integer.valueOf(i));
+      record.set(1, "msg" + i);
+      ts.setTime(i * 1000L);
+      writer.write(record, NullWritable.get());
+    }
+    writer.close(context);
+
+    assertEquals(7, getRowCount());
+    Statement s = conn.createStatement();
+    try {
+      ResultSet rs = s.executeQuery("SELECT ID, MSG, TS FROM " + TABLE_NAME
+          + " ORDER BY ID");
+      try {
+        for (int i = 0; i < 7; i++) {
+          assertTrue(rs.next());
+          assertEquals(i, rs.getInt(1));
+          assertEquals("msg" + i, rs.getString(2));
+          assertEquals(i * 1000L, rs.getTimestamp(3).getTime());
+        }
+      } finally {
+        rs.close();
+      }
+    } finally {
+      s.close();
+    }
+  }
+}
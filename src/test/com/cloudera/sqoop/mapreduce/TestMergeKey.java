@@ -0,0 +1,148 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the ordering of MergeKey values, in object and serialized form.
+ */
+public class TestMergeKey extends TestCase {
+
+  private MergeKey key(Object val, boolean isNew) {
+    MergeKey k = new MergeKey();
+    k.set(val, isNew);
+    return k;
+  }
+
+  private byte [] serialize(MergeKey k) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    k.write(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  /** @return the sign of x. */
+  private int sign(int x) {
+    return x < 0 ? -1 : (x > 0 ? 1 : 0);
+  }
+
+  /**
+   * Assert that the keys for 'vals' are in strictly ascending order, both
+   * as objects and under the raw comparators.
+   */
+  private void assertAscending(Object... vals) throws IOException {
+    MergeKey.Comparator sortCmp = new MergeKey.Comparator();
+    MergeKey.GroupingComparator groupCmp = new MergeKey.GroupingComparator();
+    for (int i = 0; i < vals.length; i++) {
+      for (int j = 0; j < vals.length; j++) {
+        int expected = sign(Integer.valueOf(i).compareTo(j));
+        MergeKey a = key(vals[i], false);
+        MergeKey b = key(vals[j], false);
+        byte [] rawA = serialize(a);
+        byte [] rawB = serialize(b);
+        String msg = vals[i] + " vs " + vals[j];
+        assertEquals(msg, expected, sign(a.compareTo(b)));
+        assertEquals(msg, expected, sign(sortCmp.compare(
+            rawA, 0, rawA.length, rawB, 0, rawB.length)));
+        assertEquals(msg, expected, sign(groupCmp.compare(
+            rawA, 0, rawA.length, rawB, 0, rawB.length)));
+      }
+    }
+  }
+
+  public void testIntegers() throws IOException {
+    assertAscending(Integer.MIN_VALUE, -10, -9, -1, 0, 1, 9, 10, 100,
+        Integer.MAX_VALUE);
+    assertAscending(Long.MIN_VALUE, -1L, 0L, 9L, 10L, Long.MAX_VALUE);
+  }
+
+  public void testFloatingPoint() throws IOException {
+    assertAscending(Double.NEGATIVE_INFINITY, -1e10, -2.5, -1.0, -0.5,
+        0.0, 0.5, 1.0, 2.5, 1e10, Double.POSITIVE_INFINITY);
+    assertAscending(-3.5f, -0.25f, 0.0f, 0.25f, 3.5f);
+  }
+
+  public void testDecimals() throws IOException {
+    assertAscending(new BigDecimal("-1000"), new BigDecimal("-999.99"),
+        new BigDecimal("-10"), new BigDecimal("-9.5"), new BigDecimal("-1"),
+        new BigDecimal("-0.123"), new BigDecimal("-0.12"),
+        new BigDecimal("-0.001"), BigDecimal.ZERO, new BigDecimal("0.001"),
+        new BigDecimal("0.12"), new BigDecimal("0.123"), BigDecimal.ONE,
+        new BigDecimal("9.5"), new BigDecimal("10"),
+        new BigDecimal("12345678901234567890.5"));
+
+    // Equal values with different scales are the same key.
+    assertEquals(0, key(new BigDecimal("1.50"), true).compareValueTo(
+        key(new BigDecimal("1.5"), true)));
+    assertEquals(0, key(new BigDecimal("0.00"), true).compareValueTo(
+        key(BigDecimal.ZERO, true)));
+  }
+
+  public void testStrings() throws IOException {
+    assertAscending("", "10", "9", "a", "ab", "b");
+  }
+
+  public void testDates() throws IOException {
+    assertAscending(Date.valueOf("1969-12-31"), Date.valueOf("1970-01-01"),
+        Date.valueOf("2010-06-01"));
+    assertAscending(Timestamp.valueOf("2010-06-01 12:00:00.1"),
+        Timestamp.valueOf("2010-06-01 12:00:00.100000001"),
+        Timestamp.valueOf("2010-06-01 12:00:01"));
+  }
+
+  public void testNewRecordsFirst() throws IOException {
+    MergeKey newKey = key(5, true);
+    MergeKey oldKey = key(5, false);
+    assertTrue(newKey.compareTo(oldKey) < 0);
+    assertEquals(0, newKey.compareValueTo(oldKey));
+    assertEquals(newKey.hashCode(), oldKey.hashCode());
+    assertFalse(newKey.equals(oldKey));
+
+    byte [] rawNew = serialize(newKey);
+    byte [] rawOld = serialize(oldKey);
+    assertTrue(new MergeKey.Comparator().compare(
+        rawNew, 0, rawNew.length, rawOld, 0, rawOld.length) < 0);
+    assertEquals(0, new MergeKey.GroupingComparator().compare(
+        rawNew, 0, rawNew.length, rawOld, 0, rawOld.length));
+
+    // A new record never sorts ahead of an old one with a lesser key.
+    assertTrue(key(4, false).compareTo(newKey) < 0);
+  }
+
+  public void testSerialization() throws IOException {
+    MergeKey k = key("a longer key value than the initial buffer", true);
+    MergeKey k2 = key(1, false);
+    k2.readFields(new DataInputStream(new ByteArrayInputStream(
+        serialize(k))));
+    assertEquals(k, k2);
+    assertTrue(k2.isNewRecord());
+
+    MergeKey k3 = new MergeKey();
+    k3.set(k);
+    assertEquals(k, k3);
+  }
+}
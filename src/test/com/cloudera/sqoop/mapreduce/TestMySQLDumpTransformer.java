@@ -0,0 +1,187 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.FieldFormatter;
+import com.cloudera.sqoop.lib.RecordParser;
+
+/**
+ * Test that MySQLDumpTransformer converts mysqldump output correctly.
+ */
+public class TestMySQLDumpTransformer extends TestCase {
+
+  private static final String PREAMBLE = "INSERT INTO `t` VALUES (";
+
+  private static final String [] RECORDS = {
+    "1,'foo',NULL",
+    "2,'it\\'s, here','a\\\\b'",
+    "3,'',''",
+    "4,'line\\nbreak','\u00e9t\u00e9 \u6f22\u5b57'",
+    "5,,7",
+  };
+
+  private String dump(String... records) {
+    StringBuilder sb = new StringBuilder();
+    for (String record : records) {
+      sb.append(PREAMBLE).append(record).append(");\n");
+    }
+
+    return sb.toString();
+  }
+
+  private String transform(MySQLDumpTransformer transformer, String input)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    transformer.transform(new ByteArrayInputStream(input.getBytes("UTF-8")),
+        out);
+    return new String(out.toByteArray(), "UTF-8");
+  }
+
+  /**
+   * @return the output of the String-based conversion of the records
+   * to the specified delimiters.
+   */
+  private String reparse(DelimiterSet delimiters, String... records)
+      throws Exception {
+    RecordParser parser = new RecordParser(DelimiterSet.MYSQL_DELIMITERS);
+    StringBuilder sb = new StringBuilder();
+    for (String record : records) {
+      List<String> fields = parser.parseRecord(record);
+      boolean first = true;
+      for (String field : fields) {
+        if (!first) {
+          sb.append(delimiters.getFieldsTerminatedBy());
+        }
+        first = false;
+        sb.append(FieldFormatter.escapeAndEnclose(field, delimiters));
+      }
+      sb.append(delimiters.getLinesTerminatedBy());
+    }
+
+    return sb.toString();
+  }
+
+  private String copy(String... records) {
+    StringBuilder sb = new StringBuilder();
+    for (String record : records) {
+      sb.append(record).append('\n');
+    }
+
+    return sb.toString();
+  }
+
+  public void testCopy() throws IOException {
+    MySQLDumpTransformer transformer = new MySQLDumpTransformer();
+    assertEquals(copy(RECORDS), transform(transformer, dump(RECORDS)));
+    assertEquals(RECORDS.length, transformer.getRecordCount());
+  }
+
+  public void testCopySmallBuffer() throws IOException {
+    // Lines span buffer boundaries, and are longer than the buffer.
+    MySQLDumpTransformer transformer = new MySQLDumpTransformer(null, 10);
+    assertEquals(copy(RECORDS), transform(transformer, dump(RECORDS)));
+  }
+
+  public void testNoTrailingNewline() throws IOException {
+    String input = dump(RECORDS);
+    input = input.substring(0, input.length() - 1);
+    assertEquals(copy(RECORDS),
+        transform(new MySQLDumpTransformer(), input));
+  }
+
+  public void testEmptyInput() throws IOException {
+    assertEquals("", transform(new MySQLDumpTransformer(), ""));
+  }
+
+  public void testChangingPreamble() throws IOException {
+    String input = dump(RECORDS[0])
+        + "INSERT INTO `longer_name` VALUES (" + RECORDS[1] + ");\n";
+    assertEquals(copy(RECORDS[0], RECORDS[1]),
+        transform(new MySQLDumpTransformer(), input));
+  }
+
+  public void testMalformedRecord() {
+    try {
+      transform(new MySQLDumpTransformer(), PREAMBLE + "1,2\n");
+      fail("Expected IOException for a missing terminator");
+    } catch (IOException ioe) {
+      // expected.
+    }
+
+    try {
+      transform(new MySQLDumpTransformer(), "SELECT 1;\n");
+      fail("Expected IOException for a missing preamble");
+    } catch (IOException ioe) {
+      // expected.
+    }
+  }
+
+  private void checkConversion(DelimiterSet delimiters) throws Exception {
+    for (int bufSize : new int [] { 7, 64, 4096 }) {
+      MySQLDumpTransformer transformer =
+          new MySQLDumpTransformer(delimiters, bufSize);
+      assertEquals("Delimiters " + delimiters + ", buffer " + bufSize,
+          reparse(delimiters, RECORDS),
+          transform(transformer, dump(RECORDS)));
+    }
+  }
+
+  public void testConvertDefaultDelimiters() throws Exception {
+    checkConversion(DelimiterSet.DEFAULT_DELIMITERS);
+  }
+
+  public void testConvertHiveDelimiters() throws Exception {
+    checkConversion(DelimiterSet.HIVE_DELIMITERS);
+  }
+
+  public void testConvertEscapedDelimiters() throws Exception {
+    checkConversion(new DelimiterSet(',', '\n', DelimiterSet.NULL_CHAR,
+        '\\', false));
+    checkConversion(new DelimiterSet('\t', '\n', '"', '\\', false));
+    checkConversion(new DelimiterSet(',', '\n', '\'', '\\', true));
+    checkConversion(new DelimiterSet('|', '\n', '\'', '\'', false));
+  }
+
+  public void testSkipUnparseableRecord() throws Exception {
+    DelimiterSet delimiters = DelimiterSet.DEFAULT_DELIMITERS;
+    MySQLDumpTransformer transformer =
+        new MySQLDumpTransformer(delimiters, 4096);
+    String output = transform(transformer,
+        dump(RECORDS[0], "1,'a'b", RECORDS[2]));
+    assertEquals(reparse(delimiters, RECORDS[0], RECORDS[2]), output);
+    assertEquals(2, transformer.getRecordCount());
+    assertEquals(1, transformer.getSkippedCount());
+  }
+
+  public void testCanTransform() {
+    assertTrue(MySQLDumpTransformer.canTransform(
+        DelimiterSet.DEFAULT_DELIMITERS));
+    assertFalse(MySQLDumpTransformer.canTransform(
+        new DelimiterSet('\u00e9', '\n', DelimiterSet.NULL_CHAR,
+        DelimiterSet.NULL_CHAR, false)));
+  }
+}
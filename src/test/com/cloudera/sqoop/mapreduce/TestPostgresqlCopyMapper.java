@@ -0,0 +1,85 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import com.cloudera.sqoop.manager.MySQLUtils;
+import com.cloudera.sqoop.mapreduce.db.DBConfiguration;
+
+/**
+ * Test the record copying and COPY commands of PostgresqlCopyMapper.
+ */
+public class TestPostgresqlCopyMapper extends TestCase {
+
+  private String copy(String input, char recordDelim) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PostgresqlCopyMapper.copyRecords(
+        new ByteArrayInputStream(input.getBytes("UTF-8")), out, recordDelim);
+    return new String(out.toByteArray(), "UTF-8");
+  }
+
+  public void testCopyNewlines() throws IOException {
+    assertEquals("1,a\n2,b\n", copy("1,a\n2,b\n", '\n'));
+    assertEquals("", copy("", '\n'));
+  }
+
+  public void testReplaceRecordDelim() throws IOException {
+    assertEquals("1,a|2,b|", copy("1,a\n2,b\n", '|'));
+    assertEquals("1,\u00e9\u00a72,b\u00a7",
+        copy("1,\u00e9\n2,b\n", '\u00a7'));
+  }
+
+  public void testLargeInput() throws IOException {
+    StringBuilder in = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; in.length() < 3 * PostgresqlCopyMapper.BUFFER_SIZE; i++) {
+      in.append(i).append(",\u00e9\n");
+      expected.append(i).append(",\u00e9\u00a7");
+    }
+
+    assertEquals(expected.toString(), copy(in.toString(), '\u00a7'));
+  }
+
+  public void testCopyCommand() {
+    Configuration conf = new Configuration();
+    conf.set(DBConfiguration.INPUT_TABLE_NAME_PROPERTY, "t");
+    conf.setStrings(DBConfiguration.INPUT_FIELD_NAMES_PROPERTY, "a", "b");
+    conf.setInt(MySQLUtils.OUTPUT_FIELD_DELIM_KEY, ',');
+    conf.setInt(MySQLUtils.OUTPUT_RECORD_DELIM_KEY, '\n');
+
+    assertEquals("COPY (SELECT a, b FROM t WHERE (a >= 1) AND (a < 5)) "
+        + "TO STDOUT WITH DELIMITER E'\\54' CSV ;",
+        PostgresqlCopyMapper.getCopyCommand(conf,
+        "(a >= 1) AND (a < 5)"));
+
+    conf.set(DBConfiguration.INPUT_CONDITIONS_PROPERTY, "b > 2");
+    conf.setInt(MySQLUtils.OUTPUT_ENCLOSED_BY_KEY, '"');
+    conf.setBoolean(MySQLUtils.OUTPUT_ENCLOSE_REQUIRED_KEY, true);
+    assertEquals("COPY (SELECT a, b FROM t WHERE (b > 2) AND (a < 5)) "
+        + "TO STDOUT WITH DELIMITER E'\\54' CSV QUOTE E'\\42' "
+        + "FORCE QUOTE a, b;",
+        PostgresqlCopyMapper.getCopyCommand(conf, "a < 5"));
+  }
+}
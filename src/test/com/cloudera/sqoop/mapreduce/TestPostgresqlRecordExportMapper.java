@@ -0,0 +1,85 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Types;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.GenericSqoopRecord;
+import com.cloudera.sqoop.lib.Utf8Buffer;
+
+/**
+ * Test the COPY data written by PostgresqlRecordExportMapper.
+ */
+public class TestPostgresqlRecordExportMapper extends TestCase {
+
+  private GenericSqoopRecord record;
+
+  public void setUp() {
+    Configuration conf = new Configuration();
+    GenericSqoopRecord.configure(conf,
+        new String [] { "ID", "NAME", "AMOUNT", "D" },
+        new int [] { Types.INTEGER, Types.VARCHAR, Types.DECIMAL,
+            Types.DATE },
+        new String [] { "Integer", "String", "java.math.BigDecimal",
+            "java.sql.Date" },
+        new int [] { 0, 1, 2, 3 },
+        DelimiterSet.DEFAULT_DELIMITERS, DelimiterSet.DEFAULT_DELIMITERS);
+    record = ReflectionUtils.newInstance(GenericSqoopRecord.class, conf);
+  }
+
+  private String format(Object... values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      record.set(i, values[i]);
+    }
+
+    Utf8Buffer buf = new Utf8Buffer();
+    PostgresqlRecordExportMapper.formatRecord(record, buf);
+    return buf.toString();
+  }
+
+  public void testNulls() throws IOException {
+    // Every null is the unenclosed COPY null string, whatever its type.
+    assertEquals("null\tnull\tnull\tnull\n",
+        format(null, null, null, null));
+    assertEquals("1\tx\t2.5\t2010-01-02\n", format(Integer.valueOf(1), "x",
+        new BigDecimal("2.5"), Date.valueOf("2010-01-02")));
+  }
+
+  public void testQuotes() throws IOException {
+    // Quotes are ordinary characters in COPY's text format.
+    assertEquals("2\tsay \"hi\", 'bye'\tnull\tnull\n",
+        format(Integer.valueOf(2), "say \"hi\", 'bye'", null, null));
+    assertEquals("3\t\"\tnull\tnull\n",
+        format(Integer.valueOf(3), "\"", null, null));
+  }
+
+  public void testEscapes() throws IOException {
+    assertEquals("4\ta\\\tb\\\nc\\\rd\\\\e\tnull\tnull\n",
+        format(Integer.valueOf(4), "a\tb\nc\rd\\e", null, null));
+  }
+}
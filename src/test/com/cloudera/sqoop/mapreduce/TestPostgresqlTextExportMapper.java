@@ -0,0 +1,59 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.RecordParser;
+
+/**
+ * Test the conversion of escaped text records to COPY's text format by
+ * PostgresqlTextExportMapper.
+ */
+public class TestPostgresqlTextExportMapper extends TestCase {
+
+  private String format(DelimiterSet delims, String line)
+      throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    PostgresqlTextExportMapper.formatRecord(new RecordParser(delims),
+        new Text(line), out);
+    return new String(out.getData(), 0, out.getLength(), "UTF-8");
+  }
+
+  public void testEscapedDelimiter() throws IOException {
+    // CSV-format COPY would split the unenclosed field at the comma.
+    DelimiterSet delims = new DelimiterSet(',', '\n',
+        DelimiterSet.NULL_CHAR, '\\', false);
+    assertEquals("1\ta,b\tnull", format(delims, "1,a\\,b,null"));
+    assertEquals("2\tsay \"hi\"\ta\\\\b",
+        format(delims, "2,say \\\"hi\\\",a\\\\b"));
+  }
+
+  public void testOptionalEnclosure() throws IOException {
+    DelimiterSet delims = new DelimiterSet('\t', '\n', '"', '\\', false);
+    assertEquals("3\ta\\\tb\tc\"d",
+        format(delims, "3\t\"a\tb\"\tc\\\"d"));
+  }
+}
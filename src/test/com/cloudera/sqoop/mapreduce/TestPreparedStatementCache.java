@@ -0,0 +1,115 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that PreparedStatementCache reuses statements correctly.
+ */
+public class TestPreparedStatementCache extends TestCase {
+
+  private static final String DB_URL = "jdbc:hsqldb:mem:stmtcache";
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+
+  private static final String SQL_A = "SELECT 1 FROM INFORMATION_SCHEMA."
+      + "SYSTEM_TABLES WHERE TABLE_NAME = ?";
+  private static final String SQL_B = "SELECT 2 FROM INFORMATION_SCHEMA."
+      + "SYSTEM_TABLES WHERE TABLE_NAME = ?";
+
+  private Connection conn;
+
+  public void setUp() throws Exception {
+    Class.forName(DRIVER_CLASS);
+    conn = DriverManager.getConnection(DB_URL);
+  }
+
+  public void tearDown() throws Exception {
+    conn.close();
+  }
+
+  public void testReuse() throws SQLException {
+    PreparedStatementCache cache = new PreparedStatementCache(conn, 4);
+    PreparedStatement stmt = cache.prepareStatement(SQL_A);
+    stmt.setString(1, "foo");
+    assertTrue(cache.release(stmt, true));
+
+    // The same statement should come back for the same SQL.
+    assertSame(stmt, cache.prepareStatement(SQL_A));
+    cache.close();
+  }
+
+  public void testNoSharingWhileCheckedOut() throws SQLException {
+    PreparedStatementCache cache = new PreparedStatementCache(conn, 4);
+    PreparedStatement stmt1 = cache.prepareStatement(SQL_A);
+    PreparedStatement stmt2 = cache.prepareStatement(SQL_A);
+    assertNotSame(stmt1, stmt2);
+
+    assertTrue(cache.release(stmt2, true));
+    assertTrue(cache.release(stmt1, true));
+    PreparedStatement stmt3 = cache.prepareStatement(SQL_A);
+    PreparedStatement stmt4 = cache.prepareStatement(SQL_A);
+    assertTrue(stmt3 == stmt1 || stmt3 == stmt2);
+    assertTrue(stmt4 == stmt1 || stmt4 == stmt2);
+    assertNotSame(stmt3, stmt4);
+    cache.close();
+  }
+
+  public void testNoReuseAfterFailure() throws SQLException {
+    PreparedStatementCache cache = new PreparedStatementCache(conn, 4);
+    PreparedStatement stmt = cache.prepareStatement(SQL_A);
+    assertTrue(cache.release(stmt, false));
+    assertNotSame(stmt, cache.prepareStatement(SQL_A));
+    cache.close();
+  }
+
+  public void testEviction() throws SQLException {
+    PreparedStatementCache cache = new PreparedStatementCache(conn, 1);
+    PreparedStatement stmtA = cache.prepareStatement(SQL_A);
+    PreparedStatement stmtB = cache.prepareStatement(SQL_B);
+    assertTrue(cache.release(stmtA, true));
+    assertTrue(cache.release(stmtB, true));
+
+    // Only the most recently-used statement is retained.
+    assertSame(stmtB, cache.prepareStatement(SQL_B));
+    assertNotSame(stmtA, cache.prepareStatement(SQL_A));
+    cache.close();
+  }
+
+  public void testDisabled() throws SQLException {
+    PreparedStatementCache cache = new PreparedStatementCache(conn, 0);
+    PreparedStatement stmt = cache.prepareStatement(SQL_A);
+    assertTrue(cache.release(stmt, true));
+    assertNotSame(stmt, cache.prepareStatement(SQL_A));
+    cache.close();
+  }
+
+  public void testForeignStatement() throws SQLException {
+    PreparedStatementCache cache = new PreparedStatementCache(conn, 4);
+    PreparedStatement stmt = conn.prepareStatement(SQL_A);
+    assertFalse(cache.release(stmt, true));
+    stmt.close();
+    cache.close();
+  }
+}
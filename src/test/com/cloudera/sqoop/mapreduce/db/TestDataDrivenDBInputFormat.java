@@ -222,4 +222,70 @@ public class TestDataDrivenDBInputFormat extends HadoopTestCase {
       s.close();
     }
   }
+
+  public void testDynamicSplits() throws Exception {
+    Statement s = connection.createStatement();
+    final String DATE_TABLE = "dyndatetable";
+    final String COL = "foo";
+    try {
+      try {
+        // delete the table if it already exists.
+        s.executeUpdate("DROP TABLE " + DATE_TABLE);
+      } catch (SQLException e) {
+        // Ignored; proceed regardless of whether we deleted the table;
+        // it may have simply not existed.
+      }
+
+      // Create the table.
+      s.executeUpdate("CREATE TABLE " + DATE_TABLE + "(" + COL + " TIMESTAMP)");
+      s.executeUpdate("INSERT INTO " + DATE_TABLE + " VALUES('2010-04-01')");
+      s.executeUpdate("INSERT INTO " + DATE_TABLE + " VALUES('2010-04-02')");
+      s.executeUpdate("INSERT INTO " + DATE_TABLE + " VALUES('2010-05-01')");
+      s.executeUpdate("INSERT INTO " + DATE_TABLE + " VALUES('2011-04-01')");
+
+      // commit this tx.
+      connection.commit();
+
+      Configuration conf = new Configuration();
+      conf.set("fs.defaultFS", "file:///");
+      FileSystem fs = FileSystem.getLocal(conf);
+      fs.delete(new Path(OUT_DIR), true);
+      Path queueDir = new Path(OUT_DIR + "-queue");
+      fs.delete(queueDir, true);
+
+      // now do a dd import
+      Job job = new Job(conf);
+      job.setMapperClass(ValMapper.class);
+      job.setReducerClass(Reducer.class);
+      job.setMapOutputKeyClass(DateCol.class);
+      job.setMapOutputValueClass(NullWritable.class);
+      job.setOutputKeyClass(DateCol.class);
+      job.setOutputValueClass(NullWritable.class);
+      job.setNumReduceTasks(1);
+      job.getConfiguration().setInt("mapreduce.map.tasks", 2);
+      job.getConfiguration().setInt(
+          DataDrivenDBInputFormat.DYNAMIC_RANGES_PER_TASK_KEY, 4);
+      job.getConfiguration().set(
+          DataDrivenDBInputFormat.DYNAMIC_QUEUE_DIR_KEY, queueDir.toString());
+      FileOutputFormat.setOutputPath(job, new Path(OUT_DIR));
+      DBConfiguration.configureDB(job.getConfiguration(), DRIVER_CLASS,
+          DB_URL, null, null);
+      DataDrivenDBInputFormat.setInput(job, DateCol.class, DATE_TABLE, null,
+          COL, COL);
+
+      boolean ret = job.waitForCompletion(true);
+      assertTrue("job failed", ret);
+
+      // Check to see that we imported as much as we thought we did.
+      assertEquals("Did not get all the records", 4,
+          job.getCounters().findCounter("org.apache.hadoop.mapred.Task$Counter",
+          "REDUCE_OUTPUT_RECORDS").getValue());
+
+      // Every range should have been claimed from the queue.
+      assertEquals(0,
+          fs.listStatus(new Path(queueDir, "pending")).length);
+    } finally {
+      s.close();
+    }
+  }
 }
@@ -0,0 +1,157 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce.db;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Test that DynamicSplitQueue hands out every range exactly once.
+ */
+public class TestDynamicSplitQueue extends TestCase {
+
+  private static final Path QUEUE_DIR = new Path(
+      System.getProperty("test.build.data", "/tmp"), "dynsplitqueue");
+
+  private Configuration conf;
+
+  public void setUp() throws IOException {
+    conf = new Configuration();
+    conf.set("fs.defaultFS", "file:///");
+    FileSystem fs = QUEUE_DIR.getFileSystem(conf);
+    fs.delete(QUEUE_DIR, true);
+  }
+
+  private void createQueue(int numRanges) throws IOException {
+    List<DataDrivenDBInputFormat.DataDrivenDBInputSplit> ranges =
+        new ArrayList<DataDrivenDBInputFormat.DataDrivenDBInputSplit>();
+    for (int i = 0; i < numRanges; i++) {
+      ranges.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(
+          "id >= " + i, "id < " + (i + 1)));
+    }
+
+    DynamicSplitQueue.create(conf, QUEUE_DIR, ranges);
+  }
+
+  private DynamicSplitQueue getQueue(int taskIndex, int numTasks,
+      int numRanges) throws IOException {
+    return new DynamicSplitQueue(conf, QUEUE_DIR, taskIndex, numTasks,
+        numRanges);
+  }
+
+  /** @return the index of the next range claimed, or -1 if none. */
+  private int next(DynamicSplitQueue queue) throws IOException {
+    DataDrivenDBInputFormat.DataDrivenDBInputSplit range = queue.next();
+    if (null == range) {
+      return -1;
+    }
+
+    return Integer.parseInt(range.getLowerClause().substring(
+        "id >= ".length()));
+  }
+
+  public void testEachRangeClaimedOnce() throws IOException {
+    createQueue(10);
+    DynamicSplitQueue [] queues = new DynamicSplitQueue[3];
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = getQueue(i, queues.length, 10);
+    }
+
+    Set<Integer> seen = new HashSet<Integer>();
+    boolean drained = false;
+    while (!drained) {
+      drained = true;
+      for (DynamicSplitQueue queue : queues) {
+        int range = next(queue);
+        if (range >= 0) {
+          assertTrue("Range " + range + " claimed twice", seen.add(range));
+          drained = false;
+        }
+      }
+    }
+
+    assertEquals(10, seen.size());
+  }
+
+  public void testOwnedRangesFirst() throws IOException {
+    createQueue(10);
+    DynamicSplitQueue queue = getQueue(1, 3, 10);
+    assertEquals(1, next(queue));
+    assertEquals(4, next(queue));
+    assertEquals(7, next(queue));
+
+    // Then take the ranges other tasks would read last.
+    assertEquals(9, next(queue));
+    assertEquals(8, next(queue));
+    assertEquals(6, next(queue));
+  }
+
+  public void testStealFromSlowTask() throws IOException {
+    createQueue(6);
+    DynamicSplitQueue slow = getQueue(0, 2, 6);
+    DynamicSplitQueue fast = getQueue(1, 2, 6);
+    assertEquals(0, next(slow));
+    assertEquals(1, next(fast));
+    assertEquals(3, next(fast));
+    assertEquals(5, next(fast));
+    assertEquals(4, next(fast));
+    assertEquals(2, next(slow));
+    assertEquals(-1, next(slow));
+    assertEquals(-1, next(fast));
+  }
+
+  public void testRetryRereadsClaimedRanges() throws IOException {
+    createQueue(4);
+    DynamicSplitQueue failed = getQueue(0, 2, 4);
+    assertEquals(0, next(failed));
+    assertEquals(2, next(failed));
+
+    // A new attempt of the same task must read those ranges again.
+    DynamicSplitQueue retry = getQueue(0, 2, 4);
+    Set<Integer> reread = new HashSet<Integer>();
+    reread.add(next(retry));
+    reread.add(next(retry));
+    assertTrue(reread.contains(0));
+    assertTrue(reread.contains(2));
+
+    // ... and then carry on with the rest of the queue.
+    assertEquals(3, next(retry));
+    assertEquals(1, next(retry));
+    assertEquals(-1, next(retry));
+  }
+
+  public void testCreateTwice() throws IOException {
+    createQueue(2);
+    try {
+      createQueue(2);
+      fail("Expected IOException for an existing queue directory");
+    } catch (IOException ioe) {
+      // expected.
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that the HistogramSplitter balances rows among splits.
+ */
+public class TestHistogramSplitter extends TestCase {
+
+  /**
+   * @return buckets of width 10 starting at 0, with the given counts;
+   * buckets with a count of 0 are omitted, as in a GROUP BY result.
+   */
+  private List<HistogramSplitter.Bucket> makeBuckets(long... counts) {
+    List<HistogramSplitter.Bucket> buckets =
+        new ArrayList<HistogramSplitter.Bucket>();
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] > 0) {
+        buckets.add(new HistogramSplitter.Bucket(i * 10, i * 10 + 9,
+            counts[i]));
+      }
+    }
+    return buckets;
+  }
+
+  private void assertPoints(List<Long> actual, long... expected) {
+    assertEquals("Wrong split points " + actual, expected.length,
+        actual.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals("Wrong split points " + actual, expected[i],
+          actual.get(i).longValue());
+    }
+  }
+
+  public void testUniform() {
+    List<Long> points = HistogramSplitter.getSplitPoints(
+        makeBuckets(5, 5, 5, 5, 5, 5, 5, 5), 4, 0);
+    assertPoints(points, 0, 20, 40, 60);
+  }
+
+  public void testSkewed() {
+    // Most rows are in the last few buckets.
+    List<Long> points = HistogramSplitter.getSplitPoints(
+        makeBuckets(1, 1, 1, 1, 1, 1, 30, 30, 30, 4), 4, 0);
+    assertPoints(points, 0, 70, 80, 90);
+  }
+
+  public void testGaps() {
+    // Empty ranges do not get their own splits.
+    List<Long> points = HistogramSplitter.getSplitPoints(
+        makeBuckets(10, 0, 0, 0, 0, 10, 0, 0, 0, 10, 10), 4, 0);
+    assertPoints(points, 0, 50, 90, 100);
+  }
+
+  public void testOneHugeBucket() {
+    // A single bucket cannot be divided; fewer splits are produced.
+    List<Long> points = HistogramSplitter.getSplitPoints(
+        makeBuckets(1, 100, 1), 4, 0);
+    assertPoints(points, 0, 20);
+  }
+
+  public void testSingleBucket() {
+    List<Long> points = HistogramSplitter.getSplitPoints(
+        makeBuckets(42), 4, 0);
+    assertPoints(points, 0);
+  }
+
+  public void testMinBelowFirstBucket() {
+    // The first split always starts at the column's minimum value.
+    List<HistogramSplitter.Bucket> buckets =
+        new ArrayList<HistogramSplitter.Bucket>();
+    buckets.add(new HistogramSplitter.Bucket(-5, 4, 10));
+    buckets.add(new HistogramSplitter.Bucket(5, 14, 10));
+    assertPoints(HistogramSplitter.getSplitPoints(buckets, 2, -3), -3, 5);
+  }
+}
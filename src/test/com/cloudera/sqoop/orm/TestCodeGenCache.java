@@ -0,0 +1,139 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.orm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+
+import com.cloudera.sqoop.testutil.ImportJobTestCase;
+
+/**
+ * Test the persistent cache of generated jars.
+ */
+public class TestCodeGenCache extends TestCase {
+
+  private File baseDir;
+  private File cacheDir;
+  private Configuration conf;
+
+  public void setUp() throws IOException {
+    baseDir = new File(ImportJobTestCase.TEMP_BASE_DIR, "codeGenCacheTest");
+    FileUtils.deleteDirectory(baseDir);
+    assertTrue(baseDir.mkdirs());
+
+    cacheDir = new File(baseDir, "cache");
+    conf = new Configuration();
+    conf.set(CodeGenCache.CACHE_DIR_KEY, cacheDir.getAbsolutePath());
+  }
+
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  private List<String> writeSource(String name, String contents)
+      throws IOException {
+    FileUtils.writeStringToFile(new File(baseDir, name), contents);
+    return Collections.singletonList(name);
+  }
+
+  private File writeJar(String name, int size) throws IOException {
+    File jar = new File(baseDir, name);
+    FileUtils.writeByteArrayToFile(jar, new byte[size]);
+    return jar;
+  }
+
+  public void testFingerprint() throws IOException {
+    CodeGenCache cache = new CodeGenCache(conf);
+    List<String> sources = writeSource("A.java", "class A { int x; }");
+    String fp1 = cache.getFingerprint(baseDir, sources);
+    assertEquals(fp1, cache.getFingerprint(baseDir, sources));
+
+    writeSource("A.java", "class A { long x; }");
+    String fp2 = cache.getFingerprint(baseDir, sources);
+    assertFalse(fp1.equals(fp2));
+
+    // The same contents under another name are a different class.
+    List<String> otherSources = writeSource("B.java", "class A { long x; }");
+    assertFalse(fp2.equals(cache.getFingerprint(baseDir, otherSources)));
+  }
+
+  public void testStoreAndFetch() throws IOException {
+    CodeGenCache cache = new CodeGenCache(conf);
+    assertTrue(cache.isEnabled());
+
+    File jar = writeJar("in.jar", 100);
+    File out = new File(baseDir, "out/out.jar");
+    assertFalse(cache.fetch("abc", out));
+    assertFalse(out.exists());
+
+    cache.store("abc", jar);
+    assertTrue(cache.fetch("abc", out));
+    assertTrue(FileUtils.contentEquals(jar, out));
+    assertFalse(cache.fetch("def", out));
+  }
+
+  public void testEviction() throws IOException {
+    conf.setLong(CodeGenCache.CACHE_MAX_SIZE_KEY, 250);
+    CodeGenCache cache = new CodeGenCache(conf);
+    File out = new File(baseDir, "out.jar");
+
+    cache.store("first", writeJar("1.jar", 100));
+    cache.store("second", writeJar("2.jar", 100));
+    assertTrue(new File(cacheDir, "first.jar").setLastModified(1000000L));
+    assertTrue(new File(cacheDir, "second.jar").setLastModified(2000000L));
+
+    // Using the first entry makes the second the least recently used.
+    assertTrue(cache.fetch("first", out));
+
+    cache.store("third", writeJar("3.jar", 100));
+    assertTrue(cache.fetch("first", out));
+    assertFalse(cache.fetch("second", out));
+    assertTrue(cache.fetch("third", out));
+  }
+
+  public void testDirFromSystemProperty() throws IOException {
+    File propDir = new File(baseDir, "propCache");
+    String oldDir = System.getProperty(CodeGenCache.CACHE_DIR_KEY);
+    System.setProperty(CodeGenCache.CACHE_DIR_KEY, propDir.getAbsolutePath());
+    try {
+      new CodeGenCache(new Configuration()).store("abc",
+          writeJar("in.jar", 100));
+      assertTrue(new File(propDir, "abc.jar").exists());
+    } finally {
+      if (null == oldDir) {
+        System.clearProperty(CodeGenCache.CACHE_DIR_KEY);
+      } else {
+        System.setProperty(CodeGenCache.CACHE_DIR_KEY, oldDir);
+      }
+    }
+  }
+
+  public void testDisabled() {
+    conf.setBoolean(CodeGenCache.CACHE_ENABLED_KEY, false);
+    assertFalse(new CodeGenCache(conf).isEnabled());
+    assertFalse(new CodeGenCache(null).isEnabled());
+  }
+}